@@ -0,0 +1,53 @@
+package com.wallet.service;
+
+import com.google.protobuf.ByteString;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Converts amounts to and from the Decimal message without going through their text,
+ * which is exact and much cheaper than formatting and parsing a decimal string. Used for
+ * the wallet service requests and for stored events alike.
+ */
+public final class Decimals {
+    private Decimals() {
+    }
+
+    public static Decimal toMessage(BigDecimal value) {
+        Decimal.Builder builder = Decimal.newBuilder().setScale(value.scale());
+        BigInteger unscaled = value.unscaledValue();
+        if (unscaled.bitLength() < Long.SIZE) {
+            builder.setUnscaledLong(unscaled.longValue());
+        } else {
+            builder.setUnscaledBytes(ByteString.copyFrom(unscaled.toByteArray()));
+        }
+        return builder.build();
+    }
+
+    /**
+     * @throws IllegalArgumentException If the message has no unscaled value, or an empty one,
+     *         rather than reading it as zero
+     */
+    public static BigDecimal fromMessage(Decimal value) {
+        switch (value.getUnscaledCase()) {
+            case UNSCALED_LONG:
+                return BigDecimal.valueOf(value.getUnscaledLong(), value.getScale());
+            case UNSCALED_BYTES:
+                return fromBytes(value.getUnscaledBytes().toByteArray(), value.getScale());
+            default:
+                throw new IllegalArgumentException("Invalid amount: no unscaled value");
+        }
+    }
+
+    /**
+     * Amount from a big-endian two's complement unscaled value, for readers that parse the
+     * message fields themselves
+     */
+    public static BigDecimal fromBytes(byte[] unscaled, int scale) {
+        if (unscaled.length == 0) {
+            throw new IllegalArgumentException("Invalid amount: empty unscaled value");
+        }
+        return new BigDecimal(new BigInteger(unscaled), scale);
+    }
+}
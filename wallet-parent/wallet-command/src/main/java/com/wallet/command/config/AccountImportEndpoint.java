@@ -0,0 +1,28 @@
+package com.wallet.command.config;
+
+import com.wallet.command.onboarding.ImportResult;
+import com.wallet.command.service.AccountImportService;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Management endpoint for bulk account onboarding: POST imports a file of account
+ * definitions found on the server at the given path
+ */
+@Component
+@ConditionalOnProperty(name = "event-store.engine", havingValue = "rocksdb", matchIfMissing = true)
+@Endpoint(id = "account-import")
+public class AccountImportEndpoint {
+    private final AccountImportService importService;
+
+    public AccountImportEndpoint(AccountImportService importService) {
+        this.importService = importService;
+    }
+
+    @WriteOperation
+    public ImportResult importAccounts(String file) {
+        return importService.importAccounts(file);
+    }
+}
@@ -0,0 +1,41 @@
+package com.wallet.command.config;
+
+import com.wallet.command.infrastructure.repository.BackupDescriptor;
+import com.wallet.command.service.EventStoreBackupService;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Management endpoint for event store backups: GET lists them, POST adds an incremental
+ * backup, or writes a checkpoint when a checkpointDir is given
+ */
+@Component
+@ConditionalOnProperty(name = "event-store.engine", havingValue = "rocksdb", matchIfMissing = true)
+@Endpoint(id = "backups")
+public class BackupEndpoint {
+    private final EventStoreBackupService backupService;
+
+    public BackupEndpoint(EventStoreBackupService backupService) {
+        this.backupService = backupService;
+    }
+
+    @ReadOperation
+    public List<BackupDescriptor> backups() {
+        return backupService.listBackups();
+    }
+
+    @WriteOperation
+    public Object create(@Nullable String checkpointDir) {
+        if (checkpointDir != null && !checkpointDir.isEmpty()) {
+            backupService.checkpoint(checkpointDir);
+            return checkpointDir;
+        }
+        return backupService.backup();
+    }
+}
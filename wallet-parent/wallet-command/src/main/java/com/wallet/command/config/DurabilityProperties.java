@@ -0,0 +1,29 @@
+package com.wallet.command.config;
+
+import com.wallet.command.model.Durability;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Typed binding of the event-store.durability.* settings: how durable the events of each
+ * command type must be before the command is acknowledged
+ */
+@Data
+@ConfigurationProperties(prefix = "event-store.durability")
+public class DurabilityProperties {
+    /**
+     * Level of command types not listed in commands
+     */
+    private Durability defaultLevel = Durability.GROUP_SYNC;
+    /**
+     * Level per command class simple name, e.g. TransferCommand
+     */
+    private Map<String, Durability> commands = new HashMap<>();
+
+    public Durability levelOf(Class<?> commandType) {
+        return commands.getOrDefault(commandType.getSimpleName(), defaultLevel);
+    }
+}
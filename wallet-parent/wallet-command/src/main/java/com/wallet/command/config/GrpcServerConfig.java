@@ -6,6 +6,7 @@ import net.devh.boot.grpc.server.interceptor.GrpcGlobalServerInterceptor;
 import net.devh.boot.grpc.server.service.GrpcService;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Bean;
+import com.wallet.command.interceptor.DurabilityInterceptor;
 import com.wallet.command.interceptor.ErrorHandlingInterceptor;
 import com.wallet.command.interceptor.ValidationInterceptor;
 import com.wallet.command.interceptor.MetricsInterceptor;
@@ -35,4 +36,10 @@ public class GrpcServerConfig {
     public ServerInterceptor metricsInterceptor() {
         return new MetricsInterceptor(meterRegistry);
     }
+
+    @Bean
+    @GrpcGlobalServerInterceptor
+    public ServerInterceptor durabilityInterceptor() {
+        return new DurabilityInterceptor();
+    }
 }
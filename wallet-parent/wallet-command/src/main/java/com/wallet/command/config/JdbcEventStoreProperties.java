@@ -0,0 +1,25 @@
+package com.wallet.command.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Typed binding of the event-store.jdbc.* settings, used when event-store.engine is jdbc
+ */
+@Data
+@ConfigurationProperties(prefix = "event-store.jdbc")
+public class JdbcEventStoreProperties {
+    /**
+     * Rows fetched per round trip, and per keyset page of a cursor
+     */
+    private int fetchSize = 500;
+    /**
+     * Rows per multi-row INSERT statement; longer appends are split into several
+     */
+    private int maxRowsPerInsert = 100;
+    /**
+     * Threads running statements; appends spend most of their time waiting on the database,
+     * so this may well exceed the processor count
+     */
+    private int threads = Runtime.getRuntime().availableProcessors();
+}
@@ -0,0 +1,9 @@
+package com.wallet.command.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(RocksDBProperties.class)
+public class RocksDBConfig {
+}
@@ -0,0 +1,238 @@
+package com.wallet.command.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Typed binding of the rocksdb.* settings. Database-wide budgets are shared by all column
+ * families; table and memtable settings are given per column family, since events,
+ * versions, snapshots and the global log are accessed in very different ways.
+ *
+ * The store may be split into shards, each one a RocksDB instance of its own; database-wide
+ * settings then apply to every shard unless the shard overrides them.
+ */
+@Data
+@ConfigurationProperties(prefix = "rocksdb")
+public class RocksDBProperties {
+    public static final String DEFAULT_SHARD = "default";
+
+    private String dataDir = "data/rocksdb";
+    private int maxOpenFiles = 1000;
+    /**
+     * Flush and compaction threads
+     */
+    private int maxBackgroundJobs = 4;
+    /**
+     * Flush and compaction write budget per second, zero for unlimited
+     */
+    private DataSize rateLimit = DataSize.ofMegabytes(0);
+    /**
+     * LRU block cache shared by every column family
+     */
+    private DataSize blockCacheSize = DataSize.ofMegabytes(256);
+    /**
+     * Collect RocksDB tickers and histograms for the wallet.rocksdb.* meters
+     */
+    private boolean statisticsEnabled = true;
+    private int writeLanes = 4;
+    /**
+     * Aggregates whose version is kept in memory for append version checks, zero to disable;
+     * cold aggregates are evicted beyond this count
+     */
+    private int versionCacheSize = 100_000;
+    /**
+     * RocksDB instances the aggregates are spread over, typically one per disk.
+     * Empty for a single instance in data-dir. Fixed once the store was opened, since
+     * aggregates are not moved between shards.
+     */
+    private List<Shard> shards = new ArrayList<>();
+    /**
+     * Points per shard on the consistent hash ring; more points spread aggregates more evenly.
+     * Fixed once the store was opened with several shards.
+     */
+    private int shardVirtualNodes = 256;
+    private GroupCommit groupCommit = new GroupCommit();
+    private ColumnFamilies columnFamilies = new ColumnFamilies();
+    private Backup backup = new Backup();
+    private BulkImport bulkImport = new BulkImport();
+
+    /**
+     * The configured shards with unset overrides taken from the database-wide settings,
+     * or a single shard named "default" in data-dir
+     */
+    public List<Shard> resolvedShards() {
+        if (shards.isEmpty()) {
+            Shard shard = new Shard();
+            shard.setName(DEFAULT_SHARD);
+            shard.setDataDir(dataDir);
+            return Collections.singletonList(shard.resolve(this));
+        }
+        Set<String> names = new HashSet<>();
+        List<Shard> resolved = new ArrayList<>(shards.size());
+        for (Shard shard : shards) {
+            if (shard.getName() == null || shard.getName().isEmpty()
+                    || shard.getDataDir() == null || shard.getDataDir().isEmpty()) {
+                throw new IllegalArgumentException("Every rocksdb shard needs a name and a data-dir");
+            }
+            if (!names.add(shard.getName())) {
+                throw new IllegalArgumentException("Duplicate rocksdb shard name: " + shard.getName());
+            }
+            resolved.add(shard.resolve(this));
+        }
+        return resolved;
+    }
+
+    @Data
+    public static class Shard {
+        /**
+         * Stable name of the shard; the aggregates it holds depend on the name, not on its
+         * position in the list, so a shard must never be renamed
+         */
+        private String name;
+        private String dataDir;
+        private Integer maxBackgroundJobs;
+        private DataSize rateLimit;
+        private Integer writeLanes;
+
+        private Shard resolve(RocksDBProperties defaults) {
+            Shard resolved = new Shard();
+            resolved.setName(name);
+            resolved.setDataDir(dataDir);
+            resolved.setMaxBackgroundJobs(maxBackgroundJobs != null ? maxBackgroundJobs : defaults.getMaxBackgroundJobs());
+            resolved.setRateLimit(rateLimit != null ? rateLimit : defaults.getRateLimit());
+            resolved.setWriteLanes(writeLanes != null ? writeLanes : defaults.getWriteLanes());
+            return resolved;
+        }
+    }
+
+    @Data
+    public static class GroupCommit {
+        private int maxBatchEvents = 512;
+        private long maxWaitMicros = 200;
+        private int queueCapacity = 10000;
+    }
+
+    @Data
+    public static class Backup {
+        /**
+         * BackupEngine directory; SST files are shared between backups, so each one is incremental
+         */
+        private String dir = "data/rocksdb-backup";
+        /**
+         * Backups kept after each run, older ones are purged
+         */
+        private int maxBackups = 7;
+        /**
+         * Time between scheduled backups, zero disables scheduling
+         */
+        private Duration interval = Duration.ZERO;
+        /**
+         * Checkpoint or backup directory used to seed an empty data-dir at startup
+         */
+        private String restoreFrom = "";
+    }
+
+    @Data
+    public static class BulkImport {
+        /**
+         * Accounts written into one set of SST files and ingested together
+         */
+        private int chunkSize = 100_000;
+        /**
+         * AccountCreated events handed to the publisher at once
+         */
+        private int publishBatchSize = 1000;
+        /**
+         * Validation errors and existing account IDs listed in an import result
+         */
+        private int reportLimit = 100;
+    }
+
+    @Data
+    public static class ColumnFamilies {
+        /**
+         * Append-only, read by prefix range scans of one aggregate
+         */
+        private ColumnFamilyProfile events = ColumnFamilyProfile.prefixScanned(DataSize.ofMegabytes(64), DataSize.ofKilobytes(16));
+        /**
+         * Small, overwritten on every append, read by point lookups
+         */
+        private ColumnFamilyProfile versions = ColumnFamilyProfile.pointLookup(DataSize.ofMegabytes(16));
+        /**
+         * Rarely written, read by a reverse seek within one aggregate
+         */
+        private ColumnFamilyProfile snapshots = ColumnFamilyProfile.prefixScanned(DataSize.ofMegabytes(16), DataSize.ofKilobytes(16));
+        /**
+         * Append-only with monotonic keys, read by forward range scans
+         */
+        private ColumnFamilyProfile sequence = ColumnFamilyProfile.rangeScanned(DataSize.ofMegabytes(32));
+        /**
+         * Append-only, read by a short prefix seek per transaction ID
+         */
+        private ColumnFamilyProfile transactions = ColumnFamilyProfile.prefixScanned(DataSize.ofMegabytes(16), DataSize.ofKilobytes(4));
+        /**
+         * Append-only, read by a reverse seek within one aggregate
+         */
+        private ColumnFamilyProfile timeline = ColumnFamilyProfile.prefixScanned(DataSize.ofMegabytes(16), DataSize.ofKilobytes(16));
+    }
+
+    @Data
+    public static class ColumnFamilyProfile {
+        private DataSize writeBufferSize = DataSize.ofMegabytes(64);
+        private int maxWriteBufferNumber = 3;
+        private DataSize blockSize = DataSize.ofKilobytes(4);
+        /**
+         * Bloom filter bits per key, zero disables the filter
+         */
+        private double bloomBitsPerKey = 10;
+        /**
+         * Build filters on the aggregate key prefix and enable the memtable prefix bloom
+         */
+        private boolean prefixExtractor;
+        private double memtablePrefixBloomRatio = 0.1;
+        private boolean cacheIndexAndFilterBlocks = true;
+        /**
+         * Compression per LSM level, starting at L0; the last entry applies to deeper levels
+         */
+        private List<Compression> compressionPerLevel = new ArrayList<>(Arrays.asList(
+            Compression.NONE, Compression.NONE, Compression.LZ4, Compression.LZ4,
+            Compression.LZ4, Compression.ZSTD, Compression.ZSTD));
+
+        static ColumnFamilyProfile prefixScanned(DataSize writeBufferSize, DataSize blockSize) {
+            ColumnFamilyProfile profile = new ColumnFamilyProfile();
+            profile.setWriteBufferSize(writeBufferSize);
+            profile.setBlockSize(blockSize);
+            profile.setPrefixExtractor(true);
+            return profile;
+        }
+
+        static ColumnFamilyProfile pointLookup(DataSize writeBufferSize) {
+            ColumnFamilyProfile profile = new ColumnFamilyProfile();
+            profile.setWriteBufferSize(writeBufferSize);
+            profile.setMaxWriteBufferNumber(2);
+            profile.setCompressionPerLevel(new ArrayList<>(Arrays.asList(Compression.NONE, Compression.NONE, Compression.LZ4)));
+            return profile;
+        }
+
+        static ColumnFamilyProfile rangeScanned(DataSize writeBufferSize) {
+            ColumnFamilyProfile profile = new ColumnFamilyProfile();
+            profile.setWriteBufferSize(writeBufferSize);
+            profile.setBlockSize(DataSize.ofKilobytes(16));
+            profile.setBloomBitsPerKey(0);
+            return profile;
+        }
+    }
+
+    public enum Compression {
+        NONE, SNAPPY, LZ4, ZSTD
+    }
+}
@@ -0,0 +1,30 @@
+package com.wallet.command.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Typed binding of the event-store.log.* settings, used when event-store.engine is segmented-log
+ */
+@Data
+@ConfigurationProperties(prefix = "event-store.log")
+public class SegmentedLogProperties {
+    private String dir = "data/event-log";
+    /**
+     * Size every segment file is preallocated and mapped with; also the largest possible record
+     */
+    private DataSize segmentSize = DataSize.ofMegabytes(64);
+    /**
+     * Every this many versions of an aggregate, and positions of the log, are indexed
+     */
+    private int indexInterval = 64;
+    /**
+     * Force flushes that contain a synced append to disk before acknowledging them;
+     * false never forces, whatever durability an append asks for
+     */
+    private boolean fsync = true;
+    private int maxBatchEvents = 512;
+    private long maxWaitMicros = 200;
+    private int queueCapacity = 10000;
+}
@@ -1,7 +1,13 @@
 package com.wallet.command.config;
 
 import com.wallet.command.infrastructure.serialization.EventSerializer;
+import com.wallet.command.infrastructure.serialization.EventUpcasterChain;
+import com.wallet.command.infrastructure.serialization.EventUpcasters;
 import com.wallet.command.infrastructure.serialization.JacksonEventSerializer;
+import com.wallet.command.infrastructure.serialization.PayloadFormat;
+import com.wallet.command.infrastructure.serialization.ProtobufEventCodecs;
+import com.wallet.command.infrastructure.serialization.ProtobufEventSerializer;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
@@ -9,9 +15,30 @@ import org.springframework.context.annotation.Primary;
 @Configuration
 public class SerializationConfig {
 
+    /**
+     * Upcasters applied while stored events are read; a MeterBinder, so the upcast
+     * counters are registered with the application's meter registry
+     */
+    @Bean
+    public EventUpcasterChain eventUpcasterChain() {
+        return EventUpcasters.chain();
+    }
+
+    /**
+     * Serializer of newly written events. The protobuf serializer also reads JSON events, so
+     * stores written as JSON switch to protobuf without a migration, but not back.
+     */
     @Bean
     @Primary
-    public EventSerializer eventSerializer() {
-        return new JacksonEventSerializer();
+    public EventSerializer eventSerializer(@Value("${event-store.payload-format:PROTOBUF}") PayloadFormat format,
+                                           EventUpcasterChain upcasters) {
+        switch (format) {
+            case PROTOBUF:
+                return new ProtobufEventSerializer(ProtobufEventCodecs.registry(), upcasters);
+            case JSON:
+                return new JacksonEventSerializer(upcasters);
+            default:
+                throw new IllegalArgumentException("Events cannot be written as " + format);
+        }
     }
 }
@@ -12,7 +12,7 @@ import java.math.BigDecimal;
 @Getter
 @SuperBuilder
 @NoArgsConstructor
-public class BalanceChangedEvent extends BaseEvent {
+public class BalanceChangedEvent extends BaseEvent implements TransactionalEvent {
     private BigDecimal amount;
     private String transactionId;
     private String targetAccountId;
@@ -0,0 +1,22 @@
+package com.wallet.command.event;
+
+/**
+ * Event that belongs to a business transaction; the event store indexes it by transaction ID
+ */
+public interface TransactionalEvent extends Event {
+    /**
+     * Get the ID of the transaction this event belongs to
+     */
+    String getTransactionId();
+
+    /**
+     * @return Transaction ID of the event, or null if it has none
+     */
+    static String transactionIdOf(Event event) {
+        if (!(event instanceof TransactionalEvent)) {
+            return null;
+        }
+        String transactionId = ((TransactionalEvent) event).getTransactionId();
+        return transactionId == null || transactionId.isEmpty() ? null : transactionId;
+    }
+}
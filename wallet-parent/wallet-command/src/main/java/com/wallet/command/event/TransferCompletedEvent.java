@@ -12,7 +12,7 @@ import java.math.BigDecimal;
 @Getter
 @SuperBuilder
 @NoArgsConstructor
-public class TransferCompletedEvent extends BaseEvent {
+public class TransferCompletedEvent extends BaseEvent implements TransactionalEvent {
     private String targetAccountId;
     private BigDecimal amount;
     private String transactionId;
@@ -14,7 +14,7 @@ import java.math.BigDecimal;
 @SuperBuilder
 @NoArgsConstructor
 @EqualsAndHashCode(callSuper = true)
-public class TransferFailedEvent extends BaseEvent {
+public class TransferFailedEvent extends BaseEvent implements TransactionalEvent {
     private String targetAccountId;
     private BigDecimal amount;
     private String transactionId;
@@ -13,7 +13,7 @@ import java.math.BigDecimal;
 @Getter
 @SuperBuilder
 @NoArgsConstructor
-public class TransferInitiatedEvent extends BaseEvent {
+public class TransferInitiatedEvent extends BaseEvent implements TransactionalEvent {
     private String targetAccountId;
     private BigDecimal amount;
     private String transactionId;
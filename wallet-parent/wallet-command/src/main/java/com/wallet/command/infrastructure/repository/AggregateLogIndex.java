@@ -0,0 +1,65 @@
+package com.wallet.command.infrastructure.repository;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * In-memory index of one aggregate in a {@link SegmentedLog}: its latest event, a sparse
+ * set of version checkpoints and the locations of its snapshots. Events between two
+ * checkpoints are found through the previous-record pointers of the log records.
+ */
+final class AggregateLogIndex {
+    private final CheckpointIndex checkpoints;
+    private final TreeMap<Long, Long> snapshots = new TreeMap<>();
+    private volatile Tip tip = new Tip(-1, CheckpointIndex.NONE);
+
+    AggregateLogIndex(int interval) {
+        this.checkpoints = new CheckpointIndex(interval);
+    }
+
+    void append(long version, long location) {
+        checkpoints.record(version, location);
+        tip = new Tip(version, location);
+    }
+
+    /**
+     * Latest event, read as one consistent pair
+     */
+    Tip tip() {
+        return tip;
+    }
+
+    long checkpoint(long version) {
+        return checkpoints.get(version);
+    }
+
+    synchronized void addSnapshot(long version, long location) {
+        snapshots.put(version, location);
+    }
+
+    /**
+     * Location of the newest snapshot at or below a version
+     */
+    synchronized long snapshotAtOrBefore(long maxVersion) {
+        Map.Entry<Long, Long> entry = snapshots.floorEntry(maxVersion);
+        return entry == null ? CheckpointIndex.NONE : entry.getValue();
+    }
+
+    static final class Tip {
+        private final long version;
+        private final long location;
+
+        Tip(long version, long location) {
+            this.version = version;
+            this.location = location;
+        }
+
+        long getVersion() {
+            return version;
+        }
+
+        long getLocation() {
+            return location;
+        }
+    }
+}
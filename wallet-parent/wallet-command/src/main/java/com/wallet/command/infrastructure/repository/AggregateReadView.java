@@ -0,0 +1,33 @@
+package com.wallet.command.infrastructure.repository;
+
+import com.wallet.command.model.AccountSnapshot;
+
+import java.util.Optional;
+
+/**
+ * Consistent view of one aggregate at a single point in time. The version, the snapshot
+ * and every cursor opened from the view all see the same committed state, so a command
+ * validated against the view can append with {@link #getVersion()} as expected version.
+ * The view must be closed to release that point in time.
+ */
+public interface AggregateReadView extends AutoCloseable {
+    String getAggregateId();
+
+    /**
+     * Version of the last event in the view, -1 if the aggregate has no events
+     */
+    long getVersion();
+
+    /**
+     * Most recent snapshot contained in the view
+     */
+    Optional<AccountSnapshot> getLatestSnapshot();
+
+    /**
+     * Stream the events of the view from a version on
+     */
+    EventCursor openCursor(long fromVersion);
+
+    @Override
+    void close();
+}
@@ -0,0 +1,27 @@
+package com.wallet.command.infrastructure.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Instant;
+
+/**
+ * Backup kept by the event store's backup engine
+ */
+@Getter
+@AllArgsConstructor
+public class BackupDescriptor {
+    /**
+     * Shard the backup was taken of
+     */
+    private final String shard;
+    private final int backupId;
+    private final Instant createdAt;
+    private final long sizeBytes;
+    private final int numberFiles;
+    /**
+     * Global log position committed when the backup was started; the backup contains
+     * at least every event up to it
+     */
+    private final long logPosition;
+}
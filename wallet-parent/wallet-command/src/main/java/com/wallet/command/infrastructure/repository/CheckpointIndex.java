@@ -0,0 +1,51 @@
+package com.wallet.command.infrastructure.repository;
+
+import java.util.Arrays;
+
+/**
+ * Sparse index from a sequence number (a version or a global position) to a log location,
+ * holding one entry every {@code interval} numbers. Entries a write failure skipped stay empty.
+ */
+final class CheckpointIndex {
+    static final long NONE = -1;
+
+    private final int interval;
+    private long[] locations = new long[0];
+
+    CheckpointIndex(int interval) {
+        this.interval = interval;
+    }
+
+    synchronized void record(long number, long location) {
+        if (number % interval != 0) {
+            return;
+        }
+        int slot = (int) (number / interval);
+        if (slot >= locations.length) {
+            int length = locations.length;
+            locations = Arrays.copyOf(locations, Math.max(slot + 1, length * 2));
+            Arrays.fill(locations, length, locations.length, NONE);
+        }
+        locations[slot] = location;
+    }
+
+    /**
+     * Location of exactly this number, which must be a multiple of the interval
+     */
+    synchronized long get(long number) {
+        int slot = (int) (number / interval);
+        return slot < locations.length ? locations[slot] : NONE;
+    }
+
+    /**
+     * Location of the closest indexed number at or below this one
+     */
+    synchronized long floor(long number) {
+        for (int slot = (int) Math.min(number / interval, locations.length - 1); slot >= 0; slot--) {
+            if (locations[slot] != NONE) {
+                return locations[slot];
+            }
+        }
+        return NONE;
+    }
+}
@@ -0,0 +1,51 @@
+package com.wallet.command.infrastructure.repository;
+
+import com.wallet.command.event.BaseEvent;
+import com.wallet.command.infrastructure.serialization.EventProjection;
+
+import java.util.Iterator;
+
+/**
+ * Forward-only stream over the events of one aggregate, decoded one at a time.
+ * A cursor reads from a fixed point in time and must be closed to release it.
+ * It is not thread-safe.
+ */
+public interface EventCursor extends Iterator<BaseEvent>, AutoCloseable {
+    /**
+     * Version of the event last returned by {@link #next()}, or the version just
+     * before the start position if none was returned yet
+     */
+    long getLastVersion();
+
+    /**
+     * Advance like {@link #next()}, decoding only the fields of the event that a fold reads
+     *
+     * @param target Projection to overwrite
+     */
+    default void nextProjection(EventProjection target) {
+        target.project(next());
+    }
+
+    /**
+     * The remaining events as projections, for folds that need no complete events.
+     * The iterator returns one reused projection and advances this cursor.
+     */
+    default Iterator<EventProjection> projections() {
+        EventProjection projection = new EventProjection();
+        return new Iterator<EventProjection>() {
+            @Override
+            public boolean hasNext() {
+                return EventCursor.this.hasNext();
+            }
+
+            @Override
+            public EventProjection next() {
+                nextProjection(projection);
+                return projection;
+            }
+        };
+    }
+
+    @Override
+    void close();
+}
@@ -0,0 +1,153 @@
+package com.wallet.command.infrastructure.repository;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Binary, order-preserving key layout for per-aggregate records.
+ *
+ * <pre>
+ * +-----------------+---------------------+-------------------+--------------------+
+ * | bucket (4, BE)  | id length (2, BE)   | aggregate id UTF-8 | version (8, BE)    |
+ * +-----------------+---------------------+-------------------+--------------------+
+ * </pre>
+ *
+ * The bucket is a stable hash of the aggregate id and is what the fixed-length prefix
+ * extractor sees, so every key of an aggregate shares one fixed-size prefix regardless of
+ * the id length. The length-prefixed id keeps "acc1" and "acc10" in disjoint ranges, and
+ * the big-endian version makes versions sort numerically within an aggregate.
+ */
+public final class EventKeyCodec {
+    /**
+     * Length of the prefix handed to RocksDB's fixed prefix extractor
+     */
+    public static final int PREFIX_LENGTH = 4;
+
+    private static final int LENGTH_FIELD = 2;
+    private static final int VERSION_FIELD = 8;
+    private static final int MAX_ID_BYTES = 0xFFFF;
+
+    /**
+     * Unsigned lexicographic order, the order RocksDB's default comparator keeps keys in
+     */
+    public static final Comparator<byte[]> KEY_ORDER = EventKeyCodec::compareUnsigned;
+
+    private EventKeyCodec() {
+    }
+
+    /**
+     * Key of a single event
+     */
+    public static byte[] encode(String aggregateId, long version) {
+        byte[] id = idBytes(aggregateId);
+        return ByteBuffer.allocate(PREFIX_LENGTH + LENGTH_FIELD + id.length + VERSION_FIELD)
+            .putInt(bucket(id))
+            .putShort((short) id.length)
+            .put(id)
+            .putLong(version)
+            .array();
+    }
+
+    /**
+     * Prefix shared by every key of an aggregate (bucket, length and id)
+     */
+    public static byte[] aggregatePrefix(String aggregateId) {
+        byte[] id = idBytes(aggregateId);
+        return ByteBuffer.allocate(PREFIX_LENGTH + LENGTH_FIELD + id.length)
+            .putInt(bucket(id))
+            .putShort((short) id.length)
+            .put(id)
+            .array();
+    }
+
+    /**
+     * Exclusive upper bound for iterating all keys of an aggregate
+     */
+    public static byte[] upperBound(String aggregateId) {
+        byte[] prefix = aggregatePrefix(aggregateId);
+        byte[] bound = Arrays.copyOf(prefix, prefix.length + VERSION_FIELD);
+        Arrays.fill(bound, prefix.length, bound.length, (byte) 0xFF);
+        return bound;
+    }
+
+    /**
+     * Whether a key belongs to the aggregate of the given {@link #aggregatePrefix(String)}
+     */
+    public static boolean hasPrefix(byte[] key, byte[] aggregatePrefix) {
+        if (key.length != aggregatePrefix.length + VERSION_FIELD) {
+            return false;
+        }
+        for (int i = 0; i < aggregatePrefix.length; i++) {
+            if (key[i] != aggregatePrefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Version stored in the trailing eight bytes of a key
+     */
+    public static long decodeVersion(byte[] key) {
+        return ByteBuffer.wrap(key, key.length - VERSION_FIELD, VERSION_FIELD).getLong();
+    }
+
+    /**
+     * Aggregate id stored in a key
+     */
+    public static String decodeAggregateId(byte[] key) {
+        int length = ByteBuffer.wrap(key, PREFIX_LENGTH, LENGTH_FIELD).getShort() & 0xFFFF;
+        return new String(key, PREFIX_LENGTH + LENGTH_FIELD, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Whether a raw key is structurally a key produced by this codec
+     * (used to tell migrated keys apart from legacy "aggregateId:version" text keys)
+     */
+    public static boolean isEncoded(byte[] key) {
+        if (key.length < PREFIX_LENGTH + LENGTH_FIELD + 1 + VERSION_FIELD) {
+            return false;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(key);
+        int bucket = buffer.getInt();
+        int length = buffer.getShort() & 0xFFFF;
+        if (PREFIX_LENGTH + LENGTH_FIELD + length + VERSION_FIELD != key.length) {
+            return false;
+        }
+        return bucket == bucket(Arrays.copyOfRange(key, PREFIX_LENGTH + LENGTH_FIELD,
+            PREFIX_LENGTH + LENGTH_FIELD + length));
+    }
+
+    private static int compareUnsigned(byte[] left, byte[] right) {
+        int length = Math.min(left.length, right.length);
+        for (int i = 0; i < length; i++) {
+            int diff = (left[i] & 0xFF) - (right[i] & 0xFF);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return left.length - right.length;
+    }
+
+    private static byte[] idBytes(String aggregateId) {
+        byte[] id = aggregateId.getBytes(StandardCharsets.UTF_8);
+        if (id.length == 0 || id.length > MAX_ID_BYTES) {
+            throw new IllegalArgumentException("Invalid aggregate id length: " + id.length);
+        }
+        return id;
+    }
+
+    /**
+     * 32-bit FNV-1a; must stay stable because it is part of the on-disk format
+     */
+    private static int bucket(byte[] id) {
+        int hash = 0x811C9DC5;
+        for (byte b : id) {
+            hash ^= b & 0xFF;
+            hash *= 0x01000193;
+        }
+        return hash;
+    }
+}
@@ -1,8 +1,16 @@
 package com.wallet.command.infrastructure.repository;
 
 import com.wallet.command.event.BaseEvent;
+import com.wallet.command.model.AccountSnapshot;
+import com.wallet.command.model.Durability;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 public interface EventStore {
     /**
@@ -13,7 +21,21 @@ public interface EventStore {
      * @param events Events to append
      * @return CompletableFuture of success/failure
      */
-    CompletableFuture<Void> appendEvents(String aggregateId, long expectedVersion, List<BaseEvent> events);
+    default CompletableFuture<Void> appendEvents(String aggregateId, long expectedVersion, List<BaseEvent> events) {
+        return appendEvents(aggregateId, expectedVersion, events, Durability.GROUP_SYNC);
+    }
+
+    /**
+     * Append new events to the event store
+     *
+     * @param aggregateId Aggregate ID
+     * @param expectedVersion Expected version before appending
+     * @param events Events to append
+     * @param durability How durable the events must be before the future completes
+     * @return CompletableFuture of success/failure
+     */
+    CompletableFuture<Void> appendEvents(String aggregateId, long expectedVersion, List<BaseEvent> events,
+                                         Durability durability);
 
     /**
      * Read events for an aggregate from a specific version
@@ -24,6 +46,27 @@ public interface EventStore {
      */
     CompletableFuture<List<BaseEvent>> readEvents(String aggregateId, long fromVersion);
 
+    /**
+     * Open a streaming cursor over the events of an aggregate. Events are decoded as the
+     * cursor advances, so histories of any length are read in constant memory. The cursor
+     * sees the store as of the moment it was opened and must be closed by the caller.
+     *
+     * @param aggregateId Aggregate ID
+     * @param fromVersion Version to start reading from
+     * @return Open cursor
+     */
+    EventCursor openCursor(String aggregateId, long fromVersion);
+
+    /**
+     * Open a consistent read view of an aggregate: its version, latest snapshot and events
+     * are all read from the same point in time. Used to validate a command against exactly
+     * the state that its optimistic append expects.
+     *
+     * @param aggregateId Aggregate ID
+     * @return Open view, to be closed by the caller
+     */
+    AggregateReadView openReadView(String aggregateId);
+
     /**
      * Read all events for an aggregate
      *
@@ -32,6 +75,34 @@ public interface EventStore {
      */
     CompletableFuture<List<BaseEvent>> readAllEvents(String aggregateId);
 
+    /**
+     * Read all events of several aggregates in one call
+     *
+     * @param aggregateIds Aggregate IDs
+     * @return CompletableFuture of events per aggregate; aggregates without events map to an empty list
+     */
+    default CompletableFuture<Map<String, List<BaseEvent>>> readEventsBatch(Collection<String> aggregateIds) {
+        Map<String, Long> fromVersions = new LinkedHashMap<>();
+        aggregateIds.forEach(aggregateId -> fromVersions.put(aggregateId, 0L));
+        return readEventsBatch(fromVersions);
+    }
+
+    /**
+     * Read events of several aggregates in one call, each from its own version
+     *
+     * @param fromVersions Version to start reading from, per aggregate ID
+     * @return CompletableFuture of events per aggregate; aggregates without events map to an empty list
+     */
+    CompletableFuture<Map<String, List<BaseEvent>>> readEventsBatch(Map<String, Long> fromVersions);
+
+    /**
+     * Get the current versions of several aggregates in one call
+     *
+     * @param aggregateIds Aggregate IDs
+     * @return CompletableFuture of version per aggregate, -1 for aggregates without events
+     */
+    CompletableFuture<Map<String, Long>> getCurrentVersions(Collection<String> aggregateIds);
+
     /**
      * Get the current version for an aggregate
      *
@@ -39,4 +110,81 @@ public interface EventStore {
      * @return CompletableFuture of current version
      */
     CompletableFuture<Long> getCurrentVersion(String aggregateId);
+
+    /**
+     * Get the version an aggregate had at a point in time
+     *
+     * @param aggregateId Aggregate ID
+     * @param time Point in time, inclusive
+     * @return CompletableFuture of the last version recorded at or before the time, -1 if none was
+     */
+    CompletableFuture<Long> getVersionAt(String aggregateId, Instant time);
+
+    /**
+     * Read the most recent snapshot taken at or before a version
+     *
+     * @param aggregateId Aggregate ID
+     * @param maxVersion Highest snapshot version to consider
+     * @return CompletableFuture of the snapshot, empty if none was taken
+     */
+    CompletableFuture<Optional<AccountSnapshot>> readSnapshot(String aggregateId, long maxVersion);
+
+    /**
+     * Read the most recent snapshot of an aggregate
+     *
+     * @param aggregateId Aggregate ID
+     * @return CompletableFuture of the snapshot, empty if none was taken
+     */
+    default CompletableFuture<Optional<AccountSnapshot>> readLatestSnapshot(String aggregateId) {
+        return readSnapshot(aggregateId, Long.MAX_VALUE);
+    }
+
+    /**
+     * Read the most recent snapshots of several aggregates in one call
+     *
+     * @param aggregateIds Aggregate IDs
+     * @return CompletableFuture of snapshot per aggregate; aggregates without a snapshot are absent
+     */
+    CompletableFuture<Map<String, AccountSnapshot>> readLatestSnapshots(Collection<String> aggregateIds);
+
+    /**
+     * Store a snapshot. Older snapshots of the aggregate are kept.
+     *
+     * @param snapshot Snapshot to store
+     * @return CompletableFuture of success/failure
+     */
+    CompletableFuture<Void> saveSnapshot(AccountSnapshot snapshot);
+
+    /**
+     * Read the global log, in commit order
+     *
+     * @param fromPosition First global position to read
+     * @param maxCount Maximum number of events to return
+     * @return CompletableFuture of committed events from that position on
+     */
+    CompletableFuture<List<RecordedEvent>> readLog(long fromPosition, int maxCount);
+
+    /**
+     * Get the position of the last committed event in the global log
+     *
+     * @return CompletableFuture of the position, -1 if the log is empty
+     */
+    CompletableFuture<Long> getLogPosition();
+
+    /**
+     * Stream the global log from a position, then keep delivering new events as they commit
+     *
+     * @param fromPosition First global position to deliver
+     * @param listener Called for every event, in order, on a thread owned by the subscription
+     * @return Handle to stop the subscription
+     */
+    EventSubscription subscribeToLog(long fromPosition, Consumer<RecordedEvent> listener);
+
+    /**
+     * Read every event that carries a transaction ID, whichever aggregates they belong to
+     *
+     * @param transactionId Transaction ID of {@link com.wallet.command.event.TransactionalEvent}s
+     * @return CompletableFuture of the events in log order, empty if the transaction is unknown
+     */
+    CompletableFuture<List<RecordedEvent>> readTransaction(String transactionId);
 }
@@ -0,0 +1,296 @@
+package com.wallet.command.infrastructure.repository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wallet.command.event.TransactionalEvent;
+import com.wallet.command.infrastructure.serialization.EventEnvelope;
+import com.wallet.command.infrastructure.serialization.EventSerializer;
+import com.wallet.command.infrastructure.serialization.EventType;
+import com.wallet.command.infrastructure.serialization.PayloadFormat;
+import lombok.extern.slf4j.Slf4j;
+import org.rocksdb.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Upgrades the on-disk layout of an existing event store to the current format.
+ * The format version is kept in the default column family; every step is applied in
+ * bounded write batches so that an interrupted migration can simply be resumed.
+ */
+@Slf4j
+class EventStoreMigration {
+    /**
+     * Format 1: binary keys produced by {@link EventKeyCodec}.
+     * Format 2: values framed in an {@link EventEnvelope}.
+     * Format 3: every event indexed by global position in the sequence column family.
+     * Format 4: transactional events indexed by transaction ID in the transactions column family.
+     * Format 5: every event indexed by recorded time in the timeline column family.
+     */
+    static final int CURRENT_FORMAT = 5;
+
+    private static final byte[] FORMAT_KEY = "format-version".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] LEGACY_SEQUENCE_KEY = "sequence".getBytes(StandardCharsets.UTF_8);
+    private static final int BATCH_SIZE = 1000;
+
+    private final RocksDB db;
+    private final ColumnFamilyHandle defaultCF;
+    private final ColumnFamilyHandle eventsCF;
+    private final ColumnFamilyHandle sequenceCF;
+    private final ColumnFamilyHandle transactionsCF;
+    private final ColumnFamilyHandle timelineCF;
+    private final EventSerializer eventSerializer;
+
+    EventStoreMigration(RocksDB db, ColumnFamilyHandle defaultCF, ColumnFamilyHandle eventsCF,
+                        ColumnFamilyHandle sequenceCF, ColumnFamilyHandle transactionsCF,
+                        ColumnFamilyHandle timelineCF, EventSerializer eventSerializer) {
+        this.db = db;
+        this.defaultCF = defaultCF;
+        this.eventsCF = eventsCF;
+        this.sequenceCF = sequenceCF;
+        this.transactionsCF = transactionsCF;
+        this.timelineCF = timelineCF;
+        this.eventSerializer = eventSerializer;
+    }
+
+    void migrate() throws RocksDBException {
+        int format = readFormat();
+        if (format == CURRENT_FORMAT) {
+            return;
+        }
+        if (format > CURRENT_FORMAT) {
+            throw new IllegalStateException("Event store format " + format + " is newer than supported " + CURRENT_FORMAT);
+        }
+        if (format == 0 && isEmpty()) {
+            db.delete(sequenceCF, LEGACY_SEQUENCE_KEY);
+            writeFormat(CURRENT_FORMAT);
+            return;
+        }
+        if (format < 1) {
+            migrateLegacyKeys();
+            writeFormat(1);
+        }
+        if (format < 2) {
+            wrapLegacyValues();
+            writeFormat(2);
+        }
+        if (format < 3) {
+            backfillGlobalLog();
+            writeFormat(3);
+        }
+        if (format < 4) {
+            backfillTransactionIndex();
+            writeFormat(4);
+        }
+        if (format < 5) {
+            backfillTimeline();
+            writeFormat(5);
+        }
+    }
+
+    /**
+     * Rewrites "aggregateId:version" text keys into the binary layout
+     */
+    private void migrateLegacyKeys() throws RocksDBException {
+        long migrated = 0;
+        try (ReadOptions readOptions = new ReadOptions().setTotalOrderSeek(true);
+             RocksIterator iterator = db.newIterator(eventsCF, readOptions);
+             WriteOptions writeOptions = new WriteOptions()) {
+            WriteBatch batch = new WriteBatch();
+            for (iterator.seekToFirst(); iterator.isValid(); iterator.next()) {
+                byte[] key = iterator.key();
+                if (EventKeyCodec.isEncoded(key)) {
+                    continue;
+                }
+                String legacyKey = new String(key, StandardCharsets.UTF_8);
+                int separator = legacyKey.lastIndexOf(':');
+                if (separator <= 0) {
+                    throw new IllegalStateException("Unrecognized legacy event key: " + legacyKey);
+                }
+                long version = Long.parseLong(legacyKey.substring(separator + 1));
+                batch.put(eventsCF, EventKeyCodec.encode(legacyKey.substring(0, separator), version), iterator.value());
+                batch.delete(eventsCF, key);
+                if (++migrated % BATCH_SIZE == 0) {
+                    db.write(writeOptions, batch);
+                    batch.close();
+                    batch = new WriteBatch();
+                }
+            }
+            db.write(writeOptions, batch);
+            batch.close();
+        }
+        log.info("Migrated {} legacy event keys to binary format", migrated);
+    }
+
+    /**
+     * Frames bare JSON values in an envelope, taking the type from the "eventType" property
+     * that the Jackson serializer has always written
+     */
+    private void wrapLegacyValues() throws RocksDBException {
+        if (!eventSerializer.supports(PayloadFormat.JSON)) {
+            throw new IllegalStateException("Legacy events are JSON encoded; migrate with a serializer that reads JSON");
+        }
+        ObjectMapper objectMapper = new ObjectMapper();
+        long migrated = 0;
+        try (ReadOptions readOptions = new ReadOptions().setTotalOrderSeek(true);
+             RocksIterator iterator = db.newIterator(eventsCF, readOptions);
+             WriteOptions writeOptions = new WriteOptions()) {
+            WriteBatch batch = new WriteBatch();
+            for (iterator.seekToFirst(); iterator.isValid(); iterator.next()) {
+                byte[] value = iterator.value();
+                if (EventEnvelope.isEnvelope(value)) {
+                    continue;
+                }
+                JsonNode typeNode;
+                try {
+                    typeNode = objectMapper.readTree(value).get("eventType");
+                } catch (IOException e) {
+                    throw new IllegalStateException("Unreadable legacy event at version "
+                        + EventKeyCodec.decodeVersion(iterator.key()), e);
+                }
+                if (typeNode == null) {
+                    throw new IllegalStateException("Legacy event without eventType for aggregate "
+                        + EventKeyCodec.decodeAggregateId(iterator.key()));
+                }
+                batch.put(eventsCF, iterator.key(),
+                    EventEnvelope.encode(EventType.fromName(typeNode.asText()), PayloadFormat.JSON, value));
+                if (++migrated % BATCH_SIZE == 0) {
+                    db.write(writeOptions, batch);
+                    batch.close();
+                    batch = new WriteBatch();
+                }
+            }
+            db.write(writeOptions, batch);
+            batch.close();
+        }
+        log.info("Wrapped {} legacy event values in envelopes", migrated);
+    }
+
+    /**
+     * Indexes existing events in key order; their original commit order was never recorded.
+     * Replaces the unused text counter that used to live in the sequence column family.
+     */
+    private void backfillGlobalLog() throws RocksDBException {
+        db.delete(sequenceCF, LEGACY_SEQUENCE_KEY);
+        long position = 0;
+        try (ReadOptions readOptions = new ReadOptions().setTotalOrderSeek(true);
+             RocksIterator iterator = db.newIterator(eventsCF, readOptions);
+             WriteOptions writeOptions = new WriteOptions()) {
+            WriteBatch batch = new WriteBatch();
+            for (iterator.seekToFirst(); iterator.isValid(); iterator.next()) {
+                batch.put(sequenceCF, GlobalLog.encodePosition(position), iterator.key());
+                if (++position % BATCH_SIZE == 0) {
+                    db.write(writeOptions, batch);
+                    batch.close();
+                    batch = new WriteBatch();
+                }
+            }
+            db.write(writeOptions, batch);
+            batch.close();
+        }
+        log.info("Indexed {} existing events in the global log", position);
+    }
+
+    /**
+     * Indexes existing transactional events under their transaction ID, walking the global
+     * log so that each index entry can carry the event's position. Only events whose type
+     * can carry a transaction ID are deserialized.
+     */
+    private void backfillTransactionIndex() throws RocksDBException {
+        long indexed = 0;
+        try (ReadOptions readOptions = new ReadOptions();
+             RocksIterator iterator = db.newIterator(sequenceCF, readOptions);
+             WriteOptions writeOptions = new WriteOptions()) {
+            WriteBatch batch = new WriteBatch();
+            for (iterator.seekToFirst(); iterator.isValid(); iterator.next()) {
+                byte[] eventKey = iterator.value();
+                byte[] value = db.get(eventsCF, eventKey);
+                if (value == null) {
+                    continue;
+                }
+                EventEnvelope envelope = EventEnvelope.decode(value);
+                if (!TransactionalEvent.class.isAssignableFrom(envelope.getType().getEventClass())) {
+                    continue;
+                }
+                if (!eventSerializer.supports(envelope.getFormat())) {
+                    throw new IllegalStateException("Cannot index " + envelope.getFormat() + " events with a "
+                        + eventSerializer.getPayloadFormat() + " serializer configured");
+                }
+                String transactionId = TransactionalEvent.transactionIdOf(eventSerializer.deserialize(envelope));
+                if (transactionId == null) {
+                    continue;
+                }
+                batch.put(transactionsCF,
+                    TransactionKeyCodec.encode(TransactionKeyCodec.prefix(transactionId), eventKey), iterator.key());
+                if (++indexed % BATCH_SIZE == 0) {
+                    db.write(writeOptions, batch);
+                    batch.close();
+                    batch = new WriteBatch();
+                }
+            }
+            db.write(writeOptions, batch);
+            batch.close();
+        }
+        log.info("Indexed {} existing events by transaction ID", indexed);
+    }
+
+    /**
+     * Indexes existing events by the recorded time the write lanes give them: the timestamp
+     * they carry, clamped so that it never decreases with the version.
+     */
+    private void backfillTimeline() throws RocksDBException {
+        long indexed = 0;
+        try (ReadOptions readOptions = new ReadOptions().setTotalOrderSeek(true);
+             RocksIterator iterator = db.newIterator(eventsCF, readOptions);
+             WriteOptions writeOptions = new WriteOptions()) {
+            WriteBatch batch = new WriteBatch();
+            String aggregateId = null;
+            byte[] aggregatePrefix = null;
+            long recordedAt = Long.MIN_VALUE;
+            for (iterator.seekToFirst(); iterator.isValid(); iterator.next()) {
+                byte[] key = iterator.key();
+                EventEnvelope envelope = EventEnvelope.decode(iterator.value());
+                if (!eventSerializer.supports(envelope.getFormat())) {
+                    throw new IllegalStateException("Cannot index " + envelope.getFormat() + " events with a "
+                        + eventSerializer.getPayloadFormat() + " serializer configured");
+                }
+                String id = EventKeyCodec.decodeAggregateId(key);
+                if (!id.equals(aggregateId)) {
+                    aggregateId = id;
+                    aggregatePrefix = EventKeyCodec.aggregatePrefix(id);
+                    recordedAt = Long.MIN_VALUE;
+                }
+                long timestamp = eventSerializer.deserialize(envelope).getTimestampMillis();
+                recordedAt = Math.max(recordedAt, timestamp);
+                batch.put(timelineCF, TimelineKeyCodec.encode(aggregatePrefix, recordedAt, EventKeyCodec.decodeVersion(key)),
+                    new byte[0]);
+                if (++indexed % BATCH_SIZE == 0) {
+                    db.write(writeOptions, batch);
+                    batch.close();
+                    batch = new WriteBatch();
+                }
+            }
+            db.write(writeOptions, batch);
+            batch.close();
+        }
+        log.info("Indexed {} existing events by time", indexed);
+    }
+
+    private boolean isEmpty() {
+        try (ReadOptions readOptions = new ReadOptions().setTotalOrderSeek(true);
+             RocksIterator iterator = db.newIterator(eventsCF, readOptions)) {
+            iterator.seekToFirst();
+            return !iterator.isValid();
+        }
+    }
+
+    private int readFormat() throws RocksDBException {
+        byte[] value = db.get(defaultCF, FORMAT_KEY);
+        return value == null ? 0 : ByteBuffer.wrap(value).getInt();
+    }
+
+    private void writeFormat(int format) throws RocksDBException {
+        db.put(defaultCF, FORMAT_KEY, ByteBuffer.allocate(4).putInt(format).array());
+    }
+}
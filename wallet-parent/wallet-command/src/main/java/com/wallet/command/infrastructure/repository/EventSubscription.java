@@ -0,0 +1,20 @@
+package com.wallet.command.infrastructure.repository;
+
+/**
+ * Handle of a running global log subscription
+ */
+public interface EventSubscription extends AutoCloseable {
+    /**
+     * Position of the last event delivered to the listener, -1 before the first one
+     */
+    long getLastPosition();
+
+    boolean isRunning();
+
+    /**
+     * Stop delivering events. The listener is not called after this returns,
+     * unless it is called from the listener itself.
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,78 @@
+package com.wallet.command.infrastructure.repository;
+
+import java.nio.ByteBuffer;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Allocates global log positions to the write lanes and tracks which of them are durable.
+ *
+ * Lanes reserve a contiguous range before writing their batch and release it once the
+ * write returned, successfully or not. Readers never go past {@link #committedPosition()},
+ * the position just below the oldest range still in flight, so a subscriber can never
+ * skip an event that a slower lane is about to commit. Ranges of failed writes remain
+ * as gaps in the log and are simply never found by a scan.
+ */
+class GlobalLog {
+    static final int POSITION_LENGTH = 8;
+
+    private final TreeSet<Long> inFlight = new TreeSet<>();
+    private long nextPosition;
+
+    GlobalLog(long nextPosition) {
+        this.nextPosition = nextPosition;
+    }
+
+    static byte[] encodePosition(long position) {
+        return ByteBuffer.allocate(POSITION_LENGTH).putLong(position).array();
+    }
+
+    static long decodePosition(byte[] key) {
+        return ByteBuffer.wrap(key).getLong();
+    }
+
+    /**
+     * Reserve {@code count} consecutive positions
+     *
+     * @return First reserved position
+     */
+    synchronized long reserve(int count) {
+        long first = nextPosition;
+        nextPosition += count;
+        inFlight.add(first);
+        return first;
+    }
+
+    /**
+     * Release a range returned by {@link #reserve(int)} once its write has finished
+     */
+    synchronized void release(long first) {
+        inFlight.remove(first);
+        notifyAll();
+    }
+
+    /**
+     * Highest position below which every write has finished, -1 if there is none
+     */
+    synchronized long committedPosition() {
+        return (inFlight.isEmpty() ? nextPosition : inFlight.first()) - 1;
+    }
+
+    /**
+     * Wait until {@code position} is committed or the timeout elapses
+     *
+     * @return Committed position when returning
+     */
+    synchronized long awaitCommitted(long position, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        long committed;
+        while ((committed = committedPosition()) < position) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return committed;
+    }
+}
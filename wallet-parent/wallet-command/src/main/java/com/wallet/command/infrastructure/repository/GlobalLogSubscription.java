@@ -0,0 +1,96 @@
+package com.wallet.command.infrastructure.repository;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Delivers the global log to a listener on a dedicated thread: catches up with range
+ * scans of committed positions, then waits for new commits and tails the log.
+ * A listener that throws stops the subscription.
+ */
+@Slf4j
+class GlobalLogSubscription implements EventSubscription {
+    private static final int PAGE_SIZE = 500;
+    private static final long POLL_TIMEOUT_MILLIS = 1000;
+
+    private final PageReader pageReader;
+    private final GlobalLog globalLog;
+    private final Consumer<RecordedEvent> listener;
+    private final Thread thread;
+    private volatile long lastPosition;
+    private volatile boolean running = true;
+
+    GlobalLogSubscription(PageReader pageReader, GlobalLog globalLog, long fromPosition,
+                          Consumer<RecordedEvent> listener, String threadName) {
+        this.pageReader = pageReader;
+        this.globalLog = globalLog;
+        this.listener = listener;
+        this.lastPosition = Math.max(fromPosition, 0) - 1;
+        this.thread = new Thread(() -> run(Math.max(fromPosition, 0)), threadName);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    private void run(long next) {
+        try {
+            while (running) {
+                long committed = globalLog.awaitCommitted(next, POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                if (committed < next) {
+                    continue;
+                }
+                List<RecordedEvent> page = pageReader.read(next, committed, PAGE_SIZE);
+                for (RecordedEvent event : page) {
+                    if (!running) {
+                        return;
+                    }
+                    listener.accept(event);
+                    lastPosition = event.getPosition();
+                }
+                // A short page means everything up to the committed position was read,
+                // including gaps left by failed writes
+                next = page.size() < PAGE_SIZE ? committed + 1 : lastPosition + 1;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("Global log subscription stopped after position {}", lastPosition, e);
+        } finally {
+            running = false;
+        }
+    }
+
+    @Override
+    public long getLastPosition() {
+        return lastPosition;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        if (Thread.currentThread() == thread) {
+            return;
+        }
+        thread.interrupt();
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Range read of committed positions, in position order
+     */
+    @FunctionalInterface
+    interface PageReader {
+        List<RecordedEvent> read(long fromPosition, long toPosition, int maxCount) throws Exception;
+    }
+}
@@ -0,0 +1,374 @@
+package com.wallet.command.infrastructure.repository;
+
+import com.wallet.command.model.Durability;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.rocksdb.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Single writer thread that coalesces concurrent appends into one WriteBatch per flush.
+ * Each shard runs one writer per write lane and routes every aggregate to exactly one lane,
+ * so version checks and writes of an aggregate are serialized without locking. Lanes only
+ * share the read side of the shard's ingestion lock, which keeps SST ingestions out of a flush.
+ *
+ * A flush is closed when either {@code maxBatchEvents} events have been collected or
+ * {@code maxWaitMicros} have passed since the first request of the flush arrived. Each
+ * request is version-checked on its own: a conflicting request fails its future and is
+ * left out of the batch while the others are committed.
+ *
+ * The batch is written with WAL sync if any request in it asked for {@link Durability#GROUP_SYNC}
+ * or stronger, so the whole group shares one fsync and asynchronous appends in it ride along.
+ * A {@link Durability#SYNC} request closes the flush as soon as it arrives, taking only the
+ * requests already queued, instead of waiting for the group to fill.
+ *
+ * Every event is also indexed in the sequence column family under the global log
+ * position reserved for the flush, in the timeline column family under its recorded time,
+ * and under its transaction ID in the transactions column family if it has one, all in the
+ * same batch as the event itself. The recorded time is the event's timestamp, raised to
+ * the aggregate's last recorded time if it is earlier, as described in {@link TimelineKeyCodec},
+ * so it never decreases with the version whatever the wall clock does across restarts.
+ *
+ * Being the only writer of its aggregates, a lane keeps their versions and last recorded
+ * times in the shared {@link VersionCache}: loaded on the first version check, then updated
+ * right after each committed batch, so the check of a warm aggregate needs no RocksDB read.
+ */
+@Slf4j
+class GroupCommitWriter implements AutoCloseable {
+    private static final String METRIC_BATCH_SIZE = "wallet.eventstore.commit.batch.size";
+    private static final String METRIC_FLUSH = "wallet.eventstore.commit.flush";
+    private static final String METRIC_QUEUE_DEPTH = "wallet.eventstore.lane.queue.depth";
+    private static final String METRIC_WRITE = "wallet.eventstore.commit.write";
+
+    private final RocksDB db;
+    private final ColumnFamilyHandle eventsCF;
+    private final ColumnFamilyHandle versionsCF;
+    private final ColumnFamilyHandle sequenceCF;
+    private final ColumnFamilyHandle transactionsCF;
+    private final ColumnFamilyHandle timelineCF;
+    private final GlobalLog globalLog;
+    private final VersionCache versionCache;
+    private final Lock appendLock;
+    private final RocksDBMetrics rocksDBMetrics;
+    private final int maxBatchEvents;
+    private final long maxWaitNanos;
+    private final BlockingQueue<AppendRequest> queue;
+    private final DistributionSummary batchSize;
+    private final Timer flushTimer;
+    private final Map<Durability, Timer> writeTimers = new EnumMap<>(Durability.class);
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    GroupCommitWriter(RocksDBShard shard, int lane, GlobalLog globalLog, VersionCache versionCache, int maxBatchEvents,
+                      long maxWaitMicros, int queueCapacity, MeterRegistry meterRegistry) {
+        String laneTag = String.valueOf(lane);
+        this.db = shard.db();
+        this.eventsCF = shard.eventsCF();
+        this.versionsCF = shard.versionsCF();
+        this.sequenceCF = shard.sequenceCF();
+        this.transactionsCF = shard.transactionsCF();
+        this.timelineCF = shard.timelineCF();
+        this.globalLog = globalLog;
+        this.versionCache = versionCache;
+        this.appendLock = shard.appendLock();
+        this.rocksDBMetrics = shard.metrics();
+        this.maxBatchEvents = maxBatchEvents;
+        this.maxWaitNanos = TimeUnit.MICROSECONDS.toNanos(maxWaitMicros);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = DistributionSummary.builder(METRIC_BATCH_SIZE)
+            .description("Events committed per group-commit flush")
+            .baseUnit("events")
+            .tag("shard", shard.name())
+            .tag("lane", laneTag)
+            .register(meterRegistry);
+        this.flushTimer = Timer.builder(METRIC_FLUSH)
+            .description("Latency of a group-commit flush")
+            .tag("shard", shard.name())
+            .tag("lane", laneTag)
+            .register(meterRegistry);
+        for (Durability durability : Durability.values()) {
+            writeTimers.put(durability, Timer.builder(METRIC_WRITE)
+                .description("Latency of the RocksDB write of a flush, including WAL sync unless async")
+                .tag("shard", shard.name())
+                .tag("lane", laneTag)
+                .tag("durability", durability.name())
+                .register(meterRegistry));
+        }
+        Gauge.builder(METRIC_QUEUE_DEPTH, queue, BlockingQueue::size)
+            .description("Appends waiting in a write lane")
+            .tag("shard", shard.name())
+            .tag("lane", laneTag)
+            .register(meterRegistry);
+        this.thread = new Thread(this::run, "event-store-" + shard.name() + "-lane-" + lane);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Queue an append of already-encoded events
+     *
+     * @param aggregateId Aggregate ID
+     * @param expectedVersion Version the aggregate must be at when the batch is written
+     * @param encodedEvents Serialized events, in order
+     * @param transactionIds Transaction ID of each event, null for events without one
+     * @param timestamps Timestamp of each event in epoch milliseconds
+     * @param durability Durability the flush containing this request must reach
+     * @return Future completed once the flush containing this request is written to RocksDB
+     */
+    CompletableFuture<Void> submit(String aggregateId, long expectedVersion, List<byte[]> encodedEvents,
+                                   List<String> transactionIds, long[] timestamps, Durability durability) {
+        AppendRequest request = new AppendRequest(aggregateId, expectedVersion, encodedEvents, transactionIds,
+            timestamps, durability);
+        if (!running) {
+            request.future.completeExceptionally(new IllegalStateException("Event store writer is closed"));
+            return request.future;
+        }
+        try {
+            queue.put(request);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            request.future.completeExceptionally(e);
+        }
+        return request.future;
+    }
+
+    private long readVersion(String aggregateId) throws RocksDBException {
+        long cached = versionCache.get(aggregateId);
+        if (cached != VersionCache.MISSING) {
+            return cached;
+        }
+        byte[] versionBytes = db.get(versionsCF, aggregateId.getBytes(StandardCharsets.UTF_8));
+        long version = versionBytes == null ? -1 : Long.parseLong(new String(versionBytes, StandardCharsets.UTF_8));
+        versionCache.put(aggregateId, version, version < 0 ? VersionCache.MISSING : readRecordedAt(aggregateId));
+        return version;
+    }
+
+    /**
+     * Recorded time of the last event of an aggregate that has events
+     */
+    private long lastRecordedAt(String aggregateId) {
+        long cached = versionCache.recordedAt(aggregateId);
+        return cached != VersionCache.MISSING ? cached : readRecordedAt(aggregateId);
+    }
+
+    /**
+     * One reverse seek to the aggregate's last timeline key
+     */
+    private long readRecordedAt(String aggregateId) {
+        byte[] aggregatePrefix = EventKeyCodec.aggregatePrefix(aggregateId);
+        try (ReadOptions readOptions = new ReadOptions().setPrefixSameAsStart(true);
+             RocksIterator iterator = db.newIterator(timelineCF, readOptions)) {
+            iterator.seekForPrev(TimelineKeyCodec.encode(aggregatePrefix, Long.MAX_VALUE, Long.MAX_VALUE));
+            if (!iterator.isValid() || !TimelineKeyCodec.hasPrefix(iterator.key(), aggregatePrefix)) {
+                return VersionCache.MISSING;
+            }
+            return TimelineKeyCodec.decodeRecordedAt(iterator.key());
+        }
+    }
+
+    private void run() {
+        List<AppendRequest> pending = new ArrayList<>();
+        while (running) {
+            try {
+                collect(pending);
+                flush(pending);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                IllegalStateException closed = new IllegalStateException("Event store writer is closed");
+                pending.forEach(request -> request.future.completeExceptionally(closed));
+                break;
+            } catch (Exception e) {
+                log.error("Group commit flush failed", e);
+                pending.forEach(request -> request.future.completeExceptionally(e));
+            } finally {
+                pending.clear();
+            }
+        }
+        failRemaining();
+    }
+
+    private void collect(List<AppendRequest> pending) throws InterruptedException {
+        AppendRequest first = queue.take();
+        pending.add(first);
+        int events = first.events.size();
+        boolean urgent = first.durability == Durability.SYNC;
+        long deadline = System.nanoTime() + maxWaitNanos;
+        while (events < maxBatchEvents) {
+            AppendRequest next = queue.poll();
+            if (next == null) {
+                if (urgent) {
+                    break;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || (next = queue.poll(remaining, TimeUnit.NANOSECONDS)) == null) {
+                    break;
+                }
+            }
+            pending.add(next);
+            events += next.events.size();
+            urgent |= next.durability == Durability.SYNC;
+        }
+    }
+
+    /**
+     * Version checks and the write exclude an SST ingestion into the shard, which creates
+     * aggregates without going through the lanes
+     */
+    private void flush(List<AppendRequest> pending) throws RocksDBException {
+        appendLock.lock();
+        try {
+            flushLocked(pending);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private void flushLocked(List<AppendRequest> pending) throws RocksDBException {
+        long start = System.nanoTime();
+        Map<String, Long> batchVersions = new HashMap<>();
+        Map<String, Long> batchRecordedAts = new HashMap<>();
+        List<AppendRequest> accepted = new ArrayList<>(pending.size());
+        Durability durability = Durability.ASYNC;
+        int events = 0;
+
+        for (AppendRequest request : pending) {
+            Long inBatch = batchVersions.get(request.aggregateId);
+            long currentVersion = inBatch != null ? inBatch : readVersion(request.aggregateId);
+            if (currentVersion != request.expectedVersion) {
+                request.future.completeExceptionally(
+                    new IllegalStateException("Version mismatch: expected " + request.expectedVersion +
+                        ", but got " + currentVersion + " for aggregate " + request.aggregateId));
+                continue;
+            }
+            batchVersions.put(request.aggregateId, currentVersion + request.events.size());
+            if (inBatch == null) {
+                batchRecordedAts.put(request.aggregateId,
+                    currentVersion < 0 ? VersionCache.MISSING : lastRecordedAt(request.aggregateId));
+            }
+            accepted.add(request);
+            durability = durability.atLeast(request.durability);
+            events += request.events.size();
+        }
+        if (accepted.isEmpty()) {
+            return;
+        }
+
+        long firstPosition = globalLog.reserve(events);
+        long eventBytes = 0;
+        long sequenceBytes = 0;
+        long versionBytes = 0;
+        long transactionBytes = 0;
+        long timelineBytes = 0;
+        try (WriteBatch batch = new WriteBatch();
+             WriteOptions writeOptions = new WriteOptions().setSync(durability != Durability.ASYNC)) {
+            long position = firstPosition;
+            for (AppendRequest request : accepted) {
+                long version = request.expectedVersion;
+                long recordedAt = batchRecordedAts.get(request.aggregateId);
+                byte[] aggregatePrefix = EventKeyCodec.aggregatePrefix(request.aggregateId);
+                for (int i = 0; i < request.events.size(); i++) {
+                    byte[] event = request.events.get(i);
+                    byte[] eventKey = EventKeyCodec.encode(request.aggregateId, ++version);
+                    byte[] positionKey = GlobalLog.encodePosition(position++);
+                    batch.put(eventsCF, eventKey, event);
+                    batch.put(sequenceCF, positionKey, eventKey);
+                    eventBytes += eventKey.length + event.length;
+                    sequenceBytes += GlobalLog.POSITION_LENGTH + eventKey.length;
+                    recordedAt = Math.max(recordedAt, request.timestamps[i]);
+                    byte[] timelineKey = TimelineKeyCodec.encode(aggregatePrefix, recordedAt, version);
+                    batch.put(timelineCF, timelineKey, new byte[0]);
+                    timelineBytes += timelineKey.length;
+                    String transactionId = request.transactionIds.get(i);
+                    if (transactionId != null) {
+                        byte[] transactionKey = TransactionKeyCodec.encode(TransactionKeyCodec.prefix(transactionId), eventKey);
+                        batch.put(transactionsCF, transactionKey, positionKey);
+                        transactionBytes += transactionKey.length + GlobalLog.POSITION_LENGTH;
+                    }
+                }
+                byte[] versionKey = request.aggregateId.getBytes(StandardCharsets.UTF_8);
+                byte[] versionValue = String.valueOf(version).getBytes(StandardCharsets.UTF_8);
+                batch.put(versionsCF, versionKey, versionValue);
+                batchRecordedAts.put(request.aggregateId, recordedAt);
+                versionBytes += versionKey.length + versionValue.length;
+            }
+
+            long writeStart = System.nanoTime();
+            try {
+                db.write(writeOptions, batch);
+                writeTimers.get(durability).record(System.nanoTime() - writeStart, TimeUnit.NANOSECONDS);
+            } catch (RocksDBException e) {
+                log.error("Failed to write group commit of {} appends", accepted.size(), e);
+                accepted.forEach(request -> versionCache.invalidate(request.aggregateId));
+                accepted.forEach(request -> request.future.completeExceptionally(
+                    new RuntimeException("Failed to append events for aggregate " + request.aggregateId, e)));
+                return;
+            }
+        } finally {
+            globalLog.release(firstPosition);
+        }
+
+        batchVersions.forEach((aggregateId, version) ->
+            versionCache.put(aggregateId, version, batchRecordedAts.get(aggregateId)));
+        rocksDBMetrics.recordWritten(eventsCF, eventBytes);
+        rocksDBMetrics.recordWritten(sequenceCF, sequenceBytes);
+        rocksDBMetrics.recordWritten(versionsCF, versionBytes);
+        rocksDBMetrics.recordWritten(transactionsCF, transactionBytes);
+        rocksDBMetrics.recordWritten(timelineCF, timelineBytes);
+        batchSize.record(events);
+        flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        accepted.forEach(request -> request.future.complete(null));
+    }
+
+    private void failRemaining() {
+        List<AppendRequest> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        IllegalStateException closed = new IllegalStateException("Event store writer is closed");
+        remaining.forEach(request -> request.future.completeExceptionally(closed));
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        thread.interrupt();
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        failRemaining();
+    }
+
+    private static final class AppendRequest {
+        private final String aggregateId;
+        private final long expectedVersion;
+        private final List<byte[]> events;
+        private final List<String> transactionIds;
+        private final long[] timestamps;
+        private final Durability durability;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private AppendRequest(String aggregateId, long expectedVersion, List<byte[]> events,
+                              List<String> transactionIds, long[] timestamps, Durability durability) {
+            this.aggregateId = aggregateId;
+            this.expectedVersion = expectedVersion;
+            this.events = events;
+            this.transactionIds = transactionIds;
+            this.timestamps = timestamps;
+            this.durability = durability;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.wallet.command.infrastructure.repository;
+
+import com.wallet.command.model.AccountSnapshot;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Optional;
+
+/**
+ * {@link AggregateReadView} backed by a read-only REPEATABLE READ transaction held open
+ * for the lifetime of the view. The version is read first, which fixes the point in time
+ * that the snapshot and event queries see afterwards.
+ */
+class JdbcAggregateReadView implements AggregateReadView {
+    private final JdbcEventStore store;
+    private final Connection connection;
+    private final String aggregateId;
+    private final int pageSize;
+    private final long version;
+    private boolean closed;
+
+    JdbcAggregateReadView(JdbcEventStore store, String aggregateId, int pageSize) throws SQLException {
+        this.store = store;
+        this.connection = store.openReadConnection();
+        this.aggregateId = aggregateId;
+        this.pageSize = pageSize;
+        try {
+            this.version = store.readVersion(connection, aggregateId);
+        } catch (SQLException | RuntimeException e) {
+            JdbcEventStore.closeReadConnection(connection);
+            throw e;
+        }
+    }
+
+    @Override
+    public String getAggregateId() {
+        return aggregateId;
+    }
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public Optional<AccountSnapshot> getLatestSnapshot() {
+        if (version < 0) {
+            return Optional.empty();
+        }
+        try {
+            return store.readSnapshot(connection, aggregateId, version);
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to read snapshot for aggregate " + aggregateId, e);
+        }
+    }
+
+    @Override
+    public EventCursor openCursor(long fromVersion) {
+        return new JdbcEventCursor(store, connection, false, aggregateId, fromVersion, pageSize);
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            JdbcEventStore.closeReadConnection(connection);
+        }
+    }
+}
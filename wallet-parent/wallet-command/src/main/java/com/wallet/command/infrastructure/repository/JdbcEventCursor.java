@@ -0,0 +1,106 @@
+package com.wallet.command.infrastructure.repository;
+
+import com.wallet.command.event.BaseEvent;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * {@link EventCursor} that reads an aggregate in keyset pages of fetch-size rows, each page
+ * starting after the last version of the previous one. All pages are read in one
+ * REPEATABLE READ transaction, on a connection either owned by the cursor or shared with
+ * a read view. Rows are decoded only when {@link #next()} is called.
+ */
+class JdbcEventCursor implements EventCursor {
+    private final JdbcEventStore store;
+    private final Connection connection;
+    private final boolean ownsConnection;
+    private final String aggregateId;
+    private final int pageSize;
+    private List<Row> page = Collections.emptyList();
+    private int index;
+    private long nextVersion;
+    private boolean exhausted;
+    private long lastVersion;
+    private boolean closed;
+
+    JdbcEventCursor(JdbcEventStore store, Connection connection, boolean ownsConnection,
+                    String aggregateId, long fromVersion, int pageSize) {
+        this.store = store;
+        this.connection = connection;
+        this.ownsConnection = ownsConnection;
+        this.aggregateId = aggregateId;
+        this.pageSize = pageSize;
+        this.nextVersion = Math.max(fromVersion, 0);
+        this.lastVersion = nextVersion - 1;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (closed) {
+            return false;
+        }
+        if (index < page.size()) {
+            return true;
+        }
+        if (exhausted) {
+            return false;
+        }
+        try {
+            page = store.readEventPage(connection, aggregateId, nextVersion, pageSize);
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to read events for aggregate " + aggregateId, e);
+        }
+        index = 0;
+        exhausted = page.size() < pageSize;
+        if (!page.isEmpty()) {
+            nextVersion = page.get(page.size() - 1).version + 1;
+        }
+        return !page.isEmpty();
+    }
+
+    @Override
+    public BaseEvent next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Row row = page.get(index++);
+        lastVersion = row.version;
+        return store.decodeEvent(row.eventType, row.eventData);
+    }
+
+    @Override
+    public long getLastVersion() {
+        return lastVersion;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        page = Collections.emptyList();
+        if (ownsConnection) {
+            JdbcEventStore.closeReadConnection(connection);
+        }
+    }
+
+    /**
+     * Event row as stored, decoded lazily
+     */
+    static final class Row {
+        private final long version;
+        private final String eventType;
+        private final String eventData;
+
+        Row(long version, String eventType, String eventData) {
+            this.version = version;
+            this.eventType = eventType;
+            this.eventData = eventData;
+        }
+    }
+}
@@ -0,0 +1,666 @@
+package com.wallet.command.infrastructure.repository;
+
+import com.wallet.command.config.JdbcEventStoreProperties;
+import com.wallet.command.event.BaseEvent;
+import com.wallet.command.event.TransactionalEvent;
+import com.wallet.command.infrastructure.serialization.AccountSnapshotCodec;
+import com.wallet.command.infrastructure.serialization.EventSerializer;
+import com.wallet.command.infrastructure.serialization.EventType;
+import com.wallet.command.model.AccountSnapshot;
+import com.wallet.command.model.Durability;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Event store on the relational event_store table, selected with event-store.engine=jdbc.
+ *
+ * Appends check the current version and insert all events with multi-row INSERTs in one
+ * transaction; the UNIQUE (aggregate_id, version) key rejects a concurrent append that
+ * passed the same check. Reads are keyset range queries on that key. Each event stores its
+ * recorded time, its timestamp raised to that of the aggregate's previous event, as the
+ * other engines define it, so point-in-time lookups agree whichever engine is used.
+ *
+ * Global log positions are reserved in memory from a {@link GlobalLog}, as in the other
+ * engines, so appends of different aggregates never wait for each other. Log reads stop
+ * below the oldest append still in flight, so a subscriber never skips a row that commits
+ * late; positions of rejected or failed appends remain as gaps. The process that opens the
+ * store must therefore be the only one appending to the table; a second writer would take
+ * the same positions and have its appends rejected by the unique log_position index.
+ */
+@Slf4j
+@Repository
+@ConditionalOnProperty(name = "event-store.engine", havingValue = "jdbc")
+public class JdbcEventStore implements EventStore {
+    private static final String METRIC_APPEND = "wallet.eventstore.jdbc.append";
+
+    private static final String INSERT_EVENT_COLUMNS =
+        "INSERT INTO event_store (aggregate_id, event_type, event_data, version, transaction_id, created_at,"
+            + " recorded_at, log_position) VALUES ";
+    private static final String INSERT_EVENT_ROW = "(?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final int EVENT_COLUMNS = 8;
+    private static final int RECORDED_AT_COLUMN = 6;
+    private static final String SELECT_FIRST_UNPOSITIONED = "SELECT MIN(id) FROM event_store WHERE log_position IS NULL";
+    private static final String BACKFILL_POSITIONS =
+        "UPDATE event_store SET log_position = id + ? WHERE log_position IS NULL";
+    private static final String SELECT_UNRECORDED =
+        "SELECT id, aggregate_id, version, event_type, event_data FROM event_store"
+            + " WHERE recorded_at IS NULL AND (aggregate_id > ? OR (aggregate_id = ? AND version > ?))"
+            + " ORDER BY aggregate_id, version LIMIT ?";
+    private static final String SELECT_PREVIOUS_RECORDED_AT =
+        "SELECT recorded_at FROM event_store WHERE aggregate_id = ? AND version < ? ORDER BY version DESC LIMIT 1";
+    private static final String BACKFILL_EVENT =
+        "UPDATE event_store SET recorded_at = ?, transaction_id = COALESCE(transaction_id, ?) WHERE id = ?";
+    private static final String SELECT_HEAD =
+        "SELECT version, recorded_at FROM event_store WHERE aggregate_id = ? ORDER BY version DESC LIMIT 1";
+    private static final String SELECT_VERSION =
+        "SELECT MAX(version) FROM event_store WHERE aggregate_id = ?";
+    private static final String SELECT_VERSION_AT =
+        "SELECT MAX(version) FROM event_store WHERE aggregate_id = ? AND recorded_at <= ?";
+    private static final String SELECT_EVENTS =
+        "SELECT version, event_type, event_data FROM event_store"
+            + " WHERE aggregate_id = ? AND version >= ? ORDER BY version";
+    private static final String SELECT_EVENT_PAGE = SELECT_EVENTS + " LIMIT ?";
+    private static final String SELECT_SNAPSHOT =
+        "SELECT snapshot_data FROM snapshot_store"
+            + " WHERE aggregate_id = ? AND version <= ? ORDER BY version DESC LIMIT 1";
+    private static final String INSERT_SNAPSHOT =
+        "INSERT INTO snapshot_store (aggregate_id, version, snapshot_data, created_at) VALUES (?, ?, ?, ?)";
+    private static final String SELECT_LOG =
+        "SELECT log_position, aggregate_id, version, event_type, event_data FROM event_store"
+            + " WHERE log_position >= ? AND log_position <= ? ORDER BY log_position LIMIT ?";
+    private static final String SELECT_LOG_POSITION = "SELECT MAX(log_position) FROM event_store";
+    private static final String SELECT_TRANSACTION =
+        "SELECT log_position, aggregate_id, version, event_type, event_data FROM event_store"
+            + " WHERE transaction_id = ? ORDER BY log_position";
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EventSerializer eventSerializer;
+    private final MeterRegistry meterRegistry;
+    private final JdbcEventStoreProperties properties;
+    private final ExecutorService executor;
+    private final Set<GlobalLogSubscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger subscriptionCounter = new AtomicInteger();
+    private GlobalLog globalLog;
+
+    public JdbcEventStore(DataSource dataSource,
+                          EventSerializer eventSerializer,
+                          MeterRegistry meterRegistry,
+                          JdbcEventStoreProperties properties) {
+        if (properties.getFetchSize() < 1 || properties.getMaxRowsPerInsert() < 1 || properties.getThreads() < 1) {
+            throw new IllegalArgumentException("event-store.jdbc.fetch-size, max-rows-per-insert and threads must be at least 1");
+        }
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(properties.getFetchSize());
+        this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        this.eventSerializer = eventSerializer;
+        this.meterRegistry = meterRegistry;
+        this.properties = properties;
+        this.executor = Executors.newFixedThreadPool(
+            properties.getThreads(),
+            new ThreadFactory() {
+                private int counter = 0;
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "jdbc-event-store-" + counter++);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+    }
+
+    /**
+     * Give events written without a position, before the table was used by this engine,
+     * positions after the existing ones in id order, then continue the log after them.
+     * Events written before recorded_at and transaction_id existed get them filled in.
+     */
+    @PostConstruct
+    public void init() {
+        backfillEvents();
+        Long firstUnpositioned = jdbcTemplate.queryForObject(SELECT_FIRST_UNPOSITIONED, Long.class);
+        if (firstUnpositioned != null) {
+            long nextPosition = lastLogPosition() + 1;
+            int backfilled = jdbcTemplate.update(BACKFILL_POSITIONS, nextPosition - firstUnpositioned);
+            log.info("Assigned global log positions to {} existing events", backfilled);
+        }
+        globalLog = new GlobalLog(lastLogPosition() + 1);
+    }
+
+    /**
+     * Decode every event without a recorded time, in keyset pages per aggregate and version,
+     * to set its recorded time and, for transactional events, its transaction ID. Each page
+     * is updated in one batch, and a restart carries on from the first event still missing.
+     */
+    private void backfillEvents() {
+        String aggregateId = "";
+        long version = Long.MAX_VALUE;
+        long recordedAt = Long.MIN_VALUE;
+        int backfilled = 0;
+        while (true) {
+            List<Object[]> page = jdbcTemplate.query(SELECT_UNRECORDED,
+                (rs, rowNum) -> new Object[]{rs.getLong(1), rs.getString(2), rs.getLong(3),
+                    decodeEvent(rs.getString(4), rs.getString(5))},
+                aggregateId, aggregateId, version, properties.getFetchSize());
+            if (page.isEmpty()) {
+                break;
+            }
+            List<Object[]> updates = new ArrayList<>(page.size());
+            for (Object[] row : page) {
+                if (!row[1].equals(aggregateId)) {
+                    aggregateId = (String) row[1];
+                    recordedAt = previousRecordedAt(aggregateId, (Long) row[2]);
+                }
+                version = (Long) row[2];
+                BaseEvent event = (BaseEvent) row[3];
+                recordedAt = Math.max(recordedAt, event.getTimestampMillis());
+                updates.add(new Object[]{recordedAt, TransactionalEvent.transactionIdOf(event), row[0]});
+            }
+            jdbcTemplate.batchUpdate(BACKFILL_EVENT, updates);
+            backfilled += updates.size();
+        }
+        if (backfilled > 0) {
+            log.info("Backfilled recorded times and transaction IDs of {} existing events", backfilled);
+        }
+    }
+
+    private long previousRecordedAt(String aggregateId, long version) {
+        List<Long> recordedAt = jdbcTemplate.query(SELECT_PREVIOUS_RECORDED_AT,
+            (rs, rowNum) -> rs.getLong(1), aggregateId, version);
+        return recordedAt.isEmpty() ? Long.MIN_VALUE : recordedAt.get(0);
+    }
+
+    private long lastLogPosition() {
+        Long position = jdbcTemplate.queryForObject(SELECT_LOG_POSITION, Long.class);
+        return position == null ? -1 : position;
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        subscriptions.forEach(GlobalLogSubscription::close);
+        executor.shutdown();
+    }
+
+    /**
+     * Every append is one database transaction, as durable as the database makes a commit;
+     * the requested durability is not applied per transaction
+     */
+    @Override
+    public CompletableFuture<Void> appendEvents(String aggregateId, long expectedVersion, List<BaseEvent> events,
+                                                Durability durability) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            long start = System.nanoTime();
+            String status = "success";
+            try {
+                List<Object[]> rows = encodeRows(aggregateId, expectedVersion, events);
+                long firstPosition = globalLog.reserve(rows.size());
+                Long mismatch;
+                try {
+                    // Nothing is written before the version check, so a mismatch needs no rollback
+                    mismatch = transactionTemplate.execute(transaction -> {
+                        long[] head = jdbcTemplate.execute(
+                            (ConnectionCallback<long[]>) connection -> readHead(connection, aggregateId));
+                        if (head[0] != expectedVersion) {
+                            return head[0];
+                        }
+                        long recordedAt = head[1];
+                        for (Object[] row : rows) {
+                            recordedAt = Math.max(recordedAt, (Long) row[RECORDED_AT_COLUMN]);
+                            row[RECORDED_AT_COLUMN] = recordedAt;
+                        }
+                        insertRows(rows, firstPosition);
+                        return null;
+                    });
+                } finally {
+                    // Readers may pass these positions once the transaction has ended, and
+                    // before the caller learns the outcome, so it always reads its own append
+                    globalLog.release(firstPosition);
+                }
+                if (mismatch != null) {
+                    status = "conflict";
+                    future.completeExceptionally(new IllegalStateException("Version mismatch: expected "
+                        + expectedVersion + ", but got " + mismatch + " for aggregate " + aggregateId));
+                } else {
+                    future.complete(null);
+                }
+            } catch (DuplicateKeyException e) {
+                // Another append passed the same version check and committed first
+                status = "conflict";
+                future.completeExceptionally(new IllegalStateException("Version mismatch: expected "
+                    + expectedVersion + ", but another append of aggregate " + aggregateId + " committed first"));
+            } catch (Exception e) {
+                status = "error";
+                log.error("Failed to append events for aggregate: {}", aggregateId, e);
+                future.completeExceptionally(new RuntimeException("Failed to append events for aggregate " + aggregateId, e));
+            } finally {
+                meterRegistry.timer(METRIC_APPEND, "status", status)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Rows of the events, recorded_at holding their own timestamp until the version check
+     */
+    private List<Object[]> encodeRows(String aggregateId, long expectedVersion, List<BaseEvent> events) {
+        Timestamp createdAt = Timestamp.from(Instant.now());
+        List<Object[]> rows = new ArrayList<>(events.size());
+        long version = expectedVersion;
+        for (BaseEvent event : events) {
+            rows.add(new Object[] {
+                aggregateId,
+                EventType.of(event).getEventClass().getSimpleName(),
+                eventSerializer.serialize(event),
+                ++version,
+                TransactionalEvent.transactionIdOf(event),
+                createdAt,
+                event.getTimestampMillis()
+            });
+        }
+        return rows;
+    }
+
+    /**
+     * One multi-row INSERT per max-rows-per-insert events
+     */
+    private void insertRows(List<Object[]> rows, long firstPosition) {
+        int chunkSize = properties.getMaxRowsPerInsert();
+        long position = firstPosition;
+        for (int from = 0; from < rows.size(); from += chunkSize) {
+            List<Object[]> chunk = rows.subList(from, Math.min(from + chunkSize, rows.size()));
+            StringBuilder sql = new StringBuilder(INSERT_EVENT_COLUMNS);
+            List<Object> args = new ArrayList<>(chunk.size() * EVENT_COLUMNS);
+            for (Object[] row : chunk) {
+                if (args.size() > 0) {
+                    sql.append(", ");
+                }
+                sql.append(INSERT_EVENT_ROW);
+                Collections.addAll(args, row);
+                args.add(position++);
+            }
+            jdbcTemplate.update(sql.toString(), args.toArray());
+        }
+    }
+
+    @Override
+    public CompletableFuture<List<BaseEvent>> readEvents(String aggregateId, long fromVersion) {
+        CompletableFuture<List<BaseEvent>> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                future.complete(jdbcTemplate.query(SELECT_EVENTS,
+                    (rs, rowNum) -> decodeEvent(rs.getString(2), rs.getString(3)),
+                    aggregateId, Math.max(fromVersion, 0)));
+            } catch (Exception e) {
+                log.error("Failed to read events for aggregate: {}", aggregateId, e);
+                future.completeExceptionally(new RuntimeException("Failed to read events for aggregate " + aggregateId, e));
+            }
+        });
+        return future;
+    }
+
+    @Override
+    public EventCursor openCursor(String aggregateId, long fromVersion) {
+        try {
+            return new JdbcEventCursor(this, openReadConnection(), true, aggregateId, fromVersion, properties.getFetchSize());
+        } catch (SQLException e) {
+            log.error("Failed to open cursor for aggregate: {}", aggregateId, e);
+            throw new RuntimeException("Failed to open cursor for aggregate " + aggregateId, e);
+        }
+    }
+
+    @Override
+    public AggregateReadView openReadView(String aggregateId) {
+        try {
+            return new JdbcAggregateReadView(this, aggregateId, properties.getFetchSize());
+        } catch (SQLException e) {
+            log.error("Failed to open read view for aggregate: {}", aggregateId, e);
+            throw new RuntimeException("Failed to open read view for aggregate " + aggregateId, e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<List<BaseEvent>> readAllEvents(String aggregateId) {
+        return readEvents(aggregateId, 0);
+    }
+
+    @Override
+    public CompletableFuture<Map<String, List<BaseEvent>>> readEventsBatch(Map<String, Long> fromVersions) {
+        CompletableFuture<Map<String, List<BaseEvent>>> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                Map<String, List<BaseEvent>> result = new LinkedHashMap<>();
+                fromVersions.keySet().forEach(aggregateId -> result.put(aggregateId, new ArrayList<>()));
+                if (!fromVersions.isEmpty()) {
+                    StringBuilder sql = new StringBuilder(
+                        "SELECT aggregate_id, event_type, event_data FROM event_store WHERE ");
+                    List<Object> args = new ArrayList<>(fromVersions.size() * 2);
+                    for (Map.Entry<String, Long> entry : fromVersions.entrySet()) {
+                        if (!args.isEmpty()) {
+                            sql.append(" OR ");
+                        }
+                        sql.append("(aggregate_id = ? AND version >= ?)");
+                        args.add(entry.getKey());
+                        args.add(Math.max(entry.getValue(), 0));
+                    }
+                    sql.append(" ORDER BY aggregate_id, version");
+                    jdbcTemplate.query(sql.toString(), rs -> {
+                        result.get(rs.getString(1)).add(decodeEvent(rs.getString(2), rs.getString(3)));
+                    }, args.toArray());
+                }
+                future.complete(result);
+            } catch (Exception e) {
+                log.error("Failed to read events for aggregates: {}", fromVersions.keySet(), e);
+                future.completeExceptionally(new RuntimeException("Failed to read events for aggregates " + fromVersions.keySet(), e));
+            }
+        });
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Long>> getCurrentVersions(Collection<String> aggregateIds) {
+        CompletableFuture<Map<String, Long>> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                List<String> ids = new ArrayList<>(new LinkedHashSet<>(aggregateIds));
+                Map<String, Long> versions = new LinkedHashMap<>();
+                ids.forEach(aggregateId -> versions.put(aggregateId, -1L));
+                if (!ids.isEmpty()) {
+                    jdbcTemplate.query("SELECT aggregate_id, MAX(version) FROM event_store WHERE aggregate_id IN ("
+                            + placeholders(ids.size()) + ") GROUP BY aggregate_id",
+                        rs -> {
+                            versions.put(rs.getString(1), rs.getLong(2));
+                        }, ids.toArray());
+                }
+                future.complete(versions);
+            } catch (Exception e) {
+                log.error("Failed to get current versions for aggregates: {}", aggregateIds, e);
+                future.completeExceptionally(new RuntimeException("Failed to get current versions for aggregates " + aggregateIds, e));
+            }
+        });
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<Long> getCurrentVersion(String aggregateId) {
+        CompletableFuture<Long> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                future.complete(currentVersion(aggregateId));
+            } catch (Exception e) {
+                log.error("Failed to get current version for aggregate: {}", aggregateId, e);
+                future.completeExceptionally(new RuntimeException("Failed to get current version for aggregate " + aggregateId, e));
+            }
+        });
+        return future;
+    }
+
+    private long currentVersion(String aggregateId) {
+        return jdbcTemplate.execute((ConnectionCallback<Long>) connection -> readVersion(connection, aggregateId));
+    }
+
+    @Override
+    public CompletableFuture<Optional<AccountSnapshot>> readSnapshot(String aggregateId, long maxVersion) {
+        CompletableFuture<Optional<AccountSnapshot>> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                future.complete(jdbcTemplate.execute(
+                    (ConnectionCallback<Optional<AccountSnapshot>>) connection -> readSnapshot(connection, aggregateId, maxVersion)));
+            } catch (Exception e) {
+                log.error("Failed to read snapshot for aggregate: {}", aggregateId, e);
+                future.completeExceptionally(new RuntimeException("Failed to read snapshot for aggregate " + aggregateId, e));
+            }
+        });
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<Map<String, AccountSnapshot>> readLatestSnapshots(Collection<String> aggregateIds) {
+        CompletableFuture<Map<String, AccountSnapshot>> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                List<String> ids = new ArrayList<>(new LinkedHashSet<>(aggregateIds));
+                Map<String, AccountSnapshot> snapshots = new LinkedHashMap<>();
+                if (!ids.isEmpty()) {
+                    jdbcTemplate.query("SELECT s.aggregate_id, s.snapshot_data FROM snapshot_store s"
+                            + " WHERE s.aggregate_id IN (" + placeholders(ids.size()) + ")"
+                            + " AND s.version = (SELECT MAX(version) FROM snapshot_store WHERE aggregate_id = s.aggregate_id)",
+                        rs -> {
+                            snapshots.put(rs.getString(1), decodeSnapshot(rs.getString(2)));
+                        }, ids.toArray());
+                }
+                future.complete(snapshots);
+            } catch (Exception e) {
+                log.error("Failed to read snapshots for aggregates: {}", aggregateIds, e);
+                future.completeExceptionally(new RuntimeException("Failed to read snapshots for aggregates " + aggregateIds, e));
+            }
+        });
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<Void> saveSnapshot(AccountSnapshot snapshot) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                jdbcTemplate.update(INSERT_SNAPSHOT, snapshot.getAccountId(), snapshot.getVersion(),
+                    Base64.getEncoder().encodeToString(AccountSnapshotCodec.encode(snapshot)),
+                    Timestamp.from(Instant.now()));
+                future.complete(null);
+            } catch (DuplicateKeyException e) {
+                // A snapshot of the same version is the same state
+                future.complete(null);
+            } catch (Exception e) {
+                log.error("Failed to save snapshot for aggregate: {}", snapshot.getAccountId(), e);
+                future.completeExceptionally(new RuntimeException("Failed to save snapshot for aggregate " + snapshot.getAccountId(), e));
+            }
+        });
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<List<RecordedEvent>> readLog(long fromPosition, int maxCount) {
+        CompletableFuture<List<RecordedEvent>> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                future.complete(readLogPage(Math.max(fromPosition, 0), globalLog.committedPosition(), maxCount));
+            } catch (Exception e) {
+                log.error("Failed to read global log from position: {}", fromPosition, e);
+                future.completeExceptionally(new RuntimeException("Failed to read global log from position " + fromPosition, e));
+            }
+        });
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<Long> getLogPosition() {
+        return CompletableFuture.completedFuture(globalLog.committedPosition());
+    }
+
+    @Override
+    public EventSubscription subscribeToLog(long fromPosition, Consumer<RecordedEvent> listener) {
+        subscriptions.removeIf(subscription -> !subscription.isRunning());
+        GlobalLogSubscription subscription = new GlobalLogSubscription(this::readLogPage, globalLog, fromPosition,
+            listener, "jdbc-event-store-subscription-" + subscriptionCounter.getAndIncrement());
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    @Override
+    public CompletableFuture<Long> getVersionAt(String aggregateId, Instant time) {
+        CompletableFuture<Long> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                Long version = jdbcTemplate.queryForObject(SELECT_VERSION_AT, Long.class, aggregateId, time.toEpochMilli());
+                future.complete(version == null ? -1 : version);
+            } catch (Exception e) {
+                log.error("Failed to get version at {} for aggregate: {}", time, aggregateId, e);
+                future.completeExceptionally(new RuntimeException("Failed to get version at " + time + " for aggregate " + aggregateId, e));
+            }
+        });
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<List<RecordedEvent>> readTransaction(String transactionId) {
+        CompletableFuture<List<RecordedEvent>> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                future.complete(jdbcTemplate.query(SELECT_TRANSACTION,
+                    (rs, rowNum) -> new RecordedEvent(rs.getLong(1), rs.getString(2), rs.getLong(3),
+                        decodeEvent(rs.getString(4), rs.getString(5))),
+                    transactionId));
+            } catch (Exception e) {
+                log.error("Failed to read events of transaction: {}", transactionId, e);
+                future.completeExceptionally(new RuntimeException("Failed to read events of transaction " + transactionId, e));
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Keyset page of the log between two positions, both inclusive
+     */
+    List<RecordedEvent> readLogPage(long fromPosition, long toPosition, int maxCount) {
+        if (fromPosition > toPosition || maxCount <= 0) {
+            return Collections.emptyList();
+        }
+        return jdbcTemplate.query(SELECT_LOG,
+            (rs, rowNum) -> new RecordedEvent(rs.getLong(1), rs.getString(2), rs.getLong(3),
+                decodeEvent(rs.getString(4), rs.getString(5))),
+            fromPosition, toPosition, maxCount);
+    }
+
+    /**
+     * Connection running a read-only REPEATABLE READ transaction, so that every query on it
+     * sees the same committed state. Release it with {@link #closeReadConnection(Connection)}.
+     */
+    Connection openReadConnection() throws SQLException {
+        Connection connection = dataSource.getConnection();
+        try {
+            connection.setReadOnly(true);
+            connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            connection.setAutoCommit(false);
+            return connection;
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    static void closeReadConnection(Connection connection) {
+        try {
+            try {
+                connection.rollback();
+            } finally {
+                connection.close();
+            }
+        } catch (SQLException e) {
+            log.warn("Failed to release read connection", e);
+        }
+    }
+
+    long readVersion(Connection connection, String aggregateId) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_VERSION)) {
+            statement.setString(1, aggregateId);
+            try (ResultSet rs = statement.executeQuery()) {
+                if (!rs.next()) {
+                    return -1;
+                }
+                long version = rs.getLong(1);
+                return rs.wasNull() ? -1 : version;
+            }
+        }
+    }
+
+    /**
+     * Current version and recorded time of the aggregate's last event
+     *
+     * @return {version, recorded at}, {-1, Long.MIN_VALUE} if the aggregate has no events
+     */
+    private long[] readHead(Connection connection, String aggregateId) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_HEAD)) {
+            statement.setString(1, aggregateId);
+            try (ResultSet rs = statement.executeQuery()) {
+                if (!rs.next()) {
+                    return new long[]{-1, Long.MIN_VALUE};
+                }
+                return new long[]{rs.getLong(1), rs.getLong(2)};
+            }
+        }
+    }
+
+    Optional<AccountSnapshot> readSnapshot(Connection connection, String aggregateId, long maxVersion) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_SNAPSHOT)) {
+            statement.setString(1, aggregateId);
+            statement.setLong(2, maxVersion);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() ? Optional.of(decodeSnapshot(rs.getString(1))) : Optional.empty();
+            }
+        }
+    }
+
+    /**
+     * Keyset page of undecoded events: versions from fromVersion on, at most limit rows
+     */
+    List<JdbcEventCursor.Row> readEventPage(Connection connection, String aggregateId, long fromVersion, int limit)
+        throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_EVENT_PAGE)) {
+            statement.setFetchSize(limit);
+            statement.setString(1, aggregateId);
+            statement.setLong(2, fromVersion);
+            statement.setInt(3, limit);
+            try (ResultSet rs = statement.executeQuery()) {
+                List<JdbcEventCursor.Row> page = new ArrayList<>(limit);
+                while (rs.next()) {
+                    page.add(new JdbcEventCursor.Row(rs.getLong(1), rs.getString(2), rs.getString(3)));
+                }
+                return page;
+            }
+        }
+    }
+
+    BaseEvent decodeEvent(String eventType, String eventData) {
+        return eventSerializer.deserialize(eventData, EventType.fromName(eventType).getEventClass().getName());
+    }
+
+    private static AccountSnapshot decodeSnapshot(String data) {
+        return AccountSnapshotCodec.decode(Base64.getDecoder().decode(data));
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+}
@@ -0,0 +1,186 @@
+package com.wallet.command.infrastructure.repository;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * CRC-framed record of a {@link SegmentedLog}.
+ *
+ * <pre>
+ * +------------+-----------+----------+--------------+-------------+---------------------+----------------+-----------+---------+
+ * | length (4) | CRC32 (4) | type (1) | position (8) | version (8) | previous record (8) | id length (2)  | id UTF-8  | payload |
+ * +------------+-----------+----------+--------------+-------------+---------------------+----------------+-----------+---------+
+ * </pre>
+ *
+ * The length counts every byte after itself and the CRC covers every byte after itself.
+ * Event records carry their global position and the location of the aggregate's previous
+ * event, which is how an aggregate's history is walked without a dense index. Snapshot
+ * records have neither and take no global position. A location packs the segment index
+ * into the high and the offset into the low 32 bits, so locations order like the log.
+ */
+final class LogRecord {
+    static final byte EVENT = 1;
+    static final byte SNAPSHOT = 2;
+    static final int LENGTH_FIELD = 4;
+
+    private static final int CRC_FIELD = 4;
+    private static final int TYPE_OFFSET = LENGTH_FIELD + CRC_FIELD;
+    private static final int POSITION_OFFSET = TYPE_OFFSET + 1;
+    private static final int VERSION_OFFSET = POSITION_OFFSET + 8;
+    private static final int PREVIOUS_OFFSET = VERSION_OFFSET + 8;
+    private static final int ID_LENGTH_OFFSET = PREVIOUS_OFFSET + 8;
+    private static final int HEADER_LENGTH = ID_LENGTH_OFFSET + 2;
+
+    private final long location;
+    private final int length;
+    private final byte type;
+    private final long position;
+    private final long version;
+    private final long previousLocation;
+    private final String aggregateId;
+    private final ByteBuffer payload;
+
+    private LogRecord(long location, int length, byte type, long position, long version,
+                      long previousLocation, String aggregateId, ByteBuffer payload) {
+        this.location = location;
+        this.length = length;
+        this.type = type;
+        this.position = position;
+        this.version = version;
+        this.previousLocation = previousLocation;
+        this.aggregateId = aggregateId;
+        this.payload = payload;
+    }
+
+    static long location(int segment, int offset) {
+        return ((long) segment << 32) | offset;
+    }
+
+    static int segmentOf(long location) {
+        return (int) (location >>> 32);
+    }
+
+    static int offsetOf(long location) {
+        return (int) location;
+    }
+
+    /**
+     * Bytes taken by a record, including its length field
+     */
+    static int length(byte[] aggregateId, int payloadLength) {
+        return HEADER_LENGTH + aggregateId.length + payloadLength;
+    }
+
+    /**
+     * Write a record at the position of the target, advancing it past the record
+     */
+    static void write(ByteBuffer target, byte type, long position, long version, long previousLocation,
+                      byte[] aggregateId, byte[] payload) {
+        int start = target.position();
+        target.putInt(length(aggregateId, payload.length) - LENGTH_FIELD)
+            .putInt(0)
+            .put(type)
+            .putLong(position)
+            .putLong(version)
+            .putLong(previousLocation)
+            .putShort((short) aggregateId.length)
+            .put(aggregateId)
+            .put(payload);
+        target.putInt(start + LENGTH_FIELD, crc(target, start + TYPE_OFFSET, target.position()));
+    }
+
+    /**
+     * Whether a record has been written at an offset, i.e. it has a non-zero length
+     */
+    static boolean isPresent(ByteBuffer segment, int offset) {
+        return offset + LENGTH_FIELD <= segment.capacity() && segment.getInt(offset) != 0;
+    }
+
+    /**
+     * Whether the record at an offset is complete and matches its CRC
+     */
+    static boolean isValid(ByteBuffer segment, int offset) {
+        int bodyLength = segment.getInt(offset);
+        if (bodyLength < HEADER_LENGTH - LENGTH_FIELD || bodyLength > segment.capacity() - offset - LENGTH_FIELD) {
+            return false;
+        }
+        int end = offset + LENGTH_FIELD + bodyLength;
+        byte type = segment.get(offset + TYPE_OFFSET);
+        int idLength = segment.getShort(offset + ID_LENGTH_OFFSET) & 0xFFFF;
+        return (type == EVENT || type == SNAPSHOT)
+            && offset + HEADER_LENGTH + idLength <= end
+            && segment.getInt(offset + LENGTH_FIELD) == crc(segment, offset + TYPE_OFFSET, end);
+    }
+
+    /**
+     * Decode the record at a location. The payload is a slice of the segment, not a copy.
+     */
+    static LogRecord read(ByteBuffer segment, long location) {
+        int offset = offsetOf(location);
+        int length = LENGTH_FIELD + segment.getInt(offset);
+        int idLength = segment.getShort(offset + ID_LENGTH_OFFSET) & 0xFFFF;
+        byte[] id = new byte[idLength];
+        ByteBuffer view = segment.duplicate();
+        view.position(offset + HEADER_LENGTH);
+        view.get(id);
+        view.limit(offset + length);
+        return new LogRecord(location, length,
+            segment.get(offset + TYPE_OFFSET),
+            segment.getLong(offset + POSITION_OFFSET),
+            segment.getLong(offset + VERSION_OFFSET),
+            segment.getLong(offset + PREVIOUS_OFFSET),
+            new String(id, StandardCharsets.UTF_8),
+            view.slice());
+    }
+
+    /**
+     * Previous-record pointer of the record at a location, without decoding the rest
+     */
+    static long readPreviousLocation(ByteBuffer segment, long location) {
+        return segment.getLong(offsetOf(location) + PREVIOUS_OFFSET);
+    }
+
+    private static int crc(ByteBuffer buffer, int from, int to) {
+        ByteBuffer range = buffer.duplicate();
+        range.limit(to).position(from);
+        CRC32 crc = new CRC32();
+        crc.update(range);
+        return (int) crc.getValue();
+    }
+
+    long getLocation() {
+        return location;
+    }
+
+    int getLength() {
+        return length;
+    }
+
+    byte getType() {
+        return type;
+    }
+
+    long getPosition() {
+        return position;
+    }
+
+    long getVersion() {
+        return version;
+    }
+
+    long getPreviousLocation() {
+        return previousLocation;
+    }
+
+    String getAggregateId() {
+        return aggregateId;
+    }
+
+    /**
+     * View of the payload, backed by the mapped segment
+     */
+    ByteBuffer getPayload() {
+        return payload.duplicate();
+    }
+}
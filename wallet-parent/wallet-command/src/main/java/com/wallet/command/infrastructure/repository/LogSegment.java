@@ -0,0 +1,77 @@
+package com.wallet.command.infrastructure.repository;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+/**
+ * One preallocated segment file of a {@link SegmentedLog}, mapped into memory as a whole.
+ * Unwritten space is zero, so a zero record length marks the end of the segment's data.
+ */
+final class LogSegment implements AutoCloseable {
+    private final int index;
+    private final RandomAccessFile file;
+    private final MappedByteBuffer buffer;
+
+    private LogSegment(int index, RandomAccessFile file, MappedByteBuffer buffer) {
+        this.index = index;
+        this.file = file;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Open a segment, creating and preallocating its file if needed. An existing file keeps
+     * its size, so segments written with another segment-size remain readable.
+     */
+    static LogSegment open(Path dir, int index, int size) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(dir.resolve(fileName(index)).toFile(), "rw");
+        try {
+            if (file.length() == 0) {
+                file.setLength(size);
+            }
+            MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, file.length());
+            return new LogSegment(index, file, buffer);
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    static String fileName(int index) {
+        return String.format("%010d.log", index);
+    }
+
+    int index() {
+        return index;
+    }
+
+    int capacity() {
+        return buffer.capacity();
+    }
+
+    /**
+     * Shared buffer; only absolute reads may be used on it
+     */
+    ByteBuffer buffer() {
+        return buffer;
+    }
+
+    /**
+     * Buffer with its own position and limit over the whole segment
+     */
+    ByteBuffer view() {
+        return buffer.duplicate();
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
@@ -0,0 +1,17 @@
+package com.wallet.command.infrastructure.repository;
+
+import com.wallet.command.event.BaseEvent;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Event read from the global log, with its position and its place in the aggregate stream
+ */
+@Getter
+@AllArgsConstructor
+public class RecordedEvent {
+    private final long position;
+    private final String aggregateId;
+    private final long version;
+    private final BaseEvent event;
+}
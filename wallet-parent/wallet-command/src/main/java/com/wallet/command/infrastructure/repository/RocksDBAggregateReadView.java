@@ -0,0 +1,70 @@
+package com.wallet.command.infrastructure.repository;
+
+import com.wallet.command.model.AccountSnapshot;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.Snapshot;
+
+import java.util.Optional;
+
+/**
+ * {@link AggregateReadView} backed by a RocksDB snapshot pinned when the view is opened.
+ * Versions are written in the same batch as their events, so the version read from the
+ * snapshot always matches the events visible in it.
+ */
+class RocksDBAggregateReadView implements AggregateReadView {
+    private final RocksDBEventStore store;
+    private final RocksDB db;
+    private final Snapshot snapshot;
+    private final String aggregateId;
+    private final long version;
+    private boolean closed;
+
+    RocksDBAggregateReadView(RocksDBEventStore store, RocksDB db, String aggregateId) throws RocksDBException {
+        this.store = store;
+        this.db = db;
+        this.snapshot = db.getSnapshot();
+        this.aggregateId = aggregateId;
+        try {
+            this.version = store.readVersion(snapshot, aggregateId);
+        } catch (RocksDBException | RuntimeException e) {
+            db.releaseSnapshot(snapshot);
+            throw e;
+        }
+    }
+
+    @Override
+    public String getAggregateId() {
+        return aggregateId;
+    }
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public Optional<AccountSnapshot> getLatestSnapshot() {
+        if (version < 0) {
+            return Optional.empty();
+        }
+        try {
+            return store.readSnapshot(snapshot, aggregateId, version);
+        } catch (RocksDBException e) {
+            throw new RuntimeException("Failed to read snapshot for aggregate " + aggregateId, e);
+        }
+    }
+
+    @Override
+    public EventCursor openCursor(long fromVersion) {
+        return store.openCursor(snapshot, aggregateId, fromVersion);
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            db.releaseSnapshot(snapshot);
+        }
+    }
+}
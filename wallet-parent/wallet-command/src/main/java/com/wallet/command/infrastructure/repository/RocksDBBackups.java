@@ -0,0 +1,158 @@
+package com.wallet.command.infrastructure.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.rocksdb.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Online backups of an open event store and restore of a new node from one.
+ *
+ * Checkpoints hard-link the live SST files into a new directory, so they are consistent,
+ * take no write lock and cost almost no space on the same file system. Backups go through
+ * a BackupEngine that shares SST files between backups, which makes every backup after
+ * the first one incremental.
+ */
+@Slf4j
+class RocksDBBackups implements AutoCloseable {
+    private static final String LOG_POSITION_METADATA = "log-position=";
+
+    private final RocksDB db;
+    private final String shard;
+    private final String dir;
+    private final int maxBackups;
+    private BackupEngineOptions backupEngineOptions;
+    private BackupEngine backupEngine;
+
+    /**
+     * @param shard Name of the shard the database holds
+     * @param dir BackupEngine directory of the shard
+     * @param maxBackups Backups kept after each run
+     */
+    RocksDBBackups(RocksDB db, String shard, String dir, int maxBackups) {
+        this.db = db;
+        this.shard = shard;
+        this.dir = dir;
+        this.maxBackups = maxBackups;
+    }
+
+    /**
+     * Write a consistent checkpoint of the open database
+     *
+     * @param targetDir Directory to create; it must not exist yet
+     */
+    void checkpoint(String targetDir) throws RocksDBException {
+        try (Checkpoint checkpoint = Checkpoint.create(db)) {
+            checkpoint.createCheckpoint(targetDir);
+        }
+        log.info("Created event store checkpoint in {}", targetDir);
+    }
+
+    /**
+     * Add an incremental backup and purge the ones beyond the retention count
+     */
+    synchronized BackupDescriptor backup(long logPosition) throws RocksDBException {
+        BackupEngine engine = backupEngine();
+        engine.createNewBackupWithMetadata(db, LOG_POSITION_METADATA + logPosition, true);
+        engine.purgeOldBackups(Math.max(maxBackups, 1));
+        List<BackupDescriptor> backups = describe(engine.getBackupInfo());
+        BackupDescriptor latest = backups.get(backups.size() - 1);
+        log.info("Created event store backup {} ({} bytes) in {}", latest.getBackupId(), latest.getSizeBytes(), dir);
+        return latest;
+    }
+
+    synchronized List<BackupDescriptor> list() throws RocksDBException {
+        return describe(backupEngine().getBackupInfo());
+    }
+
+    private BackupEngine backupEngine() throws RocksDBException {
+        if (backupEngine == null) {
+            new File(dir).mkdirs();
+            backupEngineOptions = new BackupEngineOptions(dir);
+            backupEngine = BackupEngine.open(Env.getDefault(), backupEngineOptions);
+        }
+        return backupEngine;
+    }
+
+    private List<BackupDescriptor> describe(List<BackupInfo> infos) {
+        List<BackupDescriptor> backups = new ArrayList<>(infos.size());
+        for (BackupInfo info : infos) {
+            backups.add(new BackupDescriptor(shard, info.backupId(), Instant.ofEpochSecond(info.timestamp()),
+                info.size(), info.numberFiles(), parseLogPosition(info.appMetadata())));
+        }
+        return backups;
+    }
+
+    private static long parseLogPosition(String metadata) {
+        if (metadata == null || !metadata.startsWith(LOG_POSITION_METADATA)) {
+            return -1;
+        }
+        return Long.parseLong(metadata.substring(LOG_POSITION_METADATA.length()));
+    }
+
+    /**
+     * Seed an empty data directory from a checkpoint or a backup directory before the
+     * database is opened. A data directory that already holds a database is left alone.
+     *
+     * @return Whether a restore was performed
+     */
+    static boolean restoreIfEmpty(String dataDir, String source) throws RocksDBException, IOException {
+        if (source == null || source.isEmpty() || Files.exists(Paths.get(dataDir, "CURRENT"))) {
+            return false;
+        }
+        Path sourcePath = Paths.get(source);
+        if (Files.exists(sourcePath.resolve("CURRENT"))) {
+            restoreCheckpoint(sourcePath, Paths.get(dataDir));
+        } else if (Files.isDirectory(sourcePath.resolve("meta"))) {
+            restoreBackup(source, dataDir);
+        } else {
+            throw new IllegalStateException("Neither a checkpoint nor a backup directory: " + source);
+        }
+        log.info("Restored event store in {} from {}", dataDir, source);
+        return true;
+    }
+
+    /**
+     * SST files are immutable and hard-linked when both directories share a file system;
+     * every other file is copied, because RocksDB may rewrite it after opening
+     */
+    private static void restoreCheckpoint(Path source, Path target) throws IOException {
+        Files.createDirectories(target);
+        try (Stream<Path> files = Files.list(source)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Path destination = target.resolve(file.getFileName());
+                if (file.getFileName().toString().endsWith(".sst")) {
+                    try {
+                        Files.createLink(destination, file);
+                        continue;
+                    } catch (IOException | UnsupportedOperationException e) {
+                        log.debug("Cannot hard-link {}, copying", file, e);
+                    }
+                }
+                Files.copy(file, destination);
+            }
+        }
+    }
+
+    private static void restoreBackup(String backupDir, String dataDir) throws RocksDBException {
+        try (BackupEngineOptions options = new BackupEngineOptions(backupDir);
+             BackupEngine engine = BackupEngine.open(Env.getDefault(), options);
+             RestoreOptions restoreOptions = new RestoreOptions(false)) {
+            engine.restoreDbFromLatestBackup(dataDir, dataDir, restoreOptions);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (backupEngine != null) backupEngine.close();
+        if (backupEngineOptions != null) backupEngineOptions.close();
+    }
+}
@@ -0,0 +1,95 @@
+package com.wallet.command.infrastructure.repository;
+
+import com.wallet.command.event.BaseEvent;
+import com.wallet.command.infrastructure.serialization.EventProjection;
+import org.rocksdb.*;
+
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * {@link EventCursor} over a RocksIterator bounded to one aggregate. Values are decoded
+ * only when {@link #next()} is called, so memory use does not grow with the history.
+ * The iterator reads a pinned snapshot, either its own or one shared with the caller.
+ */
+class RocksDBEventCursor implements EventCursor {
+    private final RocksDB db;
+    private final Snapshot snapshot;
+    private final boolean ownsSnapshot;
+    private final Slice upperBound;
+    private final ReadOptions readOptions;
+    private final RocksIterator iterator;
+    private final Function<byte[], BaseEvent> decoder;
+    private final BiConsumer<byte[], EventProjection> projector;
+    private long lastVersion;
+    private boolean closed;
+
+    /**
+     * @param snapshot Snapshot to read, or null to pin one owned by the cursor
+     */
+    RocksDBEventCursor(RocksDB db, ColumnFamilyHandle eventsCF, Snapshot snapshot, String aggregateId,
+                       long fromVersion, Function<byte[], BaseEvent> decoder,
+                       BiConsumer<byte[], EventProjection> projector) {
+        this.db = db;
+        this.ownsSnapshot = snapshot == null;
+        this.snapshot = ownsSnapshot ? db.getSnapshot() : snapshot;
+        this.upperBound = new Slice(EventKeyCodec.upperBound(aggregateId));
+        this.readOptions = new ReadOptions()
+            .setSnapshot(this.snapshot)
+            .setPrefixSameAsStart(true)
+            .setIterateUpperBound(upperBound);
+        this.iterator = db.newIterator(eventsCF, readOptions);
+        this.decoder = decoder;
+        this.projector = projector;
+        long start = Math.max(fromVersion, 0);
+        this.lastVersion = start - 1;
+        iterator.seek(EventKeyCodec.encode(aggregateId, start));
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !closed && iterator.isValid();
+    }
+
+    @Override
+    public BaseEvent next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        lastVersion = EventKeyCodec.decodeVersion(iterator.key());
+        BaseEvent event = decoder.apply(iterator.value());
+        iterator.next();
+        return event;
+    }
+
+    @Override
+    public void nextProjection(EventProjection target) {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        lastVersion = EventKeyCodec.decodeVersion(iterator.key());
+        // value() copies, so the projection may keep referring to it after the iterator moves
+        projector.accept(iterator.value(), target);
+        iterator.next();
+    }
+
+    @Override
+    public long getLastVersion() {
+        return lastVersion;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        iterator.close();
+        readOptions.close();
+        upperBound.close();
+        if (ownsSnapshot) {
+            db.releaseSnapshot(snapshot);
+        }
+    }
+}
@@ -1,45 +1,74 @@
 package com.wallet.command.infrastructure.repository;
 
+import com.wallet.command.config.RocksDBProperties;
 import com.wallet.command.event.BaseEvent;
+import com.wallet.command.event.TransactionalEvent;
+import com.wallet.command.infrastructure.serialization.AccountSnapshotCodec;
+import com.wallet.command.infrastructure.serialization.EventEnvelope;
 import com.wallet.command.infrastructure.serialization.EventSerializer;
+import com.wallet.command.model.AccountSnapshot;
+import com.wallet.command.model.Durability;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.rocksdb.*;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Repository;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
-import java.io.File;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicLong;
-
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
+/**
+ * Event store on one or more RocksDB instances. Each shard holds the aggregates that the
+ * consistent hash ring assigns to it, with its own write lanes, compaction budget and
+ * metrics; reads and appends of an aggregate go to its shard only. Global log positions
+ * are allocated across all shards, so the log and transactions, which span shards, are
+ * read from every shard and merged by position.
+ */
 @Slf4j
 @Repository
+@ConditionalOnProperty(name = "event-store.engine", havingValue = "rocksdb", matchIfMissing = true)
 public class RocksDBEventStore implements EventStore {
-    private static final String EVENTS_CF = "events";
-    private static final String VERSIONS_CF = "versions";
-    private static final String SEQUENCE_CF = "sequence";
+    private static final String METRIC_VERSION_CACHE_REQUESTS = "wallet.eventstore.version.cache.requests";
+    private static final String METRIC_VERSION_CACHE_SIZE = "wallet.eventstore.version.cache.size";
     
     private final EventSerializer eventSerializer;
+    private final MeterRegistry meterRegistry;
     private final ExecutorService executor;
-    private final String dbPath;
-    private final ObjectMapper objectMapper = new ObjectMapper();
-    
-    private RocksDB db;
-    private ColumnFamilyHandle eventsCF;
-    private ColumnFamilyHandle versionsCF;
-    private ColumnFamilyHandle sequenceCF;
-    private AtomicLong sequence;
+    private final RocksDBProperties properties;
+    private final Set<GlobalLogSubscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger subscriptionCounter = new AtomicInteger();
+    private final List<RocksDBShard> shards = new ArrayList<>();
 
-    public RocksDBEventStore(EventSerializer eventSerializer, @Value("${rocksdb.path}") String dbPath) {
+    private Cache blockCache;
+    private ShardRing<RocksDBShard> ring;
+    private GlobalLog globalLog;
+    private VersionCache versionCache;
+
+    public RocksDBEventStore(EventSerializer eventSerializer,
+                             MeterRegistry meterRegistry,
+                             RocksDBProperties properties) {
         this.eventSerializer = eventSerializer;
-        this.dbPath = dbPath;
+        this.meterRegistry = meterRegistry;
+        this.properties = properties;
         this.executor = Executors.newFixedThreadPool(
             Runtime.getRuntime().availableProcessors(),
             new ThreadFactory() {
@@ -57,108 +86,177 @@ public class RocksDBEventStore implements EventStore {
     public void init() {
         try {
             RocksDB.loadLibrary();
-            File dbDir = new File(dbPath);
-            if (!dbDir.exists()) {
-                dbDir.mkdirs();
-            }
-
-            final List<ColumnFamilyDescriptor> columnFamilyDescriptors = new ArrayList<>();
-            columnFamilyDescriptors.add(new ColumnFamilyDescriptor(
-                RocksDB.DEFAULT_COLUMN_FAMILY));
-            columnFamilyDescriptors.add(new ColumnFamilyDescriptor(
-                EVENTS_CF.getBytes(StandardCharsets.UTF_8)));
-            columnFamilyDescriptors.add(new ColumnFamilyDescriptor(
-                VERSIONS_CF.getBytes(StandardCharsets.UTF_8)));
-            columnFamilyDescriptors.add(new ColumnFamilyDescriptor(
-                SEQUENCE_CF.getBytes(StandardCharsets.UTF_8)));
-
-            final List<ColumnFamilyHandle> columnFamilyHandles = new ArrayList<>();
-
-            DBOptions options = new DBOptions()
-                .setCreateIfMissing(true)
-                .setCreateMissingColumnFamilies(true);
-
-            db = RocksDB.open(options, dbPath, columnFamilyDescriptors, columnFamilyHandles);
-            
-            // Save column family handles
-            eventsCF = columnFamilyHandles.get(1);
-            versionsCF = columnFamilyHandles.get(2);
-            sequenceCF = columnFamilyHandles.get(3);
-            sequence = new AtomicLong(initializeSequence());
-        } catch (RocksDBException e) {
+            List<RocksDBProperties.Shard> shardProperties = properties.resolvedShards();
+            blockCache = new LRUCache(properties.getBlockCacheSize().toBytes());
+            Map<String, RocksDBShard> shardsByName = new LinkedHashMap<>();
+            for (RocksDBProperties.Shard shardProperty : shardProperties) {
+                RocksDBShard shard = new RocksDBShard(properties, shardProperty, shardProperties.size() > 1);
+                shards.add(shard);
+                shard.open(blockCache, eventSerializer, meterRegistry);
+                shardsByName.put(shard.name(), shard);
+            }
+            checkMembership(ShardRing.membership(shardsByName.keySet(), properties.getShardVirtualNodes()));
+            ring = new ShardRing<>(shardsByName, properties.getShardVirtualNodes());
+
+            long lastLogPosition = -1;
+            for (RocksDBShard shard : shards) {
+                lastLogPosition = Math.max(lastLogPosition, shard.lastLogPosition());
+            }
+            globalLog = new GlobalLog(lastLogPosition + 1);
+            versionCache = new VersionCache(properties.getVersionCacheSize());
+            bindVersionCacheMetrics();
+            shards.forEach(shard -> shard.startLanes(globalLog, versionCache, meterRegistry));
+            log.info("Opened event store with {} shard(s): {}", shards.size(), shardsByName.keySet());
+        } catch (RocksDBException | IOException e) {
             log.error("Failed to initialize RocksDB", e);
             throw new RuntimeException("Failed to initialize RocksDB", e);
         }
     }
 
+    /**
+     * Aggregates stay on the shard they were first written to, so a changed ring would
+     * route some of them to a shard without their history, where they could be created
+     * again. A shard removed from the configuration cannot be looked at, so the recorded
+     * membership must match even if the opened shards are empty. Shards without one, new
+     * shards or shards of an older store, record it once all agree.
+     */
+    private void checkMembership(String membership) throws RocksDBException {
+        List<RocksDBShard> unrecorded = new ArrayList<>();
+        for (RocksDBShard shard : shards) {
+            String recorded = shard.recordedMembership();
+            if (recorded == null) {
+                unrecorded.add(shard);
+            } else if (!recorded.equals(membership)) {
+                throw new IllegalStateException("Shard " + shard.name() + " was written with the shard ring "
+                    + recorded + ", not the configured " + membership
+                    + "; changing rocksdb.shards or rocksdb.shard-virtual-nodes needs the aggregates to be migrated");
+            }
+        }
+        for (RocksDBShard shard : unrecorded) {
+            shard.recordMembership(membership);
+        }
+    }
+
+    private void bindVersionCacheMetrics() {
+        FunctionCounter.builder(METRIC_VERSION_CACHE_REQUESTS, versionCache, VersionCache::hits)
+            .description("Aggregate version lookups served from memory or from the versions column family")
+            .tag("result", "hit")
+            .register(meterRegistry);
+        FunctionCounter.builder(METRIC_VERSION_CACHE_REQUESTS, versionCache, VersionCache::misses)
+            .description("Aggregate version lookups served from memory or from the versions column family")
+            .tag("result", "miss")
+            .register(meterRegistry);
+        Gauge.builder(METRIC_VERSION_CACHE_SIZE, versionCache, VersionCache::size)
+            .description("Aggregates whose version is cached")
+            .register(meterRegistry);
+    }
+
     @PreDestroy
     public void cleanup() {
-        if (eventsCF != null) eventsCF.close();
-        if (versionsCF != null) versionsCF.close();
-        if (sequenceCF != null) sequenceCF.close();
-        if (db != null) db.close();
+        subscriptions.forEach(GlobalLogSubscription::close);
+        shards.forEach(RocksDBShard::close);
+        shards.clear();
+        if (blockCache != null) blockCache.close();
         executor.shutdown();
     }
 
-    @Override
-    public CompletableFuture<Void> appendEvents(String aggregateId, long expectedVersion, List<BaseEvent> events) {
-        CompletableFuture<Void> future = new CompletableFuture<>();
-        executor.execute(() -> {
-            try {
-                WriteOptions writeOpts = new WriteOptions();
-                WriteBatch batch = new WriteBatch();
-
-                long currentVersion = getCurrentVersionSync(aggregateId);
-                if (currentVersion != expectedVersion) {
-                    future.completeExceptionally(
-                        new IllegalStateException("Version mismatch: expected " + expectedVersion + 
-                            ", but got " + currentVersion + " for aggregate " + aggregateId));
-                    return;
-                }
+    /**
+     * The shard holding every key of an aggregate
+     */
+    RocksDBShard shardFor(String aggregateId) {
+        return ring.shardFor(aggregateId);
+    }
 
-                for (BaseEvent event : events) {
-                    String eventKey = String.format("%s:%d", aggregateId, ++currentVersion);
-                    String serializedEvent = eventSerializer.serialize(event);
-                    batch.put(eventsCF, 
-                        eventKey.getBytes(StandardCharsets.UTF_8),
-                        serializedEvent.getBytes(StandardCharsets.UTF_8));
-                }
+    /**
+     * Aggregates grouped by shard, each group in the caller's order
+     */
+    private Map<RocksDBShard, List<String>> byShard(Collection<String> aggregateIds) {
+        Map<RocksDBShard, List<String>> groups = new LinkedHashMap<>();
+        for (String aggregateId : aggregateIds) {
+            groups.computeIfAbsent(shardFor(aggregateId), shard -> new ArrayList<>()).add(aggregateId);
+        }
+        return groups;
+    }
 
-                batch.put(versionsCF,
-                    aggregateId.getBytes(StandardCharsets.UTF_8),
-                    String.valueOf(currentVersion).getBytes(StandardCharsets.UTF_8));
+    @Override
+    public CompletableFuture<Void> appendEvents(String aggregateId, long expectedVersion, List<BaseEvent> events,
+                                                Durability durability) {
+        List<byte[]> encodedEvents = new ArrayList<>(events.size());
+        List<String> transactionIds = new ArrayList<>(events.size());
+        long[] timestamps = new long[events.size()];
+        try {
+            for (BaseEvent event : events) {
+                timestamps[encodedEvents.size()] = event.getTimestampMillis();
+                encodedEvents.add(encodeEvent(event));
+                transactionIds.add(TransactionalEvent.transactionIdOf(event));
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to encode events for aggregate: {}", aggregateId, e);
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+        return shardFor(aggregateId).laneFor(aggregateId)
+            .submit(aggregateId, expectedVersion, encodedEvents, transactionIds, timestamps, durability);
+    }
 
-                db.write(writeOpts, batch);
-                future.complete(null);
-            } catch (RocksDBException e) {
-                log.error("Failed to append events for aggregate: {}", aggregateId, e);
-                future.completeExceptionally(new RuntimeException("Failed to append events for aggregate " + aggregateId, e));
+    /**
+     * Create aggregates in bulk by ingesting SST files into their shards instead of
+     * appending through the write lanes. Each shard's import is ingested as a whole while
+     * its appends wait; log positions follow the map's iteration order within each shard.
+     *
+     * @param eventsByAggregate Events of aggregates expected to have none yet, starting at version 0
+     * @return IDs of the aggregates left out because they already have events
+     */
+    public Set<String> ingestNewAggregates(Map<String, List<BaseEvent>> eventsByAggregate) {
+        Map<RocksDBShard, List<SstIngestion.NewAggregate>> groups = new LinkedHashMap<>();
+        eventsByAggregate.forEach((aggregateId, events) -> {
+            List<byte[]> encodedEvents = new ArrayList<>(events.size());
+            List<String> transactionIds = new ArrayList<>(events.size());
+            long[] timestamps = new long[events.size()];
+            for (BaseEvent event : events) {
+                timestamps[encodedEvents.size()] = event.getTimestampMillis();
+                encodedEvents.add(encodeEvent(event));
+                transactionIds.add(TransactionalEvent.transactionIdOf(event));
             }
+            groups.computeIfAbsent(shardFor(aggregateId), shard -> new ArrayList<>())
+                .add(new SstIngestion.NewAggregate(aggregateId, encodedEvents, transactionIds, timestamps));
         });
-        return future;
+
+        Set<String> existing = new LinkedHashSet<>();
+        for (Map.Entry<RocksDBShard, List<SstIngestion.NewAggregate>> group : groups.entrySet()) {
+            try {
+                existing.addAll(new SstIngestion(group.getKey(), globalLog, versionCache).ingest(group.getValue()));
+            } catch (RocksDBException | IOException e) {
+                log.error("Failed to ingest {} aggregates into shard {}", group.getValue().size(), group.getKey().name(), e);
+                throw new RuntimeException("Failed to ingest aggregates into shard " + group.getKey().name(), e);
+            }
+        }
+        return existing;
     }
 
     @Override
     public CompletableFuture<List<BaseEvent>> readEvents(String aggregateId, long fromVersion) {
         CompletableFuture<List<BaseEvent>> future = new CompletableFuture<>();
         executor.execute(() -> {
-            try {
+            RocksDBShard shard = shardFor(aggregateId);
+            try (Slice upperBound = new Slice(EventKeyCodec.upperBound(aggregateId));
+                 ReadOptions readOptions = new ReadOptions()
+                     .setPrefixSameAsStart(true)
+                     .setIterateUpperBound(upperBound);
+                 RocksIterator iterator = shard.db().newIterator(shard.eventsCF(), readOptions)) {
                 List<BaseEvent> events = new ArrayList<>();
-                RocksIterator iterator = db.newIterator(eventsCF);
+                long bytes = 0;
 
-                String startKey = String.format("%s:%d", aggregateId, fromVersion);
-                for (iterator.seek(startKey.getBytes(StandardCharsets.UTF_8)); 
-                     iterator.isValid(); 
+                for (iterator.seek(EventKeyCodec.encode(aggregateId, Math.max(fromVersion, 0)));
+                     iterator.isValid();
                      iterator.next()) {
-                    String key = new String(iterator.key(), StandardCharsets.UTF_8);
-                    if (!key.startsWith(aggregateId + ":")) {
-                        break;
-                    }
-                    String serializedEvent = new String(iterator.value(), StandardCharsets.UTF_8);
-                    String eventType = extractEventType(key);
-                    events.add(eventSerializer.deserialize(serializedEvent, eventType));
+                    byte[] value = iterator.value();
+                    bytes += value.length;
+                    events.add(decodeEvent(value));
                 }
 
+                shard.metrics().recordRead(shard.eventsCF(), bytes);
                 future.complete(events);
             } catch (Exception e) {
                 log.error("Failed to read events for aggregate: {}", aggregateId, e);
@@ -168,17 +266,139 @@ public class RocksDBEventStore implements EventStore {
         return future;
     }
 
+    @Override
+    public EventCursor openCursor(String aggregateId, long fromVersion) {
+        return openCursor(null, aggregateId, fromVersion);
+    }
+
+    @Override
+    public AggregateReadView openReadView(String aggregateId) {
+        try {
+            return new RocksDBAggregateReadView(this, shardFor(aggregateId).db(), aggregateId);
+        } catch (RocksDBException e) {
+            log.error("Failed to open read view for aggregate: {}", aggregateId, e);
+            throw new RuntimeException("Failed to open read view for aggregate " + aggregateId, e);
+        }
+    }
+
+    /**
+     * @param snapshot Snapshot of the aggregate's shard to read, or null for a cursor that pins its own
+     */
+    EventCursor openCursor(Snapshot snapshot, String aggregateId, long fromVersion) {
+        RocksDBShard shard = shardFor(aggregateId);
+        return new RocksDBEventCursor(shard.db(), shard.eventsCF(), snapshot, aggregateId, fromVersion, value -> {
+            shard.metrics().recordRead(shard.eventsCF(), value.length);
+            return decodeEvent(value);
+        }, (value, target) -> {
+            shard.metrics().recordRead(shard.eventsCF(), value.length);
+            eventSerializer.project(EventEnvelope.decode(value), target);
+        });
+    }
+
     @Override
     public CompletableFuture<List<BaseEvent>> readAllEvents(String aggregateId) {
         return readEvents(aggregateId, 0);
     }
 
+    @Override
+    public CompletableFuture<Map<String, List<BaseEvent>>> readEventsBatch(Map<String, Long> fromVersions) {
+        CompletableFuture<Map<String, List<BaseEvent>>> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                Map<String, List<BaseEvent>> result = new LinkedHashMap<>();
+                fromVersions.keySet().forEach(aggregateId -> result.put(aggregateId, Collections.emptyList()));
+                for (Map.Entry<RocksDBShard, List<String>> group : byShard(fromVersions.keySet()).entrySet()) {
+                    readEventsBatch(group.getKey(), group.getValue(), fromVersions, result);
+                }
+                future.complete(result);
+            } catch (Exception e) {
+                log.error("Failed to read events for aggregates: {}", fromVersions.keySet(), e);
+                future.completeExceptionally(new RuntimeException("Failed to read events for aggregates " + fromVersions.keySet(), e));
+            }
+        });
+        return future;
+    }
+
+    /**
+     * One iterator per shard, moving forward through the aggregates in key order
+     */
+    private void readEventsBatch(RocksDBShard shard, List<String> aggregateIds, Map<String, Long> fromVersions,
+                                 Map<String, List<BaseEvent>> result) {
+        try (ReadOptions readOptions = new ReadOptions().setPrefixSameAsStart(true);
+             RocksIterator iterator = shard.db().newIterator(shard.eventsCF(), readOptions)) {
+            long bytes = 0;
+            for (Map.Entry<byte[], String> aggregate : inKeyOrder(aggregateIds).entrySet()) {
+                String aggregateId = aggregate.getValue();
+                long fromVersion = Math.max(fromVersions.get(aggregateId), 0);
+                List<BaseEvent> events = new ArrayList<>();
+                for (iterator.seek(EventKeyCodec.encode(aggregateId, fromVersion));
+                     iterator.isValid() && EventKeyCodec.hasPrefix(iterator.key(), aggregate.getKey());
+                     iterator.next()) {
+                    byte[] value = iterator.value();
+                    bytes += value.length;
+                    events.add(decodeEvent(value));
+                }
+                result.put(aggregateId, events);
+            }
+            shard.metrics().recordRead(shard.eventsCF(), bytes);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Long>> getCurrentVersions(Collection<String> aggregateIds) {
+        CompletableFuture<Map<String, Long>> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                Map<String, Long> versions = new LinkedHashMap<>();
+                List<String> missing = new ArrayList<>();
+                for (String aggregateId : new LinkedHashSet<>(aggregateIds)) {
+                    long cached = versionCache.get(aggregateId);
+                    versions.put(aggregateId, cached);
+                    if (cached == VersionCache.MISSING) {
+                        missing.add(aggregateId);
+                    }
+                }
+                for (Map.Entry<RocksDBShard, List<String>> group : byShard(missing).entrySet()) {
+                    RocksDBShard shard = group.getKey();
+                    List<String> shardMissing = group.getValue();
+                    List<byte[]> keys = new ArrayList<>(shardMissing.size());
+                    shardMissing.forEach(aggregateId -> keys.add(aggregateId.getBytes(StandardCharsets.UTF_8)));
+                    List<byte[]> values = shard.db().multiGetAsList(Collections.nCopies(keys.size(), shard.versionsCF()), keys);
+                    long bytes = 0;
+                    for (int i = 0; i < shardMissing.size(); i++) {
+                        byte[] value = values.get(i);
+                        if (value != null) {
+                            bytes += value.length;
+                        }
+                        versions.put(shardMissing.get(i), value == null ? -1 : Long.parseLong(new String(value, StandardCharsets.UTF_8)));
+                    }
+                    shard.metrics().recordRead(shard.versionsCF(), bytes);
+                }
+                future.complete(versions);
+            } catch (Exception e) {
+                log.error("Failed to get current versions for aggregates: {}", aggregateIds, e);
+                future.completeExceptionally(new RuntimeException("Failed to get current versions for aggregates " + aggregateIds, e));
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Aggregates sorted by key prefix, so that one iterator only ever seeks forward
+     */
+    private static TreeMap<byte[], String> inKeyOrder(Collection<String> aggregateIds) {
+        TreeMap<byte[], String> sorted = new TreeMap<>(EventKeyCodec.KEY_ORDER);
+        aggregateIds.forEach(aggregateId -> sorted.put(EventKeyCodec.aggregatePrefix(aggregateId), aggregateId));
+        return sorted;
+    }
+
     @Override
     public CompletableFuture<Long> getCurrentVersion(String aggregateId) {
         CompletableFuture<Long> future = new CompletableFuture<>();
         executor.execute(() -> {
             try {
-                future.complete(getCurrentVersionSync(aggregateId));
+                long cached = versionCache.get(aggregateId);
+                future.complete(cached != VersionCache.MISSING ? cached : readVersion(null, aggregateId));
             } catch (Exception e) {
                 log.error("Failed to get current version for aggregate: {}", aggregateId, e);
                 future.completeExceptionally(new RuntimeException("Failed to get current version for aggregate " + aggregateId, e));
@@ -187,35 +407,363 @@ public class RocksDBEventStore implements EventStore {
         return future;
     }
 
-    private long getCurrentVersionSync(String aggregateId) throws RocksDBException {
-        byte[] versionBytes = db.get(versionsCF, aggregateId.getBytes(StandardCharsets.UTF_8));
+    @Override
+    public CompletableFuture<Long> getVersionAt(String aggregateId, Instant time) {
+        CompletableFuture<Long> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                future.complete(readVersionAt(aggregateId, time.toEpochMilli()));
+            } catch (Exception e) {
+                log.error("Failed to get version at {} for aggregate: {}", time, aggregateId, e);
+                future.completeExceptionally(new RuntimeException("Failed to get version at " + time + " for aggregate " + aggregateId, e));
+            }
+        });
+        return future;
+    }
+
+    /**
+     * One reverse seek in the timeline, to the last event recorded at or before the time
+     */
+    private long readVersionAt(String aggregateId, long epochMillis) {
+        RocksDBShard shard = shardFor(aggregateId);
+        byte[] aggregatePrefix = EventKeyCodec.aggregatePrefix(aggregateId);
+        try (ReadOptions readOptions = new ReadOptions().setPrefixSameAsStart(true);
+             RocksIterator iterator = shard.db().newIterator(shard.timelineCF(), readOptions)) {
+            iterator.seekForPrev(TimelineKeyCodec.encode(aggregatePrefix, epochMillis, Long.MAX_VALUE));
+            if (!iterator.isValid()) {
+                return -1;
+            }
+            byte[] key = iterator.key();
+            if (!TimelineKeyCodec.hasPrefix(key, aggregatePrefix)) {
+                return -1;
+            }
+            shard.metrics().recordRead(shard.timelineCF(), key.length);
+            return TimelineKeyCodec.decodeVersion(key);
+        }
+    }
+
+    /**
+     * @param snapshot Snapshot of the aggregate's shard to read, or null for the latest state
+     */
+    long readVersion(Snapshot snapshot, String aggregateId) throws RocksDBException {
+        RocksDBShard shard = shardFor(aggregateId);
+        byte[] key = aggregateId.getBytes(StandardCharsets.UTF_8);
+        byte[] versionBytes;
+        if (snapshot == null) {
+            versionBytes = shard.db().get(shard.versionsCF(), key);
+        } else {
+            try (ReadOptions readOptions = new ReadOptions().setSnapshot(snapshot)) {
+                versionBytes = shard.db().get(shard.versionsCF(), readOptions, key);
+            }
+        }
+        if (versionBytes != null) {
+            shard.metrics().recordRead(shard.versionsCF(), versionBytes.length);
+        }
         return versionBytes == null ? -1 : Long.parseLong(new String(versionBytes, StandardCharsets.UTF_8));
     }
 
-    private long initializeSequence() {
+    @Override
+    public CompletableFuture<Optional<AccountSnapshot>> readSnapshot(String aggregateId, long maxVersion) {
+        CompletableFuture<Optional<AccountSnapshot>> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                future.complete(readSnapshot(null, aggregateId, maxVersion));
+            } catch (Exception e) {
+                log.error("Failed to read snapshot for aggregate: {}", aggregateId, e);
+                future.completeExceptionally(new RuntimeException("Failed to read snapshot for aggregate " + aggregateId, e));
+            }
+        });
+        return future;
+    }
+
+    /**
+     * @param snapshot Snapshot of the aggregate's shard to read, or null for the latest state
+     */
+    Optional<AccountSnapshot> readSnapshot(Snapshot snapshot, String aggregateId, long maxVersion) throws RocksDBException {
+        RocksDBShard shard = shardFor(aggregateId);
+        // The lower bound keeps seekForPrev from landing on another aggregate of the same bucket
+        try (Slice lowerBound = new Slice(EventKeyCodec.encode(aggregateId, 0));
+             ReadOptions readOptions = new ReadOptions()
+                 .setSnapshot(snapshot)
+                 .setPrefixSameAsStart(true)
+                 .setIterateLowerBound(lowerBound);
+             RocksIterator iterator = shard.db().newIterator(shard.snapshotsCF(), readOptions)) {
+            iterator.seekForPrev(EventKeyCodec.encode(aggregateId, Math.max(maxVersion, 0)));
+            if (!iterator.isValid()) {
+                return Optional.empty();
+            }
+            byte[] value = iterator.value();
+            shard.metrics().recordRead(shard.snapshotsCF(), value.length);
+            return Optional.of(AccountSnapshotCodec.decode(value));
+        }
+    }
+
+    @Override
+    public CompletableFuture<Map<String, AccountSnapshot>> readLatestSnapshots(Collection<String> aggregateIds) {
+        CompletableFuture<Map<String, AccountSnapshot>> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                Map<String, AccountSnapshot> snapshots = new LinkedHashMap<>();
+                for (Map.Entry<RocksDBShard, List<String>> group : byShard(aggregateIds).entrySet()) {
+                    readLatestSnapshots(group.getKey(), group.getValue(), snapshots);
+                }
+                future.complete(snapshots);
+            } catch (Exception e) {
+                log.error("Failed to read snapshots for aggregates: {}", aggregateIds, e);
+                future.completeExceptionally(new RuntimeException("Failed to read snapshots for aggregates " + aggregateIds, e));
+            }
+        });
+        return future;
+    }
+
+    private void readLatestSnapshots(RocksDBShard shard, List<String> aggregateIds, Map<String, AccountSnapshot> snapshots) {
+        try (ReadOptions readOptions = new ReadOptions().setPrefixSameAsStart(true);
+             RocksIterator iterator = shard.db().newIterator(shard.snapshotsCF(), readOptions)) {
+            long bytes = 0;
+            for (Map.Entry<byte[], String> aggregate : inKeyOrder(aggregateIds).entrySet()) {
+                iterator.seekForPrev(EventKeyCodec.encode(aggregate.getValue(), Long.MAX_VALUE));
+                if (iterator.isValid() && EventKeyCodec.hasPrefix(iterator.key(), aggregate.getKey())) {
+                    byte[] value = iterator.value();
+                    bytes += value.length;
+                    snapshots.put(aggregate.getValue(), AccountSnapshotCodec.decode(value));
+                }
+            }
+            shard.metrics().recordRead(shard.snapshotsCF(), bytes);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> saveSnapshot(AccountSnapshot snapshot) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            // Snapshots are derived data and need no ordering against the write lanes
+            try (WriteOptions writeOptions = new WriteOptions()) {
+                RocksDBShard shard = shardFor(snapshot.getAccountId());
+                byte[] key = EventKeyCodec.encode(snapshot.getAccountId(), snapshot.getVersion());
+                byte[] value = AccountSnapshotCodec.encode(snapshot);
+                shard.db().put(shard.snapshotsCF(), writeOptions, key, value);
+                shard.metrics().recordWritten(shard.snapshotsCF(), key.length + value.length);
+                future.complete(null);
+            } catch (Exception e) {
+                log.error("Failed to save snapshot for aggregate: {}", snapshot.getAccountId(), e);
+                future.completeExceptionally(new RuntimeException("Failed to save snapshot for aggregate " + snapshot.getAccountId(), e));
+            }
+        });
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<List<RecordedEvent>> readLog(long fromPosition, int maxCount) {
+        CompletableFuture<List<RecordedEvent>> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                future.complete(readLogPage(Math.max(fromPosition, 0), globalLog.committedPosition(), maxCount));
+            } catch (Exception e) {
+                log.error("Failed to read global log from position: {}", fromPosition, e);
+                future.completeExceptionally(new RuntimeException("Failed to read global log from position " + fromPosition, e));
+            }
+        });
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<Long> getLogPosition() {
+        return CompletableFuture.completedFuture(globalLog.committedPosition());
+    }
+
+    @Override
+    public EventSubscription subscribeToLog(long fromPosition, Consumer<RecordedEvent> listener) {
+        subscriptions.removeIf(subscription -> !subscription.isRunning());
+        GlobalLogSubscription subscription = new GlobalLogSubscription(this::readLogPage, globalLog, fromPosition,
+            listener, "event-store-subscription-" + subscriptionCounter.getAndIncrement());
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    @Override
+    public CompletableFuture<List<RecordedEvent>> readTransaction(String transactionId) {
+        CompletableFuture<List<RecordedEvent>> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                future.complete(readTransactionEvents(transactionId));
+            } catch (Exception e) {
+                log.error("Failed to read events of transaction: {}", transactionId, e);
+                future.completeExceptionally(new RuntimeException("Failed to read events of transaction " + transactionId, e));
+            }
+        });
+        return future;
+    }
+
+    /**
+     * A transaction may span shards, so every shard is searched and the events merged by position
+     */
+    private List<RecordedEvent> readTransactionEvents(String transactionId) throws RocksDBException {
+        byte[] prefix = TransactionKeyCodec.prefix(transactionId);
+        List<RecordedEvent> events = new ArrayList<>();
+        for (RocksDBShard shard : shards) {
+            readTransactionEvents(shard, transactionId, prefix, events);
+        }
+        events.sort(Comparator.comparingLong(RecordedEvent::getPosition));
+        return events;
+    }
+
+    /**
+     * One prefix seek in the shard's transactions column family, then a multiGet of the events
+     */
+    private void readTransactionEvents(RocksDBShard shard, String transactionId, byte[] prefix,
+                                       List<RecordedEvent> events) throws RocksDBException {
+        List<Long> positions = new ArrayList<>();
+        List<byte[]> eventKeys = new ArrayList<>();
+        long transactionBytes = 0;
+        try (ReadOptions readOptions = new ReadOptions().setPrefixSameAsStart(true);
+             RocksIterator iterator = shard.db().newIterator(shard.transactionsCF(), readOptions)) {
+            for (iterator.seek(prefix); iterator.isValid(); iterator.next()) {
+                byte[] key = iterator.key();
+                if (!TransactionKeyCodec.hasPrefix(key, prefix)) {
+                    break;
+                }
+                positions.add(GlobalLog.decodePosition(iterator.value()));
+                eventKeys.add(TransactionKeyCodec.eventKey(key, prefix));
+                transactionBytes += key.length + GlobalLog.POSITION_LENGTH;
+            }
+        }
+        shard.metrics().recordRead(shard.transactionsCF(), transactionBytes);
+        if (eventKeys.isEmpty()) {
+            return;
+        }
+
+        List<byte[]> values = shard.db().multiGetAsList(Collections.nCopies(eventKeys.size(), shard.eventsCF()), eventKeys);
+        long eventBytes = 0;
+        for (int i = 0; i < values.size(); i++) {
+            byte[] eventKey = eventKeys.get(i);
+            byte[] value = values.get(i);
+            if (value == null) {
+                throw new IllegalStateException("Transaction " + transactionId + " points to a missing event");
+            }
+            eventBytes += value.length;
+            events.add(new RecordedEvent(positions.get(i), EventKeyCodec.decodeAggregateId(eventKey),
+                EventKeyCodec.decodeVersion(eventKey), decodeEvent(value)));
+        }
+        shard.metrics().recordRead(shard.eventsCF(), eventBytes);
+    }
+
+    /**
+     * Write a consistent, hard-linked checkpoint of the store while it keeps serving writes.
+     * The checkpoint can be opened directly or used as rocksdb.backup.restore-from. A sharded
+     * store writes one checkpoint per shard, in a subdirectory named after it; each one is
+     * consistent on its own.
+     *
+     * @param targetDir Directory to create; it must not exist yet
+     */
+    public void createCheckpoint(String targetDir) {
         try {
-            byte[] sequenceBytes = db.get(sequenceCF, "sequence".getBytes(StandardCharsets.UTF_8));
-            if (sequenceBytes != null) {
-                return Long.parseLong(new String(sequenceBytes, StandardCharsets.UTF_8));
+            for (RocksDBShard shard : shards) {
+                shard.checkpoint(targetDir);
             }
         } catch (RocksDBException e) {
-            log.error("Failed to initialize sequence", e);
-            throw new RuntimeException("Failed to initialize sequence", e);
+            log.error("Failed to create checkpoint in: {}", targetDir, e);
+            throw new RuntimeException("Failed to create checkpoint in " + targetDir, e);
         }
-        return 0L;
     }
 
-    private String extractEventType(String key) {
+    /**
+     * Add an incremental backup of every shard to rocksdb.backup.dir
+     *
+     * @return The new backup of each shard
+     */
+    public List<BackupDescriptor> createBackup() {
         try {
-            String[] parts = key.split(":");
-            if (parts.length != 2) {
-                throw new IllegalArgumentException("Invalid event key format: " + key);
+            List<BackupDescriptor> backups = new ArrayList<>(shards.size());
+            for (RocksDBShard shard : shards) {
+                backups.add(shard.backup(globalLog.committedPosition()));
             }
-            String aggregateId = parts[0];
-            String eventData = new String(db.get(eventsCF, key.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8);
-            return objectMapper.readTree(eventData).get("type").asText();
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to extract event type from key: " + key, e);
+            return backups;
+        } catch (RocksDBException e) {
+            log.error("Failed to create backup in: {}", properties.getBackup().getDir(), e);
+            throw new RuntimeException("Failed to create backup in " + properties.getBackup().getDir(), e);
+        }
+    }
+
+    public List<BackupDescriptor> listBackups() {
+        try {
+            List<BackupDescriptor> backups = new ArrayList<>();
+            for (RocksDBShard shard : shards) {
+                backups.addAll(shard.listBackups());
+            }
+            return backups;
+        } catch (RocksDBException e) {
+            log.error("Failed to list backups in: {}", properties.getBackup().getDir(), e);
+            throw new RuntimeException("Failed to list backups in " + properties.getBackup().getDir(), e);
+        }
+    }
+
+    /**
+     * Reads the page from every shard and merges it by position. Every shard returns up to
+     * {@code maxCount} events, so the merged page is short only once all of them were exhausted.
+     *
+     * @param toPosition Last position to read, normally the committed position
+     */
+    List<RecordedEvent> readLogPage(long fromPosition, long toPosition, int maxCount) throws RocksDBException {
+        if (fromPosition > toPosition || maxCount <= 0) {
+            return Collections.emptyList();
+        }
+        if (shards.size() == 1) {
+            return readLogPage(shards.get(0), fromPosition, toPosition, maxCount);
+        }
+        List<RecordedEvent> events = new ArrayList<>();
+        for (RocksDBShard shard : shards) {
+            events.addAll(readLogPage(shard, fromPosition, toPosition, maxCount));
         }
+        events.sort(Comparator.comparingLong(RecordedEvent::getPosition));
+        return events.size() > maxCount ? new ArrayList<>(events.subList(0, maxCount)) : events;
+    }
+
+    /**
+     * Range scan of the shard's sequence column family, resolving the indexed event keys in one multi-get
+     */
+    private List<RecordedEvent> readLogPage(RocksDBShard shard, long fromPosition, long toPosition, int maxCount)
+            throws RocksDBException {
+        List<Long> positions = new ArrayList<>();
+        List<byte[]> eventKeys = new ArrayList<>();
+        try (Slice upperBound = new Slice(GlobalLog.encodePosition(toPosition + 1));
+             ReadOptions readOptions = new ReadOptions().setIterateUpperBound(upperBound);
+             RocksIterator iterator = shard.db().newIterator(shard.sequenceCF(), readOptions)) {
+            for (iterator.seek(GlobalLog.encodePosition(fromPosition));
+                 iterator.isValid() && positions.size() < maxCount;
+                 iterator.next()) {
+                positions.add(GlobalLog.decodePosition(iterator.key()));
+                eventKeys.add(iterator.value());
+            }
+        }
+        if (positions.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<byte[]> values = shard.db().multiGetAsList(Collections.nCopies(eventKeys.size(), shard.eventsCF()), eventKeys);
+        List<RecordedEvent> events = new ArrayList<>(values.size());
+        long sequenceBytes = 0;
+        long eventBytes = 0;
+        for (int i = 0; i < values.size(); i++) {
+            byte[] eventKey = eventKeys.get(i);
+            byte[] value = values.get(i);
+            if (value == null) {
+                throw new IllegalStateException("Global log position " + positions.get(i) + " points to a missing event");
+            }
+            sequenceBytes += GlobalLog.POSITION_LENGTH + eventKey.length;
+            eventBytes += value.length;
+            events.add(new RecordedEvent(positions.get(i), EventKeyCodec.decodeAggregateId(eventKey),
+                EventKeyCodec.decodeVersion(eventKey), decodeEvent(value)));
+        }
+        shard.metrics().recordRead(shard.sequenceCF(), sequenceBytes);
+        shard.metrics().recordRead(shard.eventsCF(), eventBytes);
+        return events;
+    }
+
+    private byte[] encodeEvent(BaseEvent event) {
+        return EventEnvelope.encode(event, eventSerializer);
+    }
+
+    private BaseEvent decodeEvent(byte[] value) {
+        return eventSerializer.deserialize(EventEnvelope.decode(value));
     }
 }
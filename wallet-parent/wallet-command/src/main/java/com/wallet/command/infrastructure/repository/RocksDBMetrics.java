@@ -0,0 +1,227 @@
+package com.wallet.command.infrastructure.repository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.rocksdb.*;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Exposes RocksDB statistics and properties as wallet.rocksdb.* meters.
+ *
+ * DB-wide tickers and histograms come from the {@link Statistics} object, when enabled;
+ * memtable, compaction and SST gauges are read per column family on every scrape.
+ * Logical bytes read and written per column family are counted by the store itself,
+ * because RocksDB only reports them for the whole database.
+ *
+ * Every native read holds a read lock, and {@link #close()} takes the write lock and
+ * unregisters the meters, so a scrape can never touch a closed database.
+ *
+ * Every meter is tagged with the shard it describes.
+ */
+@Slf4j
+class RocksDBMetrics implements MeterBinder, AutoCloseable {
+    private static final String PREFIX = "wallet.rocksdb.";
+
+    private final String shard;
+    private final RocksDB db;
+    private final Statistics statistics;
+    private final Map<String, ColumnFamilyHandle> columnFamilies;
+    private final Map<ColumnFamilyHandle, Counter> bytesWritten = new IdentityHashMap<>();
+    private final Map<ColumnFamilyHandle, Counter> bytesRead = new IdentityHashMap<>();
+    private final List<Meter> meters = new ArrayList<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private MeterRegistry registry;
+    private boolean closed;
+
+    /**
+     * @param shard Name of the shard, used as the shard tag
+     * @param statistics Statistics attached to the database, null if disabled
+     * @param columnFamilies Column families by name, used as the cf tag
+     */
+    RocksDBMetrics(String shard, RocksDB db, Statistics statistics, Map<String, ColumnFamilyHandle> columnFamilies) {
+        this.shard = shard;
+        this.db = db;
+        this.statistics = statistics;
+        this.columnFamilies = columnFamilies;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.registry = registry;
+        if (statistics != null) {
+            bindStatistics(registry);
+        }
+        dbGauge(registry, "write.stopped", "rocksdb.is-write-stopped", "1 while writes are stopped by a stall");
+        dbGauge(registry, "write.delayed.rate", "rocksdb.actual-delayed-write-rate", "Write rate while writes are delayed, bytes per second");
+
+        columnFamilies.forEach((name, handle) -> {
+            cfGauge(registry, name, handle, "memtable.size", "rocksdb.cur-size-all-mem-tables", "bytes");
+            cfGauge(registry, name, handle, "memtable.immutable", "rocksdb.num-immutable-mem-table", "memtables");
+            cfGauge(registry, name, handle, "compaction.pending", "rocksdb.estimate-pending-compaction-bytes", "bytes");
+            cfGauge(registry, name, handle, "sst.size", "rocksdb.live-sst-files-size", "bytes");
+            cfGauge(registry, name, handle, "keys.estimated", "rocksdb.estimate-num-keys", "keys");
+            bytesWritten.put(handle, register(Counter.builder(PREFIX + "cf.bytes.written")
+                .description("Logical bytes written by the event store")
+                .baseUnit("bytes")
+                .tag("cf", name)
+                .tag("shard", shard)
+                .register(registry)));
+            bytesRead.put(handle, register(Counter.builder(PREFIX + "cf.bytes.read")
+                .description("Logical bytes read by the event store")
+                .baseUnit("bytes")
+                .tag("cf", name)
+                .tag("shard", shard)
+                .register(registry)));
+        });
+    }
+
+    void recordWritten(ColumnFamilyHandle columnFamily, long bytes) {
+        Counter counter = bytesWritten.get(columnFamily);
+        if (counter != null) {
+            counter.increment(bytes);
+        }
+    }
+
+    void recordRead(ColumnFamilyHandle columnFamily, long bytes) {
+        Counter counter = bytesRead.get(columnFamily);
+        if (counter != null) {
+            counter.increment(bytes);
+        }
+    }
+
+    private void bindStatistics(MeterRegistry registry) {
+        tickerCounter(registry, "block.cache.hits", TickerType.BLOCK_CACHE_HIT, null);
+        tickerCounter(registry, "block.cache.misses", TickerType.BLOCK_CACHE_MISS, null);
+        register(Gauge.builder(PREFIX + "block.cache.hit.ratio", statistics, sample(s -> {
+                double hits = s.getTickerCount(TickerType.BLOCK_CACHE_HIT);
+                double total = hits + s.getTickerCount(TickerType.BLOCK_CACHE_MISS);
+                return total == 0 ? Double.NaN : hits / total;
+            }))
+            .description("Block cache hits over lookups since open")
+            .tag("shard", shard)
+            .register(registry));
+        tickerCounter(registry, "write.stall", TickerType.STALL_MICROS, "microseconds");
+        tickerCounter(registry, "bytes.written", TickerType.BYTES_WRITTEN, "bytes");
+        tickerCounter(registry, "bytes.read", TickerType.BYTES_READ, "bytes");
+        tickerCounter(registry, "wal.bytes", TickerType.WAL_FILE_BYTES, "bytes");
+        tickerCounter(registry, "wal.syncs", TickerType.WAL_FILE_SYNCED, null);
+        tickerCounter(registry, "flush.bytes.written", TickerType.FLUSH_WRITE_BYTES, "bytes");
+        tickerCounter(registry, "compaction.bytes.read", TickerType.COMPACT_READ_BYTES, "bytes");
+        tickerCounter(registry, "compaction.bytes.written", TickerType.COMPACT_WRITE_BYTES, "bytes");
+        histogramTimer(registry, "wal.sync", HistogramType.WAL_FILE_SYNC_MICROS);
+        histogramTimer(registry, "write", HistogramType.DB_WRITE);
+        histogramTimer(registry, "get", HistogramType.DB_GET);
+        histogramTimer(registry, "seek", HistogramType.DB_SEEK);
+    }
+
+    private void tickerCounter(MeterRegistry registry, String name, TickerType ticker, String baseUnit) {
+        register(FunctionCounter.builder(PREFIX + name, statistics, sample(s -> s.getTickerCount(ticker)))
+            .baseUnit(baseUnit)
+            .tag("shard", shard)
+            .register(registry));
+    }
+
+    /**
+     * Count and sum as a timer, plus tail percentiles as gauges; RocksDB keeps the
+     * histogram in microseconds since open
+     */
+    private void histogramTimer(MeterRegistry registry, String name, HistogramType histogram) {
+        register(FunctionTimer.builder(PREFIX + name, statistics,
+                s -> sampleLong(() -> s.getHistogramData(histogram).getCount()),
+                s -> sampleLong(() -> s.getHistogramData(histogram).getSum()),
+                TimeUnit.MICROSECONDS)
+            .tag("shard", shard)
+            .register(registry));
+        register(Gauge.builder(PREFIX + name + ".p99", statistics,
+                sample(s -> s.getHistogramData(histogram).getPercentile99()))
+            .baseUnit("microseconds")
+            .tag("shard", shard)
+            .register(registry));
+        register(Gauge.builder(PREFIX + name + ".max", statistics,
+                sample(s -> s.getHistogramData(histogram).getMax()))
+            .baseUnit("microseconds")
+            .tag("shard", shard)
+            .register(registry));
+    }
+
+    private void dbGauge(MeterRegistry registry, String name, String property, String description) {
+        register(Gauge.builder(PREFIX + name, db, sample(d -> d.getLongProperty(property)))
+            .description(description)
+            .tag("shard", shard)
+            .register(registry));
+    }
+
+    private void cfGauge(MeterRegistry registry, String cf, ColumnFamilyHandle handle,
+                         String name, String property, String baseUnit) {
+        register(Gauge.builder(PREFIX + name, db, sample(d -> d.getLongProperty(handle, property)))
+            .baseUnit(baseUnit)
+            .tag("cf", cf)
+            .tag("shard", shard)
+            .register(registry));
+    }
+
+    private <T extends Meter> T register(T meter) {
+        meters.add(meter);
+        return meter;
+    }
+
+    private <T> ToDoubleFunction<T> sample(NativeSample<T> sample) {
+        return target -> {
+            lock.readLock().lock();
+            try {
+                return closed ? Double.NaN : sample.read(target);
+            } catch (RocksDBException e) {
+                log.debug("Failed to sample RocksDB metric", e);
+                return Double.NaN;
+            } finally {
+                lock.readLock().unlock();
+            }
+        };
+    }
+
+    private long sampleLong(NativeLongSample sample) {
+        lock.readLock().lock();
+        try {
+            return closed ? 0 : sample.read();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            closed = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (registry != null) {
+            meters.forEach(registry::remove);
+        }
+    }
+
+    @FunctionalInterface
+    private interface NativeSample<T> {
+        double read(T target) throws RocksDBException;
+    }
+
+    @FunctionalInterface
+    private interface NativeLongSample {
+        long read();
+    }
+}
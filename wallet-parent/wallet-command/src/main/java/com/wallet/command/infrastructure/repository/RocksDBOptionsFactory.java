@@ -0,0 +1,116 @@
+package com.wallet.command.infrastructure.repository;
+
+import com.wallet.command.config.RocksDBProperties;
+import com.wallet.command.config.RocksDBProperties.ColumnFamilyProfile;
+import org.rocksdb.*;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Builds the native DB and column family options of one shard from {@link RocksDBProperties}
+ * and owns every native object it creates, except the block cache shared by all shards.
+ * It has to stay open as long as the database is open, because RocksDB keeps referring to
+ * options, filters and rate limiter.
+ */
+class RocksDBOptionsFactory implements AutoCloseable {
+    private final RocksDBProperties properties;
+    private final RocksDBProperties.Shard shard;
+    private final Deque<AbstractNativeReference> resources = new ArrayDeque<>();
+    private final Cache blockCache;
+    private final Statistics statistics;
+
+    /**
+     * @param shard Shard with its overrides resolved
+     * @param blockCache Block cache shared by every shard, closed by the caller
+     */
+    RocksDBOptionsFactory(RocksDBProperties properties, RocksDBProperties.Shard shard, Cache blockCache) {
+        this.properties = properties;
+        this.shard = shard;
+        this.blockCache = blockCache;
+        this.statistics = properties.isStatisticsEnabled() ? track(new Statistics()) : null;
+    }
+
+    /**
+     * Statistics attached to the database, null if disabled
+     */
+    Statistics statistics() {
+        return statistics;
+    }
+
+    DBOptions dbOptions() {
+        DBOptions options = track(new DBOptions())
+            .setCreateIfMissing(true)
+            .setCreateMissingColumnFamilies(true)
+            .setMaxOpenFiles(properties.getMaxOpenFiles())
+            .setMaxBackgroundJobs(shard.getMaxBackgroundJobs());
+        if (statistics != null) {
+            options.setStatistics(statistics);
+        }
+        long rateLimit = shard.getRateLimit().toBytes();
+        if (rateLimit > 0) {
+            options.setRateLimiter(track(new RateLimiter(rateLimit)));
+        }
+        return options;
+    }
+
+    ColumnFamilyOptions columnFamilyOptions(ColumnFamilyProfile profile) {
+        BlockBasedTableConfig tableConfig = new BlockBasedTableConfig()
+            .setBlockCache(blockCache)
+            .setBlockSize(profile.getBlockSize().toBytes())
+            .setCacheIndexAndFilterBlocks(profile.isCacheIndexAndFilterBlocks())
+            .setPinL0FilterAndIndexBlocksInCache(profile.isCacheIndexAndFilterBlocks());
+        if (profile.getBloomBitsPerKey() > 0) {
+            tableConfig.setFilterPolicy(track(new BloomFilter(profile.getBloomBitsPerKey(), false)));
+        }
+
+        ColumnFamilyOptions options = track(new ColumnFamilyOptions())
+            .setWriteBufferSize(profile.getWriteBufferSize().toBytes())
+            .setMaxWriteBufferNumber(profile.getMaxWriteBufferNumber())
+            .setTableFormatConfig(tableConfig);
+        if (profile.isPrefixExtractor()) {
+            // Every key of an aggregate shares the fixed-size bucket prefix of EventKeyCodec
+            options.useFixedLengthPrefixExtractor(EventKeyCodec.PREFIX_LENGTH)
+                .setMemtablePrefixBloomSizeRatio(profile.getMemtablePrefixBloomRatio());
+        }
+        if (!profile.getCompressionPerLevel().isEmpty()) {
+            options.setCompressionPerLevel(compressionPerLevel(profile.getCompressionPerLevel(), options.numLevels()));
+        }
+        return options;
+    }
+
+    private static List<CompressionType> compressionPerLevel(List<RocksDBProperties.Compression> configured, int levels) {
+        List<CompressionType> types = new ArrayList<>(levels);
+        for (int level = 0; level < levels; level++) {
+            types.add(toCompressionType(configured.get(Math.min(level, configured.size() - 1))));
+        }
+        return types;
+    }
+
+    private static CompressionType toCompressionType(RocksDBProperties.Compression compression) {
+        switch (compression) {
+            case SNAPPY:
+                return CompressionType.SNAPPY_COMPRESSION;
+            case LZ4:
+                return CompressionType.LZ4_COMPRESSION;
+            case ZSTD:
+                return CompressionType.ZSTD_COMPRESSION;
+            default:
+                return CompressionType.NO_COMPRESSION;
+        }
+    }
+
+    private <T extends AbstractNativeReference> T track(T resource) {
+        resources.push(resource);
+        return resource;
+    }
+
+    @Override
+    public void close() {
+        while (!resources.isEmpty()) {
+            resources.pop().close();
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package com.wallet.command.infrastructure.repository;
+
+import com.wallet.command.config.RocksDBProperties;
+import com.wallet.command.infrastructure.serialization.EventSerializer;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.rocksdb.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * One RocksDB instance of a {@link RocksDBEventStore}, usually on a disk of its own.
+ * A shard holds every key of the aggregates the {@link ShardRing} assigns to it and has
+ * its own column families, write lanes, flush and compaction budget, backups and metrics.
+ * Only the block cache, the version cache and the global log positions are shared.
+ *
+ * Write lanes hold the read side of the shard's ingestion lock for each flush, so that an
+ * {@link SstIngestion} holding the write side has the shard's versions to itself.
+ *
+ * The shard name is recorded in the database when it is first opened, so that a data
+ * directory can never be mounted as another shard, which would hide its aggregates.
+ * The ring membership is recorded as well, see {@link RocksDBEventStore#init()}.
+ */
+@Slf4j
+class RocksDBShard implements AutoCloseable {
+    private static final String EVENTS_CF = "events";
+    private static final String VERSIONS_CF = "versions";
+    private static final String SEQUENCE_CF = "sequence";
+    private static final String SNAPSHOTS_CF = "snapshots";
+    private static final String TRANSACTIONS_CF = "transactions";
+    private static final String TIMELINE_CF = "timeline";
+    private static final byte[] SHARD_NAME_KEY = "shard-name".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] RING_MEMBERSHIP_KEY = "ring-membership".getBytes(StandardCharsets.UTF_8);
+
+    private final RocksDBProperties properties;
+    private final RocksDBProperties.Shard shard;
+    private final boolean sharded;
+    private final ReadWriteLock ingestionLock = new ReentrantReadWriteLock();
+    private final Map<ColumnFamilyHandle, ColumnFamilyOptions> columnFamilyOptions = new HashMap<>();
+
+    private RocksDB db;
+    private RocksDBOptionsFactory optionsFactory;
+    private DBOptions dbOptions;
+    private RocksDBMetrics rocksDBMetrics;
+    private RocksDBBackups backups;
+    private ColumnFamilyHandle defaultCF;
+    private ColumnFamilyHandle eventsCF;
+    private ColumnFamilyHandle versionsCF;
+    private ColumnFamilyHandle sequenceCF;
+    private ColumnFamilyHandle snapshotsCF;
+    private ColumnFamilyHandle transactionsCF;
+    private ColumnFamilyHandle timelineCF;
+    private GroupCommitWriter[] lanes;
+
+    /**
+     * @param shard Shard with its overrides resolved
+     * @param sharded Whether the store has several shards; backup and checkpoint locations
+     *                then get a subdirectory per shard
+     */
+    RocksDBShard(RocksDBProperties properties, RocksDBProperties.Shard shard, boolean sharded) {
+        if (shard.getWriteLanes() < 1) {
+            throw new IllegalArgumentException("rocksdb.write-lanes must be at least 1 for shard " + shard.getName());
+        }
+        this.properties = properties;
+        this.shard = shard;
+        this.sharded = sharded;
+    }
+
+    /**
+     * Open the database, bring its layout to the current format, roll back an interrupted
+     * bulk import and bind its metrics
+     */
+    void open(Cache blockCache, EventSerializer eventSerializer, MeterRegistry meterRegistry)
+            throws RocksDBException, IOException {
+        File dbDir = new File(shard.getDataDir());
+        if (!dbDir.exists()) {
+            dbDir.mkdirs();
+        }
+        String restoreFrom = properties.getBackup().getRestoreFrom();
+        if (restoreFrom != null && !restoreFrom.isEmpty()) {
+            RocksDBBackups.restoreIfEmpty(shard.getDataDir(), location(restoreFrom));
+        }
+
+        optionsFactory = new RocksDBOptionsFactory(properties, shard, blockCache);
+        RocksDBProperties.ColumnFamilies profiles = properties.getColumnFamilies();
+
+        final List<ColumnFamilyDescriptor> columnFamilyDescriptors = new ArrayList<>();
+        columnFamilyDescriptors.add(new ColumnFamilyDescriptor(
+            RocksDB.DEFAULT_COLUMN_FAMILY));
+        columnFamilyDescriptors.add(new ColumnFamilyDescriptor(
+            EVENTS_CF.getBytes(StandardCharsets.UTF_8), optionsFactory.columnFamilyOptions(profiles.getEvents())));
+        columnFamilyDescriptors.add(new ColumnFamilyDescriptor(
+            VERSIONS_CF.getBytes(StandardCharsets.UTF_8), optionsFactory.columnFamilyOptions(profiles.getVersions())));
+        columnFamilyDescriptors.add(new ColumnFamilyDescriptor(
+            SEQUENCE_CF.getBytes(StandardCharsets.UTF_8), optionsFactory.columnFamilyOptions(profiles.getSequence())));
+        columnFamilyDescriptors.add(new ColumnFamilyDescriptor(
+            SNAPSHOTS_CF.getBytes(StandardCharsets.UTF_8), optionsFactory.columnFamilyOptions(profiles.getSnapshots())));
+        columnFamilyDescriptors.add(new ColumnFamilyDescriptor(
+            TRANSACTIONS_CF.getBytes(StandardCharsets.UTF_8), optionsFactory.columnFamilyOptions(profiles.getTransactions())));
+        columnFamilyDescriptors.add(new ColumnFamilyDescriptor(
+            TIMELINE_CF.getBytes(StandardCharsets.UTF_8), optionsFactory.columnFamilyOptions(profiles.getTimeline())));
+
+        final List<ColumnFamilyHandle> columnFamilyHandles = new ArrayList<>();
+
+        dbOptions = optionsFactory.dbOptions();
+        db = RocksDB.open(dbOptions, shard.getDataDir(), columnFamilyDescriptors, columnFamilyHandles);
+        for (int i = 0; i < columnFamilyHandles.size(); i++) {
+            columnFamilyOptions.put(columnFamilyHandles.get(i), columnFamilyDescriptors.get(i).getOptions());
+        }
+
+        // Save column family handles
+        defaultCF = columnFamilyHandles.get(0);
+        eventsCF = columnFamilyHandles.get(1);
+        versionsCF = columnFamilyHandles.get(2);
+        sequenceCF = columnFamilyHandles.get(3);
+        snapshotsCF = columnFamilyHandles.get(4);
+        transactionsCF = columnFamilyHandles.get(5);
+        timelineCF = columnFamilyHandles.get(6);
+
+        checkShardName();
+
+        Map<String, ColumnFamilyHandle> metricColumnFamilies = new LinkedHashMap<>();
+        metricColumnFamilies.put(EVENTS_CF, eventsCF);
+        metricColumnFamilies.put(VERSIONS_CF, versionsCF);
+        metricColumnFamilies.put(SEQUENCE_CF, sequenceCF);
+        metricColumnFamilies.put(SNAPSHOTS_CF, snapshotsCF);
+        metricColumnFamilies.put(TRANSACTIONS_CF, transactionsCF);
+        metricColumnFamilies.put(TIMELINE_CF, timelineCF);
+        rocksDBMetrics = new RocksDBMetrics(shard.getName(), db, optionsFactory.statistics(), metricColumnFamilies);
+        rocksDBMetrics.bindTo(meterRegistry);
+
+        backups = new RocksDBBackups(db, shard.getName(), location(properties.getBackup().getDir()),
+            properties.getBackup().getMaxBackups());
+
+        new EventStoreMigration(db, defaultCF, eventsCF, sequenceCF, transactionsCF, timelineCF, eventSerializer).migrate();
+        SstIngestion.recover(this);
+    }
+
+    private void checkShardName() throws RocksDBException {
+        byte[] recorded = db.get(defaultCF, SHARD_NAME_KEY);
+        if (recorded == null) {
+            db.put(defaultCF, SHARD_NAME_KEY, shard.getName().getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        String recordedName = new String(recorded, StandardCharsets.UTF_8);
+        if (!recordedName.equals(shard.getName())) {
+            throw new IllegalStateException("Data dir " + shard.getDataDir() + " holds shard " + recordedName
+                + ", not " + shard.getName());
+        }
+    }
+
+    /**
+     * Ring membership recorded in this shard, null if none was recorded yet
+     */
+    String recordedMembership() throws RocksDBException {
+        byte[] recorded = db.get(defaultCF, RING_MEMBERSHIP_KEY);
+        return recorded != null ? new String(recorded, StandardCharsets.UTF_8) : null;
+    }
+
+    void recordMembership(String membership) throws RocksDBException {
+        try (WriteOptions writeOptions = new WriteOptions().setSync(true)) {
+            db.put(defaultCF, writeOptions, RING_MEMBERSHIP_KEY, membership.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Start the write lanes; positions are reserved from the log shared by all shards
+     */
+    void startLanes(GlobalLog globalLog, VersionCache versionCache, MeterRegistry meterRegistry) {
+        RocksDBProperties.GroupCommit groupCommit = properties.getGroupCommit();
+        lanes = new GroupCommitWriter[shard.getWriteLanes()];
+        for (int lane = 0; lane < lanes.length; lane++) {
+            lanes[lane] = new GroupCommitWriter(this, lane, globalLog, versionCache,
+                groupCommit.getMaxBatchEvents(), groupCommit.getMaxWaitMicros(), groupCommit.getQueueCapacity(),
+                meterRegistry);
+        }
+    }
+
+    /**
+     * Every append of an aggregate goes through the same single-threaded lane
+     */
+    GroupCommitWriter laneFor(String aggregateId) {
+        return lanes[Math.floorMod(aggregateId.hashCode(), lanes.length)];
+    }
+
+    /**
+     * Read side for the write lanes' flushes, write side for an ingestion
+     */
+    Lock appendLock() {
+        return ingestionLock.readLock();
+    }
+
+    Lock ingestLock() {
+        return ingestionLock.writeLock();
+    }
+
+    /**
+     * Options to write an SST file for a column family, to be closed by the caller
+     */
+    Options sstOptions(ColumnFamilyHandle columnFamily) {
+        return new Options(dbOptions, columnFamilyOptions.get(columnFamily));
+    }
+
+    /**
+     * Last global log position written to this shard, -1 if none
+     */
+    long lastLogPosition() {
+        try (RocksIterator iterator = db.newIterator(sequenceCF)) {
+            iterator.seekToLast();
+            return iterator.isValid() ? GlobalLog.decodePosition(iterator.key()) : -1;
+        }
+    }
+
+    /**
+     * The shard's own directory under a backup, restore or checkpoint location of the store
+     */
+    String location(String storeLocation) {
+        return sharded ? Paths.get(storeLocation, shard.getName()).toString() : storeLocation;
+    }
+
+    void checkpoint(String storeTargetDir) throws RocksDBException {
+        if (sharded) {
+            new File(storeTargetDir).mkdirs();
+        }
+        backups.checkpoint(location(storeTargetDir));
+    }
+
+    BackupDescriptor backup(long logPosition) throws RocksDBException {
+        return backups.backup(logPosition);
+    }
+
+    List<BackupDescriptor> listBackups() throws RocksDBException {
+        return backups.list();
+    }
+
+    String name() {
+        return shard.getName();
+    }
+
+    String dataDir() {
+        return shard.getDataDir();
+    }
+
+    RocksDB db() {
+        return db;
+    }
+
+    RocksDBMetrics metrics() {
+        return rocksDBMetrics;
+    }
+
+    ColumnFamilyHandle defaultCF() {
+        return defaultCF;
+    }
+
+    ColumnFamilyHandle eventsCF() {
+        return eventsCF;
+    }
+
+    ColumnFamilyHandle versionsCF() {
+        return versionsCF;
+    }
+
+    ColumnFamilyHandle sequenceCF() {
+        return sequenceCF;
+    }
+
+    ColumnFamilyHandle snapshotsCF() {
+        return snapshotsCF;
+    }
+
+    ColumnFamilyHandle transactionsCF() {
+        return transactionsCF;
+    }
+
+    ColumnFamilyHandle timelineCF() {
+        return timelineCF;
+    }
+
+    @Override
+    public void close() {
+        if (lanes != null) {
+            for (GroupCommitWriter lane : lanes) {
+                lane.close();
+            }
+        }
+        if (rocksDBMetrics != null) rocksDBMetrics.close();
+        if (backups != null) backups.close();
+        if (eventsCF != null) eventsCF.close();
+        if (versionsCF != null) versionsCF.close();
+        if (sequenceCF != null) sequenceCF.close();
+        if (snapshotsCF != null) snapshotsCF.close();
+        if (transactionsCF != null) transactionsCF.close();
+        if (timelineCF != null) timelineCF.close();
+        if (defaultCF != null) defaultCF.close();
+        if (db != null) db.close();
+        if (optionsFactory != null) optionsFactory.close();
+    }
+}
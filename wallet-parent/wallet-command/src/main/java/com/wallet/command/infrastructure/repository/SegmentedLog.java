@@ -0,0 +1,215 @@
+package com.wallet.command.infrastructure.repository;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Append-only log of fixed-size, memory-mapped {@link LogSegment}s holding {@link LogRecord}s.
+ *
+ * A single writer appends records and makes them visible with {@link #publish()}; readers
+ * only ever look below the published end, so they never see a record being written.
+ * Records are never rewritten, which is what keeps write amplification at one.
+ */
+@Slf4j
+final class SegmentedLog implements AutoCloseable {
+    private final Path dir;
+    private final int segmentSize;
+    private final List<LogSegment> segments = new CopyOnWriteArrayList<>();
+    private LogSegment current;
+    private ByteBuffer writeBuffer;
+    private volatile long end;
+
+    SegmentedLog(Path dir, int segmentSize) {
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Open the existing segments and hand every valid record to the visitor, in log order.
+     * A torn or corrupt tail of the last segment holding records is zeroed, since it was
+     * never acknowledged; damage anywhere else fails the recovery. Empty segments after it
+     * are left over by a rolled back flush.
+     */
+    void recover(Consumer<LogRecord> visitor) throws IOException {
+        Files.createDirectories(dir);
+        List<String> names = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*.log")) {
+            files.forEach(file -> names.add(file.getFileName().toString()));
+        }
+        Collections.sort(names);
+        for (int index = 0; index < names.size(); index++) {
+            if (!names.get(index).equals(LogSegment.fileName(index))) {
+                throw new IllegalStateException("Missing log segment " + LogSegment.fileName(index) + " in " + dir);
+            }
+            segments.add(LogSegment.open(dir, index, segmentSize));
+        }
+        if (segments.isEmpty()) {
+            segments.add(LogSegment.open(dir, 0, segmentSize));
+        }
+        int tail = segments.size() - 1;
+        while (tail > 0 && !LogRecord.isPresent(segments.get(tail).buffer(), 0)) {
+            tail--;
+        }
+
+        int offset = 0;
+        for (LogSegment segment : segments) {
+            ByteBuffer buffer = segment.buffer();
+            offset = 0;
+            while (LogRecord.isPresent(buffer, offset)) {
+                if (!LogRecord.isValid(buffer, offset)) {
+                    if (segment.index() != tail) {
+                        throw new IllegalStateException("Corrupt record in log segment "
+                            + LogSegment.fileName(segment.index()) + " at offset " + offset);
+                    }
+                    log.warn("Truncating torn tail of log segment {} at offset {}",
+                        LogSegment.fileName(segment.index()), offset);
+                    zero(segment, offset, segment.capacity());
+                    segment.force();
+                    break;
+                }
+                LogRecord record = LogRecord.read(buffer, LogRecord.location(segment.index(), offset));
+                visitor.accept(record);
+                offset += record.getLength();
+            }
+        }
+        current = segments.get(segments.size() - 1);
+        writeBuffer = current.view();
+        writeBuffer.position(offset);
+        end = mark();
+    }
+
+    /**
+     * Whether a record fits in a segment at all; {@link #append} rejects one that does not
+     */
+    boolean fits(byte[] aggregateId, int payloadLength) {
+        // The current segment may predate a change of segment-size, and the next one will not
+        return LogRecord.length(aggregateId, payloadLength) <= Math.min(current.capacity(), segmentSize);
+    }
+
+    /**
+     * Append a record after the last one, rolling to a new segment when it does not fit
+     *
+     * @return Location of the record
+     */
+    long append(byte type, long position, long version, long previousLocation,
+                byte[] aggregateId, byte[] payload) throws IOException {
+        int length = LogRecord.length(aggregateId, payload.length);
+        if (!fits(aggregateId, payload.length)) {
+            throw new IllegalArgumentException("Record of " + length + " bytes exceeds the log segment size");
+        }
+        if (length > writeBuffer.remaining()) {
+            roll();
+        }
+        long location = mark();
+        LogRecord.write(writeBuffer, type, position, version, previousLocation, aggregateId, payload);
+        return location;
+    }
+
+    private void roll() throws IOException {
+        current.force();
+        int next = current.index() + 1;
+        if (next < segments.size()) {
+            // Left over by a rolled back flush, and zeroed by it
+            current = segments.get(next);
+        } else {
+            current = LogSegment.open(dir, next, segmentSize);
+            segments.add(current);
+        }
+        writeBuffer = current.view();
+    }
+
+    /**
+     * Location the next record will be written at
+     */
+    long mark() {
+        return LogRecord.location(current.index(), writeBuffer.position());
+    }
+
+    /**
+     * Discard everything appended since a {@link #mark()} that was not published
+     */
+    void rollback(long mark) {
+        int fromSegment = LogRecord.segmentOf(mark);
+        for (int index = fromSegment; index <= current.index(); index++) {
+            LogSegment segment = segments.get(index);
+            int to = index == current.index() ? writeBuffer.position() : segment.capacity();
+            zero(segment, index == fromSegment ? LogRecord.offsetOf(mark) : 0, to);
+        }
+        current = segments.get(fromSegment);
+        writeBuffer = current.view();
+        writeBuffer.position(LogRecord.offsetOf(mark));
+    }
+
+    /**
+     * Flush the segment being written; earlier segments were flushed when rolled
+     */
+    void force() {
+        current.force();
+    }
+
+    /**
+     * Make every record appended so far visible to readers
+     */
+    void publish() {
+        end = mark();
+    }
+
+    LogRecord read(long location) {
+        return LogRecord.read(segments.get(LogRecord.segmentOf(location)).buffer(), location);
+    }
+
+    long readPreviousLocation(long location) {
+        return LogRecord.readPreviousLocation(segments.get(LogRecord.segmentOf(location)).buffer(), location);
+    }
+
+    /**
+     * Visit published records in log order from a location until the visitor returns false
+     */
+    void scan(long fromLocation, Predicate<LogRecord> visitor) {
+        long limit = end;
+        long location = fromLocation;
+        while (location < limit) {
+            LogSegment segment = segments.get(LogRecord.segmentOf(location));
+            if (!LogRecord.isPresent(segment.buffer(), LogRecord.offsetOf(location))) {
+                location = LogRecord.location(segment.index() + 1, 0);
+                continue;
+            }
+            LogRecord record = LogRecord.read(segment.buffer(), location);
+            if (!visitor.test(record)) {
+                return;
+            }
+            location += record.getLength();
+        }
+    }
+
+    int segmentCount() {
+        return segments.size();
+    }
+
+    private static void zero(LogSegment segment, int from, int to) {
+        ByteBuffer view = segment.view();
+        view.position(from);
+        byte[] zeros = new byte[Math.min(64 * 1024, Math.max(to - from, 0))];
+        while (view.position() < to) {
+            view.put(zeros, 0, Math.min(zeros.length, to - view.position()));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (LogSegment segment : segments) {
+            segment.close();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.wallet.command.infrastructure.repository;
+
+import com.wallet.command.event.BaseEvent;
+import com.wallet.command.infrastructure.serialization.EventProjection;
+
+import java.util.NoSuchElementException;
+
+/**
+ * {@link EventCursor} over one aggregate of a {@link SegmentedLog}, bounded by the tip the
+ * aggregate had when the cursor or its read view was opened. Records link back to the
+ * aggregate's previous event only, so the cursor works in chunks between two version
+ * checkpoints: it walks a chunk backwards to collect its locations, then returns it
+ * forwards. Memory use is bounded by the index interval, whatever the history length.
+ */
+class SegmentedLogCursor implements EventCursor {
+    private final SegmentedLogEventStore store;
+    private final AggregateLogIndex index;
+    private final AggregateLogIndex.Tip tip;
+    private final int interval;
+    private final long[] chunk;
+    private int chunkSize;
+    private int chunkIndex;
+    private long nextVersion;
+    private long lastVersion;
+    private boolean closed;
+
+    /**
+     * @param index Index of the aggregate, null if it has no events
+     * @param tip Last event the cursor may return
+     */
+    SegmentedLogCursor(SegmentedLogEventStore store, AggregateLogIndex index, AggregateLogIndex.Tip tip,
+                       int interval, long fromVersion) {
+        this.store = store;
+        this.index = index;
+        this.tip = tip;
+        this.interval = interval;
+        this.chunk = new long[interval];
+        this.nextVersion = Math.max(fromVersion, 0);
+        this.lastVersion = nextVersion - 1;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (closed) {
+            return false;
+        }
+        if (chunkIndex < chunkSize) {
+            return true;
+        }
+        if (nextVersion > tip.getVersion()) {
+            return false;
+        }
+        loadChunk();
+        return true;
+    }
+
+    private void loadChunk() {
+        long last = Math.min(tip.getVersion(), (nextVersion / interval + 1) * interval - 1);
+        long location = last == tip.getVersion()
+            ? tip.getLocation()
+            : store.log().readPreviousLocation(index.checkpoint(last + 1));
+        chunkSize = (int) (last - nextVersion + 1);
+        for (int i = chunkSize - 1; i >= 0; i--) {
+            chunk[i] = location;
+            if (i > 0) {
+                location = store.log().readPreviousLocation(location);
+            }
+        }
+        chunkIndex = 0;
+        nextVersion = last + 1;
+    }
+
+    @Override
+    public BaseEvent next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        LogRecord record = store.log().read(chunk[chunkIndex++]);
+        lastVersion = record.getVersion();
+        return store.decodeEvent(record);
+    }
+
+    @Override
+    public void nextProjection(EventProjection target) {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        LogRecord record = store.log().read(chunk[chunkIndex++]);
+        lastVersion = record.getVersion();
+        store.projectEvent(record, target);
+    }
+
+    @Override
+    public long getLastVersion() {
+        return lastVersion;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+}
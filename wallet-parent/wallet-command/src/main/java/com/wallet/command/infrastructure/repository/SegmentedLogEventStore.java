@@ -0,0 +1,413 @@
+package com.wallet.command.infrastructure.repository;
+
+import com.wallet.command.config.SegmentedLogProperties;
+import com.wallet.command.event.BaseEvent;
+import com.wallet.command.event.TransactionalEvent;
+import com.wallet.command.infrastructure.serialization.AccountSnapshotCodec;
+import com.wallet.command.infrastructure.serialization.EventEnvelope;
+import com.wallet.command.infrastructure.serialization.EventProjection;
+import com.wallet.command.infrastructure.serialization.EventSerializer;
+import com.wallet.command.model.AccountSnapshot;
+import com.wallet.command.model.Durability;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Event store on an append-only log of memory-mapped segment files, selected with
+ * event-store.engine=segmented-log.
+ *
+ * Every event and snapshot is written exactly once, sequentially, by a single writer that
+ * fsyncs each group commit once. The indexes live in memory and are rebuilt by scanning
+ * the log at startup: per aggregate, the latest event plus one checkpoint every
+ * index-interval versions, and one checkpoint every index-interval global positions.
+ * Reads decode events straight from slices of the mapped segments.
+ */
+@Slf4j
+@Repository
+@ConditionalOnProperty(name = "event-store.engine", havingValue = "segmented-log")
+public class SegmentedLogEventStore implements EventStore {
+    private final EventSerializer eventSerializer;
+    private final MeterRegistry meterRegistry;
+    private final SegmentedLogProperties properties;
+    private final ExecutorService executor;
+    private final ConcurrentMap<String, AggregateLogIndex> indexes = new ConcurrentHashMap<>();
+    private final Set<GlobalLogSubscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger subscriptionCounter = new AtomicInteger();
+    private final CheckpointIndex positions;
+
+    private SegmentedLog segmentedLog;
+    private GlobalLog globalLog;
+    private SegmentedLogWriter writer;
+
+    public SegmentedLogEventStore(EventSerializer eventSerializer,
+                                  MeterRegistry meterRegistry,
+                                  SegmentedLogProperties properties) {
+        if (properties.getIndexInterval() < 1) {
+            throw new IllegalArgumentException("event-store.log.index-interval must be at least 1");
+        }
+        if (properties.getSegmentSize().toBytes() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("event-store.log.segment-size must be below 2GB");
+        }
+        this.eventSerializer = eventSerializer;
+        this.meterRegistry = meterRegistry;
+        this.properties = properties;
+        this.positions = new CheckpointIndex(properties.getIndexInterval());
+        this.executor = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(),
+            new ThreadFactory() {
+                private int counter = 0;
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "event-log-" + counter++);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+    }
+
+    @PostConstruct
+    public void init() {
+        try {
+            segmentedLog = new SegmentedLog(Paths.get(properties.getDir()), (int) properties.getSegmentSize().toBytes());
+            long[] lastPosition = {-1};
+            long start = System.nanoTime();
+            segmentedLog.recover(record -> {
+                if (record.getType() == LogRecord.SNAPSHOT) {
+                    indexFor(record.getAggregateId()).addSnapshot(record.getVersion(), record.getLocation());
+                    return;
+                }
+                AggregateLogIndex index = indexFor(record.getAggregateId());
+                if (record.getVersion() != index.tip().getVersion() + 1 || record.getPosition() <= lastPosition[0]) {
+                    throw new IllegalStateException("Out of order event " + record.getAggregateId() + "@"
+                        + record.getVersion() + " at log position " + record.getPosition());
+                }
+                index.append(record.getVersion(), record.getLocation());
+                positions.record(record.getPosition(), record.getLocation());
+                lastPosition[0] = record.getPosition();
+            });
+            log.info("Recovered event log with {} aggregates up to position {} in {} ms", indexes.size(),
+                lastPosition[0], TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+            globalLog = new GlobalLog(lastPosition[0] + 1);
+            writer = new SegmentedLogWriter(segmentedLog, globalLog, indexes, positions, properties.getIndexInterval(),
+                properties.isFsync(), properties.getMaxBatchEvents(), properties.getMaxWaitMicros(),
+                properties.getQueueCapacity(), meterRegistry);
+        } catch (IOException e) {
+            log.error("Failed to open event log", e);
+            throw new RuntimeException("Failed to open event log in " + properties.getDir(), e);
+        }
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        subscriptions.forEach(GlobalLogSubscription::close);
+        if (writer != null) writer.close();
+        executor.shutdown();
+        try {
+            if (segmentedLog != null) segmentedLog.close();
+        } catch (IOException e) {
+            log.warn("Failed to close event log", e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> appendEvents(String aggregateId, long expectedVersion, List<BaseEvent> events,
+                                                Durability durability) {
+        List<byte[]> encodedEvents = new ArrayList<>(events.size());
+        try {
+            for (BaseEvent event : events) {
+                encodedEvents.add(encodeEvent(event));
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to encode events for aggregate: {}", aggregateId, e);
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+        return writer.submit(aggregateId, expectedVersion, encodedEvents, durability);
+    }
+
+    @Override
+    public CompletableFuture<List<BaseEvent>> readEvents(String aggregateId, long fromVersion) {
+        CompletableFuture<List<BaseEvent>> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try (EventCursor cursor = openCursor(aggregateId, fromVersion)) {
+                List<BaseEvent> events = new ArrayList<>();
+                cursor.forEachRemaining(events::add);
+                future.complete(events);
+            } catch (Exception e) {
+                log.error("Failed to read events for aggregate: {}", aggregateId, e);
+                future.completeExceptionally(new RuntimeException("Failed to read events for aggregate " + aggregateId, e));
+            }
+        });
+        return future;
+    }
+
+    @Override
+    public EventCursor openCursor(String aggregateId, long fromVersion) {
+        AggregateLogIndex index = indexes.get(aggregateId);
+        return openCursor(index, index == null ? new AggregateLogIndex.Tip(-1, CheckpointIndex.NONE) : index.tip(), fromVersion);
+    }
+
+    EventCursor openCursor(AggregateLogIndex index, AggregateLogIndex.Tip tip, long fromVersion) {
+        return new SegmentedLogCursor(this, index, tip, properties.getIndexInterval(), fromVersion);
+    }
+
+    @Override
+    public AggregateReadView openReadView(String aggregateId) {
+        return new SegmentedLogReadView(this, aggregateId, indexes.get(aggregateId));
+    }
+
+    @Override
+    public CompletableFuture<List<BaseEvent>> readAllEvents(String aggregateId) {
+        return readEvents(aggregateId, 0);
+    }
+
+    @Override
+    public CompletableFuture<Map<String, List<BaseEvent>>> readEventsBatch(Map<String, Long> fromVersions) {
+        CompletableFuture<Map<String, List<BaseEvent>>> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                Map<String, List<BaseEvent>> result = new LinkedHashMap<>();
+                for (Map.Entry<String, Long> entry : fromVersions.entrySet()) {
+                    try (EventCursor cursor = openCursor(entry.getKey(), entry.getValue())) {
+                        List<BaseEvent> events = new ArrayList<>();
+                        cursor.forEachRemaining(events::add);
+                        result.put(entry.getKey(), events);
+                    }
+                }
+                future.complete(result);
+            } catch (Exception e) {
+                log.error("Failed to read events for aggregates: {}", fromVersions.keySet(), e);
+                future.completeExceptionally(new RuntimeException("Failed to read events for aggregates " + fromVersions.keySet(), e));
+            }
+        });
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Long>> getCurrentVersions(Collection<String> aggregateIds) {
+        Map<String, Long> versions = new LinkedHashMap<>();
+        aggregateIds.forEach(aggregateId -> versions.put(aggregateId, currentVersion(aggregateId)));
+        return CompletableFuture.completedFuture(versions);
+    }
+
+    @Override
+    public CompletableFuture<Long> getCurrentVersion(String aggregateId) {
+        return CompletableFuture.completedFuture(currentVersion(aggregateId));
+    }
+
+    private long currentVersion(String aggregateId) {
+        AggregateLogIndex index = indexes.get(aggregateId);
+        return index == null ? -1 : index.tip().getVersion();
+    }
+
+    @Override
+    public CompletableFuture<Optional<AccountSnapshot>> readSnapshot(String aggregateId, long maxVersion) {
+        CompletableFuture<Optional<AccountSnapshot>> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                AggregateLogIndex index = indexes.get(aggregateId);
+                future.complete(index == null ? Optional.empty() : readSnapshot(index, maxVersion));
+            } catch (Exception e) {
+                log.error("Failed to read snapshot for aggregate: {}", aggregateId, e);
+                future.completeExceptionally(new RuntimeException("Failed to read snapshot for aggregate " + aggregateId, e));
+            }
+        });
+        return future;
+    }
+
+    Optional<AccountSnapshot> readSnapshot(AggregateLogIndex index, long maxVersion) {
+        long location = index.snapshotAtOrBefore(maxVersion);
+        if (location == CheckpointIndex.NONE) {
+            return Optional.empty();
+        }
+        ByteBuffer payload = segmentedLog.read(location).getPayload();
+        byte[] value = new byte[payload.remaining()];
+        payload.get(value);
+        return Optional.of(AccountSnapshotCodec.decode(value));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, AccountSnapshot>> readLatestSnapshots(Collection<String> aggregateIds) {
+        CompletableFuture<Map<String, AccountSnapshot>> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                Map<String, AccountSnapshot> snapshots = new LinkedHashMap<>();
+                for (String aggregateId : aggregateIds) {
+                    AggregateLogIndex index = indexes.get(aggregateId);
+                    if (index != null) {
+                        readSnapshot(index, Long.MAX_VALUE).ifPresent(snapshot -> snapshots.put(aggregateId, snapshot));
+                    }
+                }
+                future.complete(snapshots);
+            } catch (Exception e) {
+                log.error("Failed to read snapshots for aggregates: {}", aggregateIds, e);
+                future.completeExceptionally(new RuntimeException("Failed to read snapshots for aggregates " + aggregateIds, e));
+            }
+        });
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<Void> saveSnapshot(AccountSnapshot snapshot) {
+        try {
+            return writer.submitSnapshot(snapshot.getAccountId(), snapshot.getVersion(), AccountSnapshotCodec.encode(snapshot));
+        } catch (RuntimeException e) {
+            log.error("Failed to encode snapshot for aggregate: {}", snapshot.getAccountId(), e);
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+    }
+
+    @Override
+    public CompletableFuture<List<RecordedEvent>> readLog(long fromPosition, int maxCount) {
+        CompletableFuture<List<RecordedEvent>> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                future.complete(readLogPage(Math.max(fromPosition, 0), globalLog.committedPosition(), maxCount));
+            } catch (Exception e) {
+                log.error("Failed to read global log from position: {}", fromPosition, e);
+                future.completeExceptionally(new RuntimeException("Failed to read global log from position " + fromPosition, e));
+            }
+        });
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<Long> getLogPosition() {
+        return CompletableFuture.completedFuture(globalLog.committedPosition());
+    }
+
+    @Override
+    public EventSubscription subscribeToLog(long fromPosition, Consumer<RecordedEvent> listener) {
+        subscriptions.removeIf(subscription -> !subscription.isRunning());
+        GlobalLogSubscription subscription = new GlobalLogSubscription(this::readLogPage, globalLog, fromPosition,
+            listener, "event-log-subscription-" + subscriptionCounter.getAndIncrement());
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    /**
+     * The log keeps no time index, so this walks the aggregate's events from the start,
+     * using event timestamps clamped to never decrease
+     */
+    @Override
+    public CompletableFuture<Long> getVersionAt(String aggregateId, Instant time) {
+        CompletableFuture<Long> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try (EventCursor cursor = openCursor(aggregateId, 0)) {
+                long epochMillis = time.toEpochMilli();
+                long recordedAt = Long.MIN_VALUE;
+                long version = -1;
+                while (cursor.hasNext()) {
+                    recordedAt = Math.max(recordedAt, cursor.next().getTimestampMillis());
+                    if (recordedAt > epochMillis) {
+                        break;
+                    }
+                    version = cursor.getLastVersion();
+                }
+                future.complete(version);
+            } catch (Exception e) {
+                log.error("Failed to get version at {} for aggregate: {}", time, aggregateId, e);
+                future.completeExceptionally(new RuntimeException("Failed to get version at " + time + " for aggregate " + aggregateId, e));
+            }
+        });
+        return future;
+    }
+
+    /**
+     * The segmented log keeps no transaction index in memory, so this scans the whole log,
+     * deserializing only events whose type can carry a transaction ID
+     */
+    @Override
+    public CompletableFuture<List<RecordedEvent>> readTransaction(String transactionId) {
+        CompletableFuture<List<RecordedEvent>> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                List<RecordedEvent> events = new ArrayList<>();
+                segmentedLog.scan(LogRecord.location(0, 0), record -> {
+                    if (record.getType() == LogRecord.EVENT
+                            && TransactionalEvent.class.isAssignableFrom(
+                                EventEnvelope.decode(record.getPayload()).getType().getEventClass())) {
+                        BaseEvent event = decodeEvent(record);
+                        if (transactionId.equals(TransactionalEvent.transactionIdOf(event))) {
+                            events.add(new RecordedEvent(record.getPosition(), record.getAggregateId(),
+                                record.getVersion(), event));
+                        }
+                    }
+                    return true;
+                });
+                future.complete(events);
+            } catch (Exception e) {
+                log.error("Failed to read events of transaction: {}", transactionId, e);
+                future.completeExceptionally(new RuntimeException("Failed to read events of transaction " + transactionId, e));
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Sequential scan from the closest position checkpoint, skipping snapshot records
+     */
+    List<RecordedEvent> readLogPage(long fromPosition, long toPosition, int maxCount) {
+        if (fromPosition > toPosition || maxCount <= 0) {
+            return Collections.emptyList();
+        }
+        long start = positions.floor(fromPosition);
+        List<RecordedEvent> events = new ArrayList<>();
+        segmentedLog.scan(start == CheckpointIndex.NONE ? LogRecord.location(0, 0) : start, record -> {
+            if (record.getType() != LogRecord.EVENT || record.getPosition() < fromPosition) {
+                return true;
+            }
+            if (record.getPosition() > toPosition) {
+                return false;
+            }
+            events.add(new RecordedEvent(record.getPosition(), record.getAggregateId(), record.getVersion(),
+                decodeEvent(record)));
+            return events.size() < maxCount;
+        });
+        return events;
+    }
+
+    SegmentedLog log() {
+        return segmentedLog;
+    }
+
+    private AggregateLogIndex indexFor(String aggregateId) {
+        return indexes.computeIfAbsent(aggregateId, id -> new AggregateLogIndex(properties.getIndexInterval()));
+    }
+
+    private byte[] encodeEvent(BaseEvent event) {
+        return EventEnvelope.encode(event, eventSerializer);
+    }
+
+    BaseEvent decodeEvent(LogRecord record) {
+        return eventSerializer.deserialize(EventEnvelope.decode(record.getPayload()));
+    }
+
+    void projectEvent(LogRecord record, EventProjection target) {
+        eventSerializer.project(EventEnvelope.decode(record.getPayload()), target);
+    }
+}
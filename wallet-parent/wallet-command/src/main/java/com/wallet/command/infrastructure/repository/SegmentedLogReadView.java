@@ -0,0 +1,48 @@
+package com.wallet.command.infrastructure.repository;
+
+import com.wallet.command.model.AccountSnapshot;
+
+import java.util.Optional;
+
+/**
+ * {@link AggregateReadView} of a {@link SegmentedLog}. Published records never change, so
+ * fixing the aggregate's tip when the view is opened is all it takes to pin a point in time.
+ */
+class SegmentedLogReadView implements AggregateReadView {
+    private final SegmentedLogEventStore store;
+    private final String aggregateId;
+    private final AggregateLogIndex index;
+    private final AggregateLogIndex.Tip tip;
+
+    SegmentedLogReadView(SegmentedLogEventStore store, String aggregateId, AggregateLogIndex index) {
+        this.store = store;
+        this.aggregateId = aggregateId;
+        this.index = index;
+        this.tip = index == null ? new AggregateLogIndex.Tip(-1, CheckpointIndex.NONE) : index.tip();
+    }
+
+    @Override
+    public String getAggregateId() {
+        return aggregateId;
+    }
+
+    @Override
+    public long getVersion() {
+        return tip.getVersion();
+    }
+
+    @Override
+    public Optional<AccountSnapshot> getLatestSnapshot() {
+        return index == null ? Optional.empty() : store.readSnapshot(index, tip.getVersion());
+    }
+
+    @Override
+    public EventCursor openCursor(long fromVersion) {
+        return store.openCursor(index, tip, fromVersion);
+    }
+
+    @Override
+    public void close() {
+        // Nothing is pinned beyond the tip held by this view
+    }
+}
@@ -0,0 +1,327 @@
+package com.wallet.command.infrastructure.repository;
+
+import com.wallet.command.model.Durability;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The only thread that appends to a {@link SegmentedLog}. Like {@link GroupCommitWriter} it
+ * collects concurrent appends for up to {@code maxWaitMicros} or {@code maxBatchEvents},
+ * version-checks each request on its own, then writes the whole flush sequentially and
+ * forces it to disk once. Only then is the flush published and are the indexes updated,
+ * so readers never see an event less durable than its append asked for, nor an index
+ * entry past the published end of the log.
+ *
+ * A flush is forced only if a request in it asked for {@link Durability#GROUP_SYNC} or
+ * stronger; a {@link Durability#SYNC} request closes the flush as soon as it arrives.
+ */
+@Slf4j
+class SegmentedLogWriter implements AutoCloseable {
+    private static final String METRIC_BATCH_SIZE = "wallet.eventstore.log.batch.size";
+    private static final String METRIC_FLUSH = "wallet.eventstore.log.flush";
+    private static final String METRIC_QUEUE_DEPTH = "wallet.eventstore.log.queue.depth";
+    private static final String METRIC_SEGMENTS = "wallet.eventstore.log.segments";
+    private static final String METRIC_WRITE = "wallet.eventstore.log.write";
+
+    private final SegmentedLog segmentedLog;
+    private final GlobalLog globalLog;
+    private final ConcurrentMap<String, AggregateLogIndex> indexes;
+    private final CheckpointIndex positions;
+    private final int indexInterval;
+    private final boolean fsync;
+    private final int maxBatchEvents;
+    private final long maxWaitNanos;
+    private final BlockingQueue<WriteRequest> queue;
+    private final DistributionSummary batchSize;
+    private final Timer flushTimer;
+    private final Map<Durability, Timer> writeTimers = new EnumMap<>(Durability.class);
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    SegmentedLogWriter(SegmentedLog segmentedLog, GlobalLog globalLog, ConcurrentMap<String, AggregateLogIndex> indexes,
+                       CheckpointIndex positions, int indexInterval, boolean fsync, int maxBatchEvents,
+                       long maxWaitMicros, int queueCapacity, MeterRegistry meterRegistry) {
+        this.segmentedLog = segmentedLog;
+        this.globalLog = globalLog;
+        this.indexes = indexes;
+        this.positions = positions;
+        this.indexInterval = indexInterval;
+        this.fsync = fsync;
+        this.maxBatchEvents = maxBatchEvents;
+        this.maxWaitNanos = TimeUnit.MICROSECONDS.toNanos(maxWaitMicros);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = DistributionSummary.builder(METRIC_BATCH_SIZE)
+            .description("Events written per segmented log flush")
+            .baseUnit("events")
+            .register(meterRegistry);
+        this.flushTimer = Timer.builder(METRIC_FLUSH)
+            .description("Latency of a segmented log flush, including fsync")
+            .register(meterRegistry);
+        for (Durability durability : Durability.values()) {
+            writeTimers.put(durability, Timer.builder(METRIC_WRITE)
+                .description("Latency of writing a flush to the mapped segments, including force unless async")
+                .tag("durability", durability.name())
+                .register(meterRegistry));
+        }
+        Gauge.builder(METRIC_QUEUE_DEPTH, queue, BlockingQueue::size)
+            .description("Appends waiting for the segmented log writer")
+            .register(meterRegistry);
+        Gauge.builder(METRIC_SEGMENTS, segmentedLog, SegmentedLog::segmentCount)
+            .description("Segment files of the event log")
+            .register(meterRegistry);
+        this.thread = new Thread(this::run, "event-log-writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Queue an append of already-encoded events
+     *
+     * @return Future completed once the flush containing this request is durable and visible
+     */
+    CompletableFuture<Void> submit(String aggregateId, long expectedVersion, List<byte[]> encodedEvents,
+                                   Durability durability) {
+        return enqueue(new WriteRequest(LogRecord.EVENT, aggregateId, expectedVersion, encodedEvents, durability));
+    }
+
+    /**
+     * Queue a snapshot record; snapshots are not version-checked, and can be rebuilt from
+     * the events, so they never ask for a sync of their own
+     */
+    CompletableFuture<Void> submitSnapshot(String aggregateId, long version, byte[] encodedSnapshot) {
+        List<byte[]> payloads = new ArrayList<>(1);
+        payloads.add(encodedSnapshot);
+        return enqueue(new WriteRequest(LogRecord.SNAPSHOT, aggregateId, version, payloads, Durability.ASYNC));
+    }
+
+    private CompletableFuture<Void> enqueue(WriteRequest request) {
+        if (!running) {
+            request.future.completeExceptionally(new IllegalStateException("Event log writer is closed"));
+            return request.future;
+        }
+        try {
+            queue.put(request);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            request.future.completeExceptionally(e);
+        }
+        return request.future;
+    }
+
+    private void run() {
+        List<WriteRequest> pending = new ArrayList<>();
+        while (running) {
+            try {
+                collect(pending);
+                flush(pending);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                IllegalStateException closed = new IllegalStateException("Event log writer is closed");
+                pending.forEach(request -> request.future.completeExceptionally(closed));
+                break;
+            } catch (Exception e) {
+                log.error("Segmented log flush failed", e);
+                pending.forEach(request -> request.future.completeExceptionally(e));
+            } finally {
+                pending.clear();
+            }
+        }
+        failRemaining();
+    }
+
+    private void collect(List<WriteRequest> pending) throws InterruptedException {
+        WriteRequest first = queue.take();
+        pending.add(first);
+        int events = first.payloads.size();
+        boolean urgent = first.durability == Durability.SYNC;
+        long deadline = System.nanoTime() + maxWaitNanos;
+        while (events < maxBatchEvents) {
+            WriteRequest next = queue.poll();
+            if (next == null) {
+                if (urgent) {
+                    break;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || (next = queue.poll(remaining, TimeUnit.NANOSECONDS)) == null) {
+                    break;
+                }
+            }
+            pending.add(next);
+            events += next.payloads.size();
+            urgent |= next.durability == Durability.SYNC;
+        }
+    }
+
+    private void flush(List<WriteRequest> pending) {
+        long start = System.nanoTime();
+        Map<String, Long> batchVersions = new HashMap<>();
+        List<WriteRequest> accepted = new ArrayList<>(pending.size());
+        Durability durability = Durability.ASYNC;
+        int events = 0;
+
+        for (WriteRequest request : pending) {
+            // Rejected on its own, as append would fail the whole flush
+            String oversized = oversized(request);
+            if (oversized != null) {
+                request.future.completeExceptionally(new IllegalArgumentException(oversized));
+                continue;
+            }
+            if (request.type == LogRecord.SNAPSHOT) {
+                accepted.add(request);
+                continue;
+            }
+            Long inBatch = batchVersions.get(request.aggregateId);
+            long currentVersion = inBatch != null ? inBatch : currentVersion(request.aggregateId);
+            if (currentVersion != request.version) {
+                request.future.completeExceptionally(
+                    new IllegalStateException("Version mismatch: expected " + request.version +
+                        ", but got " + currentVersion + " for aggregate " + request.aggregateId));
+                continue;
+            }
+            batchVersions.put(request.aggregateId, currentVersion + request.payloads.size());
+            accepted.add(request);
+            durability = durability.atLeast(request.durability);
+            events += request.payloads.size();
+        }
+        if (accepted.isEmpty()) {
+            return;
+        }
+
+        long firstPosition = globalLog.reserve(events);
+        long mark = segmentedLog.mark();
+        long writeStart = System.nanoTime();
+        List<Runnable> indexUpdates = new ArrayList<>(events + 1);
+        try {
+            Map<String, Long> previous = new HashMap<>();
+            long position = firstPosition;
+            for (WriteRequest request : accepted) {
+                String aggregateId = request.aggregateId;
+                byte[] id = aggregateId.getBytes(StandardCharsets.UTF_8);
+                if (request.type == LogRecord.SNAPSHOT) {
+                    long location = segmentedLog.append(LogRecord.SNAPSHOT, -1, request.version, CheckpointIndex.NONE,
+                        id, request.payloads.get(0));
+                    indexUpdates.add(() -> indexFor(aggregateId).addSnapshot(request.version, location));
+                    continue;
+                }
+                long version = request.version;
+                long previousLocation = previous.computeIfAbsent(aggregateId, this::tipLocation);
+                for (byte[] payload : request.payloads) {
+                    long eventVersion = ++version;
+                    long eventPosition = position++;
+                    long location = segmentedLog.append(LogRecord.EVENT, eventPosition, eventVersion, previousLocation, id, payload);
+                    indexUpdates.add(() -> {
+                        indexFor(aggregateId).append(eventVersion, location);
+                        positions.record(eventPosition, location);
+                    });
+                    previousLocation = location;
+                }
+                previous.put(aggregateId, previousLocation);
+            }
+            if (fsync && durability != Durability.ASYNC) {
+                segmentedLog.force();
+            }
+            writeTimers.get(durability).record(System.nanoTime() - writeStart, TimeUnit.NANOSECONDS);
+            segmentedLog.publish();
+        } catch (Exception e) {
+            segmentedLog.rollback(mark);
+            globalLog.release(firstPosition);
+            log.error("Failed to write segmented log flush of {} requests", accepted.size(), e);
+            accepted.forEach(request -> request.future.completeExceptionally(
+                new RuntimeException("Failed to append to the event log for aggregate " + request.aggregateId, e)));
+            return;
+        }
+        // Readers follow index entries only once the log end covers them, and scan positions
+        // only once they are committed
+        try {
+            indexUpdates.forEach(Runnable::run);
+        } finally {
+            globalLog.release(firstPosition);
+        }
+
+        batchSize.record(events);
+        flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        accepted.forEach(request -> request.future.complete(null));
+    }
+
+    /**
+     * @return Why a payload of the request can never be appended, or null if all fit
+     */
+    private String oversized(WriteRequest request) {
+        byte[] id = request.aggregateId.getBytes(StandardCharsets.UTF_8);
+        for (byte[] payload : request.payloads) {
+            if (!segmentedLog.fits(id, payload.length)) {
+                return "Record of " + payload.length + " payload bytes for aggregate " + request.aggregateId
+                    + " exceeds the log segment size";
+            }
+        }
+        return null;
+    }
+
+    private AggregateLogIndex indexFor(String aggregateId) {
+        return indexes.computeIfAbsent(aggregateId, id -> new AggregateLogIndex(indexInterval));
+    }
+
+    private long currentVersion(String aggregateId) {
+        AggregateLogIndex index = indexes.get(aggregateId);
+        return index == null ? -1 : index.tip().getVersion();
+    }
+
+    private long tipLocation(String aggregateId) {
+        AggregateLogIndex index = indexes.get(aggregateId);
+        return index == null ? CheckpointIndex.NONE : index.tip().getLocation();
+    }
+
+    private void failRemaining() {
+        List<WriteRequest> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        IllegalStateException closed = new IllegalStateException("Event log writer is closed");
+        remaining.forEach(request -> request.future.completeExceptionally(closed));
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        thread.interrupt();
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        failRemaining();
+    }
+
+    private static final class WriteRequest {
+        private final byte type;
+        private final String aggregateId;
+        /**
+         * Expected version of an append, or the version of a snapshot
+         */
+        private final long version;
+        private final List<byte[]> payloads;
+        private final Durability durability;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private WriteRequest(byte type, String aggregateId, long version, List<byte[]> payloads, Durability durability) {
+            this.type = type;
+            this.aggregateId = aggregateId;
+            this.version = version;
+            this.payloads = payloads;
+            this.durability = durability;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.wallet.command.infrastructure.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Consistent hash ring assigning aggregates to shards. Each shard owns {@code virtualNodes}
+ * points placed by hashing its name, and an aggregate belongs to the first point at or
+ * after the hash of its ID. Placement depends on shard names only, so reordering the
+ * configured shards moves nothing, and adding a shard would take over about 1/N of the IDs
+ * from the others. Aggregates are not moved between shards, so the store records the
+ * {@link #membership ring membership} in every shard and refuses to open when the
+ * configured shards or virtual nodes differ from it.
+ *
+ * The hash is FNV-1a over the UTF-8 bytes followed by the MurmurHash3 finalizer, which
+ * is stable across JVMs and releases.
+ */
+final class ShardRing<T> {
+    private final TreeMap<Long, T> ring = new TreeMap<>();
+    private final T single;
+
+    /**
+     * @param shards Shards by name
+     * @param virtualNodes Points per shard on the ring
+     */
+    ShardRing(Map<String, T> shards, int virtualNodes) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        this.single = shards.size() == 1 ? shards.values().iterator().next() : null;
+        shards.forEach((name, shard) -> {
+            for (int i = 0; i < Math.max(virtualNodes, 1); i++) {
+                T previous = ring.put(hash(name + "#" + i), shard);
+                if (previous != null && previous != shard) {
+                    throw new IllegalStateException("Hash collision between shards on the ring: " + name);
+                }
+            }
+        });
+    }
+
+    T shardFor(String aggregateId) {
+        if (single != null) {
+            return single;
+        }
+        Map.Entry<Long, T> entry = ring.ceilingEntry(hash(aggregateId));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    /**
+     * Identifies the placement of a set of shards: their names in sorted order, plus the
+     * virtual nodes when there are several shards, since one shard owns every ID anyway
+     */
+    static String membership(Collection<String> shardNames, int virtualNodes) {
+        String names = String.join(",", new TreeSet<>(shardNames));
+        return shardNames.size() > 1 ? names + "#" + Math.max(virtualNodes, 1) : names;
+    }
+
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
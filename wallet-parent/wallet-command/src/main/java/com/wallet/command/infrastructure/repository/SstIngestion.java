@@ -0,0 +1,415 @@
+package com.wallet.command.infrastructure.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.rocksdb.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Adds aggregates that have no events yet to one shard by writing sorted SST files and
+ * ingesting them, instead of going through the write lanes. One file is written per column
+ * family with the same keys and values a lane would write, so the imported aggregates are
+ * indistinguishable from appended ones.
+ *
+ * RocksDB ingests the file of each column family atomically, but not several column
+ * families at once, so the files are ingested one after the other while the shard's
+ * appends are held off: events first, then the transaction, timeline and sequence indexes,
+ * and the versions last. An aggregate exists for appends and version checks only once its
+ * version is ingested, and the log positions are released only after that, so neither
+ * appenders nor log readers see a partial import.
+ *
+ * Before the first file is ingested, a marker with the imported aggregates, their
+ * transaction IDs and the reserved position range is written durably to the shard, and it
+ * is deleted once the versions are in. An import that fails part-way is rolled back at
+ * once; if the process dies instead, {@link #recover} rolls it back when the shard is
+ * opened again, before any append or log read, and a marker left by a failed rollback is
+ * dealt with before the next import. Either way the aggregates are missing afterwards
+ * and may be imported again, and the positions of the failed attempt remain a gap in the log.
+ */
+@Slf4j
+final class SstIngestion {
+    private static final String WORK_DIR = "ingest";
+    private static final byte[] MARKER_KEY = "pending-ingestion".getBytes(StandardCharsets.UTF_8);
+
+    private final RocksDBShard shard;
+    private final GlobalLog globalLog;
+    private final VersionCache versionCache;
+
+    SstIngestion(RocksDBShard shard, GlobalLog globalLog, VersionCache versionCache) {
+        this.shard = shard;
+        this.globalLog = globalLog;
+        this.versionCache = versionCache;
+    }
+
+    /**
+     * @param aggregates New aggregates of this shard; log positions are assigned in this order
+     * @return IDs of the aggregates left out because they already have events
+     */
+    Set<String> ingest(List<NewAggregate> aggregates) throws RocksDBException, IOException {
+        Lock lock = shard.ingestLock();
+        lock.lock();
+        try {
+            rollBackPending(shard);
+            Set<String> existing = new LinkedHashSet<>();
+            List<NewAggregate> accepted = new ArrayList<>(aggregates.size());
+            List<byte[]> versionKeys = new ArrayList<>(aggregates.size());
+            aggregates.forEach(aggregate -> versionKeys.add(aggregate.versionKey()));
+            List<byte[]> versions = shard.db().multiGetAsList(
+                Collections.nCopies(versionKeys.size(), shard.versionsCF()), versionKeys);
+            int events = 0;
+            for (int i = 0; i < aggregates.size(); i++) {
+                NewAggregate aggregate = aggregates.get(i);
+                if (versions.get(i) != null) {
+                    existing.add(aggregate.aggregateId);
+                } else if (!aggregate.events.isEmpty()) {
+                    accepted.add(aggregate);
+                    events += aggregate.events.size();
+                }
+            }
+            if (accepted.isEmpty()) {
+                return existing;
+            }
+
+            long firstPosition = globalLog.reserve(events);
+            Path workDir = Files.createTempDirectory(workRoot(), "sst-");
+            try {
+                Marker marker = markPending(shard, firstPosition, accepted);
+                boolean ingested = false;
+                try {
+                    ingestFiles(accepted, firstPosition, workDir);
+                    ingested = true;
+                } catch (RocksDBException | RuntimeException e) {
+                    try {
+                        rollBack(shard, marker);
+                    } catch (RocksDBException rollBackFailure) {
+                        log.error("Could not roll back the failed ingestion into shard {}, it is rolled back "
+                            + "by the next ingestion or when the shard is opened again", shard.name(), rollBackFailure);
+                        e.addSuppressed(rollBackFailure);
+                    }
+                    throw e;
+                } finally {
+                    // A lane may have cached one of these aggregates as missing before the import
+                    // held it off; that entry goes before anything else can fail
+                    for (NewAggregate aggregate : accepted) {
+                        if (ingested) {
+                            versionCache.put(aggregate.aggregateId, aggregate.events.size() - 1,
+                                aggregate.lastRecordedAt());
+                        } else {
+                            versionCache.invalidate(aggregate.aggregateId);
+                        }
+                    }
+                }
+                try (WriteOptions writeOptions = new WriteOptions().setSync(true)) {
+                    shard.db().delete(shard.defaultCF(), writeOptions, MARKER_KEY);
+                }
+            } finally {
+                globalLog.release(firstPosition);
+                deleteRecursively(workDir.toFile());
+            }
+            log.info("Ingested {} aggregates with {} events into shard {}", accepted.size(), events, shard.name());
+            return existing;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void ingestFiles(List<NewAggregate> accepted, long firstPosition, Path workDir)
+            throws RocksDBException {
+        TreeMap<byte[], byte[]> events = new TreeMap<>(EventKeyCodec.KEY_ORDER);
+        TreeMap<byte[], byte[]> transactions = new TreeMap<>(EventKeyCodec.KEY_ORDER);
+        TreeMap<byte[], byte[]> timeline = new TreeMap<>(EventKeyCodec.KEY_ORDER);
+        TreeMap<byte[], byte[]> sequence = new TreeMap<>(EventKeyCodec.KEY_ORDER);
+        TreeMap<byte[], byte[]> versions = new TreeMap<>(EventKeyCodec.KEY_ORDER);
+        long position = firstPosition;
+        for (NewAggregate aggregate : accepted) {
+            byte[] aggregatePrefix = EventKeyCodec.aggregatePrefix(aggregate.aggregateId);
+            long recordedAt = VersionCache.MISSING;
+            for (int version = 0; version < aggregate.events.size(); version++) {
+                recordedAt = Math.max(recordedAt, aggregate.timestamps[version]);
+                byte[] eventKey = EventKeyCodec.encode(aggregate.aggregateId, version);
+                byte[] positionKey = GlobalLog.encodePosition(position++);
+                put(events, eventKey, aggregate.events.get(version));
+                put(sequence, positionKey, eventKey);
+                put(timeline, TimelineKeyCodec.encode(aggregatePrefix, recordedAt, version), new byte[0]);
+                String transactionId = aggregate.transactionIds.get(version);
+                if (transactionId != null) {
+                    put(transactions, TransactionKeyCodec.encode(TransactionKeyCodec.prefix(transactionId), eventKey),
+                        positionKey);
+                }
+            }
+            put(versions, aggregate.versionKey(),
+                String.valueOf(aggregate.events.size() - 1).getBytes(StandardCharsets.UTF_8));
+        }
+
+        ingestFile(shard.eventsCF(), events, workDir.resolve("events.sst"));
+        ingestFile(shard.transactionsCF(), transactions, workDir.resolve("transactions.sst"));
+        ingestFile(shard.timelineCF(), timeline, workDir.resolve("timeline.sst"));
+        ingestFile(shard.sequenceCF(), sequence, workDir.resolve("sequence.sst"));
+        ingestFile(shard.versionsCF(), versions, workDir.resolve("versions.sst"));
+    }
+
+    /**
+     * Durably record the import about to be ingested, see {@link #recover}
+     */
+    static Marker markPending(RocksDBShard shard, long firstPosition, List<NewAggregate> accepted)
+            throws RocksDBException, IOException {
+        Marker marker = Marker.of(firstPosition, accepted);
+        try (WriteOptions writeOptions = new WriteOptions().setSync(true)) {
+            shard.db().put(shard.defaultCF(), writeOptions, MARKER_KEY, marker.encode());
+        }
+        return marker;
+    }
+
+    /**
+     * Roll back an import the process died in the middle of. Runs when the shard is
+     * opened, before its write lanes start.
+     */
+    static void recover(RocksDBShard shard) throws RocksDBException, IOException {
+        rollBackPending(shard);
+        File workRoot = Paths.get(shard.dataDir(), WORK_DIR).toFile();
+        if (workRoot.exists()) {
+            deleteRecursively(workRoot);
+        }
+    }
+
+    /**
+     * Roll back the import of a marker still in the shard, left by a crash or by a failed
+     * rollback. An import whose versions were ingested had finished, and only its marker
+     * is left to delete.
+     */
+    private static void rollBackPending(RocksDBShard shard) throws RocksDBException, IOException {
+        byte[] encoded = shard.db().get(shard.defaultCF(), MARKER_KEY);
+        if (encoded == null) {
+            return;
+        }
+        Marker marker = Marker.decode(encoded);
+        if (shard.db().get(shard.versionsCF(), marker.aggregates.get(0).versionKey()) != null) {
+            try (WriteOptions writeOptions = new WriteOptions().setSync(true)) {
+                shard.db().delete(shard.defaultCF(), writeOptions, MARKER_KEY);
+            }
+            return;
+        }
+        rollBack(shard, marker);
+        log.warn("Rolled back an interrupted ingestion of {} aggregates into shard {}",
+            marker.aggregates.size(), shard.name());
+    }
+
+    /**
+     * Delete whatever the marker's import may have ingested, and the marker with it, in
+     * one write. None of its aggregates has a version, so every key under their prefix
+     * belongs to the import.
+     */
+    private static void rollBack(RocksDBShard shard, Marker marker) throws RocksDBException {
+        try (WriteBatch batch = new WriteBatch();
+             WriteOptions writeOptions = new WriteOptions().setSync(true)) {
+            long position = marker.firstPosition;
+            for (MarkedAggregate aggregate : marker.aggregates) {
+                byte[] aggregatePrefix = EventKeyCodec.aggregatePrefix(aggregate.aggregateId);
+                for (int version = 0; version < aggregate.transactionIds.size(); version++) {
+                    byte[] eventKey = EventKeyCodec.encode(aggregate.aggregateId, version);
+                    batch.delete(shard.eventsCF(), eventKey);
+                    batch.delete(shard.sequenceCF(), GlobalLog.encodePosition(position++));
+                    String transactionId = aggregate.transactionIds.get(version);
+                    if (transactionId != null) {
+                        batch.delete(shard.transactionsCF(),
+                            TransactionKeyCodec.encode(TransactionKeyCodec.prefix(transactionId), eventKey));
+                    }
+                }
+                try (ReadOptions readOptions = new ReadOptions().setPrefixSameAsStart(true);
+                     RocksIterator iterator = shard.db().newIterator(shard.timelineCF(), readOptions)) {
+                    for (iterator.seek(aggregatePrefix);
+                         iterator.isValid() && TimelineKeyCodec.hasPrefix(iterator.key(), aggregatePrefix);
+                         iterator.next()) {
+                        batch.delete(shard.timelineCF(), iterator.key());
+                    }
+                }
+            }
+            batch.delete(shard.defaultCF(), MARKER_KEY);
+            shard.db().write(writeOptions, batch);
+        }
+    }
+
+    private static void put(TreeMap<byte[], byte[]> entries, byte[] key, byte[] value) {
+        if (entries.put(key, value) != null) {
+            throw new IllegalArgumentException("Duplicate key in SST ingestion, aggregates must be unique");
+        }
+    }
+
+    private void ingestFile(ColumnFamilyHandle columnFamily, TreeMap<byte[], byte[]> entries, Path file)
+            throws RocksDBException {
+        if (entries.isEmpty()) {
+            return;
+        }
+        long bytes = 0;
+        // Written with the column family's own options, so the file gets its filters and block size
+        try (Options options = shard.sstOptions(columnFamily);
+             EnvOptions envOptions = new EnvOptions();
+             SstFileWriter writer = new SstFileWriter(envOptions, options)) {
+            writer.open(file.toString());
+            for (Map.Entry<byte[], byte[]> entry : entries.entrySet()) {
+                writer.put(entry.getKey(), entry.getValue());
+                bytes += entry.getKey().length + entry.getValue().length;
+            }
+            writer.finish();
+        }
+        try (IngestExternalFileOptions ingestOptions = new IngestExternalFileOptions()
+                .setMoveFiles(true)
+                .setSnapshotConsistency(true)
+                .setAllowGlobalSeqNo(true)
+                .setAllowBlockingFlush(true)) {
+            shard.db().ingestExternalFile(columnFamily, Collections.singletonList(file.toString()), ingestOptions);
+        }
+        shard.metrics().recordWritten(columnFamily, bytes);
+    }
+
+    /**
+     * Files are moved into the database by hard link, so they are written on the shard's disk
+     */
+    private Path workRoot() throws IOException {
+        Path root = Paths.get(shard.dataDir(), WORK_DIR);
+        Files.createDirectories(root);
+        return root;
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        if (!file.delete() && file.exists()) {
+            log.warn("Could not delete ingestion file: {}", file);
+        }
+    }
+
+    /**
+     * What an import in progress writes, enough to find and delete every key of it
+     */
+    static final class Marker {
+        private final long firstPosition;
+        private final List<MarkedAggregate> aggregates;
+
+        private Marker(long firstPosition, List<MarkedAggregate> aggregates) {
+            this.firstPosition = firstPosition;
+            this.aggregates = aggregates;
+        }
+
+        private static Marker of(long firstPosition, List<NewAggregate> accepted) {
+            List<MarkedAggregate> aggregates = new ArrayList<>(accepted.size());
+            accepted.forEach(aggregate -> aggregates.add(
+                new MarkedAggregate(aggregate.aggregateId, aggregate.transactionIds)));
+            return new Marker(firstPosition, aggregates);
+        }
+
+        private byte[] encode() throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                out.writeLong(firstPosition);
+                out.writeInt(aggregates.size());
+                for (MarkedAggregate aggregate : aggregates) {
+                    out.writeUTF(aggregate.aggregateId);
+                    out.writeInt(aggregate.transactionIds.size());
+                    for (String transactionId : aggregate.transactionIds) {
+                        out.writeBoolean(transactionId != null);
+                        if (transactionId != null) {
+                            out.writeUTF(transactionId);
+                        }
+                    }
+                }
+            }
+            return bytes.toByteArray();
+        }
+
+        private static Marker decode(byte[] encoded) throws IOException {
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded))) {
+                long firstPosition = in.readLong();
+                int aggregateCount = in.readInt();
+                List<MarkedAggregate> aggregates = new ArrayList<>(aggregateCount);
+                for (int i = 0; i < aggregateCount; i++) {
+                    String aggregateId = in.readUTF();
+                    int eventCount = in.readInt();
+                    List<String> transactionIds = new ArrayList<>(eventCount);
+                    for (int version = 0; version < eventCount; version++) {
+                        transactionIds.add(in.readBoolean() ? in.readUTF() : null);
+                    }
+                    aggregates.add(new MarkedAggregate(aggregateId, transactionIds));
+                }
+                return new Marker(firstPosition, aggregates);
+            }
+        }
+    }
+
+    /**
+     * An aggregate of a {@link Marker}, with the transaction ID of each event, null for none
+     */
+    private static final class MarkedAggregate {
+        private final String aggregateId;
+        private final List<String> transactionIds;
+
+        private MarkedAggregate(String aggregateId, List<String> transactionIds) {
+            this.aggregateId = aggregateId;
+            this.transactionIds = transactionIds;
+        }
+
+        private byte[] versionKey() {
+            return aggregateId.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * An aggregate to create, with its events already encoded
+     */
+    static final class NewAggregate {
+        private final String aggregateId;
+        private final List<byte[]> events;
+        private final List<String> transactionIds;
+        private final long[] timestamps;
+
+        /**
+         * @param timestamps Timestamp of each event in epoch milliseconds
+         */
+        NewAggregate(String aggregateId, List<byte[]> events, List<String> transactionIds, long[] timestamps) {
+            this.aggregateId = aggregateId;
+            this.events = events;
+            this.transactionIds = transactionIds;
+            this.timestamps = timestamps;
+        }
+
+        String aggregateId() {
+            return aggregateId;
+        }
+
+        /**
+         * Recorded time of the last event, the same the timeline gets in {@link #ingest}
+         */
+        private long lastRecordedAt() {
+            long recordedAt = VersionCache.MISSING;
+            for (long timestamp : timestamps) {
+                recordedAt = Math.max(recordedAt, timestamp);
+            }
+            return recordedAt;
+        }
+
+        private byte[] versionKey() {
+            return aggregateId.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+}
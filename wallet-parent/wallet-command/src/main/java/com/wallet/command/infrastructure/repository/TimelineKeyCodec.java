@@ -0,0 +1,57 @@
+package com.wallet.command.infrastructure.repository;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Key layout of the timeline column family: one key per event, ordered by the time the
+ * event was recorded within its aggregate. The recorded time is the event's own timestamp,
+ * raised to the recorded time of the aggregate's previous event if it is earlier, on every
+ * path that writes the timeline: appends, SST ingestion and the migration backfill.
+ *
+ * <pre>
+ * +-----------------------------------+------------------------+-----------------+
+ * | aggregate prefix of EventKeyCodec | recorded at (8, BE ms) | version (8, BE) |
+ * +-----------------------------------+------------------------+-----------------+
+ * </pre>
+ *
+ * Recording times never decrease with the version within an aggregate, so the version an
+ * aggregate had at a point in time is the key found by one reverse seek from that time.
+ */
+final class TimelineKeyCodec {
+    private static final int TIME_FIELD = 8;
+    private static final int VERSION_FIELD = 8;
+
+    private TimelineKeyCodec() {
+    }
+
+    static byte[] encode(byte[] aggregatePrefix, long recordedAt, long version) {
+        return ByteBuffer.allocate(aggregatePrefix.length + TIME_FIELD + VERSION_FIELD)
+            .put(aggregatePrefix)
+            .putLong(recordedAt)
+            .putLong(version)
+            .array();
+    }
+
+    /**
+     * Whether a key belongs to the aggregate of the given {@link EventKeyCodec#aggregatePrefix(String)}
+     */
+    static boolean hasPrefix(byte[] key, byte[] aggregatePrefix) {
+        if (key.length != aggregatePrefix.length + TIME_FIELD + VERSION_FIELD) {
+            return false;
+        }
+        for (int i = 0; i < aggregatePrefix.length; i++) {
+            if (key[i] != aggregatePrefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static long decodeRecordedAt(byte[] key) {
+        return ByteBuffer.wrap(key, key.length - VERSION_FIELD - TIME_FIELD, TIME_FIELD).getLong();
+    }
+
+    static long decodeVersion(byte[] key) {
+        return ByteBuffer.wrap(key, key.length - VERSION_FIELD, VERSION_FIELD).getLong();
+    }
+}
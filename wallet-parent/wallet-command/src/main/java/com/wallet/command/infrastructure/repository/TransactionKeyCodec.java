@@ -0,0 +1,52 @@
+package com.wallet.command.infrastructure.repository;
+
+import java.util.Arrays;
+
+/**
+ * Key layout of the transactions column family: one key per event that carries a
+ * transaction ID, mapped to the event's global log position.
+ *
+ * <pre>
+ * +-----------------+-------------------+----------------------+-----------------------------+
+ * | bucket (4, BE)  | id length (2, BE) | transaction id UTF-8 | event key of EventKeyCodec  |
+ * +-----------------+-------------------+----------------------+-----------------------------+
+ * </pre>
+ *
+ * The transaction part uses the {@link EventKeyCodec} prefix layout, so the fixed prefix
+ * extractor and its bloom filters see a hash of the transaction ID: a lookup of an unknown
+ * transaction is usually answered without reading a data block, and the events of a known
+ * one are adjacent.
+ */
+final class TransactionKeyCodec {
+    private TransactionKeyCodec() {
+    }
+
+    /**
+     * Prefix shared by every key of a transaction
+     */
+    static byte[] prefix(String transactionId) {
+        return EventKeyCodec.aggregatePrefix(transactionId);
+    }
+
+    static byte[] encode(byte[] prefix, byte[] eventKey) {
+        byte[] key = Arrays.copyOf(prefix, prefix.length + eventKey.length);
+        System.arraycopy(eventKey, 0, key, prefix.length, eventKey.length);
+        return key;
+    }
+
+    static boolean hasPrefix(byte[] key, byte[] prefix) {
+        if (key.length <= prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (key[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static byte[] eventKey(byte[] key, byte[] prefix) {
+        return Arrays.copyOfRange(key, prefix.length, key.length);
+    }
+}
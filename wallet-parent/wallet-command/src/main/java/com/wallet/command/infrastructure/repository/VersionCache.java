@@ -0,0 +1,220 @@
+package com.wallet.command.infrastructure.repository;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded aggregateId to version map in front of the versions column family. Next to the
+ * version, each entry holds the time the aggregate's last event was recorded in the
+ * timeline, which the next append must not go below.
+ *
+ * Each stripe is an open-addressing table over parallel arrays, so versions are stored as
+ * primitive longs with no entry objects, and a full stripe evicts with the CLOCK algorithm:
+ * entries read or written since the hand last passed survive, cold ones are dropped.
+ *
+ * Only the write lane that owns an aggregate may {@link #put} its version, after loading it
+ * from RocksDB or committing a batch; being the aggregate's only writer, its value is always
+ * current. Other readers may use hits but must not fill the cache from their own reads,
+ * which could race with a commit and cache a stale version.
+ * The one exception is an {@link SstIngestion}, which puts the versions of the aggregates it
+ * created while it holds every lane of their shard off.
+ */
+final class VersionCache {
+    static final long MISSING = Long.MIN_VALUE;
+
+    private static final int MAX_STRIPE_BITS = 4;
+
+    private final Stripe[] stripes;
+    private final int stripeShift;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param capacity Maximum number of cached aggregates, zero to disable the cache
+     */
+    VersionCache(int capacity) {
+        int stripeBits = 0;
+        while (stripeBits < MAX_STRIPE_BITS && (capacity >> (stripeBits + 1)) >= 1024) {
+            stripeBits++;
+        }
+        this.stripes = new Stripe[1 << stripeBits];
+        this.stripeShift = 32 - stripeBits;
+        int perStripe = (capacity + stripes.length - 1) >> stripeBits;
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe(perStripe);
+        }
+    }
+
+    /**
+     * @return Cached version, or {@link #MISSING}
+     */
+    long get(String aggregateId) {
+        int hash = hash(aggregateId);
+        long version = stripe(hash).get(aggregateId, hash);
+        (version == MISSING ? misses : hits).increment();
+        return version;
+    }
+
+    /**
+     * @return Recorded time of the aggregate's last event, or {@link #MISSING} if not cached;
+     *         not counted as a lookup
+     */
+    long recordedAt(String aggregateId) {
+        int hash = hash(aggregateId);
+        return stripe(hash).recordedAt(aggregateId, hash);
+    }
+
+    /**
+     * @param recordedAt Recorded time of the aggregate's last event, {@link #MISSING} if it has none
+     */
+    void put(String aggregateId, long version, long recordedAt) {
+        int hash = hash(aggregateId);
+        stripe(hash).put(aggregateId, hash, version, recordedAt);
+    }
+
+    void invalidate(String aggregateId) {
+        int hash = hash(aggregateId);
+        stripe(hash).remove(aggregateId, hash);
+    }
+
+    long size() {
+        long size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    long hits() {
+        return hits.sum();
+    }
+
+    long misses() {
+        return misses.sum();
+    }
+
+    private Stripe stripe(int hash) {
+        return stripes.length == 1 ? stripes[0] : stripes[(hash * 0x9E3779B9) >>> stripeShift];
+    }
+
+    private static int hash(String aggregateId) {
+        int h = aggregateId.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static final class Stripe {
+        private final int maxEntries;
+        private final int mask;
+        private final String[] keys;
+        private final long[] versions;
+        private final long[] recordedAts;
+        private final boolean[] referenced;
+        private int size;
+        private int hand;
+
+        Stripe(int maxEntries) {
+            this.maxEntries = maxEntries;
+            // Load factor of at most one half keeps probe sequences short
+            int tableSize = Integer.highestOneBit(Math.max(maxEntries, 1) * 2 - 1) << 1;
+            this.mask = tableSize - 1;
+            this.keys = new String[tableSize];
+            this.versions = new long[tableSize];
+            this.recordedAts = new long[tableSize];
+            this.referenced = new boolean[tableSize];
+        }
+
+        synchronized long get(String key, int hash) {
+            int slot = find(key, hash);
+            if (keys[slot] == null) {
+                return MISSING;
+            }
+            referenced[slot] = true;
+            return versions[slot];
+        }
+
+        synchronized long recordedAt(String key, int hash) {
+            int slot = find(key, hash);
+            return keys[slot] == null ? MISSING : recordedAts[slot];
+        }
+
+        synchronized void put(String key, int hash, long version, long recordedAt) {
+            if (maxEntries == 0) {
+                return;
+            }
+            int slot = find(key, hash);
+            if (keys[slot] == null) {
+                if (size >= maxEntries) {
+                    evict();
+                    slot = find(key, hash);
+                }
+                keys[slot] = key;
+                size++;
+            }
+            versions[slot] = version;
+            recordedAts[slot] = recordedAt;
+            referenced[slot] = true;
+        }
+
+        synchronized void remove(String key, int hash) {
+            int slot = find(key, hash);
+            if (keys[slot] != null) {
+                delete(slot);
+            }
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        /**
+         * Slot holding the key, or the empty slot ending its probe sequence
+         */
+        private int find(String key, int hash) {
+            int slot = hash & mask;
+            while (keys[slot] != null && !keys[slot].equals(key)) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void evict() {
+            while (true) {
+                int slot = hand;
+                hand = (hand + 1) & mask;
+                if (keys[slot] == null) {
+                    continue;
+                }
+                if (referenced[slot]) {
+                    referenced[slot] = false;
+                } else {
+                    delete(slot);
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Backward-shift deletion, so that lookups never need tombstones
+         */
+        private void delete(int slot) {
+            keys[slot] = null;
+            size--;
+            int next = slot;
+            while (true) {
+                next = (next + 1) & mask;
+                String key = keys[next];
+                if (key == null) {
+                    return;
+                }
+                int home = hash(key) & mask;
+                if (((next - home) & mask) >= ((next - slot) & mask)) {
+                    keys[slot] = key;
+                    versions[slot] = versions[next];
+                    recordedAts[slot] = recordedAts[next];
+                    referenced[slot] = referenced[next];
+                    keys[next] = null;
+                    slot = next;
+                }
+            }
+        }
+    }
+}
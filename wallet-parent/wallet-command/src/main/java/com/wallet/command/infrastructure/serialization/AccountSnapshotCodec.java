@@ -0,0 +1,135 @@
+package com.wallet.command.infrastructure.serialization;
+
+import com.wallet.command.model.AccountSnapshot;
+import com.wallet.command.model.AccountState;
+import com.wallet.enums.AccountStatus;
+import com.wallet.enums.AssetType;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+
+/**
+ * Compact binary encoding of account snapshots.
+ *
+ * <pre>
+ * format (1) | version (8) | accountId | assetType | balance | minBalance | maxBalance | status
+ *            | lastUpdated | lastOperatorId | lastTransactionId
+ * </pre>
+ *
+ * Strings and enum names are length-prefixed UTF-8 with a presence flag, decimals are
+ * written as scale plus unscaled two's-complement bytes, so no precision is lost.
+ */
+public final class AccountSnapshotCodec {
+    private static final byte FORMAT = 1;
+
+    private AccountSnapshotCodec() {
+    }
+
+    public static byte[] encode(AccountSnapshot snapshot) {
+        AccountState state = snapshot.getState();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT);
+            out.writeLong(snapshot.getVersion());
+            writeString(out, state.getAccountId());
+            writeString(out, state.getAssetType() == null ? null : state.getAssetType().name());
+            writeDecimal(out, state.getBalance());
+            writeDecimal(out, state.getMinBalance());
+            writeDecimal(out, state.getMaxBalance());
+            writeString(out, state.getStatus() == null ? null : state.getStatus().name());
+            writeInstant(out, state.getLastUpdated());
+            writeString(out, state.getLastOperatorId());
+            writeString(out, state.getLastTransactionId());
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to encode snapshot of account " + snapshot.getAccountId(), e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @throws EventDeserializationException if the value is not a readable snapshot
+     */
+    public static AccountSnapshot decode(byte[] value) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(value))) {
+            byte format = in.readByte();
+            if (format != FORMAT) {
+                throw new EventDeserializationException("Unknown snapshot format: " + format);
+            }
+            long version = in.readLong();
+            String accountId = readString(in);
+            String assetType = readString(in);
+            AccountState state = AccountState.builder()
+                .accountId(accountId)
+                .assetType(assetType == null ? null : AssetType.valueOf(assetType))
+                .balance(readDecimal(in))
+                .minBalance(readDecimal(in))
+                .maxBalance(readDecimal(in))
+                .status(toStatus(readString(in)))
+                .lastUpdated(readInstant(in))
+                .lastOperatorId(readString(in))
+                .lastTransactionId(readString(in))
+                .version(version)
+                .build();
+            return AccountSnapshot.builder()
+                .accountId(accountId)
+                .version(version)
+                .state(state)
+                .build();
+        } catch (IOException | IllegalArgumentException e) {
+            throw new EventDeserializationException("Unreadable account snapshot", e);
+        }
+    }
+
+    private static AccountStatus toStatus(String name) {
+        return name == null ? null : AccountStatus.valueOf(name);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeDecimal(DataOutputStream out, BigDecimal value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            byte[] unscaled = value.unscaledValue().toByteArray();
+            out.writeInt(value.scale());
+            out.writeShort(unscaled.length);
+            out.write(unscaled);
+        }
+    }
+
+    private static BigDecimal readDecimal(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        int scale = in.readInt();
+        byte[] unscaled = new byte[in.readUnsignedShort()];
+        in.readFully(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), scale);
+    }
+
+    private static void writeInstant(DataOutputStream out, Instant value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value.getEpochSecond());
+            out.writeInt(value.getNano());
+        }
+    }
+
+    private static Instant readInstant(DataInputStream in) throws IOException {
+        return in.readBoolean() ? Instant.ofEpochSecond(in.readLong(), in.readInt()) : null;
+    }
+}
@@ -0,0 +1,25 @@
+package com.wallet.command.infrastructure.serialization;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.MessageLite;
+import com.wallet.command.event.BaseEvent;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Protobuf codec of one event type, registered under the type's numeric id in an
+ * {@link EventCodecRegistry}
+ */
+public interface EventCodec {
+    EventType type();
+
+    /**
+     * @param event Event of this codec's type
+     */
+    MessageLite toMessage(BaseEvent event);
+
+    /**
+     * Parse a payload written by {@link #toMessage}, reading the buffer in place
+     */
+    BaseEvent parse(ByteBuffer payload) throws InvalidProtocolBufferException;
+}
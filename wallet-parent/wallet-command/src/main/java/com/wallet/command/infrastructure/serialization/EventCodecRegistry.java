@@ -0,0 +1,36 @@
+package com.wallet.command.infrastructure.serialization;
+
+import java.util.Collection;
+
+/**
+ * Codecs by the numeric id of their {@link EventType}, looked up with one array access.
+ * A registry is complete: it is rejected unless every event type has exactly one codec,
+ * so that a new event type cannot be stored before its schema exists.
+ */
+public final class EventCodecRegistry {
+    private final EventCodec[] byId;
+
+    public EventCodecRegistry(Collection<EventCodec> codecs) {
+        int maxId = 0;
+        for (EventType type : EventType.values()) {
+            maxId = Math.max(maxId, type.getId());
+        }
+        this.byId = new EventCodec[maxId + 1];
+        for (EventCodec codec : codecs) {
+            int id = codec.type().getId();
+            if (byId[id] != null) {
+                throw new IllegalArgumentException("Duplicate codec for event type " + codec.type());
+            }
+            byId[id] = codec;
+        }
+        for (EventType type : EventType.values()) {
+            if (byId[type.getId()] == null) {
+                throw new IllegalArgumentException("No codec for event type " + type);
+            }
+        }
+    }
+
+    public EventCodec codecFor(EventType type) {
+        return byId[type.getId()];
+    }
+}
@@ -15,4 +15,9 @@ public class EventDeserializationException extends RuntimeException {
     public EventDeserializationException(String eventType, String data, Throwable cause) {
         super(String.format("Failed to deserialize event of type %s. Data: %s", eventType, data), cause);
     }
+
+    static EventDeserializationException unsupportedFormat(EventEnvelope envelope, PayloadFormat serializerFormat) {
+        return new EventDeserializationException(String.format("Cannot decode %s payload of %s with %s serializer",
+            envelope.getFormat(), envelope.getType(), serializerFormat));
+    }
 }
@@ -0,0 +1,209 @@
+package com.wallet.command.infrastructure.serialization;
+
+import com.wallet.command.event.BaseEvent;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Self-describing binary frame around a serialized event.
+ *
+ * <pre>
+ * +-----------+------------+---------------+---------------------+----------------------+---------+
+ * | magic (1) | format (1) | type id (2)   | schema version (2)  | payload length (4)   | payload |
+ * +-----------+------------+---------------+---------------------+----------------------+---------+
+ * </pre>
+ *
+ * Readers dispatch on the header alone, so the payload never has to be parsed to find
+ * out what it contains. Decoding wraps the source array or buffer without copying the payload.
+ *
+ * The same frame is stored by the event stores and sent to Kafka, so an event is serialized
+ * once, straight into a reused per-thread buffer behind its header.
+ */
+public final class EventEnvelope {
+    public static final int HEADER_LENGTH = 10;
+
+    private static final byte MAGIC = (byte) 0xEE;
+    private static final ThreadLocal<PayloadBuffer> BUFFERS = ThreadLocal.withInitial(() -> new PayloadBuffer(512));
+
+    private final EventType type;
+    private final int schemaVersion;
+    private final PayloadFormat format;
+    private final ByteBuffer payload;
+
+    private EventEnvelope(EventType type, int schemaVersion, PayloadFormat format, ByteBuffer payload) {
+        this.type = type;
+        this.schemaVersion = schemaVersion;
+        this.format = format;
+        this.payload = payload;
+    }
+
+    /**
+     * Frame a payload with the current schema version of its type
+     */
+    public static byte[] encode(EventType type, PayloadFormat format, byte[] payload) {
+        return ByteBuffer.allocate(HEADER_LENGTH + payload.length)
+            .put(MAGIC)
+            .put((byte) format.getId())
+            .putShort((short) type.getId())
+            .putShort((short) type.getSchemaVersion())
+            .putInt(payload.length)
+            .put(payload)
+            .array();
+    }
+
+    /**
+     * Serialize an event behind its header in the calling thread's buffer
+     *
+     * @return The framed value
+     */
+    public static byte[] encode(BaseEvent event, EventSerializer serializer) {
+        PayloadBuffer buffer = BUFFERS.get();
+        buffer.reset();
+        encode(event, serializer, buffer);
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Serialize an event behind its header, appending the framed value to a buffer
+     */
+    public static void encode(BaseEvent event, EventSerializer serializer, PayloadBuffer buffer) {
+        EventType type = EventType.of(event);
+        int start = buffer.claim(HEADER_LENGTH);
+        serializer.serialize(event, buffer);
+        byte[] header = buffer.array();
+        header[start] = MAGIC;
+        header[start + 1] = (byte) serializer.getPayloadFormat().getId();
+        buffer.putShort(start + 2, type.getId());
+        buffer.putShort(start + 4, type.getSchemaVersion());
+        buffer.putInt(start + 6, buffer.size() - start - HEADER_LENGTH);
+    }
+
+    /**
+     * Read the header of a framed value
+     *
+     * @throws EventDeserializationException if the value is not a valid envelope
+     */
+    public static EventEnvelope decode(byte[] value) {
+        if (!isEnvelope(value)) {
+            throw new EventDeserializationException("Value is not an event envelope");
+        }
+        return decode(ByteBuffer.wrap(value));
+    }
+
+    /**
+     * Read the header of a framed value spanning the remaining bytes of a buffer.
+     * The payload stays a view of the buffer, which may be direct or memory-mapped.
+     *
+     * @throws EventDeserializationException if the value is not a valid envelope
+     */
+    public static EventEnvelope decode(ByteBuffer value) {
+        if (!isEnvelope(value)) {
+            throw new EventDeserializationException("Value is not an event envelope");
+        }
+        ByteBuffer header = value.duplicate();
+        header.position(header.position() + 1);
+        PayloadFormat format = PayloadFormat.fromId(header.get());
+        EventType type = EventType.fromId(header.getShort() & 0xFFFF);
+        int schemaVersion = header.getShort() & 0xFFFF;
+        int payloadLength = header.getInt();
+        if (payloadLength < 0 || payloadLength > header.remaining()) {
+            throw new EventDeserializationException(String.format(
+                "Truncated %s envelope: payload length %d, available %d",
+                type, payloadLength, header.remaining()));
+        }
+        header.limit(header.position() + payloadLength);
+        return new EventEnvelope(type, schemaVersion, format, header.slice());
+    }
+
+    public static boolean isEnvelope(byte[] value) {
+        return value != null && value.length >= HEADER_LENGTH && value[0] == MAGIC;
+    }
+
+    public static boolean isEnvelope(ByteBuffer value) {
+        return value != null && value.remaining() >= HEADER_LENGTH && value.get(value.position()) == MAGIC;
+    }
+
+    public EventType getType() {
+        return type;
+    }
+
+    public int getSchemaVersion() {
+        return schemaVersion;
+    }
+
+    public PayloadFormat getFormat() {
+        return format;
+    }
+
+    public int getPayloadLength() {
+        return payload.remaining();
+    }
+
+    /**
+     * Read-only view of the payload, backed by the decoded array or buffer
+     */
+    public ByteBuffer payload() {
+        return payload.asReadOnlyBuffer();
+    }
+
+    /**
+     * Payload view sharing the decoded array, for decoders of this package that only read
+     * it; unlike a read-only view it lets protobuf parse the array without copying it
+     */
+    ByteBuffer payloadBuffer() {
+        return payload.duplicate();
+    }
+
+    /**
+     * Stream over the payload, reading the decoded array or buffer in place
+     */
+    public InputStream payloadStream() {
+        if (payload.hasArray()) {
+            return new ByteArrayInputStream(payload.array(), payload.arrayOffset() + payload.position(),
+                payload.remaining());
+        }
+        ByteBuffer source = payload.duplicate();
+        return new InputStream() {
+            @Override
+            public int read() {
+                return source.hasRemaining() ? source.get() & 0xFF : -1;
+            }
+
+            @Override
+            public int read(byte[] target, int offset, int length) {
+                if (!source.hasRemaining()) {
+                    return -1;
+                }
+                int count = Math.min(length, source.remaining());
+                source.get(target, offset, count);
+                return count;
+            }
+
+            @Override
+            public int available() {
+                return source.remaining();
+            }
+        };
+    }
+
+    /**
+     * Same event with its payload migrated to another schema version
+     */
+    EventEnvelope withPayload(int schemaVersion, ByteBuffer payload) {
+        return new EventEnvelope(type, schemaVersion, format, payload.slice());
+    }
+
+    /**
+     * Payload decoded as UTF-8 text, for string-based serializers
+     */
+    public String payloadAsString() {
+        if (payload.hasArray()) {
+            return new String(payload.array(), payload.arrayOffset() + payload.position(),
+                payload.remaining(), StandardCharsets.UTF_8);
+        }
+        return StandardCharsets.UTF_8.decode(payload.duplicate()).toString();
+    }
+}
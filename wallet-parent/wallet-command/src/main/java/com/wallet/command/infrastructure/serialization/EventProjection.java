@@ -0,0 +1,231 @@
+package com.wallet.command.infrastructure.serialization;
+
+import com.wallet.command.event.*;
+import com.wallet.enums.AssetType;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Iterator;
+
+/**
+ * The fields of an event that folding account state reads, decoded without materializing
+ * the event:
+ * <ul>
+ *   <li>AccountCreated: account ID, asset type, initial, minimum and maximum balance</li>
+ *   <li>BalanceChanged: amount and transaction ID</li>
+ *   <li>TransferInitiated: account ID, target account ID, amount and transaction ID</li>
+ *   <li>TransferCompleted: transaction ID</li>
+ * </ul>
+ * Other fields, such as event ID, description and reason, are left null. The operator ID
+ * and timestamp of every event are only located, and decoded on first access, because the
+ * fold reads them from the last event alone.
+ *
+ * A projection is reused for every event of a replay, so it is valid until the next event
+ * is projected into it, and a lazily decoded field only while the source of the event,
+ * such as its cursor, is open. Not thread-safe.
+ */
+public final class EventProjection {
+    private EventType type;
+    private String accountId;
+    private String targetAccountId;
+    private String transactionId;
+    private AssetType assetType;
+    private BigDecimal amount;
+    private BigDecimal initialBalance;
+    private BigDecimal minBalance;
+    private BigDecimal maxBalance;
+    private String operatorId;
+    private Instant timestamp;
+    private ByteBuffer source;
+    private int operatorIdOffset;
+    private int operatorIdLength;
+    private int timestampOffset;
+    private int timestampLength;
+
+    /**
+     * Project events one at a time into a single reused projection
+     */
+    public static Iterator<EventProjection> projecting(Iterator<? extends BaseEvent> events) {
+        EventProjection projection = new EventProjection();
+        return new Iterator<EventProjection>() {
+            @Override
+            public boolean hasNext() {
+                return events.hasNext();
+            }
+
+            @Override
+            public EventProjection next() {
+                projection.project(events.next());
+                return projection;
+            }
+        };
+    }
+
+    /**
+     * Copy the projected fields of a decoded event
+     */
+    public void project(BaseEvent event) {
+        reset(EventType.of(event), null);
+        operatorId = event.getOperatorId();
+        timestamp = event.getTimestamp();
+        switch (type) {
+            case ACCOUNT_CREATED:
+                AccountCreatedEvent created = (AccountCreatedEvent) event;
+                accountId = created.getAccountId();
+                assetType = created.getAssetType();
+                initialBalance = created.getInitialBalance();
+                minBalance = created.getMinBalance();
+                maxBalance = created.getMaxBalance();
+                break;
+            case BALANCE_CHANGED:
+                BalanceChangedEvent changed = (BalanceChangedEvent) event;
+                amount = changed.getAmount();
+                transactionId = changed.getTransactionId();
+                break;
+            case TRANSFER_INITIATED:
+                TransferInitiatedEvent initiated = (TransferInitiatedEvent) event;
+                accountId = initiated.getAccountId();
+                targetAccountId = initiated.getTargetAccountId();
+                amount = initiated.getAmount();
+                transactionId = initiated.getTransactionId();
+                break;
+            case TRANSFER_COMPLETED:
+                transactionId = ((TransferCompletedEvent) event).getTransactionId();
+                break;
+            default:
+                break;
+        }
+    }
+
+    public EventType getType() {
+        return type;
+    }
+
+    public String getAccountId() {
+        return accountId;
+    }
+
+    public String getTargetAccountId() {
+        return targetAccountId;
+    }
+
+    public String getTransactionId() {
+        return transactionId;
+    }
+
+    public AssetType getAssetType() {
+        return assetType;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public BigDecimal getInitialBalance() {
+        return initialBalance;
+    }
+
+    public BigDecimal getMinBalance() {
+        return minBalance;
+    }
+
+    public BigDecimal getMaxBalance() {
+        return maxBalance;
+    }
+
+    public String getOperatorId() {
+        if (operatorId == null && operatorIdOffset >= 0) {
+            operatorId = decode(operatorIdOffset, operatorIdLength);
+        }
+        return operatorId;
+    }
+
+    public Instant getTimestamp() {
+        if (timestamp == null && timestampOffset >= 0) {
+            timestamp = Instant.parse(decode(timestampOffset, timestampLength));
+        }
+        return timestamp;
+    }
+
+    /**
+     * Clear the projection for an event read from a payload
+     *
+     * @param source Buffer of the payload, kept for the lazily decoded fields
+     */
+    void reset(EventType type, ByteBuffer source) {
+        this.type = type;
+        this.source = source;
+        accountId = null;
+        targetAccountId = null;
+        transactionId = null;
+        assetType = null;
+        amount = null;
+        initialBalance = null;
+        minBalance = null;
+        maxBalance = null;
+        operatorId = null;
+        timestamp = null;
+        operatorIdOffset = -1;
+        timestampOffset = -1;
+    }
+
+    void setAccountId(String accountId) {
+        this.accountId = accountId;
+    }
+
+    void setTargetAccountId(String targetAccountId) {
+        this.targetAccountId = targetAccountId;
+    }
+
+    void setTransactionId(String transactionId) {
+        this.transactionId = transactionId;
+    }
+
+    void setAssetType(AssetType assetType) {
+        this.assetType = assetType;
+    }
+
+    void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+
+    void setInitialBalance(BigDecimal initialBalance) {
+        this.initialBalance = initialBalance;
+    }
+
+    void setMinBalance(BigDecimal minBalance) {
+        this.minBalance = minBalance;
+    }
+
+    void setMaxBalance(BigDecimal maxBalance) {
+        this.maxBalance = maxBalance;
+    }
+
+    /**
+     * @param offset Absolute index of the UTF-8 operator ID in the source buffer
+     */
+    void locateOperatorId(int offset, int length) {
+        this.operatorIdOffset = offset;
+        this.operatorIdLength = length;
+    }
+
+    /**
+     * @param offset Absolute index of the ISO-8601 timestamp in the source buffer
+     */
+    void locateTimestamp(int offset, int length) {
+        this.timestampOffset = offset;
+        this.timestampLength = length;
+    }
+
+    private String decode(int offset, int length) {
+        if (source.hasArray()) {
+            return new String(source.array(), source.arrayOffset() + offset, length, StandardCharsets.UTF_8);
+        }
+        ByteBuffer view = source.duplicate();
+        view.limit(offset + length);
+        view.position(offset);
+        return StandardCharsets.UTF_8.decode(view).toString();
+    }
+}
@@ -1,10 +1,16 @@
 package com.wallet.command.infrastructure.serialization;
 
 import com.wallet.command.event.BaseEvent;
+
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 /**
- * Event serialization interface for wallet system events
+ * Event serialization interface for wallet system events.
+ *
+ * The byte-oriented methods are the storage and wire path: payloads are written into a
+ * reused {@link PayloadBuffer} and read back from an {@link EventEnvelope} in place. The
+ * String methods remain for text columns and callers that need a printable form.
  */
 public interface EventSerializer {
     /**
@@ -42,4 +48,57 @@ public interface EventSerializer {
      * @throws EventDeserializationException if deserialization fails
      */
     List<BaseEvent> deserializeList(String data, List<String> eventTypes) throws EventDeserializationException;
+
+    /**
+     * Append the payload of an event to a buffer
+     *
+     * @param event The event to serialize
+     * @param buffer Buffer to write into, positioned after the envelope header
+     */
+    default void serialize(BaseEvent event, PayloadBuffer buffer) {
+        byte[] payload = serialize(event).getBytes(StandardCharsets.UTF_8);
+        buffer.write(payload, 0, payload.length);
+    }
+
+    /**
+     * Deserialize the payload of an envelope, reading it in place
+     *
+     * @param envelope Decoded envelope of a format this serializer {@link #supports}
+     * @return Deserialized event
+     * @throws EventDeserializationException if deserialization fails
+     */
+    default BaseEvent deserialize(EventEnvelope envelope) throws EventDeserializationException {
+        if (!supports(envelope.getFormat())) {
+            throw EventDeserializationException.unsupportedFormat(envelope, getPayloadFormat());
+        }
+        return deserialize(envelope.payloadAsString(), envelope.getType().getEventClass().getName());
+    }
+
+    /**
+     * Decode only the fields that folding account state reads, see {@link EventProjection}
+     *
+     * @param envelope Decoded envelope of a format this serializer {@link #supports}
+     * @param target Projection to overwrite
+     * @throws EventDeserializationException if deserialization fails
+     */
+    default void project(EventEnvelope envelope, EventProjection target) throws EventDeserializationException {
+        target.project(deserialize(envelope));
+    }
+
+    /**
+     * Encoding produced by this serializer, recorded in each {@link EventEnvelope}
+     *
+     * @return Payload format
+     */
+    default PayloadFormat getPayloadFormat() {
+        return PayloadFormat.JSON;
+    }
+
+    /**
+     * Whether payloads of a format can be deserialized, including formats this serializer
+     * no longer writes
+     */
+    default boolean supports(PayloadFormat format) {
+        return format == getPayloadFormat();
+    }
 }
@@ -0,0 +1,96 @@
+package com.wallet.command.infrastructure.serialization;
+
+import com.wallet.command.event.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Stable numeric identifiers for every stored event type.
+ * Ids are part of the storage format and must never be reused or renumbered.
+ */
+public enum EventType {
+    ACCOUNT_CREATED(1, AccountCreatedEvent.class),
+    BALANCE_CHANGED(2, BalanceChangedEvent.class),
+    ACCOUNT_FROZEN(3, AccountFrozenEvent.class),
+    ACCOUNT_UNFROZEN(4, AccountUnfrozenEvent.class),
+    ACCOUNT_CLOSED(5, AccountClosedEvent.class),
+    TRANSFER_INITIATED(6, TransferInitiatedEvent.class),
+    TRANSFER_COMPLETED(7, TransferCompletedEvent.class),
+    TRANSFER_FAILED(8, TransferFailedEvent.class);
+
+    private static final EventType[] BY_ID;
+    private static final Map<Class<? extends BaseEvent>, EventType> BY_CLASS = new HashMap<>();
+    private static final Map<String, EventType> BY_NAME = new HashMap<>();
+
+    static {
+        int maxId = 0;
+        for (EventType type : values()) {
+            maxId = Math.max(maxId, type.id);
+        }
+        BY_ID = new EventType[maxId + 1];
+        for (EventType type : values()) {
+            BY_ID[type.id] = type;
+            BY_CLASS.put(type.eventClass, type);
+            BY_NAME.put(type.eventClass.getSimpleName(), type);
+            BY_NAME.put(type.eventClass.getName(), type);
+        }
+    }
+
+    private final int id;
+    private final Class<? extends BaseEvent> eventClass;
+    private final int schemaVersion;
+
+    EventType(int id, Class<? extends BaseEvent> eventClass) {
+        this(id, eventClass, 1);
+    }
+
+    EventType(int id, Class<? extends BaseEvent> eventClass, int schemaVersion) {
+        this.id = id;
+        this.eventClass = eventClass;
+        this.schemaVersion = schemaVersion;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public Class<? extends BaseEvent> getEventClass() {
+        return eventClass;
+    }
+
+    /**
+     * Current schema version written for this type. Raise it when the payload schema
+     * changes, with an upcaster in {@link EventUpcasters} if old payloads need migrating.
+     */
+    public int getSchemaVersion() {
+        return schemaVersion;
+    }
+
+    public static EventType fromId(int id) {
+        EventType type = id > 0 && id < BY_ID.length ? BY_ID[id] : null;
+        if (type == null) {
+            throw new EventDeserializationException("Unknown event type id: " + id);
+        }
+        return type;
+    }
+
+    public static EventType of(BaseEvent event) {
+        EventType type = BY_CLASS.get(event.getClass());
+        if (type == null) {
+            throw new IllegalArgumentException("Unsupported event type: " + event.getClass().getName());
+        }
+        return type;
+    }
+
+    /**
+     * Resolve a simple or fully qualified event class name
+     */
+    public static EventType fromName(String name) {
+        EventType type = BY_NAME.get(name);
+        if (type == null) {
+            throw new EventDeserializationException("Unknown event type: " + name);
+        }
+        return type;
+    }
+}
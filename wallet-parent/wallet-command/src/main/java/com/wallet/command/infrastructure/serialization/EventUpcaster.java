@@ -0,0 +1,27 @@
+package com.wallet.command.infrastructure.serialization;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Migrates stored payloads of one event type from one schema version to the next.
+ *
+ * Upcasters rewrite the raw payload and touch only the fields that changed, so stored
+ * events are never rewritten and an event is only parsed once, by its current codec.
+ * A schema version whose change needs no migration, such as a new optional field, needs
+ * no upcaster.
+ */
+public interface EventUpcaster {
+    EventType type();
+
+    /**
+     * Schema version this upcaster reads; it produces {@code fromVersion() + 1}
+     */
+    int fromVersion();
+
+    /**
+     * @param format Encoding of the payload, which is kept
+     * @param payload Payload at {@link #fromVersion()}, read-only
+     * @return Payload at the next schema version
+     */
+    ByteBuffer upcast(PayloadFormat format, ByteBuffer payload);
+}
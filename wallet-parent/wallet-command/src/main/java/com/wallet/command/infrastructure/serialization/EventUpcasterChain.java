@@ -0,0 +1,118 @@
+package com.wallet.command.infrastructure.serialization;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntFunction;
+
+/**
+ * Upcasters by event type id and schema version, applied lazily while events are read.
+ *
+ * An envelope at the current schema version of its type is returned as is, after one
+ * comparison, so replaying current events costs nothing. Older envelopes run through the
+ * upcasters of each version up to the current one. Envelopes written by a newer version
+ * are left alone; codecs skip fields they do not know.
+ *
+ * Upcasts are counted per type and source version as wallet.event.upcasts.
+ */
+public final class EventUpcasterChain implements MeterBinder {
+    private static final EventUpcasterChain NONE = new EventUpcasterChain(Collections.emptyList());
+
+    private final int[] schemaVersions;
+    private final EventUpcaster[][] byType;
+    private final LongAdder[][] counts;
+
+    public EventUpcasterChain(Collection<EventUpcaster> upcasters) {
+        this(upcasters, EventType::getSchemaVersion);
+    }
+
+    /**
+     * @param schemaVersions Current schema version of each type, declared by EventType
+     *                       except in tests of schema versions not released yet
+     */
+    EventUpcasterChain(Collection<EventUpcaster> upcasters, ToIntFunction<EventType> schemaVersions) {
+        int maxId = 0;
+        for (EventType type : EventType.values()) {
+            maxId = Math.max(maxId, type.getId());
+        }
+        this.schemaVersions = new int[maxId + 1];
+        this.byType = new EventUpcaster[maxId + 1][];
+        this.counts = new LongAdder[maxId + 1][];
+        for (EventType type : EventType.values()) {
+            int schemaVersion = schemaVersions.applyAsInt(type);
+            this.schemaVersions[type.getId()] = schemaVersion;
+            byType[type.getId()] = new EventUpcaster[schemaVersion];
+            counts[type.getId()] = new LongAdder[schemaVersion];
+            for (int version = 1; version < schemaVersion; version++) {
+                counts[type.getId()][version] = new LongAdder();
+            }
+        }
+        for (EventUpcaster upcaster : upcasters) {
+            EventType type = upcaster.type();
+            int version = upcaster.fromVersion();
+            if (version < 1 || version >= this.schemaVersions[type.getId()]) {
+                throw new IllegalArgumentException(String.format(
+                    "Upcaster of %s from version %d is outside schema versions 1 to %d",
+                    type, version, this.schemaVersions[type.getId()]));
+            }
+            if (byType[type.getId()][version] != null) {
+                throw new IllegalArgumentException(
+                    "Duplicate upcaster of " + type + " from version " + version);
+            }
+            byType[type.getId()][version] = upcaster;
+        }
+    }
+
+    public static EventUpcasterChain none() {
+        return NONE;
+    }
+
+    /**
+     * @return The envelope with a payload of the current schema version of its type
+     */
+    public EventEnvelope upcast(EventEnvelope envelope) {
+        EventType type = envelope.getType();
+        int schemaVersion = schemaVersions[type.getId()];
+        if (envelope.getSchemaVersion() >= schemaVersion) {
+            return envelope;
+        }
+        EventUpcaster[] steps = byType[type.getId()];
+        ByteBuffer payload = null;
+        for (int version = Math.max(envelope.getSchemaVersion(), 1); version < steps.length; version++) {
+            if (steps[version] == null) {
+                continue;
+            }
+            try {
+                payload = steps[version].upcast(envelope.getFormat(),
+                    payload == null ? envelope.payload() : payload.asReadOnlyBuffer());
+            } catch (RuntimeException e) {
+                throw new EventDeserializationException(
+                    "Failed to upcast " + type + " from schema version " + version, e);
+            }
+            counts[type.getId()][version].increment();
+        }
+        // Versions without an upcaster changed nothing that needs migrating
+        return payload == null ? envelope : envelope.withPayload(schemaVersion, payload);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (EventType type : EventType.values()) {
+            for (int version = 1; version < schemaVersions[type.getId()]; version++) {
+                if (byType[type.getId()][version] == null) {
+                    continue;
+                }
+                FunctionCounter.builder("wallet.event.upcasts", counts[type.getId()][version], LongAdder::sum)
+                    .description("Stored events migrated to the next schema version while read")
+                    .tag("type", type.name())
+                    .tag("from.version", String.valueOf(version))
+                    .register(registry);
+            }
+        }
+    }
+}
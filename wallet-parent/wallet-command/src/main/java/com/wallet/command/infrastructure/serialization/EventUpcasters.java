@@ -0,0 +1,21 @@
+package com.wallet.command.infrastructure.serialization;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Upcasters of every stored schema version that needs migrating. Readers of stored and
+ * published events share this list, so that both see events at the current version.
+ */
+public final class EventUpcasters {
+    private EventUpcasters() {
+    }
+
+    public static List<EventUpcaster> all() {
+        return Collections.emptyList();
+    }
+
+    public static EventUpcasterChain chain() {
+        return new EventUpcasterChain(all());
+    }
+}
@@ -1,22 +1,33 @@
 package com.wallet.command.infrastructure.serialization;
 
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.wallet.command.event.BaseEvent;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * JSON serializer, the storage format before protobuf. Still used to read events written
+ * as JSON and selectable with event-store.payload-format=JSON.
+ */
 @Slf4j
-@Component
 public class JacksonEventSerializer implements EventSerializer {
     private final ObjectMapper objectMapper;
+    private final EventUpcasterChain upcasters;
 
     public JacksonEventSerializer() {
+        this(EventUpcasters.chain());
+    }
+
+    public JacksonEventSerializer(EventUpcasterChain upcasters) {
+        this.upcasters = upcasters;
         this.objectMapper = new ObjectMapper();
         this.objectMapper.registerModule(new JavaTimeModule());
+        // Derived getters such as eventType are written but have no matching field
+        this.objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
     }
 
     @Override
@@ -29,6 +40,16 @@ public class JacksonEventSerializer implements EventSerializer {
         }
     }
 
+    @Override
+    public void serialize(BaseEvent event, PayloadBuffer buffer) {
+        try {
+            objectMapper.writeValue(buffer, event);
+        } catch (Exception e) {
+            log.error("Failed to serialize event of type {}", event.getClass().getName(), e);
+            throw new EventDeserializationException("Failed to serialize event", e);
+        }
+    }
+
     @Override
     public String serializeList(List<BaseEvent> events) {
         try {
@@ -42,17 +63,29 @@ public class JacksonEventSerializer implements EventSerializer {
     @Override
     public BaseEvent deserialize(String data, String eventType) throws EventDeserializationException {
         try {
-            Class<?> eventClass = Class.forName(eventType);
-            return (BaseEvent) objectMapper.readValue(data, eventClass);
-        } catch (ClassNotFoundException e) {
-            log.error("Event type not found: {}", eventType, e);
-            throw new EventDeserializationException("Event type not found: " + eventType, e);
+            return objectMapper.readValue(data, EventType.fromName(eventType).getEventClass());
+        } catch (EventDeserializationException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Failed to deserialize event of type {}", eventType, e);
             throw new EventDeserializationException(eventType, data, e);
         }
     }
 
+    @Override
+    public BaseEvent deserialize(EventEnvelope envelope) throws EventDeserializationException {
+        if (!supports(envelope.getFormat())) {
+            throw EventDeserializationException.unsupportedFormat(envelope, getPayloadFormat());
+        }
+        envelope = upcasters.upcast(envelope);
+        try {
+            return objectMapper.readValue(envelope.payloadStream(), envelope.getType().getEventClass());
+        } catch (Exception e) {
+            log.error("Failed to deserialize event of type {}", envelope.getType(), e);
+            throw new EventDeserializationException("Failed to deserialize event of type " + envelope.getType(), e);
+        }
+    }
+
     @Override
     public List<BaseEvent> deserializeList(String data, List<String> eventTypes) throws EventDeserializationException {
         try {
@@ -0,0 +1,102 @@
+package com.wallet.command.infrastructure.serialization;
+
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Growable byte buffer that serializers write event payloads into. A buffer is meant to
+ * be reset and reused for every event encoded by one thread, so steady-state encoding
+ * allocates nothing but the final copy of the framed value.
+ *
+ * Not thread-safe.
+ */
+public final class PayloadBuffer extends OutputStream {
+    /**
+     * Capacity beyond which {@link #reset()} gives the array back, so that one huge event
+     * does not pin its buffer for the lifetime of the thread
+     */
+    private static final int RETAINED_CAPACITY = 64 * 1024;
+
+    private final int initialCapacity;
+    private byte[] bytes;
+    private int size;
+
+    public PayloadBuffer(int initialCapacity) {
+        this.initialCapacity = initialCapacity;
+        this.bytes = new byte[initialCapacity];
+    }
+
+    public void reset() {
+        if (bytes.length > RETAINED_CAPACITY) {
+            bytes = new byte[initialCapacity];
+        }
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Backing array; valid up to {@link #size()} until the next write
+     */
+    public byte[] array() {
+        return bytes;
+    }
+
+    /**
+     * Make room for {@code length} bytes that the caller writes into {@link #array()}
+     * directly, such as a message with a known serialized size
+     *
+     * @return Offset of the claimed range
+     */
+    public int claim(int length) {
+        ensureCapacity(size + length);
+        int offset = size;
+        size += length;
+        return offset;
+    }
+
+    public void putShort(int index, int value) {
+        bytes[index] = (byte) (value >>> 8);
+        bytes[index + 1] = (byte) value;
+    }
+
+    public void putInt(int index, int value) {
+        bytes[index] = (byte) (value >>> 24);
+        bytes[index + 1] = (byte) (value >>> 16);
+        bytes[index + 2] = (byte) (value >>> 8);
+        bytes[index + 3] = (byte) value;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(bytes, size);
+    }
+
+    @Override
+    public void write(int b) {
+        ensureCapacity(size + 1);
+        bytes[size++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] source, int offset, int length) {
+        ensureCapacity(size + length);
+        System.arraycopy(source, offset, bytes, size, length);
+        size += length;
+    }
+
+    @Override
+    public void close() {
+        // Serializers such as Jackson close their target; the buffer stays usable
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalStateException("Event payload too large");
+        }
+        if (capacity > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(capacity, bytes.length * 2));
+        }
+    }
+}
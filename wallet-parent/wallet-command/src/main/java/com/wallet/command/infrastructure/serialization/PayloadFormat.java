@@ -0,0 +1,32 @@
+package com.wallet.command.infrastructure.serialization;
+
+/**
+ * Encoding of the payload carried by an {@link EventEnvelope}
+ */
+public enum PayloadFormat {
+    JSON(1),
+    /**
+     * Protobuf Base64-encoded as text, written before serializers had a byte path; read only
+     */
+    PROTOBUF_BASE64(2),
+    PROTOBUF(3);
+
+    private final int id;
+
+    PayloadFormat(int id) {
+        this.id = id;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public static PayloadFormat fromId(int id) {
+        for (PayloadFormat format : values()) {
+            if (format.id == id) {
+                return format;
+            }
+        }
+        throw new EventDeserializationException("Unknown payload format: " + id);
+    }
+}
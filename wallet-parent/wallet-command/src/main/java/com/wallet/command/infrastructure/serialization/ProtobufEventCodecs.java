@@ -0,0 +1,291 @@
+package com.wallet.command.infrastructure.serialization;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.MessageLite;
+import com.google.protobuf.Parser;
+import com.wallet.command.event.*;
+import com.wallet.command.event.proto.*;
+import com.wallet.enums.AssetType;
+import com.wallet.service.Decimal;
+import com.wallet.service.Decimals;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Protobuf codecs of every event type, mapping each event class to its message in
+ * events.proto. Unset event fields are left out of the message and read back as null.
+ * Amounts are written as Decimal messages; amounts of older events are decimal strings.
+ */
+public final class ProtobufEventCodecs {
+    private ProtobufEventCodecs() {
+    }
+
+    public static EventCodecRegistry registry() {
+        return new EventCodecRegistry(Arrays.asList(
+            codec(EventType.ACCOUNT_CREATED, AccountCreatedEvent.class,
+                ProtobufEventCodecs::accountCreated, AccountCreatedEventData.parser(), ProtobufEventCodecs::accountCreated),
+            codec(EventType.BALANCE_CHANGED, BalanceChangedEvent.class,
+                ProtobufEventCodecs::balanceChanged, BalanceChangedEventData.parser(), ProtobufEventCodecs::balanceChanged),
+            codec(EventType.ACCOUNT_FROZEN, AccountFrozenEvent.class,
+                ProtobufEventCodecs::accountFrozen, AccountFrozenEventData.parser(), ProtobufEventCodecs::accountFrozen),
+            codec(EventType.ACCOUNT_UNFROZEN, AccountUnfrozenEvent.class,
+                ProtobufEventCodecs::accountUnfrozen, AccountUnfrozenEventData.parser(), ProtobufEventCodecs::accountUnfrozen),
+            codec(EventType.ACCOUNT_CLOSED, AccountClosedEvent.class,
+                ProtobufEventCodecs::accountClosed, AccountClosedEventData.parser(), ProtobufEventCodecs::accountClosed),
+            codec(EventType.TRANSFER_INITIATED, TransferInitiatedEvent.class,
+                ProtobufEventCodecs::transferInitiated, TransferInitiatedEventData.parser(), ProtobufEventCodecs::transferInitiated),
+            codec(EventType.TRANSFER_COMPLETED, TransferCompletedEvent.class,
+                ProtobufEventCodecs::transferCompleted, TransferCompletedEventData.parser(), ProtobufEventCodecs::transferCompleted),
+            codec(EventType.TRANSFER_FAILED, TransferFailedEvent.class,
+                ProtobufEventCodecs::transferFailed, TransferFailedEventData.parser(), ProtobufEventCodecs::transferFailed)));
+    }
+
+    private static AccountCreatedEventData accountCreated(AccountCreatedEvent event) {
+        AccountCreatedEventData.Builder builder = AccountCreatedEventData.newBuilder()
+            .setEventId(event.getEventId())
+            .setAccountId(event.getAccountId());
+        ifSet(event.getOperatorId(), builder::setOperatorId);
+        ifSet(format(event.getTimestamp()), builder::setTimestamp);
+        ifSet(decimal(event.getInitialBalance()), builder::setInitialBalanceValue);
+        ifSet(event.getAssetType() == null ? null : event.getAssetType().name(), builder::setAssetType);
+        ifSet(decimal(event.getMinBalance()), builder::setMinBalanceValue);
+        ifSet(decimal(event.getMaxBalance()), builder::setMaxBalanceValue);
+        ifSet(event.getOwnerId(), builder::setOwnerId);
+        ifSet(event.getCurrency(), builder::setCurrency);
+        return builder.build();
+    }
+
+    private static AccountCreatedEvent accountCreated(AccountCreatedEventData data) {
+        return AccountCreatedEvent.builder()
+            .eventId(data.getEventId())
+            .accountId(data.getAccountId())
+            .operatorId(data.hasOperatorId() ? data.getOperatorId() : null)
+            .timestamp(data.hasTimestamp() ? Instant.parse(data.getTimestamp()) : null)
+            .initialBalance(decimal(data.hasInitialBalanceValue(), data.getInitialBalanceValue(),
+                data.hasInitialBalance(), data.getInitialBalance()))
+            .assetType(data.hasAssetType() ? AssetType.valueOf(data.getAssetType()) : null)
+            .minBalance(decimal(data.hasMinBalanceValue(), data.getMinBalanceValue(),
+                data.hasMinBalance(), data.getMinBalance()))
+            .maxBalance(decimal(data.hasMaxBalanceValue(), data.getMaxBalanceValue(),
+                data.hasMaxBalance(), data.getMaxBalance()))
+            .ownerId(data.hasOwnerId() ? data.getOwnerId() : null)
+            .currency(data.hasCurrency() ? data.getCurrency() : null)
+            .build();
+    }
+
+    private static BalanceChangedEventData balanceChanged(BalanceChangedEvent event) {
+        BalanceChangedEventData.Builder builder = BalanceChangedEventData.newBuilder()
+            .setEventId(event.getEventId())
+            .setAccountId(event.getAccountId());
+        ifSet(event.getOperatorId(), builder::setOperatorId);
+        ifSet(format(event.getTimestamp()), builder::setTimestamp);
+        ifSet(decimal(event.getAmount()), builder::setAmountValue);
+        ifSet(event.getTransactionId(), builder::setTransactionId);
+        ifSet(event.getTargetAccountId(), builder::setTargetAccountId);
+        return builder.build();
+    }
+
+    private static BalanceChangedEvent balanceChanged(BalanceChangedEventData data) {
+        return BalanceChangedEvent.builder()
+            .eventId(data.getEventId())
+            .accountId(data.getAccountId())
+            .operatorId(data.hasOperatorId() ? data.getOperatorId() : null)
+            .timestamp(data.hasTimestamp() ? Instant.parse(data.getTimestamp()) : null)
+            .amount(decimal(data.hasAmountValue(), data.getAmountValue(),
+                data.hasAmount(), data.getAmount()))
+            .transactionId(data.hasTransactionId() ? data.getTransactionId() : null)
+            .targetAccountId(data.hasTargetAccountId() ? data.getTargetAccountId() : null)
+            .build();
+    }
+
+    private static AccountFrozenEventData accountFrozen(AccountFrozenEvent event) {
+        AccountFrozenEventData.Builder builder = AccountFrozenEventData.newBuilder()
+            .setEventId(event.getEventId())
+            .setAccountId(event.getAccountId());
+        ifSet(event.getOperatorId(), builder::setOperatorId);
+        ifSet(format(event.getTimestamp()), builder::setTimestamp);
+        ifSet(event.getReason(), builder::setReason);
+        return builder.build();
+    }
+
+    private static AccountFrozenEvent accountFrozen(AccountFrozenEventData data) {
+        return AccountFrozenEvent.builder()
+            .eventId(data.getEventId())
+            .accountId(data.getAccountId())
+            .operatorId(data.hasOperatorId() ? data.getOperatorId() : null)
+            .timestamp(data.hasTimestamp() ? Instant.parse(data.getTimestamp()) : null)
+            .reason(data.hasReason() ? data.getReason() : null)
+            .build();
+    }
+
+    private static AccountUnfrozenEventData accountUnfrozen(AccountUnfrozenEvent event) {
+        AccountUnfrozenEventData.Builder builder = AccountUnfrozenEventData.newBuilder()
+            .setEventId(event.getEventId())
+            .setAccountId(event.getAccountId());
+        ifSet(event.getOperatorId(), builder::setOperatorId);
+        ifSet(format(event.getTimestamp()), builder::setTimestamp);
+        ifSet(event.getReason(), builder::setReason);
+        return builder.build();
+    }
+
+    private static AccountUnfrozenEvent accountUnfrozen(AccountUnfrozenEventData data) {
+        return AccountUnfrozenEvent.builder()
+            .eventId(data.getEventId())
+            .accountId(data.getAccountId())
+            .operatorId(data.hasOperatorId() ? data.getOperatorId() : null)
+            .timestamp(data.hasTimestamp() ? Instant.parse(data.getTimestamp()) : null)
+            .reason(data.hasReason() ? data.getReason() : null)
+            .build();
+    }
+
+    private static AccountClosedEventData accountClosed(AccountClosedEvent event) {
+        AccountClosedEventData.Builder builder = AccountClosedEventData.newBuilder()
+            .setEventId(event.getEventId())
+            .setAccountId(event.getAccountId());
+        ifSet(event.getOperatorId(), builder::setOperatorId);
+        ifSet(format(event.getTimestamp()), builder::setTimestamp);
+        ifSet(event.getReason(), builder::setReason);
+        ifSet(decimal(event.getFinalBalance()), builder::setFinalBalanceValue);
+        return builder.build();
+    }
+
+    private static AccountClosedEvent accountClosed(AccountClosedEventData data) {
+        return AccountClosedEvent.builder()
+            .eventId(data.getEventId())
+            .accountId(data.getAccountId())
+            .operatorId(data.hasOperatorId() ? data.getOperatorId() : null)
+            .timestamp(data.hasTimestamp() ? Instant.parse(data.getTimestamp()) : null)
+            .reason(data.hasReason() ? data.getReason() : null)
+            .finalBalance(decimal(data.hasFinalBalanceValue(), data.getFinalBalanceValue(),
+                data.hasFinalBalance(), data.getFinalBalance()))
+            .build();
+    }
+
+    private static TransferInitiatedEventData transferInitiated(TransferInitiatedEvent event) {
+        TransferInitiatedEventData.Builder builder = TransferInitiatedEventData.newBuilder()
+            .setEventId(event.getEventId())
+            .setAccountId(event.getAccountId());
+        ifSet(event.getOperatorId(), builder::setOperatorId);
+        ifSet(format(event.getTimestamp()), builder::setTimestamp);
+        ifSet(event.getTargetAccountId(), builder::setTargetAccountId);
+        ifSet(decimal(event.getAmount()), builder::setAmountValue);
+        ifSet(event.getTransactionId(), builder::setTransactionId);
+        ifSet(event.getDescription(), builder::setDescription);
+        return builder.build();
+    }
+
+    private static TransferInitiatedEvent transferInitiated(TransferInitiatedEventData data) {
+        return TransferInitiatedEvent.builder()
+            .eventId(data.getEventId())
+            .accountId(data.getAccountId())
+            .operatorId(data.hasOperatorId() ? data.getOperatorId() : null)
+            .timestamp(data.hasTimestamp() ? Instant.parse(data.getTimestamp()) : null)
+            .targetAccountId(data.hasTargetAccountId() ? data.getTargetAccountId() : null)
+            .amount(decimal(data.hasAmountValue(), data.getAmountValue(),
+                data.hasAmount(), data.getAmount()))
+            .transactionId(data.hasTransactionId() ? data.getTransactionId() : null)
+            .description(data.hasDescription() ? data.getDescription() : null)
+            .build();
+    }
+
+    private static TransferCompletedEventData transferCompleted(TransferCompletedEvent event) {
+        TransferCompletedEventData.Builder builder = TransferCompletedEventData.newBuilder()
+            .setEventId(event.getEventId())
+            .setAccountId(event.getAccountId());
+        ifSet(event.getOperatorId(), builder::setOperatorId);
+        ifSet(format(event.getTimestamp()), builder::setTimestamp);
+        ifSet(event.getTargetAccountId(), builder::setTargetAccountId);
+        ifSet(decimal(event.getAmount()), builder::setAmountValue);
+        ifSet(event.getTransactionId(), builder::setTransactionId);
+        return builder.build();
+    }
+
+    private static TransferCompletedEvent transferCompleted(TransferCompletedEventData data) {
+        return TransferCompletedEvent.builder()
+            .eventId(data.getEventId())
+            .accountId(data.getAccountId())
+            .operatorId(data.hasOperatorId() ? data.getOperatorId() : null)
+            .timestamp(data.hasTimestamp() ? Instant.parse(data.getTimestamp()) : null)
+            .targetAccountId(data.hasTargetAccountId() ? data.getTargetAccountId() : null)
+            .amount(decimal(data.hasAmountValue(), data.getAmountValue(),
+                data.hasAmount(), data.getAmount()))
+            .transactionId(data.hasTransactionId() ? data.getTransactionId() : null)
+            .build();
+    }
+
+    private static TransferFailedEventData transferFailed(TransferFailedEvent event) {
+        TransferFailedEventData.Builder builder = TransferFailedEventData.newBuilder()
+            .setEventId(event.getEventId())
+            .setAccountId(event.getAccountId());
+        ifSet(event.getOperatorId(), builder::setOperatorId);
+        ifSet(format(event.getTimestamp()), builder::setTimestamp);
+        ifSet(event.getTargetAccountId(), builder::setTargetAccountId);
+        ifSet(decimal(event.getAmount()), builder::setAmountValue);
+        ifSet(event.getTransactionId(), builder::setTransactionId);
+        ifSet(event.getReason(), builder::setReason);
+        return builder.build();
+    }
+
+    private static TransferFailedEvent transferFailed(TransferFailedEventData data) {
+        return TransferFailedEvent.builder()
+            .eventId(data.getEventId())
+            .accountId(data.getAccountId())
+            .operatorId(data.hasOperatorId() ? data.getOperatorId() : null)
+            .timestamp(data.hasTimestamp() ? Instant.parse(data.getTimestamp()) : null)
+            .targetAccountId(data.hasTargetAccountId() ? data.getTargetAccountId() : null)
+            .amount(decimal(data.hasAmountValue(), data.getAmountValue(),
+                data.hasAmount(), data.getAmount()))
+            .transactionId(data.hasTransactionId() ? data.getTransactionId() : null)
+            .reason(data.hasReason() ? data.getReason() : null)
+            .build();
+    }
+
+    private static String format(Instant instant) {
+        return instant == null ? null : instant.toString();
+    }
+
+    private static Decimal decimal(BigDecimal value) {
+        return value == null ? null : Decimals.toMessage(value);
+    }
+
+    /**
+     * Amount of a Decimal field, or of the string field it replaced in older events
+     */
+    private static BigDecimal decimal(boolean present, Decimal value, boolean textPresent, String text) {
+        if (present) {
+            return Decimals.fromMessage(value);
+        }
+        return textPresent ? new BigDecimal(text) : null;
+    }
+
+    private static <T> void ifSet(T value, Consumer<T> setter) {
+        if (value != null) {
+            setter.accept(value);
+        }
+    }
+
+    private static <E extends BaseEvent, M extends MessageLite> EventCodec codec(
+            EventType type, Class<E> eventClass, Function<E, M> encoder, Parser<M> parser, Function<M, E> decoder) {
+        return new EventCodec() {
+            @Override
+            public EventType type() {
+                return type;
+            }
+
+            @Override
+            public MessageLite toMessage(BaseEvent event) {
+                return encoder.apply(eventClass.cast(event));
+            }
+
+            @Override
+            public BaseEvent parse(ByteBuffer payload) throws InvalidProtocolBufferException {
+                return decoder.apply(parser.parseFrom(payload));
+            }
+        };
+    }
+}
@@ -0,0 +1,198 @@
+package com.wallet.command.infrastructure.serialization;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.WireFormat;
+import com.wallet.command.event.proto.*;
+import com.wallet.enums.AssetType;
+import com.wallet.service.Decimal;
+import com.wallet.service.Decimals;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Reads an {@link EventProjection} straight from a protobuf payload. Fields are looked up
+ * by type id and field number; every other field is skipped over without being decoded.
+ * Amounts of older events are decimal strings, used when the Decimal field is absent.
+ */
+final class ProtobufEventProjector {
+    private enum Slot {
+        ACCOUNT_ID, TARGET_ACCOUNT_ID, TRANSACTION_ID, ASSET_TYPE, OPERATOR_ID, TIMESTAMP,
+        AMOUNT, AMOUNT_TEXT, INITIAL_BALANCE, INITIAL_BALANCE_TEXT,
+        MIN_BALANCE, MIN_BALANCE_TEXT, MAX_BALANCE, MAX_BALANCE_TEXT
+    }
+
+    private static final Slot[][] SLOTS;
+
+    static {
+        int maxId = 0;
+        for (EventType type : EventType.values()) {
+            maxId = Math.max(maxId, type.getId());
+        }
+        SLOTS = new Slot[maxId + 1][0];
+        for (EventType type : EventType.values()) {
+            // Every message starts with event_id, account_id, operator_id and timestamp
+            put(type, BaseEventData.OPERATOR_ID_FIELD_NUMBER, Slot.OPERATOR_ID);
+            put(type, BaseEventData.TIMESTAMP_FIELD_NUMBER, Slot.TIMESTAMP);
+        }
+        put(EventType.ACCOUNT_CREATED, AccountCreatedEventData.ACCOUNT_ID_FIELD_NUMBER, Slot.ACCOUNT_ID);
+        put(EventType.ACCOUNT_CREATED, AccountCreatedEventData.ASSET_TYPE_FIELD_NUMBER, Slot.ASSET_TYPE);
+        put(EventType.ACCOUNT_CREATED, AccountCreatedEventData.INITIAL_BALANCE_VALUE_FIELD_NUMBER,
+            Slot.INITIAL_BALANCE);
+        put(EventType.ACCOUNT_CREATED, AccountCreatedEventData.INITIAL_BALANCE_FIELD_NUMBER,
+            Slot.INITIAL_BALANCE_TEXT);
+        put(EventType.ACCOUNT_CREATED, AccountCreatedEventData.MIN_BALANCE_VALUE_FIELD_NUMBER, Slot.MIN_BALANCE);
+        put(EventType.ACCOUNT_CREATED, AccountCreatedEventData.MIN_BALANCE_FIELD_NUMBER, Slot.MIN_BALANCE_TEXT);
+        put(EventType.ACCOUNT_CREATED, AccountCreatedEventData.MAX_BALANCE_VALUE_FIELD_NUMBER, Slot.MAX_BALANCE);
+        put(EventType.ACCOUNT_CREATED, AccountCreatedEventData.MAX_BALANCE_FIELD_NUMBER, Slot.MAX_BALANCE_TEXT);
+        put(EventType.BALANCE_CHANGED, BalanceChangedEventData.AMOUNT_VALUE_FIELD_NUMBER, Slot.AMOUNT);
+        put(EventType.BALANCE_CHANGED, BalanceChangedEventData.AMOUNT_FIELD_NUMBER, Slot.AMOUNT_TEXT);
+        put(EventType.BALANCE_CHANGED, BalanceChangedEventData.TRANSACTION_ID_FIELD_NUMBER, Slot.TRANSACTION_ID);
+        put(EventType.TRANSFER_INITIATED, TransferInitiatedEventData.ACCOUNT_ID_FIELD_NUMBER, Slot.ACCOUNT_ID);
+        put(EventType.TRANSFER_INITIATED, TransferInitiatedEventData.TARGET_ACCOUNT_ID_FIELD_NUMBER,
+            Slot.TARGET_ACCOUNT_ID);
+        put(EventType.TRANSFER_INITIATED, TransferInitiatedEventData.AMOUNT_VALUE_FIELD_NUMBER, Slot.AMOUNT);
+        put(EventType.TRANSFER_INITIATED, TransferInitiatedEventData.AMOUNT_FIELD_NUMBER, Slot.AMOUNT_TEXT);
+        put(EventType.TRANSFER_INITIATED, TransferInitiatedEventData.TRANSACTION_ID_FIELD_NUMBER,
+            Slot.TRANSACTION_ID);
+        put(EventType.TRANSFER_COMPLETED, TransferCompletedEventData.TRANSACTION_ID_FIELD_NUMBER,
+            Slot.TRANSACTION_ID);
+    }
+
+    private ProtobufEventProjector() {
+    }
+
+    /**
+     * @param payload Payload of the current schema version, read in place
+     */
+    static void project(EventType type, ByteBuffer payload, EventProjection target) throws IOException {
+        target.reset(type, payload);
+        Slot[] slots = SLOTS[type.getId()];
+        int start = payload.position();
+        CodedInputStream input = CodedInputStream.newInstance(payload);
+        int tag;
+        while ((tag = input.readTag()) != 0) {
+            int field = WireFormat.getTagFieldNumber(tag);
+            Slot slot = field < slots.length ? slots[field] : null;
+            if (WireFormat.getTagWireType(tag) != WireFormat.WIRETYPE_LENGTH_DELIMITED) {
+                slot = null;
+            }
+            if (slot == null) {
+                input.skipField(tag);
+                continue;
+            }
+            switch (slot) {
+                case ACCOUNT_ID:
+                    target.setAccountId(input.readStringRequireUtf8());
+                    break;
+                case TARGET_ACCOUNT_ID:
+                    target.setTargetAccountId(input.readStringRequireUtf8());
+                    break;
+                case TRANSACTION_ID:
+                    target.setTransactionId(input.readStringRequireUtf8());
+                    break;
+                case ASSET_TYPE:
+                    target.setAssetType(AssetType.valueOf(input.readStringRequireUtf8()));
+                    break;
+                case OPERATOR_ID: {
+                    int length = input.readRawVarint32();
+                    target.locateOperatorId(start + input.getTotalBytesRead(), length);
+                    input.skipRawBytes(length);
+                    break;
+                }
+                case TIMESTAMP: {
+                    int length = input.readRawVarint32();
+                    target.locateTimestamp(start + input.getTotalBytesRead(), length);
+                    input.skipRawBytes(length);
+                    break;
+                }
+                case AMOUNT:
+                    target.setAmount(readDecimal(input));
+                    break;
+                case AMOUNT_TEXT:
+                    BigDecimal amount = new BigDecimal(input.readStringRequireUtf8());
+                    if (target.getAmount() == null) {
+                        target.setAmount(amount);
+                    }
+                    break;
+                case INITIAL_BALANCE:
+                    target.setInitialBalance(readDecimal(input));
+                    break;
+                case INITIAL_BALANCE_TEXT:
+                    BigDecimal initialBalance = new BigDecimal(input.readStringRequireUtf8());
+                    if (target.getInitialBalance() == null) {
+                        target.setInitialBalance(initialBalance);
+                    }
+                    break;
+                case MIN_BALANCE:
+                    target.setMinBalance(readDecimal(input));
+                    break;
+                case MIN_BALANCE_TEXT:
+                    BigDecimal minBalance = new BigDecimal(input.readStringRequireUtf8());
+                    if (target.getMinBalance() == null) {
+                        target.setMinBalance(minBalance);
+                    }
+                    break;
+                case MAX_BALANCE:
+                    target.setMaxBalance(readDecimal(input));
+                    break;
+                case MAX_BALANCE_TEXT:
+                    BigDecimal maxBalance = new BigDecimal(input.readStringRequireUtf8());
+                    if (target.getMaxBalance() == null) {
+                        target.setMaxBalance(maxBalance);
+                    }
+                    break;
+                default:
+                    input.skipField(tag);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Read an embedded Decimal message without building it
+     */
+    private static BigDecimal readDecimal(CodedInputStream input) throws IOException {
+        int limit = input.pushLimit(input.readRawVarint32());
+        long unscaled = 0;
+        byte[] bigUnscaled = null;
+        boolean present = false;
+        int scale = 0;
+        int tag;
+        while ((tag = input.readTag()) != 0) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case Decimal.UNSCALED_LONG_FIELD_NUMBER:
+                    unscaled = input.readSInt64();
+                    bigUnscaled = null;
+                    present = true;
+                    break;
+                case Decimal.UNSCALED_BYTES_FIELD_NUMBER:
+                    bigUnscaled = input.readByteArray();
+                    present = true;
+                    break;
+                case Decimal.SCALE_FIELD_NUMBER:
+                    scale = input.readInt32();
+                    break;
+                default:
+                    input.skipField(tag);
+                    break;
+            }
+        }
+        input.popLimit(limit);
+        if (!present) {
+            throw new IllegalArgumentException("Invalid amount: no unscaled value");
+        }
+        return bigUnscaled != null ? Decimals.fromBytes(bigUnscaled, scale) : BigDecimal.valueOf(unscaled, scale);
+    }
+
+    private static void put(EventType type, int field, Slot slot) {
+        Slot[] slots = SLOTS[type.getId()];
+        if (field >= slots.length) {
+            slots = Arrays.copyOf(slots, field + 1);
+            SLOTS[type.getId()] = slots;
+        }
+        slots[field] = slot;
+    }
+}
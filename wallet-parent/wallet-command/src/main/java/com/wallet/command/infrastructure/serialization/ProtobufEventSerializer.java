@@ -1,284 +1,151 @@
 package com.wallet.command.infrastructure.serialization;
 
-import com.wallet.command.event.*;
-import com.wallet.command.event.proto.*;
-import com.wallet.enums.AssetType;
-import lombok.RequiredArgsConstructor;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.MessageLite;
+import com.wallet.command.event.BaseEvent;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.stereotype.Component;
-import java.math.BigDecimal;
-import java.time.Instant;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Base64;
 import java.util.List;
-import java.util.ArrayList;
 import java.util.stream.Collectors;
 
+/**
+ * Protobuf serializer, the default storage and wire format. Events are dispatched to their
+ * codec by the numeric id of their {@link EventType}; see {@link ProtobufEventCodecs}.
+ *
+ * Events written before protobuf became the default stay readable: JSON envelopes and
+ * JSON text, such as old event_data rows, are read with {@link JacksonEventSerializer}.
+ * The String form is Base64, which never starts with '{'.
+ *
+ * Envelopes of older schema versions are upcast before they are parsed. String payloads
+ * carry no schema version and are read as current.
+ */
 @Slf4j
-@Component
-@RequiredArgsConstructor
 public class ProtobufEventSerializer implements EventSerializer {
+    private final EventCodecRegistry registry;
+    private final EventUpcasterChain upcasters;
+    private final EventSerializer legacyJson;
+
+    public ProtobufEventSerializer() {
+        this(ProtobufEventCodecs.registry(), EventUpcasters.chain());
+    }
+
+    public ProtobufEventSerializer(EventCodecRegistry registry, EventUpcasterChain upcasters) {
+        this.registry = registry;
+        this.upcasters = upcasters;
+        // Envelopes are upcast before they are handed over
+        this.legacyJson = new JacksonEventSerializer(EventUpcasterChain.none());
+    }
 
     @Override
     public String serialize(BaseEvent event) {
-        // Implementation for serializing a single event
-        return serializeEvent(event);
+        return Base64.getEncoder().encodeToString(toMessage(event).toByteArray());
     }
 
     @Override
     public String serializeList(List<BaseEvent> events) {
-        // Implementation for serializing a list of events
         return events.stream()
-                .map(this::serializeEvent)
+                .map(this::serialize)
                 .collect(Collectors.joining(",", "[", "]"));
     }
 
     @Override
     public BaseEvent deserialize(String data, String eventType) throws EventDeserializationException {
+        if (data.startsWith("{")) {
+            return legacyJson.deserialize(data, eventType);
+        }
         try {
-            return deserializeEvent(data, eventType);
+            return fromPayload(EventType.fromName(eventType), ByteBuffer.wrap(Base64.getDecoder().decode(data)));
+        } catch (EventDeserializationException e) {
+            throw e;
         } catch (Exception e) {
-            throw new EventDeserializationException("Failed to deserialize event", e);
+            throw new EventDeserializationException("Failed to deserialize event of type " + eventType, e);
         }
     }
 
     @Override
     public List<BaseEvent> deserializeList(String data, List<String> eventTypes) throws EventDeserializationException {
-        try {
-            List<BaseEvent> events = new ArrayList<>();
-            String[] eventDataArray = data.substring(1, data.length() - 1).split(",");
-            
-            if (eventDataArray.length != eventTypes.size()) {
-                throw new EventDeserializationException("Number of events does not match number of event types");
-            }
-            
-            for (int i = 0; i < eventDataArray.length; i++) {
-                events.add(deserializeEvent(eventDataArray[i], eventTypes.get(i)));
-            }
-            
-            return events;
-        } catch (Exception e) {
-            throw new EventDeserializationException("Failed to deserialize event list", e);
+        String[] eventDataArray = data.substring(1, data.length() - 1).split(",");
+        if (eventDataArray.length != eventTypes.size()) {
+            throw new EventDeserializationException("Number of events does not match number of event types");
         }
-    }
-
-    private String serializeEvent(BaseEvent event) {
-        // Implementation for specific event types
-        if (event instanceof AccountCreatedEvent) {
-            return serializeAccountCreatedEvent((AccountCreatedEvent) event);
-        } else if (event instanceof BalanceChangedEvent) {
-            return serializeBalanceChangedEvent((BalanceChangedEvent) event);
-        } else if (event instanceof AccountFrozenEvent) {
-            return serializeAccountFrozenEvent((AccountFrozenEvent) event);
-        } else if (event instanceof AccountUnfrozenEvent) {
-            return serializeAccountUnfrozenEvent((AccountUnfrozenEvent) event);
-        } else if (event instanceof AccountClosedEvent) {
-            return serializeAccountClosedEvent((AccountClosedEvent) event);
-        }
-        throw new IllegalArgumentException("Unsupported event type: " + event.getClass().getName());
-    }
-
-    private BaseEvent deserializeEvent(String data, String eventType) throws EventDeserializationException {
-        try {
-            switch (eventType) {
-                case "com.wallet.command.event.AccountCreatedEvent":
-                    return deserializeAccountCreatedEvent(data);
-                case "com.wallet.command.event.BalanceChangedEvent":
-                    return deserializeBalanceChangedEvent(data);
-                case "com.wallet.command.event.AccountFrozenEvent":
-                    return deserializeAccountFrozenEvent(data);
-                case "com.wallet.command.event.AccountUnfrozenEvent":
-                    return deserializeAccountUnfrozenEvent(data);
-                case "com.wallet.command.event.AccountClosedEvent":
-                    return deserializeAccountClosedEvent(data);
-                default:
-                    throw new EventDeserializationException("Unsupported event type: " + eventType);
-            }
-        } catch (Exception e) {
-            throw new EventDeserializationException("Failed to deserialize event", e);
+        List<BaseEvent> events = new ArrayList<>(eventDataArray.length);
+        for (int i = 0; i < eventDataArray.length; i++) {
+            events.add(deserialize(eventDataArray[i], eventTypes.get(i)));
         }
+        return events;
     }
 
-    // Implement specific serialization methods for each event type
-    private String serializeAccountCreatedEvent(AccountCreatedEvent event) {
-        // Implementation
-        return Base64.getEncoder().encodeToString(buildAccountCreatedEventData(event).build().toByteArray());
-    }
-
-    private String serializeBalanceChangedEvent(BalanceChangedEvent event) {
-        // Implementation
-        return Base64.getEncoder().encodeToString(buildBalanceChangedEventData(event).build().toByteArray());
-    }
-
-    private String serializeAccountFrozenEvent(AccountFrozenEvent event) {
-        // Implementation
-        return Base64.getEncoder().encodeToString(buildAccountFrozenEventData(event).build().toByteArray());
-    }
-
-    private String serializeAccountUnfrozenEvent(AccountUnfrozenEvent event) {
-        // Implementation
-        return Base64.getEncoder().encodeToString(buildAccountUnfrozenEventData(event).build().toByteArray());
-    }
-
-    private String serializeAccountClosedEvent(AccountClosedEvent event) {
-        // Implementation
-        return Base64.getEncoder().encodeToString(buildAccountClosedEventData(event).build().toByteArray());
+    @Override
+    public PayloadFormat getPayloadFormat() {
+        return PayloadFormat.PROTOBUF;
     }
 
-    // Implement specific deserialization methods for each event type
-    private AccountCreatedEvent deserializeAccountCreatedEvent(String data) throws EventDeserializationException {
+    @Override
+    public void serialize(BaseEvent event, PayloadBuffer buffer) {
+        MessageLite message = toMessage(event);
+        int size = message.getSerializedSize();
+        int offset = buffer.claim(size);
         try {
-            byte[] bytes = Base64.getDecoder().decode(data);
-            AccountCreatedEventData message = AccountCreatedEventData.parseFrom(bytes);
-            return buildAccountCreatedEvent(message);
-        } catch (Exception e) {
-            throw new EventDeserializationException("Failed to deserialize AccountCreatedEvent", e);
+            CodedOutputStream output = CodedOutputStream.newInstance(buffer.array(), offset, size);
+            message.writeTo(output);
+            output.checkNoSpaceLeft();
+        } catch (IOException e) {
+            throw new EventDeserializationException("Failed to serialize event", e);
         }
     }
 
-    private BalanceChangedEvent deserializeBalanceChangedEvent(String data) throws EventDeserializationException {
-        try {
-            byte[] bytes = Base64.getDecoder().decode(data);
-            BalanceChangedEventData message = BalanceChangedEventData.parseFrom(bytes);
-            return buildBalanceChangedEvent(message);
-        } catch (Exception e) {
-            throw new EventDeserializationException("Failed to deserialize BalanceChangedEvent", e);
+    @Override
+    public BaseEvent deserialize(EventEnvelope envelope) throws EventDeserializationException {
+        envelope = upcasters.upcast(envelope);
+        switch (envelope.getFormat()) {
+            case JSON:
+                return legacyJson.deserialize(envelope);
+            case PROTOBUF_BASE64:
+            case PROTOBUF:
+                break;
+            default:
+                throw EventDeserializationException.unsupportedFormat(envelope, getPayloadFormat());
         }
-    }
-
-    private AccountFrozenEvent deserializeAccountFrozenEvent(String data) throws EventDeserializationException {
         try {
-            byte[] bytes = Base64.getDecoder().decode(data);
-            AccountFrozenEventData message = AccountFrozenEventData.parseFrom(bytes);
-            return buildAccountFrozenEvent(message);
-        } catch (Exception e) {
-            throw new EventDeserializationException("Failed to deserialize AccountFrozenEvent", e);
+            ByteBuffer payload = envelope.getFormat() == PayloadFormat.PROTOBUF
+                ? envelope.payloadBuffer()
+                : ByteBuffer.wrap(Base64.getDecoder().decode(envelope.payloadAsString()));
+            return fromPayload(envelope.getType(), payload);
+        } catch (InvalidProtocolBufferException | IllegalArgumentException e) {
+            throw new EventDeserializationException("Failed to deserialize " + envelope.getType(), e);
         }
     }
 
-    private AccountUnfrozenEvent deserializeAccountUnfrozenEvent(String data) throws EventDeserializationException {
-        try {
-            byte[] bytes = Base64.getDecoder().decode(data);
-            AccountUnfrozenEventData message = AccountUnfrozenEventData.parseFrom(bytes);
-            return buildAccountUnfrozenEvent(message);
-        } catch (Exception e) {
-            throw new EventDeserializationException("Failed to deserialize AccountUnfrozenEvent", e);
+    @Override
+    public void project(EventEnvelope envelope, EventProjection target) throws EventDeserializationException {
+        envelope = upcasters.upcast(envelope);
+        if (envelope.getFormat() != PayloadFormat.PROTOBUF) {
+            target.project(deserialize(envelope));
+            return;
         }
-    }
-
-    private AccountClosedEvent deserializeAccountClosedEvent(String data) throws EventDeserializationException {
         try {
-            byte[] bytes = Base64.getDecoder().decode(data);
-            AccountClosedEventData message = AccountClosedEventData.parseFrom(bytes);
-            return buildAccountClosedEvent(message);
-        } catch (Exception e) {
-            throw new EventDeserializationException("Failed to deserialize AccountClosedEvent", e);
+            ProtobufEventProjector.project(envelope.getType(), envelope.payloadBuffer(), target);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new EventDeserializationException("Failed to project " + envelope.getType(), e);
         }
     }
 
-    private AccountCreatedEventData.Builder buildAccountCreatedEventData(AccountCreatedEvent event) {
-        return AccountCreatedEventData.newBuilder()
-                .setEventId(event.getEventId())
-                .setAccountId(event.getAccountId())
-                .setOperatorId(event.getOperatorId())
-                .setTimestamp(event.getTimestamp().toString())
-                .setInitialBalance(event.getInitialBalance().toString())
-                .setAssetType(event.getAssetType().name())
-                .setMinBalance(event.getMinBalance().toString())
-                .setMaxBalance(event.getMaxBalance().toString());
-    }
-
-    private BalanceChangedEventData.Builder buildBalanceChangedEventData(BalanceChangedEvent event) {
-        return BalanceChangedEventData.newBuilder()
-                .setEventId(event.getEventId())
-                .setAccountId(event.getAccountId())
-                .setOperatorId(event.getOperatorId())
-                .setTimestamp(event.getTimestamp().toString())
-                .setAmount(event.getAmount().toString())
-                .setTransactionId(event.getTransactionId())
-                .setTargetAccountId(event.getTargetAccountId());
-    }
-
-    private AccountFrozenEventData.Builder buildAccountFrozenEventData(AccountFrozenEvent event) {
-        return AccountFrozenEventData.newBuilder()
-                .setEventId(event.getEventId())
-                .setAccountId(event.getAccountId())
-                .setOperatorId(event.getOperatorId())
-                .setTimestamp(event.getTimestamp().toString())
-                .setReason(event.getReason());
-    }
-
-    private AccountUnfrozenEventData.Builder buildAccountUnfrozenEventData(AccountUnfrozenEvent event) {
-        return AccountUnfrozenEventData.newBuilder()
-                .setEventId(event.getEventId())
-                .setAccountId(event.getAccountId())
-                .setOperatorId(event.getOperatorId())
-                .setTimestamp(event.getTimestamp().toString())
-                .setReason(event.getReason());
-    }
-
-    private AccountClosedEventData.Builder buildAccountClosedEventData(AccountClosedEvent event) {
-        return AccountClosedEventData.newBuilder()
-                .setEventId(event.getEventId())
-                .setAccountId(event.getAccountId())
-                .setOperatorId(event.getOperatorId())
-                .setTimestamp(event.getTimestamp().toString())
-                .setReason(event.getReason())
-                .setFinalBalance(event.getFinalBalance().toString());
-    }
-
-    private AccountCreatedEvent buildAccountCreatedEvent(AccountCreatedEventData eventData) {
-        return AccountCreatedEvent.builder()
-                .eventId(eventData.getEventId())
-                .accountId(eventData.getAccountId())
-                .operatorId(eventData.getOperatorId())
-                .timestamp(Instant.parse(eventData.getTimestamp()))
-                .initialBalance(new BigDecimal(eventData.getInitialBalance()))
-                .assetType(AssetType.valueOf(eventData.getAssetType()))
-                .minBalance(new BigDecimal(eventData.getMinBalance()))
-                .maxBalance(new BigDecimal(eventData.getMaxBalance()))
-                .build();
-    }
-
-    private BalanceChangedEvent buildBalanceChangedEvent(BalanceChangedEventData eventData) {
-        return BalanceChangedEvent.builder()
-                .eventId(eventData.getEventId())
-                .accountId(eventData.getAccountId())
-                .operatorId(eventData.getOperatorId())
-                .timestamp(Instant.parse(eventData.getTimestamp()))
-                .amount(new BigDecimal(eventData.getAmount()))
-                .transactionId(eventData.getTransactionId())
-                .targetAccountId(eventData.getTargetAccountId())
-                .build();
-    }
-
-    private AccountFrozenEvent buildAccountFrozenEvent(AccountFrozenEventData eventData) {
-        return AccountFrozenEvent.builder()
-                .eventId(eventData.getEventId())
-                .accountId(eventData.getAccountId())
-                .operatorId(eventData.getOperatorId())
-                .timestamp(Instant.parse(eventData.getTimestamp()))
-                .reason(eventData.getReason())
-                .build();
+    @Override
+    public boolean supports(PayloadFormat format) {
+        return format == PayloadFormat.PROTOBUF || format == PayloadFormat.PROTOBUF_BASE64
+            || format == PayloadFormat.JSON;
     }
 
-    private AccountUnfrozenEvent buildAccountUnfrozenEvent(AccountUnfrozenEventData eventData) {
-        return AccountUnfrozenEvent.builder()
-                .eventId(eventData.getEventId())
-                .accountId(eventData.getAccountId())
-                .operatorId(eventData.getOperatorId())
-                .timestamp(Instant.parse(eventData.getTimestamp()))
-                .reason(eventData.getReason())
-                .build();
+    private MessageLite toMessage(BaseEvent event) {
+        return registry.codecFor(EventType.of(event)).toMessage(event);
     }
 
-    private AccountClosedEvent buildAccountClosedEvent(AccountClosedEventData eventData) {
-        return AccountClosedEvent.builder()
-                .eventId(eventData.getEventId())
-                .accountId(eventData.getAccountId())
-                .operatorId(eventData.getOperatorId())
-                .timestamp(Instant.parse(eventData.getTimestamp()))
-                .reason(eventData.getReason())
-                .finalBalance(new BigDecimal(eventData.getFinalBalance()))
-                .build();
+    private BaseEvent fromPayload(EventType type, ByteBuffer payload) throws InvalidProtocolBufferException {
+        return registry.codecFor(type).parse(payload);
     }
 }
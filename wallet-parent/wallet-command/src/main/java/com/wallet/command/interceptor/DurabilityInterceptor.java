@@ -0,0 +1,51 @@
+package com.wallet.command.interceptor;
+
+import com.wallet.command.model.Durability;
+import io.grpc.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Locale;
+
+/**
+ * Reads the durability a caller asks for from the x-durability header (ASYNC, GROUP_SYNC
+ * or SYNC) and exposes it to the service through the gRPC context of the call. The header
+ * can only raise the level configured for a command type, never lower it.
+ */
+public class DurabilityInterceptor implements ServerInterceptor {
+    private static final Logger logger = LoggerFactory.getLogger(DurabilityInterceptor.class);
+
+    public static final Metadata.Key<String> DURABILITY_HEADER =
+            Metadata.Key.of("x-durability", Metadata.ASCII_STRING_MARSHALLER);
+
+    private static final Context.Key<Durability> REQUESTED = Context.key("durability");
+
+    /**
+     * @return Durability requested by the current call, or null if none was
+     */
+    public static Durability requested() {
+        return REQUESTED.get();
+    }
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+            ServerCall<ReqT, RespT> call,
+            Metadata headers,
+            ServerCallHandler<ReqT, RespT> next) {
+
+        String value = headers.get(DURABILITY_HEADER);
+        if (value == null) {
+            return next.startCall(call, headers);
+        }
+        Durability durability;
+        try {
+            durability = Durability.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            logger.error("Unknown durability requested: {}", value);
+            call.close(Status.INVALID_ARGUMENT
+                    .withDescription("Unknown durability: " + value), new Metadata());
+            return new ServerCall.Listener<ReqT>() {};
+        }
+        return Contexts.interceptCall(Context.current().withValue(REQUESTED, durability), call, headers, next);
+    }
+}
@@ -0,0 +1,15 @@
+package com.wallet.command.model;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Point-in-time account state together with the version of the last event folded into it
+ */
+@Getter
+@Builder
+public class AccountSnapshot {
+    private String accountId;
+    private long version;
+    private AccountState state;
+}
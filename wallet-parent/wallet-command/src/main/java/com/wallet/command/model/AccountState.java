@@ -1,6 +1,7 @@
 package com.wallet.command.model;
 
-import com.wallet.command.event.*;
+import com.wallet.command.event.BaseEvent;
+import com.wallet.command.infrastructure.serialization.EventProjection;
 import com.wallet.enums.AccountStatus;
 import com.wallet.enums.AssetType;
 import lombok.Builder;
@@ -8,10 +9,11 @@ import lombok.Getter;
 
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.Iterator;
 import java.util.List;
 
 @Getter
-@Builder
+@Builder(toBuilder = true)
 public class AccountState {
     private String accountId;
     private AssetType assetType;
@@ -55,57 +57,110 @@ public class AccountState {
             throw new IllegalArgumentException("Events list cannot be null or empty");
         }
 
-        BaseEvent lastEvent = events.get(events.size() - 1);
-        AccountStateBuilder builder = AccountState.builder()
-                .lastUpdated(lastEvent.getTimestamp())
-                .lastOperatorId(lastEvent.getOperatorId());
+        return fold(AccountState.builder().build(), EventProjection.projecting(events.iterator()));
+    }
 
-        // Apply each event in sequence
-        for (BaseEvent event : events) {
-            if (event instanceof AccountCreatedEvent) {
-                applyAccountCreated(builder, (AccountCreatedEvent) event);
-            } else if (event instanceof BalanceChangedEvent) {
-                applyBalanceChanged(builder, (BalanceChangedEvent) event);
-            } else if (event instanceof AccountFrozenEvent) {
-                builder.status(AccountStatus.FROZEN);
-            } else if (event instanceof AccountUnfrozenEvent) {
-                builder.status(AccountStatus.ACTIVE);
-            } else if (event instanceof TransferInitiatedEvent) {
-                applyTransferInitiated(builder, (TransferInitiatedEvent) event);
-            } else if (event instanceof TransferCompletedEvent) {
-                applyTransferCompleted(builder, (TransferCompletedEvent) event);
-            }
+    /**
+     * Rebuild state from a snapshot and the events appended after it
+     *
+     * @param snapshot State as of the snapshot version
+     * @param events Events after the snapshot version, possibly empty
+     */
+    public static AccountState fromSnapshot(AccountState snapshot, List<BaseEvent> events) {
+        if (events == null || events.isEmpty()) {
+            return snapshot;
         }
-
-        return builder.build();
+        return fold(snapshot, EventProjection.projecting(events.iterator()));
     }
 
-    private static void applyAccountCreated(AccountStateBuilder builder, AccountCreatedEvent event) {
-        builder.accountId(event.getAccountId())
-              .assetType(event.getAssetType())
-              .balance(event.getInitialBalance())
-              .minBalance(event.getMinBalance())
-              .maxBalance(event.getMaxBalance())
-              .status(AccountStatus.ACTIVE);
+    /**
+     * Fold a stream of events, consuming it one event at a time
+     *
+     * @param snapshot State to start from, or null to start from an empty account
+     * @param events Events after the snapshot version, possibly empty
+     * @return Folded state, or the snapshot when there were no events
+     */
+    public static AccountState fromSnapshot(AccountState snapshot, Iterator<? extends BaseEvent> events) {
+        return fromProjections(snapshot, EventProjection.projecting(events));
     }
 
-    private static void applyBalanceChanged(AccountStateBuilder builder, BalanceChangedEvent event) {
-        AccountState currentState = builder.build();
-        builder.balance(currentState.getBalance().add(event.getAmount()))
-              .lastTransactionId(event.getTransactionId());
+    /**
+     * Fold a stream of event projections, which carry only the fields the fold reads
+     *
+     * @param snapshot State to start from, or null to start from an empty account
+     * @param events Projections of the events after the snapshot version, possibly empty
+     * @return Folded state, or the snapshot when there were no events
+     */
+    public static AccountState fromProjections(AccountState snapshot, Iterator<EventProjection> events) {
+        if (!events.hasNext()) {
+            return snapshot;
+        }
+        return fold(snapshot == null ? AccountState.builder().build() : snapshot, events);
     }
 
-    private static void applyTransferInitiated(AccountStateBuilder builder, TransferInitiatedEvent event) {
-        AccountState currentState = builder.build();
-        if (event.getAccountId().equals(currentState.getAccountId())) {
-            builder.balance(currentState.getBalance().subtract(event.getAmount()));
-        } else if (event.getTargetAccountId().equals(currentState.getAccountId())) {
-            builder.balance(currentState.getBalance().add(event.getAmount()));
+    /**
+     * Apply each event in sequence to local copies of the state, which is built once at the end
+     */
+    private static AccountState fold(AccountState state, Iterator<EventProjection> events) {
+        String accountId = state.accountId;
+        AssetType assetType = state.assetType;
+        BigDecimal balance = state.balance;
+        BigDecimal minBalance = state.minBalance;
+        BigDecimal maxBalance = state.maxBalance;
+        AccountStatus status = state.status;
+        String lastTransactionId = state.lastTransactionId;
+        EventProjection lastEvent = null;
+
+        while (events.hasNext()) {
+            EventProjection event = events.next();
+            lastEvent = event;
+            switch (event.getType()) {
+                case ACCOUNT_CREATED:
+                    accountId = event.getAccountId();
+                    assetType = event.getAssetType();
+                    balance = event.getInitialBalance();
+                    minBalance = event.getMinBalance();
+                    maxBalance = event.getMaxBalance();
+                    status = AccountStatus.ACTIVE;
+                    break;
+                case BALANCE_CHANGED:
+                    balance = balance.add(event.getAmount());
+                    lastTransactionId = event.getTransactionId();
+                    break;
+                case ACCOUNT_FROZEN:
+                    status = AccountStatus.FROZEN;
+                    break;
+                case ACCOUNT_UNFROZEN:
+                    status = AccountStatus.ACTIVE;
+                    break;
+                case TRANSFER_INITIATED:
+                    if (event.getAccountId().equals(accountId)) {
+                        balance = balance.subtract(event.getAmount());
+                    } else if (event.getTargetAccountId().equals(accountId)) {
+                        balance = balance.add(event.getAmount());
+                    }
+                    lastTransactionId = event.getTransactionId();
+                    break;
+                case TRANSFER_COMPLETED:
+                    lastTransactionId = event.getTransactionId();
+                    break;
+                default:
+                    break;
+            }
         }
-        builder.lastTransactionId(event.getTransactionId());
-    }
 
-    private static void applyTransferCompleted(AccountStateBuilder builder, TransferCompletedEvent event) {
-        builder.lastTransactionId(event.getTransactionId());
+        AccountStateBuilder builder = state.toBuilder()
+            .accountId(accountId)
+            .assetType(assetType)
+            .balance(balance)
+            .minBalance(minBalance)
+            .maxBalance(maxBalance)
+            .status(status)
+            .lastTransactionId(lastTransactionId);
+        if (lastEvent != null) {
+            builder.lastUpdated(lastEvent.getTimestamp())
+                    .lastOperatorId(lastEvent.getOperatorId());
+        }
+        return builder.build();
     }
 }
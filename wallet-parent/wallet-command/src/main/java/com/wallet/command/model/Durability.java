@@ -0,0 +1,27 @@
+package com.wallet.command.model;
+
+/**
+ * How durable an append must be before it is acknowledged. Levels are ordered from
+ * weakest to strongest.
+ */
+public enum Durability {
+    /**
+     * Written to the write-ahead log without waiting for fsync; survives a process crash,
+     * but the last writes may be lost if the machine fails
+     */
+    ASYNC,
+
+    /**
+     * Synced to disk with the rest of its commit group, so concurrent appends share one fsync
+     */
+    GROUP_SYNC,
+
+    /**
+     * Synced to disk without waiting for a commit group to fill
+     */
+    SYNC;
+
+    public Durability atLeast(Durability other) {
+        return other != null && other.compareTo(this) > 0 ? other : this;
+    }
+}
@@ -2,6 +2,7 @@ package com.wallet.command.model.command;
 
 import com.wallet.command.event.BaseEvent;
 import com.wallet.command.model.AccountState;
+import com.wallet.command.model.Durability;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.experimental.SuperBuilder;
@@ -18,6 +19,7 @@ public abstract class BaseCommand implements Command {
     protected String accountId;
     protected String operatorId;
     protected Instant timestamp;
+    protected Durability durability;
 
     protected BaseCommand(String accountId, String operatorId) {
         this.commandId = UUID.randomUUID().toString();
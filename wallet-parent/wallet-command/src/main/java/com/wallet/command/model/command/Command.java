@@ -2,6 +2,7 @@ package com.wallet.command.model.command;
 
 import com.wallet.command.event.BaseEvent;
 import com.wallet.command.model.AccountState;
+import com.wallet.command.model.Durability;
 
 import java.util.List;
 
@@ -9,4 +10,11 @@ public interface Command {
     String getAccountId();
     List<BaseEvent> validate(AccountState accountState);
     List<BaseEvent> execute(AccountState accountState);
+
+    /**
+     * Durability requested for this command, or null to use the level configured for its type
+     */
+    default Durability getDurability() {
+        return null;
+    }
 }
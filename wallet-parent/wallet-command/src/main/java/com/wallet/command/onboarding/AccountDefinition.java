@@ -0,0 +1,38 @@
+package com.wallet.command.onboarding;
+
+import com.wallet.command.model.command.CreateAccountCommand;
+import com.wallet.enums.AssetType;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * One account of a bulk import file, given as one JSON object per line
+ */
+@Data
+public class AccountDefinition {
+    private String accountId;
+    private String ownerId;
+    private String currency;
+    private AssetType assetType;
+    private BigDecimal initialBalance;
+    private BigDecimal minBalance;
+    private BigDecimal maxBalance;
+    private String operatorId;
+
+    /**
+     * The command a CreateAccount call with this definition would run
+     */
+    public CreateAccountCommand toCommand() {
+        return CreateAccountCommand.builder()
+            .accountId(accountId)
+            .ownerId(ownerId)
+            .currency(currency)
+            .assetType(assetType)
+            .initialBalance(initialBalance)
+            .minBalance(minBalance)
+            .maxBalance(maxBalance)
+            .operatorId(operatorId)
+            .build();
+    }
+}
@@ -0,0 +1,56 @@
+package com.wallet.command.onboarding;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a bulk account import
+ */
+@Data
+@Builder
+public class ImportResult {
+    /**
+     * Whether the file was valid; nothing is imported from a file with errors
+     */
+    private boolean valid;
+
+    /**
+     * Account definitions read from the file
+     */
+    private long accounts;
+
+    /**
+     * Accounts created by this import
+     */
+    private long imported;
+
+    /**
+     * Accounts left out because they already existed
+     */
+    private long existing;
+
+    /**
+     * IDs of the accounts that already existed, up to the reported limit
+     */
+    @Builder.Default
+    private List<String> existingIds = new ArrayList<>();
+
+    /**
+     * Validation errors by line, up to the reported limit
+     */
+    @Builder.Default
+    private List<String> errors = new ArrayList<>();
+
+    /**
+     * Validation errors found, including those beyond the reported limit
+     */
+    private long errorCount;
+
+    /**
+     * AccountCreated events whose publication failed; they remain in the event store's log
+     */
+    private long unpublishedEvents;
+}
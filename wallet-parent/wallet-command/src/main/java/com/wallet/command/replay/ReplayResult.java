@@ -1,7 +1,7 @@
 package com.wallet.command.replay;
 
 import com.wallet.command.event.BaseEvent;
-import com.wallet.command.model.AggregateRoot;
+import com.wallet.command.model.AccountState;
 import lombok.Builder;
 import lombok.Data;
 
@@ -15,9 +15,9 @@ import java.util.List;
 @Builder
 public class ReplayResult {
     /**
-     * The aggregate root after replay
+     * Account state after replay, null if the account had no events by then
      */
-    private AggregateRoot aggregate;
+    private AccountState state;
 
     /**
      * List of successfully applied events
@@ -0,0 +1,188 @@
+package com.wallet.command.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wallet.command.config.RocksDBProperties;
+import com.wallet.command.event.BaseEvent;
+import com.wallet.command.infrastructure.repository.EventKeyCodec;
+import com.wallet.command.infrastructure.repository.RocksDBEventStore;
+import com.wallet.command.model.command.CreateAccountCommand;
+import com.wallet.command.onboarding.AccountDefinition;
+import com.wallet.command.onboarding.ImportResult;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Onboards accounts in bulk from a file of account definitions, one JSON object per line.
+ *
+ * The whole file is validated first with the checks of {@link CreateAccountCommand}, plus
+ * unique account IDs; a file with any error imports nothing. Valid files are imported in
+ * chunks of rocksdb.bulk-import.chunk-size accounts, each written as sorted SST files and
+ * ingested into the event store without a command or a write per account. Accounts that
+ * already exist are left untouched, so an interrupted import can be run again.
+ * The AccountCreated events of each chunk are then published in batches, and the next
+ * chunk starts once they were sent.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "event-store.engine", havingValue = "rocksdb", matchIfMissing = true)
+public class AccountImportService {
+    private static final String METRIC_IMPORT = "wallet.account.import";
+    private static final String METRIC_IMPORTED_ACCOUNTS = "wallet.account.import.accounts";
+
+    private final RocksDBEventStore eventStore;
+    private final EventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final RocksDBProperties.BulkImport settings;
+
+    public AccountImportService(RocksDBEventStore eventStore, EventPublisher eventPublisher, ObjectMapper objectMapper,
+                                MeterRegistry meterRegistry, RocksDBProperties properties) {
+        this.eventStore = eventStore;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.settings = properties.getBulkImport();
+    }
+
+    /**
+     * Validate and import a file of account definitions
+     *
+     * @param file Path of the file on the server
+     */
+    public ImportResult importAccounts(String file) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            Path path = Paths.get(file);
+            ImportResult result = validate(path);
+            if (result.isValid()) {
+                importValid(path, result);
+            }
+            sample.stop(meterRegistry.timer(METRIC_IMPORT, "status", result.isValid() ? "success" : "invalid"));
+            return result;
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to import accounts from: {}", file, e);
+            sample.stop(meterRegistry.timer(METRIC_IMPORT, "status", "error"));
+            throw new RuntimeException("Failed to import accounts from " + file, e);
+        }
+    }
+
+    private ImportResult validate(Path path) throws IOException {
+        ImportResult result = ImportResult.builder().build();
+        Set<String> accountIds = new HashSet<>();
+        long lineNumber = 0;
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                result.setAccounts(result.getAccounts() + 1);
+                try {
+                    CreateAccountCommand command = parse(line);
+                    if (command.getAccountId() == null || command.getAccountId().trim().isEmpty()) {
+                        throw new IllegalArgumentException("Account ID must not be empty");
+                    }
+                    EventKeyCodec.aggregatePrefix(command.getAccountId());
+                    command.validate(null);
+                    if (!accountIds.add(command.getAccountId())) {
+                        throw new IllegalArgumentException("Duplicate account ID: " + command.getAccountId());
+                    }
+                } catch (IllegalArgumentException | IOException e) {
+                    result.setErrorCount(result.getErrorCount() + 1);
+                    if (result.getErrors().size() < settings.getReportLimit()) {
+                        result.getErrors().add("line " + lineNumber + ": " + e.getMessage());
+                    }
+                }
+            }
+        }
+        result.setValid(result.getErrorCount() == 0);
+        return result;
+    }
+
+    private void importValid(Path path, ImportResult result) throws IOException {
+        AtomicLong unpublished = new AtomicLong();
+        Map<String, List<BaseEvent>> chunk = new LinkedHashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                CreateAccountCommand command = parse(line);
+                chunk.put(command.getAccountId(), command.execute(null));
+                if (chunk.size() >= settings.getChunkSize()) {
+                    importChunk(chunk, result, unpublished);
+                }
+            }
+        }
+        if (!chunk.isEmpty()) {
+            importChunk(chunk, result, unpublished);
+        }
+        result.setUnpublishedEvents(unpublished.get());
+        log.info("Imported {} of {} accounts from {}, {} already existed",
+            result.getImported(), result.getAccounts(), path, result.getExisting());
+    }
+
+    private void importChunk(Map<String, List<BaseEvent>> chunk, ImportResult result, AtomicLong unpublished) {
+        Set<String> existing = eventStore.ingestNewAggregates(chunk);
+        result.setExisting(result.getExisting() + existing.size());
+        for (String accountId : existing) {
+            if (result.getExistingIds().size() >= settings.getReportLimit()) {
+                break;
+            }
+            result.getExistingIds().add(accountId);
+        }
+        existing.forEach(chunk::remove);
+        result.setImported(result.getImported() + chunk.size());
+        meterRegistry.counter(METRIC_IMPORTED_ACCOUNTS, "result", "imported").increment(chunk.size());
+        meterRegistry.counter(METRIC_IMPORTED_ACCOUNTS, "result", "existing").increment(existing.size());
+
+        List<CompletableFuture<Void>> publications = new ArrayList<>();
+        List<BaseEvent> batch = new ArrayList<>(settings.getPublishBatchSize());
+        for (List<BaseEvent> events : chunk.values()) {
+            batch.addAll(events);
+            if (batch.size() >= settings.getPublishBatchSize()) {
+                publications.add(publish(batch, unpublished));
+                batch = new ArrayList<>(settings.getPublishBatchSize());
+            }
+        }
+        if (!batch.isEmpty()) {
+            publications.add(publish(batch, unpublished));
+        }
+        // The events are in the store's log whatever happens to their publication
+        publications.forEach(publication -> publication.exceptionally(e -> null).join());
+        chunk.clear();
+    }
+
+    private CompletableFuture<Void> publish(List<BaseEvent> batch, AtomicLong unpublished) {
+        return eventPublisher.publish(batch).whenComplete((ignored, e) -> {
+            if (e != null) {
+                log.error("Failed to publish {} imported AccountCreated events", batch.size(), e);
+                unpublished.addAndGet(batch.size());
+            }
+        });
+    }
+
+    private CreateAccountCommand parse(String line) throws IOException {
+        return objectMapper.readValue(line, AccountDefinition.class).toCommand();
+    }
+}
@@ -1,10 +1,13 @@
 package com.wallet.command.service;
 
+import com.wallet.command.config.DurabilityProperties;
 import com.wallet.command.event.*;
 import com.wallet.command.exception.InsufficientBalanceException;
+import com.wallet.command.infrastructure.repository.AggregateReadView;
 import com.wallet.command.infrastructure.repository.EventStore;
 import com.wallet.command.model.command.*;
 import com.wallet.command.model.AccountState;
+import com.wallet.command.model.Durability;
 import com.wallet.enums.AccountStatus;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -20,10 +23,20 @@ import java.util.concurrent.CompletableFuture;
 public class CommandProcessor {
     private final EventStore eventStore;
     private final EventReplayService eventReplayService;
+    private final DurabilityProperties durabilityProperties;
 
-    public CommandProcessor(EventStore eventStore, EventReplayService eventReplayService) {
+    public CommandProcessor(EventStore eventStore, EventReplayService eventReplayService,
+                            DurabilityProperties durabilityProperties) {
         this.eventStore = eventStore;
         this.eventReplayService = eventReplayService;
+        this.durabilityProperties = durabilityProperties;
+    }
+
+    /**
+     * Level configured for the command type, raised to what the command itself asks for
+     */
+    private Durability durabilityOf(Command command) {
+        return durabilityProperties.levelOf(command.getClass()).atLeast(command.getDurability());
     }
 
     public CompletableFuture<List<BaseEvent>> process(Command command) {
@@ -31,26 +44,27 @@ public class CommandProcessor {
             try {
                 log.info("Processing command: {}", command);
                 
-                // Step 1: Get current version from EventStore
-                long currentVersion = eventStore.getCurrentVersion(command.getAccountId()).join();
-                
-                // Step 2: Load current state
-                AccountState accountState = null;
-                if (currentVersion >= 0) {
-                    accountState = eventReplayService.replayEvents(command.getAccountId()).join();
-                }
-                
-                // Step 3: Validate command
-                List<BaseEvent> validationEvents = command.validate(accountState);
-                
-                // Step 4: Execute command and generate events
-                List<BaseEvent> newEvents = command.execute(accountState);
-                if (validationEvents != null && !validationEvents.isEmpty()) {
-                    newEvents.addAll(0, validationEvents);
+                // Step 1: Pin a read view, so version and state come from the same point in time
+                long currentVersion;
+                List<BaseEvent> newEvents;
+                try (AggregateReadView view = eventStore.openReadView(command.getAccountId())) {
+                    currentVersion = view.getVersion();
+
+                    // Step 2: Load current state as of that version
+                    AccountState accountState = eventReplayService.replayEvents(view);
+
+                    // Step 3: Validate command
+                    List<BaseEvent> validationEvents = command.validate(accountState);
+
+                    // Step 4: Execute command and generate events
+                    newEvents = command.execute(accountState);
+                    if (validationEvents != null && !validationEvents.isEmpty()) {
+                        newEvents.addAll(0, validationEvents);
+                    }
                 }
                 
-                // Step 5: Store events with version check
-                return eventStore.appendEvents(command.getAccountId(), currentVersion, newEvents)
+                // Step 5: Store events with version check, as durable as the command requires
+                return eventStore.appendEvents(command.getAccountId(), currentVersion, newEvents, durabilityOf(command))
                     .thenApply(v -> newEvents)
                     .join();
                 
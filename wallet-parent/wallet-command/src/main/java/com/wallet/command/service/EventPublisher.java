@@ -1,6 +1,7 @@
 package com.wallet.command.service;
 
 import com.wallet.command.event.BaseEvent;
+import com.wallet.command.infrastructure.serialization.EventEnvelope;
 import com.wallet.command.infrastructure.serialization.EventSerializer;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.slf4j.Logger;
@@ -9,7 +10,6 @@ import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
-import java.util.Base64;
 import java.util.concurrent.CompletableFuture;
 
 @Service
@@ -32,9 +32,9 @@ public class EventPublisher {
         return CompletableFuture.runAsync(() -> {
             try {
                 for (BaseEvent event : events) {
-                    String serializedEvent = eventSerializer.serialize(event);
-                    byte[] serializedBytes = Base64.getDecoder().decode(serializedEvent);
-                    
+                    // Same envelope as in the event store: the header carries type and format
+                    byte[] serializedBytes = EventEnvelope.encode(event, eventSerializer);
+
                     ProducerRecord<String, byte[]> record = new ProducerRecord<>(
                         topicName,
                         event.getAccountId(),  // Use accountId as partition key
@@ -1,52 +1,60 @@
 package com.wallet.command.service;
 
 import com.wallet.command.event.*;
+import com.wallet.command.infrastructure.repository.AggregateReadView;
+import com.wallet.command.infrastructure.repository.EventCursor;
 import com.wallet.command.infrastructure.repository.EventStore;
+import com.wallet.command.model.AccountSnapshot;
 import com.wallet.command.model.AccountState;
 import com.wallet.enums.AccountStatus;
 import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Rebuilds account state from the latest snapshot plus the events appended after it.
+ * A new snapshot is taken whenever a replay had to fold at least
+ * {@code event-store.snapshot.interval-events} events, or took longer than
+ * {@code event-store.snapshot.replay-time-threshold-ms}.
+ */
 @Slf4j
 @Service
 public class EventReplayService {
     private static final String METRIC_EVENT_REPLAY = "wallet.event.replay";
+    private static final String METRIC_SNAPSHOT = "wallet.event.snapshot";
     
     private final EventStore eventStore;
     private final MeterRegistry meterRegistry;
+    private final int snapshotIntervalEvents;
+    private final long snapshotReplayTimeThresholdNanos;
 
     @Autowired
-    public EventReplayService(EventStore eventStore, MeterRegistry meterRegistry) {
+    public EventReplayService(EventStore eventStore, MeterRegistry meterRegistry,
+                              @Value("${event-store.snapshot.interval-events:100}") int snapshotIntervalEvents,
+                              @Value("${event-store.snapshot.replay-time-threshold-ms:50}") long snapshotReplayTimeThresholdMs) {
         this.eventStore = eventStore;
         this.meterRegistry = meterRegistry;
+        this.snapshotIntervalEvents = snapshotIntervalEvents;
+        this.snapshotReplayTimeThresholdNanos = TimeUnit.MILLISECONDS.toNanos(snapshotReplayTimeThresholdMs);
     }
 
     @Transactional(readOnly = true)
     public CompletableFuture<AccountState> replayEvents(String accountId) {
         return CompletableFuture.supplyAsync(() -> {
             try {
-                List<BaseEvent> events = eventStore.readAllEvents(accountId).join();
-                if (events.isEmpty()) {
-                    throw new RuntimeException("No events found for account: " + accountId);
-                }
-
-                AccountState accountState = AccountState.fromEvents(events);
-                long eventCount = events.size();
-
-                log.debug("Replayed {} events for account {}", eventCount, accountId);
-                meterRegistry.counter(METRIC_EVENT_REPLAY,
-                    "accountId", accountId,
-                    "status", "success",
-                    "eventCount", String.valueOf(eventCount))
-                    .increment();
-
-                return accountState;
+                return replay(accountId, eventStore.readLatestSnapshot(accountId).join(), "success");
 
             } catch (Exception e) {
                 log.error("Failed to replay events for account: {}", accountId, e);
@@ -60,37 +68,160 @@ public class EventReplayService {
         });
     }
 
+    /**
+     * Replay up to the current version, starting from the newest snapshot taken at or
+     * before {@code snapshotVersion}
+     */
     @Transactional(readOnly = true)
     public CompletableFuture<AccountState> replayEventsFromSnapshot(String accountId, Long snapshotVersion) {
         return CompletableFuture.supplyAsync(() -> {
             try {
-                // Get events after snapshot
-                List<BaseEvent> events = eventStore.readEvents(accountId, snapshotVersion).join();
-                if (events.isEmpty()) {
-                    throw new RuntimeException("No events found for account: " + accountId);
-                }
+                return replay(accountId, eventStore.readSnapshot(accountId, snapshotVersion).join(),
+                    "success_from_snapshot");
 
-                AccountState accountState = AccountState.fromEvents(events);
-                long eventCount = events.size();
-
-                log.debug("Replayed {} events from snapshot for account {}", eventCount, accountId);
+            } catch (Exception e) {
+                log.error("Failed to replay events from snapshot for account: {}", accountId, e);
                 meterRegistry.counter(METRIC_EVENT_REPLAY,
                     "accountId", accountId,
-                    "status", "success_from_snapshot",
-                    "eventCount", String.valueOf(eventCount))
+                    "status", "error_from_snapshot",
+                    "error", e.getClass().getSimpleName())
                     .increment();
+                throw new RuntimeException("Failed to replay events from snapshot", e);
+            }
+        });
+    }
+
+    /**
+     * Replay an account exactly as of a read view, so that the returned state matches the
+     * version the view reports
+     *
+     * @return State at the view's version, or null if the account has no events in the view
+     */
+    public AccountState replayEvents(AggregateReadView view) {
+        if (view.getVersion() < 0) {
+            return null;
+        }
+        long start = System.nanoTime();
+        try {
+            Optional<AccountSnapshot> snapshot = view.getLatestSnapshot();
+            long fromVersion = snapshot.map(s -> s.getVersion() + 1).orElse(0L);
+            try (EventCursor cursor = view.openCursor(fromVersion)) {
+                AccountState accountState = AccountState.fromProjections(
+                    snapshot.map(AccountSnapshot::getState).orElse(null), cursor.projections());
+                return complete(view.getAggregateId(), accountState, fromVersion, cursor.getLastVersion(), "success", start);
+            }
 
-                return accountState;
+        } catch (Exception e) {
+            log.error("Failed to replay events for account: {}", view.getAggregateId(), e);
+            meterRegistry.counter(METRIC_EVENT_REPLAY,
+                "accountId", view.getAggregateId(),
+                "status", "error",
+                "error", e.getClass().getSimpleName())
+                .increment();
+            throw new RuntimeException("Failed to replay events", e);
+        }
+    }
+
+    /**
+     * Replay several accounts with one batched snapshot lookup and one batched event read
+     *
+     * @return State per account; accounts without events are absent
+     */
+    @Transactional(readOnly = true)
+    public CompletableFuture<Map<String, AccountState>> replayEventsBatch(Collection<String> accountIds) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                long start = System.nanoTime();
+                Map<String, AccountSnapshot> snapshots = eventStore.readLatestSnapshots(accountIds).join();
+                Map<String, Long> fromVersions = new LinkedHashMap<>();
+                accountIds.forEach(accountId -> fromVersions.put(accountId,
+                    snapshots.containsKey(accountId) ? snapshots.get(accountId).getVersion() + 1 : 0L));
+                Map<String, List<BaseEvent>> events = eventStore.readEventsBatch(fromVersions).join();
+
+                Map<String, AccountState> states = new LinkedHashMap<>();
+                fromVersions.forEach((accountId, fromVersion) -> {
+                    Optional<AccountSnapshot> snapshot = Optional.ofNullable(snapshots.get(accountId));
+                    List<BaseEvent> tail = events.getOrDefault(accountId, Collections.emptyList());
+                    if (snapshot.isPresent() || !tail.isEmpty()) {
+                        states.put(accountId, fold(accountId, snapshot, fromVersion, tail, "success_batch", start));
+                    }
+                });
+                return states;
 
             } catch (Exception e) {
-                log.error("Failed to replay events from snapshot for account: {}", accountId, e);
+                log.error("Failed to replay events for accounts: {}", accountIds, e);
                 meterRegistry.counter(METRIC_EVENT_REPLAY,
-                    "accountId", accountId,
-                    "status", "error_from_snapshot",
+                    "status", "error_batch",
                     "error", e.getClass().getSimpleName())
                     .increment();
-                throw new RuntimeException("Failed to replay events from snapshot", e);
+                throw new RuntimeException("Failed to replay events", e);
+            }
+        });
+    }
+
+    /**
+     * Streams the tail after the snapshot through a cursor, so long histories are folded
+     * without materializing them; events are only projected, never fully decoded
+     */
+    private AccountState replay(String accountId, Optional<AccountSnapshot> snapshot, String status) {
+        long start = System.nanoTime();
+        long fromVersion = snapshot.map(s -> s.getVersion() + 1).orElse(0L);
+        try (EventCursor cursor = eventStore.openCursor(accountId, fromVersion)) {
+            if (!snapshot.isPresent() && !cursor.hasNext()) {
+                throw new RuntimeException("No events found for account: " + accountId);
+            }
+            AccountState accountState = AccountState.fromProjections(
+                snapshot.map(AccountSnapshot::getState).orElse(null), cursor.projections());
+            return complete(accountId, accountState, fromVersion, cursor.getLastVersion(), status, start);
+        }
+    }
+
+    private AccountState fold(String accountId, Optional<AccountSnapshot> snapshot, long fromVersion,
+                              List<BaseEvent> events, String status, long start) {
+        AccountState accountState = snapshot.isPresent()
+            ? AccountState.fromSnapshot(snapshot.get().getState(), events)
+            : AccountState.fromEvents(events);
+        return complete(accountId, accountState, fromVersion, fromVersion + events.size() - 1, status, start);
+    }
+
+    /**
+     * Stamp the replayed version, record the replay and snapshot when it was expensive
+     */
+    private AccountState complete(String accountId, AccountState replayed, long fromVersion, long version,
+                                  String status, long start) {
+        AccountState accountState = replayed.toBuilder()
+            .version(version)
+            .build();
+        long eventCount = version - fromVersion + 1;
+
+        log.debug("Replayed {} events from version {} for account {}", eventCount, fromVersion, accountId);
+        meterRegistry.counter(METRIC_EVENT_REPLAY,
+            "accountId", accountId,
+            "status", status,
+            "eventCount", String.valueOf(eventCount))
+            .increment();
+
+        if (eventCount > 0 && (eventCount >= snapshotIntervalEvents
+                || System.nanoTime() - start >= snapshotReplayTimeThresholdNanos)) {
+            takeSnapshot(accountState);
+        }
+        return accountState;
+    }
+
+    /**
+     * Snapshots are written in the background; a failed write only costs a longer replay next time
+     */
+    private void takeSnapshot(AccountState accountState) {
+        AccountSnapshot snapshot = AccountSnapshot.builder()
+            .accountId(accountState.getAccountId())
+            .version(accountState.getVersion())
+            .state(accountState)
+            .build();
+        eventStore.saveSnapshot(snapshot).whenComplete((ignored, e) -> {
+            if (e != null) {
+                log.warn("Failed to snapshot account {} at version {}", snapshot.getAccountId(), snapshot.getVersion(), e);
             }
+            meterRegistry.counter(METRIC_SNAPSHOT, "status", e == null ? "success" : "error").increment();
         });
     }
 }
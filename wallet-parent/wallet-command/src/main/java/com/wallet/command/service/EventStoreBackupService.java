@@ -0,0 +1,96 @@
+package com.wallet.command.service;
+
+import com.wallet.command.config.RocksDBProperties;
+import com.wallet.command.infrastructure.repository.BackupDescriptor;
+import com.wallet.command.infrastructure.repository.RocksDBEventStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Takes incremental event store backups every rocksdb.backup.interval and on demand
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "event-store.engine", havingValue = "rocksdb", matchIfMissing = true)
+public class EventStoreBackupService {
+    private static final String METRIC_BACKUP = "wallet.eventstore.backup";
+
+    private final RocksDBEventStore eventStore;
+    private final MeterRegistry meterRegistry;
+    private final Duration interval;
+    private ScheduledExecutorService scheduler;
+
+    public EventStoreBackupService(RocksDBEventStore eventStore, MeterRegistry meterRegistry,
+                                   RocksDBProperties properties) {
+        this.eventStore = eventStore;
+        this.meterRegistry = meterRegistry;
+        this.interval = properties.getBackup().getInterval();
+    }
+
+    @PostConstruct
+    public void init() {
+        if (interval.isZero() || interval.isNegative()) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "event-store-backup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::scheduledBackup,
+            interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    public List<BackupDescriptor> backup() {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            List<BackupDescriptor> backups = eventStore.createBackup();
+            sample.stop(meterRegistry.timer(METRIC_BACKUP, "type", "backup", "status", "success"));
+            return backups;
+        } catch (RuntimeException e) {
+            sample.stop(meterRegistry.timer(METRIC_BACKUP, "type", "backup", "status", "error"));
+            throw e;
+        }
+    }
+
+    public void checkpoint(String targetDir) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            eventStore.createCheckpoint(targetDir);
+            sample.stop(meterRegistry.timer(METRIC_BACKUP, "type", "checkpoint", "status", "success"));
+        } catch (RuntimeException e) {
+            sample.stop(meterRegistry.timer(METRIC_BACKUP, "type", "checkpoint", "status", "error"));
+            throw e;
+        }
+    }
+
+    public List<BackupDescriptor> listBackups() {
+        return eventStore.listBackups();
+    }
+
+    private void scheduledBackup() {
+        try {
+            backup();
+        } catch (Exception e) {
+            log.error("Scheduled event store backup failed", e);
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.wallet.command.service;
+
+import com.wallet.command.event.BaseEvent;
+import com.wallet.command.infrastructure.repository.EventCursor;
+import com.wallet.command.infrastructure.repository.EventStore;
+import com.wallet.command.model.AccountSnapshot;
+import com.wallet.command.model.AccountState;
+import com.wallet.command.replay.ReplayRequest;
+import com.wallet.command.replay.ReplayResult;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Rebuilds an account as of a past version or point in time, and lists the events of a
+ * version or time range. Time bounds are turned into versions through
+ * {@link EventStore#getVersionAt}, at millisecond resolution, so a replay seeks straight to
+ * the newest snapshot at or before the target and folds only the events after it.
+ *
+ * Unlike {@link EventReplayService}, a point-in-time replay never takes a snapshot. Its
+ * replays are counted without the account ID, since any account may be queried.
+ */
+@Slf4j
+@Service
+public class PointInTimeReplayService {
+    private static final String METRIC_EVENT_REPLAY = "wallet.event.replay";
+
+    private final EventStore eventStore;
+    private final MeterRegistry meterRegistry;
+
+    public PointInTimeReplayService(EventStore eventStore, MeterRegistry meterRegistry) {
+        this.eventStore = eventStore;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Replay an account up to the end of the requested range. The target version and end
+     * time bound the state; the start time only bounds the listed events.
+     *
+     * @return Result with the state at the end of the range and the events inside it
+     */
+    public CompletableFuture<ReplayResult> replay(ReplayRequest request) {
+        request.validate();
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return replayRange(request);
+
+            } catch (Exception e) {
+                log.error("Failed to replay events for account: {}", request.getAggregateId(), e);
+                meterRegistry.counter(METRIC_EVENT_REPLAY,
+                    "status", "error_point_in_time",
+                    "error", e.getClass().getSimpleName())
+                    .increment();
+                throw new RuntimeException("Failed to replay events", e);
+            }
+        });
+    }
+
+    private ReplayResult replayRange(ReplayRequest request) {
+        String accountId = request.getAggregateId();
+        long toVersion = toVersion(request);
+        long firstListed = firstListedVersion(request);
+        ReplayResult result = ReplayResult.builder()
+            .successful(true)
+            .finalVersion(-1L)
+            .build();
+        if (toVersion < 0) {
+            return result;
+        }
+
+        Optional<AccountSnapshot> snapshot = eventStore.readSnapshot(accountId, toVersion).join();
+        long snapshotVersion = snapshot.map(AccountSnapshot::getVersion).orElse(-1L);
+        try (EventCursor cursor = eventStore.openCursor(accountId, Math.min(snapshotVersion + 1, firstListed))) {
+            RangeEvents events = new RangeEvents(cursor, snapshotVersion, toVersion, firstListed, result);
+            try {
+                AccountState state = AccountState.fromSnapshot(
+                    snapshot.map(AccountSnapshot::getState).orElse(null), events);
+                long finalVersion = Math.max(snapshotVersion, events.appliedVersion());
+                events.listCurrent();
+                result.setState(state == null ? null : state.toBuilder().version(finalVersion).build());
+                result.setFinalVersion(finalVersion);
+            } catch (RuntimeException e) {
+                long failedVersion;
+                if (events.isReading()) {
+                    // The event could not be read; the fold applied every event before it
+                    failedVersion = events.readingVersion;
+                    events.listCurrent();
+                    result.addFailedEvent(null, e.getMessage(), failedVersion);
+                } else {
+                    failedVersion = events.currentVersion;
+                    result.addFailedEvent(events.current, e.getMessage(), failedVersion);
+                }
+                log.warn("Replay of account {} failed at version {}", accountId, failedVersion, e);
+                result.setSuccessful(false);
+                result.setErrorMessage(e.getMessage());
+                result.setFinalVersion(failedVersion - 1);
+            }
+        }
+
+        meterRegistry.counter(METRIC_EVENT_REPLAY,
+            "status", result.isSuccessful() ? "success_point_in_time" : "failed_point_in_time")
+            .increment();
+        return result;
+    }
+
+    /**
+     * Last version to fold: the tighter of the target version and the end time, or the
+     * current version when neither is set
+     */
+    private long toVersion(ReplayRequest request) {
+        long toVersion = Long.MAX_VALUE;
+        if (request.getTargetVersion() != null) {
+            toVersion = request.isIncludeTargetVersion() ? request.getTargetVersion() : request.getTargetVersion() - 1;
+        }
+        if (request.getEndTime() != null) {
+            toVersion = Math.min(toVersion, eventStore.getVersionAt(request.getAggregateId(),
+                request.isIncludeEndTime() ? request.getEndTime() : request.getEndTime().minusMillis(1)).join());
+        }
+        return toVersion == Long.MAX_VALUE ? eventStore.getCurrentVersion(request.getAggregateId()).join() : toVersion;
+    }
+
+    /**
+     * First version to list as applied, the first one recorded at or after the start time
+     */
+    private long firstListedVersion(ReplayRequest request) {
+        if (request.getStartTime() == null) {
+            return 0;
+        }
+        return eventStore.getVersionAt(request.getAggregateId(),
+            request.isIncludeStartTime() ? request.getStartTime().minusMillis(1) : request.getStartTime()).join() + 1;
+    }
+
+    /**
+     * The cursor's events up to {@code toVersion}. Events from {@code firstListed} on are
+     * listed in the result once applied; those already covered by the snapshot are listed
+     * but not handed to the fold.
+     *
+     * While the cursor reads an event, its version is kept in {@code readingVersion}, so
+     * that a failure to read or decode it is not taken for a failure of the fold to apply
+     * the previous event.
+     */
+    private static final class RangeEvents implements Iterator<BaseEvent> {
+        private static final long NOT_READING = Long.MIN_VALUE;
+
+        private final EventCursor cursor;
+        private final long snapshotVersion;
+        private final long toVersion;
+        private final long firstListed;
+        private final ReplayResult result;
+        private BaseEvent next;
+        private long nextVersion;
+        private BaseEvent current;
+        private long currentVersion;
+        private long readingVersion = NOT_READING;
+
+        RangeEvents(EventCursor cursor, long snapshotVersion, long toVersion, long firstListed, ReplayResult result) {
+            this.cursor = cursor;
+            this.snapshotVersion = snapshotVersion;
+            this.toVersion = toVersion;
+            this.firstListed = firstListed;
+            this.result = result;
+            this.currentVersion = snapshotVersion;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null) {
+                // Versions are dense, so the event to read is the one after the cursor's last
+                readingVersion = cursor.getLastVersion() + 1;
+                if (!cursor.hasNext()) {
+                    readingVersion = NOT_READING;
+                    return false;
+                }
+                BaseEvent event = cursor.next();
+                readingVersion = NOT_READING;
+                long version = cursor.getLastVersion();
+                if (version > toVersion) {
+                    return false;
+                }
+                if (version > snapshotVersion) {
+                    next = event;
+                    nextVersion = version;
+                } else if (version >= firstListed) {
+                    result.addAppliedEvent(event);
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public BaseEvent next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            // The fold asks for the next event only once the previous one was applied
+            listCurrent();
+            current = next;
+            currentVersion = nextVersion;
+            next = null;
+            return current;
+        }
+
+        boolean isReading() {
+            return readingVersion != NOT_READING;
+        }
+
+        /**
+         * Version of the last event handed to the fold, assuming the fold has completed
+         */
+        long appliedVersion() {
+            return currentVersion;
+        }
+
+        void listCurrent() {
+            if (current != null && currentVersion >= firstListed) {
+                result.addAppliedEvent(current);
+            }
+            current = null;
+        }
+    }
+}
@@ -26,13 +26,19 @@ public class WalletCommandGrpcServiceImpl extends WalletCommandServiceGrpc.Walle
     public void createAccount(CreateAccountRequest request, StreamObserver<CreateAccountResponse> responseObserver) {
         try {
             validateCreateAccountRequest(request);
+            BigDecimal initialBalance = amount(request.hasInitialBalanceValue(), request.getInitialBalanceValue(),
+                request.getInitialBalance(), "balance");
+            BigDecimal minBalance = amount(request.hasMinBalanceValue(), request.getMinBalanceValue(),
+                request.getMinBalance(), "balance");
+            BigDecimal maxBalance = amount(request.hasMaxBalanceValue(), request.getMaxBalanceValue(),
+                request.getMaxBalance(), "balance");
             
             CompletableFuture<String> future = walletCommandService.createAccount(
                 request.getAccountId(),
-                new BigDecimal(request.getInitialBalance()),
+                initialBalance,
                 AssetType.valueOf(request.getAssetType()),
-                new BigDecimal(request.getMinBalance()),
-                new BigDecimal(request.getMaxBalance()),
+                minBalance,
+                maxBalance,
                 request.getOperatorId()
             );
 
@@ -58,11 +64,13 @@ public class WalletCommandGrpcServiceImpl extends WalletCommandServiceGrpc.Walle
     public void transfer(TransferRequest request, StreamObserver<TransferResponse> responseObserver) {
         try {
             validateTransferRequest(request);
+            BigDecimal amount = amount(request.hasAmountValue(), request.getAmountValue(),
+                request.getAmount(), "amount");
             
             CompletableFuture<Void> future = walletCommandService.transfer(
                 request.getFromAccountId(),
                 request.getToAccountId(),
-                new BigDecimal(request.getAmount()),
+                amount,
                 request.getOperatorId(),
                 request.getDedupId()
             );
@@ -88,10 +96,12 @@ public class WalletCommandGrpcServiceImpl extends WalletCommandServiceGrpc.Walle
     public void changeBalance(ChangeBalanceRequest request, StreamObserver<ChangeBalanceResponse> responseObserver) {
         try {
             validateChangeBalanceRequest(request);
+            BigDecimal amount = amount(request.hasAmountValue(), request.getAmountValue(),
+                request.getAmount(), "amount");
             
             CompletableFuture<Void> future = walletCommandService.changeBalance(
                 request.getAccountId(),
-                new BigDecimal(request.getAmount()),
+                amount,
                 request.getOperatorId(),
                 request.getDedupId()
             );
@@ -179,13 +189,6 @@ public class WalletCommandGrpcServiceImpl extends WalletCommandServiceGrpc.Walle
         if (request.getOperatorId().isEmpty()) {
             throw new IllegalArgumentException("Operator ID must not be empty");
         }
-        try {
-            new BigDecimal(request.getInitialBalance());
-            new BigDecimal(request.getMinBalance());
-            new BigDecimal(request.getMaxBalance());
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException("Invalid balance format", e);
-        }
     }
 
     private void validateTransferRequest(TransferRequest request) {
@@ -201,11 +204,6 @@ public class WalletCommandGrpcServiceImpl extends WalletCommandServiceGrpc.Walle
         if (request.getDedupId().isEmpty()) {
             throw new IllegalArgumentException("Dedup ID must not be empty");
         }
-        try {
-            new BigDecimal(request.getAmount());
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException("Invalid amount format", e);
-        }
     }
 
     private void validateChangeBalanceRequest(ChangeBalanceRequest request) {
@@ -218,11 +216,6 @@ public class WalletCommandGrpcServiceImpl extends WalletCommandServiceGrpc.Walle
         if (request.getDedupId().isEmpty()) {
             throw new IllegalArgumentException("Dedup ID must not be empty");
         }
-        try {
-            new BigDecimal(request.getAmount());
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException("Invalid amount format", e);
-        }
     }
 
     private void validateFreezeAccountRequest(FreezeAccountRequest request) {
@@ -249,6 +242,18 @@ public class WalletCommandGrpcServiceImpl extends WalletCommandServiceGrpc.Walle
         }
     }
 
+    /**
+     * Amount from its Decimal field, or else from the decimal string that older clients send;
+     * a Decimal without an unscaled value is rejected like a malformed string
+     */
+    private static BigDecimal amount(boolean present, Decimal value, String text, String name) {
+        try {
+            return present ? Decimals.fromMessage(value) : new BigDecimal(text);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid " + name + " format", e);
+        }
+    }
+
     private void handleError(StreamObserver<?> responseObserver, Throwable e) {
         Status status;
         if (e instanceof IllegalArgumentException) {
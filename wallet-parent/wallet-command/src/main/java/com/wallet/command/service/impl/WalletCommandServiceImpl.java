@@ -2,7 +2,9 @@ package com.wallet.command.service.impl;
 
 import com.wallet.command.event.*;
 import com.wallet.command.infrastructure.repository.EventStore;
+import com.wallet.command.interceptor.DurabilityInterceptor;
 import com.wallet.command.model.AccountState;
+import com.wallet.command.model.Durability;
 import com.wallet.command.model.command.*;
 import com.wallet.command.service.CommandProcessor;
 import com.wallet.command.service.EventReplayService;
@@ -17,6 +19,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.Arrays;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
@@ -51,6 +54,8 @@ public class WalletCommandServiceImpl implements WalletCommandService {
             accountId, assetType, initialBalance);
         
         meterRegistry.counter(METRIC_COMMAND, "type", "create_account").increment();
+        // Read on the calling thread, where the gRPC context of the request is attached
+        Durability requested = DurabilityInterceptor.requested();
 
         CreateAccountCommand command = CreateAccountCommand.builder()
                 .accountId(accountId)
@@ -60,6 +65,7 @@ public class WalletCommandServiceImpl implements WalletCommandService {
                 .maxBalance(maxBalance)
                 .operatorId(operatorId)
                 .timestamp(Instant.now())
+                .durability(requested)
                 .build();
 
         return commandProcessor.process(command)
@@ -74,13 +80,12 @@ public class WalletCommandServiceImpl implements WalletCommandService {
             sourceAccountId, targetAccountId, amount, transactionId);
         
         meterRegistry.counter(METRIC_TRANSFER).increment();
+        Durability requested = DurabilityInterceptor.requested();
 
-        return CompletableFuture.allOf(
-                eventReplayService.replayEvents(sourceAccountId),
-                eventReplayService.replayEvents(targetAccountId))
-            .thenCompose(v -> {
-                AccountState sourceAccount = eventReplayService.replayEvents(sourceAccountId).join();
-                AccountState targetAccount = eventReplayService.replayEvents(targetAccountId).join();
+        return eventReplayService.replayEventsBatch(Arrays.asList(sourceAccountId, targetAccountId))
+            .thenCompose(accounts -> {
+                AccountState sourceAccount = accounts.get(sourceAccountId);
+                AccountState targetAccount = accounts.get(targetAccountId);
 
                 validateTransfer(sourceAccount, targetAccount, amount);
 
@@ -91,6 +96,7 @@ public class WalletCommandServiceImpl implements WalletCommandService {
                         .transactionId(transactionId)
                         .operatorId(operatorId)
                         .timestamp(Instant.now())
+                        .durability(requested)
                         .build();
 
                 return commandProcessor.process(command);
@@ -106,6 +112,7 @@ public class WalletCommandServiceImpl implements WalletCommandService {
             accountId, amount, transactionId);
         
         meterRegistry.counter(METRIC_COMMAND, "type", "change_balance").increment();
+        Durability requested = DurabilityInterceptor.requested();
 
         return eventReplayService.replayEvents(accountId)
             .thenCompose(account -> {
@@ -117,6 +124,7 @@ public class WalletCommandServiceImpl implements WalletCommandService {
                         .transactionId(transactionId)
                         .operatorId(operatorId)
                         .timestamp(Instant.now())
+                        .durability(requested)
                         .build();
 
                 return commandProcessor.process(command);
@@ -130,6 +138,7 @@ public class WalletCommandServiceImpl implements WalletCommandService {
         log.info("Freezing account: {}, reason: {}", accountId, reason);
         
         meterRegistry.counter(METRIC_COMMAND, "type", "freeze_account").increment();
+        Durability requested = DurabilityInterceptor.requested();
 
         return eventReplayService.replayEvents(accountId)
             .thenCompose(account -> {
@@ -142,6 +151,7 @@ public class WalletCommandServiceImpl implements WalletCommandService {
                         .operatorId(operatorId)
                         .reason(reason)
                         .timestamp(Instant.now())
+                        .durability(requested)
                         .build();
 
                 return commandProcessor.process(command);
@@ -155,6 +165,7 @@ public class WalletCommandServiceImpl implements WalletCommandService {
         log.info("Unfreezing account: {}, reason: {}", accountId, reason);
         
         meterRegistry.counter(METRIC_COMMAND, "type", "unfreeze_account").increment();
+        Durability requested = DurabilityInterceptor.requested();
 
         return eventReplayService.replayEvents(accountId)
             .thenCompose(account -> {
@@ -167,6 +178,7 @@ public class WalletCommandServiceImpl implements WalletCommandService {
                         .operatorId(operatorId)
                         .reason(reason)
                         .timestamp(Instant.now())
+                        .durability(requested)
                         .build();
 
                 return commandProcessor.process(command);
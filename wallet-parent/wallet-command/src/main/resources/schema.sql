@@ -5,9 +5,25 @@ CREATE TABLE IF NOT EXISTS event_store (
     event_type VARCHAR(100) NOT NULL,
     event_data TEXT NOT NULL,
     version BIGINT NOT NULL,
+    transaction_id VARCHAR(64),
     created_at TIMESTAMP NOT NULL,
+    recorded_at BIGINT,
+    log_position BIGINT,
     UNIQUE (aggregate_id, version)
 );
+-- 旧表补充交易ID、记录时间与全局日志位置列，已有事件的值在启动时回填
+ALTER TABLE event_store ADD COLUMN IF NOT EXISTS transaction_id VARCHAR(64);
+ALTER TABLE event_store ADD COLUMN IF NOT EXISTS recorded_at BIGINT;
+ALTER TABLE event_store ADD COLUMN IF NOT EXISTS log_position BIGINT;
+
+-- 快照表
+CREATE TABLE IF NOT EXISTS snapshot_store (
+    aggregate_id VARCHAR(36) NOT NULL,
+    version BIGINT NOT NULL,
+    snapshot_data TEXT NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (aggregate_id, version)
+);
 
 -- 账户表
 CREATE TABLE IF NOT EXISTS account (
@@ -25,5 +41,10 @@ CREATE TABLE IF NOT EXISTS account (
 
 -- 索引
 CREATE INDEX IF NOT EXISTS idx_event_store_aggregate_id ON event_store(aggregate_id);
+CREATE INDEX IF NOT EXISTS idx_event_store_transaction_id ON event_store(transaction_id);
+CREATE INDEX IF NOT EXISTS idx_event_store_aggregate_recorded_at ON event_store(aggregate_id, recorded_at);
+-- 按时间查版本已改用 recorded_at
+DROP INDEX IF EXISTS idx_event_store_aggregate_created_at;
+CREATE UNIQUE INDEX IF NOT EXISTS idx_event_store_log_position ON event_store(log_position);
 CREATE INDEX IF NOT EXISTS idx_account_owner_id ON account(owner_id);
 CREATE INDEX IF NOT EXISTS idx_account_status ON account(status);
@@ -0,0 +1,157 @@
+package com.wallet.command.infrastructure.repository;
+
+import com.wallet.command.config.JdbcEventStoreProperties;
+import com.wallet.command.config.RocksDBProperties;
+import com.wallet.command.config.SegmentedLogProperties;
+import com.wallet.command.event.BalanceChangedEvent;
+import com.wallet.command.event.BaseEvent;
+import com.wallet.command.infrastructure.serialization.ProtobufEventSerializer;
+import com.wallet.command.model.AccountSnapshot;
+import com.wallet.command.model.AccountState;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A view keeps the version, snapshot and events it was opened at on every engine, while
+ * events and snapshots keep being written after it
+ */
+class AggregateReadViewTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void viewOnJdbc() throws Exception {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        try (Connection connection = dataSource.getConnection()) {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("schema.sql"));
+        }
+        JdbcEventStore store = new JdbcEventStore(dataSource, new ProtobufEventSerializer(),
+            new SimpleMeterRegistry(), new JdbcEventStoreProperties());
+        store.init();
+        try {
+            checkView(store);
+        } finally {
+            store.cleanup();
+        }
+    }
+
+    @Test
+    void viewOnRocksDB() {
+        RocksDBProperties properties = new RocksDBProperties();
+        properties.setDataDir(tempDir.resolve("db").toString());
+        properties.getBackup().setDir(tempDir.resolve("backup").toString());
+        RocksDBEventStore store = new RocksDBEventStore(new ProtobufEventSerializer(), new SimpleMeterRegistry(), properties);
+        store.init();
+        try {
+            checkView(store);
+        } finally {
+            store.cleanup();
+        }
+    }
+
+    @Test
+    void viewOnSegmentedLog() {
+        SegmentedLogProperties properties = new SegmentedLogProperties();
+        properties.setDir(tempDir.resolve("log").toString());
+        SegmentedLogEventStore store = new SegmentedLogEventStore(new ProtobufEventSerializer(),
+            new SimpleMeterRegistry(), properties);
+        store.init();
+        try {
+            checkView(store);
+        } finally {
+            store.cleanup();
+        }
+    }
+
+    private static void checkView(EventStore store) {
+        try (AggregateReadView empty = store.openReadView("acc1")) {
+            assertEquals("acc1", empty.getAggregateId());
+            assertEquals(-1L, empty.getVersion());
+            assertFalse(empty.getLatestSnapshot().isPresent());
+            assertEquals(Collections.emptyList(), versions(empty.openCursor(0)));
+        }
+
+        appendChanges(store, 0, 5);
+        store.saveSnapshot(snapshot(2)).join();
+
+        AggregateReadView view = store.openReadView("acc1");
+        try {
+            appendChanges(store, 5, 3);
+            store.saveSnapshot(snapshot(6)).join();
+
+            assertEquals(4L, view.getVersion());
+            Optional<AccountSnapshot> snapshot = view.getLatestSnapshot();
+            assertTrue(snapshot.isPresent());
+            assertEquals(2L, snapshot.get().getVersion());
+            assertEquals(Arrays.asList(3L, 4L), versions(view.openCursor(snapshot.get().getVersion() + 1)));
+            // Every cursor of the view reads the same point in time
+            assertEquals(Arrays.asList(0L, 1L, 2L, 3L, 4L), versions(view.openCursor(0)));
+        } finally {
+            view.close();
+        }
+        view.close();
+
+        // Validated against the stale view, the append conflicts
+        assertThrows(CompletionException.class, () -> store.appendEvents("acc1", view.getVersion(),
+            Collections.singletonList(change(view.getVersion() + 1))).join());
+        try (AggregateReadView current = store.openReadView("acc1")) {
+            assertEquals(7L, current.getVersion());
+            assertEquals(6L, current.getLatestSnapshot().map(AccountSnapshot::getVersion).orElse(-1L));
+            store.appendEvents("acc1", current.getVersion(), Collections.singletonList(change(8))).join();
+        }
+        assertEquals(8L, store.getCurrentVersion("acc1").join());
+    }
+
+    private static List<Long> versions(EventCursor cursor) {
+        List<Long> versions = new ArrayList<>();
+        try {
+            while (cursor.hasNext()) {
+                BalanceChangedEvent event = (BalanceChangedEvent) cursor.next();
+                assertEquals(cursor.getLastVersion(), event.getAmount().longValueExact());
+                versions.add(cursor.getLastVersion());
+            }
+        } finally {
+            cursor.close();
+        }
+        return versions;
+    }
+
+    private static void appendChanges(EventStore store, long fromVersion, int count) {
+        for (long version = fromVersion; version < fromVersion + count; version++) {
+            store.appendEvents("acc1", version - 1, Collections.singletonList(change(version))).join();
+        }
+    }
+
+    /**
+     * A change whose amount is the version it is appended at
+     */
+    private static BaseEvent change(long version) {
+        return BalanceChangedEvent.builder().accountId("acc1").amount(BigDecimal.valueOf(version))
+            .transactionId(UUID.randomUUID().toString()).timestamp(Instant.now()).build();
+    }
+
+    private static AccountSnapshot snapshot(long version) {
+        return AccountSnapshot.builder().accountId("acc1").version(version)
+            .state(AccountState.builder().accountId("acc1").version(version).lastUpdated(Instant.now()).build())
+            .build();
+    }
+}
@@ -0,0 +1,138 @@
+package com.wallet.command.infrastructure.repository;
+
+import com.wallet.command.config.RocksDBProperties;
+import com.wallet.command.event.AccountFrozenEvent;
+import com.wallet.command.event.AccountUnfrozenEvent;
+import com.wallet.command.event.BalanceChangedEvent;
+import com.wallet.command.event.BaseEvent;
+import com.wallet.command.infrastructure.serialization.JacksonEventSerializer;
+import com.wallet.command.infrastructure.serialization.ProtobufEventSerializer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.rocksdb.ColumnFamilyDescriptor;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.DBOptions;
+import org.rocksdb.RocksDB;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Opens a store in the original layout, text keys and bare JSON values with a text
+ * sequence counter, and checks that every format step up to the current one was applied
+ */
+class EventStoreMigrationTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void legacyStoreIsMigratedToCurrentFormat() throws Exception {
+        Map<String, BaseEvent> legacyEvents = new LinkedHashMap<>();
+        legacyEvents.put("acc1:0", AccountFrozenEvent.builder().accountId("acc1").reason("audit").timestamp(at(3000)).build());
+        // Written with a clock that stepped back
+        legacyEvents.put("acc1:1", BalanceChangedEvent.builder().accountId("acc1").amount(new BigDecimal("12.50"))
+            .transactionId("tx-1").timestamp(at(2000)).build());
+        legacyEvents.put("acc1:2", AccountUnfrozenEvent.builder().accountId("acc1").reason("done").timestamp(at(4000)).build());
+        legacyEvents.put("acc10:0", BalanceChangedEvent.builder().accountId("acc10").amount(BigDecimal.ONE)
+            .transactionId("tx-2").timestamp(at(1000)).build());
+        writeLegacyStore(legacyEvents);
+
+        RocksDBEventStore store = open();
+        try {
+            // Format 1 and 2: binary keys that keep acc1 and acc10 apart, enveloped values
+            List<BaseEvent> acc1 = store.readAllEvents("acc1").join();
+            assertEquals(3, acc1.size());
+            assertTrue(acc1.get(0) instanceof AccountFrozenEvent);
+            assertEquals(0, new BigDecimal("12.50").compareTo(((BalanceChangedEvent) acc1.get(1)).getAmount()));
+            assertTrue(acc1.get(2) instanceof AccountUnfrozenEvent);
+            assertEquals(1, store.readAllEvents("acc10").join().size());
+            assertEquals(2L, store.getCurrentVersion("acc1").join());
+
+            // Format 3: every event in the global log, without the old text counter
+            List<RecordedEvent> log = store.readLog(0, 100).join();
+            assertEquals(4, log.size());
+            for (int i = 0; i < log.size(); i++) {
+                assertEquals(i, log.get(i).getPosition());
+            }
+            assertEquals(3L, store.getLogPosition().join());
+
+            // Format 4: transactional events indexed by transaction ID
+            List<RecordedEvent> transaction = store.readTransaction("tx-1").join();
+            assertEquals(1, transaction.size());
+            assertEquals("acc1", transaction.get(0).getAggregateId());
+            assertEquals(1L, transaction.get(0).getVersion());
+            assertEquals(1, store.readTransaction("tx-2").join().size());
+
+            // Format 5: recorded times never decrease with the version
+            assertEquals(-1L, store.getVersionAt("acc1", at(2999)).join());
+            assertEquals(1L, store.getVersionAt("acc1", at(3000)).join());
+            assertEquals(1L, store.getVersionAt("acc1", at(3999)).join());
+            assertEquals(2L, store.getVersionAt("acc1", at(4000)).join());
+
+            store.appendEvents("acc1", 2, Arrays.asList(
+                AccountFrozenEvent.builder().accountId("acc1").reason("again").timestamp(at(5000)).build())).join();
+        } finally {
+            store.cleanup();
+        }
+
+        store = open();
+        try {
+            assertEquals(4, store.readAllEvents("acc1").join().size());
+            assertEquals(5, store.readLog(0, 100).join().size());
+            assertEquals(3L, store.getVersionAt("acc1", at(5000)).join());
+        } finally {
+            store.cleanup();
+        }
+    }
+
+    private RocksDBEventStore open() {
+        RocksDBProperties properties = new RocksDBProperties();
+        properties.setDataDir(tempDir.resolve("db").toString());
+        properties.getBackup().setDir(tempDir.resolve("backup").toString());
+        RocksDBEventStore store = new RocksDBEventStore(new ProtobufEventSerializer(), new SimpleMeterRegistry(), properties);
+        store.init();
+        return store;
+    }
+
+    /**
+     * @param events Event per "aggregateId:version" key, stored as the JSON the Jackson serializer writes
+     */
+    private void writeLegacyStore(Map<String, BaseEvent> events) throws Exception {
+        JacksonEventSerializer json = new JacksonEventSerializer();
+        RocksDB.loadLibrary();
+        List<ColumnFamilyDescriptor> descriptors = new ArrayList<>();
+        descriptors.add(new ColumnFamilyDescriptor(RocksDB.DEFAULT_COLUMN_FAMILY));
+        for (String name : new String[]{"events", "versions", "sequence"}) {
+            descriptors.add(new ColumnFamilyDescriptor(name.getBytes(StandardCharsets.UTF_8)));
+        }
+        List<ColumnFamilyHandle> handles = new ArrayList<>();
+        try (DBOptions options = new DBOptions().setCreateIfMissing(true).setCreateMissingColumnFamilies(true);
+             RocksDB db = RocksDB.open(options, tempDir.resolve("db").toString(), descriptors, handles)) {
+            for (Map.Entry<String, BaseEvent> event : events.entrySet()) {
+                db.put(handles.get(1), bytes(event.getKey()), bytes(json.serialize(event.getValue())));
+            }
+            db.put(handles.get(2), bytes("acc1"), bytes("2"));
+            db.put(handles.get(2), bytes("acc10"), bytes("0"));
+            db.put(handles.get(3), bytes("sequence"), bytes("4"));
+            handles.forEach(ColumnFamilyHandle::close);
+        }
+    }
+
+    private static Instant at(long millis) {
+        return Instant.ofEpochMilli(millis);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,148 @@
+package com.wallet.command.infrastructure.repository;
+
+import com.wallet.command.event.AccountFrozenEvent;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A subscription over an in-memory log: writes reserve positions from the GlobalLog, put
+ * their events in the map, and release the positions once written, or without writing
+ */
+class GlobalLogSubscriptionTest {
+    private final GlobalLog globalLog = new GlobalLog(0);
+    private final ConcurrentSkipListMap<Long, RecordedEvent> events = new ConcurrentSkipListMap<>();
+    private final List<RecordedEvent> delivered = new CopyOnWriteArrayList<>();
+
+    @Test
+    void catchesUpThenTails() throws Exception {
+        write(600);
+        GlobalLogSubscription subscription = subscribe(0);
+        try {
+            awaitDelivered(600);
+            write(3);
+            awaitDelivered(603);
+            assertEquals(602L, subscription.getLastPosition());
+            for (int i = 0; i < delivered.size(); i++) {
+                assertEquals(i, delivered.get(i).getPosition());
+            }
+        } finally {
+            subscription.close();
+        }
+        assertFalse(subscription.isRunning());
+    }
+
+    @Test
+    void startsAtRequestedPosition() throws Exception {
+        write(5);
+        GlobalLogSubscription subscription = subscribe(3);
+        try {
+            awaitDelivered(2);
+            assertEquals(Arrays.asList(3L, 4L), positions());
+            assertEquals(4L, subscription.getLastPosition());
+        } finally {
+            subscription.close();
+        }
+    }
+
+    @Test
+    void waitsForOlderWriteStillInFlight() throws Exception {
+        GlobalLogSubscription subscription = subscribe(0);
+        try {
+            long slow = globalLog.reserve(1);
+            write(2);
+            Thread.sleep(200);
+            assertTrue(delivered.isEmpty());
+
+            put(slow);
+            globalLog.release(slow);
+            awaitDelivered(3);
+            assertEquals(Arrays.asList(0L, 1L, 2L), positions());
+        } finally {
+            subscription.close();
+        }
+    }
+
+    @Test
+    void skipsGapsOfFailedWrites() throws Exception {
+        GlobalLogSubscription subscription = subscribe(0);
+        try {
+            write(1);
+            globalLog.release(globalLog.reserve(2));
+            write(1);
+            awaitDelivered(2);
+            assertEquals(Arrays.asList(0L, 3L), positions());
+        } finally {
+            subscription.close();
+        }
+    }
+
+    @Test
+    void failingListenerStopsSubscription() throws Exception {
+        write(3);
+        GlobalLogSubscription subscription = new GlobalLogSubscription(this::read, globalLog, 0, event -> {
+            if (event.getPosition() == 1) {
+                throw new IllegalStateException("listener failed");
+            }
+            delivered.add(event);
+        }, "test-subscription");
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (subscription.isRunning() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertFalse(subscription.isRunning());
+        assertEquals(0L, subscription.getLastPosition());
+        assertEquals(Arrays.asList(0L), positions());
+    }
+
+    private GlobalLogSubscription subscribe(long fromPosition) {
+        return new GlobalLogSubscription(this::read, globalLog, fromPosition, delivered::add, "test-subscription");
+    }
+
+    private List<RecordedEvent> read(long fromPosition, long toPosition, int maxCount) {
+        List<RecordedEvent> page = new ArrayList<>();
+        for (RecordedEvent event : events.subMap(fromPosition, true, toPosition, true).values()) {
+            if (page.size() == maxCount) {
+                break;
+            }
+            page.add(event);
+        }
+        return page;
+    }
+
+    private void write(int count) {
+        long first = globalLog.reserve(count);
+        for (long position = first; position < first + count; position++) {
+            put(position);
+        }
+        globalLog.release(first);
+    }
+
+    private void put(long position) {
+        events.put(position, new RecordedEvent(position, "acc1", position,
+            AccountFrozenEvent.builder().accountId("acc1").reason("test").timestamp(Instant.now()).build()));
+    }
+
+    private void awaitDelivered(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (delivered.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, delivered.size());
+    }
+
+    private List<Long> positions() {
+        List<Long> positions = new ArrayList<>(delivered.size());
+        delivered.forEach(event -> positions.add(event.getPosition()));
+        return positions;
+    }
+}
@@ -0,0 +1,165 @@
+package com.wallet.command.infrastructure.repository;
+
+import com.wallet.command.config.RocksDBProperties;
+import com.wallet.command.event.AccountFrozenEvent;
+import com.wallet.command.event.BaseEvent;
+import com.wallet.command.infrastructure.serialization.ProtobufEventSerializer;
+import com.wallet.command.model.Durability;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Group commit through RocksDBEventStore. Tests of a single flush use a flush window long
+ * enough for every append they submit to land in it.
+ */
+class GroupCommitWriterTest {
+    private static final String METRIC_BATCH_SIZE = "wallet.eventstore.commit.batch.size";
+    private static final String METRIC_WRITE = "wallet.eventstore.commit.write";
+
+    @TempDir
+    Path tempDir;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void queuedAppendsShareOneFlush() {
+        RocksDBEventStore store = open(1, 1_000_000);
+        try {
+            List<CompletableFuture<Void>> appends = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                appends.add(store.appendEvents("acc" + i, -1, Arrays.asList(frozen("acc" + i), frozen("acc" + i))));
+            }
+            appends.forEach(CompletableFuture::join);
+
+            DistributionSummary batchSize = registry.get(METRIC_BATCH_SIZE).summary();
+            assertEquals(1, batchSize.count());
+            assertEquals(40.0, batchSize.totalAmount());
+            List<RecordedEvent> log = store.readLog(0, 100).join();
+            assertEquals(40, log.size());
+            for (int i = 0; i < log.size(); i++) {
+                assertEquals(i, log.get(i).getPosition());
+                assertEquals("acc" + i / 2, log.get(i).getAggregateId());
+            }
+        } finally {
+            store.cleanup();
+        }
+    }
+
+    @Test
+    void conflictsInsideOneFlushFailAlone() {
+        RocksDBEventStore store = open(1, 1_000_000);
+        try {
+            CompletableFuture<Void> first = store.appendEvents("acc1", -1, Collections.singletonList(frozen("acc1")));
+            CompletableFuture<Void> sameVersion = store.appendEvents("acc1", -1, Collections.singletonList(frozen("acc1")));
+            CompletableFuture<Void> afterFirst = store.appendEvents("acc1", 0, Arrays.asList(frozen("acc1"), frozen("acc1")));
+            CompletableFuture<Void> stale = store.appendEvents("acc2", 5, Collections.singletonList(frozen("acc2")));
+            CompletableFuture<Void> other = store.appendEvents("acc2", -1, Collections.singletonList(frozen("acc2")));
+
+            first.join();
+            afterFirst.join();
+            other.join();
+            assertConflict(sameVersion);
+            assertConflict(stale);
+
+            assertEquals(1, registry.get(METRIC_BATCH_SIZE).summary().count());
+            assertEquals(2L, store.getCurrentVersion("acc1").join());
+            assertEquals(0L, store.getCurrentVersion("acc2").join());
+            assertEquals(Arrays.asList("acc1", "acc1", "acc1", "acc2"), aggregateIds(store.readLog(0, 100).join()));
+        } finally {
+            store.cleanup();
+        }
+    }
+
+    @Test
+    void syncAppendClosesFlushEarly() throws Exception {
+        // A window far longer than the append is given to complete
+        RocksDBEventStore store = open(1, 30_000_000);
+        try {
+            store.appendEvents("acc1", -1, Collections.singletonList(frozen("acc1")), Durability.SYNC)
+                .get(10, TimeUnit.SECONDS);
+
+            assertEquals(1, registry.get(METRIC_WRITE).tag("durability", "SYNC").timer().count());
+            assertEquals(0L, store.getCurrentVersion("acc1").join());
+        } finally {
+            store.cleanup();
+        }
+    }
+
+    @Test
+    void lanesSerializeEachAggregate() {
+        RocksDBEventStore store = open(4, 200);
+        try {
+            List<CompletableFuture<Void>> chains = new ArrayList<>();
+            for (int a = 0; a < 32; a++) {
+                String accountId = "acc" + a;
+                CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
+                for (int v = 0; v < 5; v++) {
+                    long expectedVersion = v - 1;
+                    chain = chain.thenCompose(ignored ->
+                        store.appendEvents(accountId, expectedVersion, Collections.singletonList(frozen(accountId))));
+                }
+                chains.add(chain);
+            }
+            chains.forEach(CompletableFuture::join);
+
+            int busyLanes = 0;
+            for (DistributionSummary batchSize : registry.get(METRIC_BATCH_SIZE).summaries()) {
+                busyLanes += batchSize.count() > 0 ? 1 : 0;
+            }
+            assertTrue(busyLanes > 1, "Appends used " + busyLanes + " lanes");
+            List<RecordedEvent> log = store.readLog(0, 1000).join();
+            assertEquals(160, log.size());
+            Map<String, Long> nextVersions = new HashMap<>();
+            for (RecordedEvent event : log) {
+                assertEquals(nextVersions.getOrDefault(event.getAggregateId(), 0L), event.getVersion());
+                nextVersions.put(event.getAggregateId(), event.getVersion() + 1);
+            }
+            assertEquals(32, nextVersions.size());
+        } finally {
+            store.cleanup();
+        }
+    }
+
+    private RocksDBEventStore open(int writeLanes, long maxWaitMicros) {
+        RocksDBProperties properties = new RocksDBProperties();
+        properties.setDataDir(tempDir.resolve("db").toString());
+        properties.getBackup().setDir(tempDir.resolve("backup").toString());
+        properties.setWriteLanes(writeLanes);
+        properties.getGroupCommit().setMaxWaitMicros(maxWaitMicros);
+        RocksDBEventStore store = new RocksDBEventStore(new ProtobufEventSerializer(), registry, properties);
+        store.init();
+        return store;
+    }
+
+    private static void assertConflict(CompletableFuture<Void> append) {
+        CompletionException e = assertThrows(CompletionException.class, append::join);
+        assertTrue(e.getCause() instanceof IllegalStateException, String.valueOf(e.getCause()));
+        assertTrue(e.getCause().getMessage().startsWith("Version mismatch"), e.getCause().getMessage());
+    }
+
+    private static List<String> aggregateIds(List<RecordedEvent> events) {
+        List<String> ids = new ArrayList<>(events.size());
+        events.forEach(event -> ids.add(event.getAggregateId()));
+        return ids;
+    }
+
+    private static BaseEvent frozen(String accountId) {
+        return AccountFrozenEvent.builder().accountId(accountId).reason("test").timestamp(Instant.now()).build();
+    }
+}
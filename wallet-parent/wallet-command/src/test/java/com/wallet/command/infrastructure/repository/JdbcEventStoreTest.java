@@ -0,0 +1,334 @@
+package com.wallet.command.infrastructure.repository;
+
+import com.wallet.command.config.JdbcEventStoreProperties;
+import com.wallet.command.event.AccountFrozenEvent;
+import com.wallet.command.event.BalanceChangedEvent;
+import com.wallet.command.event.BaseEvent;
+import com.wallet.command.infrastructure.serialization.JacksonEventSerializer;
+import com.wallet.command.infrastructure.serialization.ProtobufEventSerializer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JdbcEventStore against an in-memory H2 database created from schema.sql
+ */
+class JdbcEventStoreTest {
+    private JdbcEventStore store;
+
+    private JdbcEventStore open(int fetchSize) throws Exception {
+        return open(fetchSize, Runtime.getRuntime().availableProcessors(), createDatabase());
+    }
+
+    private JdbcEventStore open(int fetchSize, int threads, DataSource dataSource) {
+        JdbcEventStoreProperties properties = new JdbcEventStoreProperties();
+        properties.setFetchSize(fetchSize);
+        properties.setThreads(threads);
+        store = new JdbcEventStore(dataSource, new ProtobufEventSerializer(), new SimpleMeterRegistry(), properties);
+        store.init();
+        return store;
+    }
+
+    private static DataSource createDatabase() throws Exception {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        try (Connection connection = dataSource.getConnection()) {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("schema.sql"));
+        }
+        return dataSource;
+    }
+
+    @AfterEach
+    void close() {
+        if (store != null) {
+            store.cleanup();
+        }
+    }
+
+    @Test
+    void appendWithStaleVersionIsRejected() throws Exception {
+        open(500);
+        store.appendEvents("acc1", -1, Arrays.asList(frozen("acc1"), frozen("acc1"))).join();
+
+        CompletionException e = assertThrows(CompletionException.class,
+            () -> store.appendEvents("acc1", 0, Arrays.asList(frozen("acc1"))).join());
+        assertTrue(e.getCause() instanceof IllegalStateException);
+        assertTrue(e.getCause().getMessage().startsWith("Version mismatch"), e.getCause().getMessage());
+        assertEquals(1L, store.getCurrentVersion("acc1").join());
+    }
+
+    @Test
+    void concurrentAppendsAtOneVersionCommitOnce() throws Exception {
+        open(500);
+        store.appendEvents("acc1", -1, Arrays.asList(frozen("acc1"))).join();
+
+        List<CompletableFuture<Void>> appends = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            appends.add(store.appendEvents("acc1", 0, Arrays.asList(frozen("acc1"), frozen("acc1"))));
+        }
+        int committed = 0;
+        for (CompletableFuture<Void> append : appends) {
+            try {
+                append.join();
+                committed++;
+            } catch (CompletionException e) {
+                assertTrue(e.getCause() instanceof IllegalStateException, String.valueOf(e.getCause()));
+            }
+        }
+
+        assertEquals(1, committed);
+        assertEquals(2L, store.getCurrentVersion("acc1").join());
+        // Positions of the rejected appends remain as gaps
+        List<RecordedEvent> log = store.readLog(0, 100).join();
+        assertEquals(3, log.size());
+        assertEquals(log.get(2).getPosition(), log.get(1).getPosition() + 1);
+        assertEquals(32L, store.getLogPosition().join());
+    }
+
+    @Test
+    void logStopsBelowAppendStillInFlight() throws Exception {
+        CountDownLatch held = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean holdNextCommit = new AtomicBoolean();
+        open(500, 2, holdingCommits(createDatabase(), holdNextCommit, held, release));
+
+        holdNextCommit.set(true);
+        CompletableFuture<Void> slow = store.appendEvents("acc1", -1, Arrays.asList(frozen("acc1")));
+        assertTrue(held.await(10, TimeUnit.SECONDS));
+        List<RecordedEvent> delivered = new CopyOnWriteArrayList<>();
+        EventSubscription subscription = store.subscribeToLog(0, delivered::add);
+        try {
+            // Another aggregate commits while the first append still holds position 0
+            store.appendEvents("acc2", -1, Arrays.asList(frozen("acc2"))).get(10, TimeUnit.SECONDS);
+            assertEquals(-1L, store.getLogPosition().join());
+            assertTrue(store.readLog(0, 100).join().isEmpty());
+            assertTrue(delivered.isEmpty());
+
+            release.countDown();
+            slow.get(10, TimeUnit.SECONDS);
+            assertEquals(1L, store.getLogPosition().join());
+            assertEquals(Arrays.asList(0L, 1L), positions(store.readLog(0, 100).join()));
+            awaitDelivered(delivered, 2);
+            assertEquals(Arrays.asList(0L, 1L), positions(delivered));
+            assertEquals("acc1", delivered.get(0).getAggregateId());
+        } finally {
+            release.countDown();
+            subscription.close();
+        }
+    }
+
+    @Test
+    void concurrentAppendsOfManyAggregates() throws Exception {
+        int aggregates = 64;
+        int appendsPerAggregate = 25;
+        open(500, 8, createDatabase());
+        List<RecordedEvent> delivered = new CopyOnWriteArrayList<>();
+        EventSubscription subscription = store.subscribeToLog(0, delivered::add);
+
+        long start = System.nanoTime();
+        List<CompletableFuture<Void>> chains = new ArrayList<>();
+        for (int a = 0; a < aggregates; a++) {
+            String accountId = "acc" + a;
+            CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
+            for (int v = 0; v < appendsPerAggregate; v++) {
+                long expectedVersion = 2L * v - 1;
+                chain = chain.thenCompose(ignored -> store.appendEvents(accountId, expectedVersion,
+                    Arrays.asList(frozen(accountId), balanceChanged(accountId, UUID.randomUUID().toString()))));
+            }
+            chains.add(chain);
+        }
+        CompletableFuture.allOf(chains.toArray(new CompletableFuture[0])).get(60, TimeUnit.SECONDS);
+        long elapsedNanos = System.nanoTime() - start;
+        int events = aggregates * appendsPerAggregate * 2;
+        System.out.printf("%d appends of %d aggregates in %d ms, %.0f appends/s%n", aggregates * appendsPerAggregate,
+            aggregates, TimeUnit.NANOSECONDS.toMillis(elapsedNanos), aggregates * appendsPerAggregate * 1e9 / elapsedNanos);
+
+        try {
+            List<RecordedEvent> log = store.readLog(0, events + 1).join();
+            assertEquals(events, log.size());
+            assertEquals(events - 1L, store.getLogPosition().join());
+            Map<String, Long> nextVersions = new HashMap<>();
+            for (int i = 0; i < log.size(); i++) {
+                RecordedEvent event = log.get(i);
+                assertEquals(i, event.getPosition());
+                assertEquals(nextVersions.getOrDefault(event.getAggregateId(), 0L), event.getVersion());
+                nextVersions.put(event.getAggregateId(), event.getVersion() + 1);
+            }
+            assertEquals(aggregates, nextVersions.size());
+
+            awaitDelivered(delivered, events);
+            assertEquals(positions(log), positions(delivered));
+        } finally {
+            subscription.close();
+        }
+    }
+
+    @Test
+    void cursorReadsHistoryLongerThanFetchSize() throws Exception {
+        open(3);
+        List<BaseEvent> events = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            events.add(frozen("acc1"));
+        }
+        store.appendEvents("acc1", -1, events).join();
+
+        List<String> eventIds = new ArrayList<>();
+        try (EventCursor cursor = store.openCursor("acc1", 2)) {
+            assertEquals(1L, cursor.getLastVersion());
+            while (cursor.hasNext()) {
+                eventIds.add(cursor.next().getEventId());
+                assertEquals(eventIds.size() + 1L, cursor.getLastVersion());
+            }
+        }
+
+        assertEquals(8, eventIds.size());
+        for (int i = 0; i < eventIds.size(); i++) {
+            assertEquals(events.get(i + 2).getEventId(), eventIds.get(i));
+        }
+    }
+
+    @Test
+    void logIsPagedInPositionOrder() throws Exception {
+        open(500);
+        store.appendEvents("acc1", -1, Arrays.asList(frozen("acc1"), frozen("acc1"))).join();
+        store.appendEvents("acc2", -1, Arrays.asList(balanceChanged("acc2", "tx-1"))).join();
+        store.appendEvents("acc1", 1, Arrays.asList(balanceChanged("acc1", "tx-1"))).join();
+
+        List<RecordedEvent> first = store.readLog(0, 3).join();
+        List<RecordedEvent> second = store.readLog(3, 3).join();
+
+        assertEquals(Arrays.asList(0L, 1L, 2L), positions(first));
+        assertEquals(Arrays.asList(3L), positions(second));
+        assertEquals("acc2", first.get(2).getAggregateId());
+        assertEquals(0L, first.get(2).getVersion());
+        assertEquals(2L, second.get(0).getVersion());
+        assertTrue(store.readLog(4, 3).join().isEmpty());
+        assertEquals(3L, store.getLogPosition().join());
+        assertEquals(Arrays.asList(2L, 3L), positions(store.readTransaction("tx-1").join()));
+    }
+
+    @Test
+    void legacyTableIsUpgraded() throws Exception {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        JacksonEventSerializer json = new JacksonEventSerializer();
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            // The table as it was before transaction IDs, recorded times and log positions were stored
+            statement.execute("CREATE TABLE event_store (id BIGSERIAL PRIMARY KEY, aggregate_id VARCHAR(36) NOT NULL,"
+                + " event_type VARCHAR(100) NOT NULL, event_data TEXT NOT NULL, version BIGINT NOT NULL,"
+                + " created_at TIMESTAMP NOT NULL, UNIQUE (aggregate_id, version))");
+            BaseEvent[] events = {frozen("acc1"), balanceChanged("acc1", "tx-1"), balanceChanged("acc2", "tx-1")};
+            String[] aggregateIds = {"acc1", "acc1", "acc2"};
+            long[] versions = {0, 1, 0};
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO event_store"
+                + " (aggregate_id, event_type, event_data, version, created_at) VALUES (?, ?, ?, ?, CURRENT_TIMESTAMP)")) {
+                for (int i = 0; i < events.length; i++) {
+                    insert.setString(1, aggregateIds[i]);
+                    insert.setString(2, events[i].getClass().getName());
+                    insert.setString(3, json.serialize(events[i]));
+                    insert.setLong(4, versions[i]);
+                    insert.executeUpdate();
+                }
+            }
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("schema.sql"));
+        }
+        open(2, 1, dataSource);
+
+        List<RecordedEvent> transaction = store.readTransaction("tx-1").join();
+        assertEquals(Arrays.asList(1L, 2L), positions(transaction));
+        assertEquals("acc2", transaction.get(1).getAggregateId());
+        assertEquals(2L, store.getLogPosition().join());
+        assertEquals(-1L, store.getVersionAt("acc1", Instant.EPOCH).join());
+        assertEquals(1L, store.getVersionAt("acc1", Instant.now()).join());
+
+        store.appendEvents("acc2", 0, Arrays.asList(balanceChanged("acc2", "tx-2"))).join();
+        assertEquals(Arrays.asList(3L), positions(store.readTransaction("tx-2").join()));
+        assertEquals(Arrays.asList(0L, 1L, 2L, 3L), positions(store.readLog(0, 100).join()));
+    }
+
+    private static void awaitDelivered(List<RecordedEvent> delivered, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (delivered.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, delivered.size());
+    }
+
+    /**
+     * Connections whose next commit, once {@code holdNextCommit} is set, waits for {@code release}
+     */
+    private static DataSource holdingCommits(DataSource dataSource, AtomicBoolean holdNextCommit,
+                                             CountDownLatch held, CountDownLatch release) {
+        return new DelegatingDataSource(dataSource) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                Connection connection = super.getConnection();
+                return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                        if (method.getName().equals("commit") && holdNextCommit.compareAndSet(true, false)) {
+                            held.countDown();
+                            release.await(10, TimeUnit.SECONDS);
+                        }
+                        try {
+                            return method.invoke(connection, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    });
+            }
+        };
+    }
+
+    private static List<Long> positions(List<RecordedEvent> events) {
+        List<Long> positions = new ArrayList<>(events.size());
+        events.forEach(event -> positions.add(event.getPosition()));
+        return positions;
+    }
+
+    private static BaseEvent frozen(String accountId) {
+        return AccountFrozenEvent.builder()
+            .eventId(UUID.randomUUID().toString())
+            .accountId(accountId)
+            .reason("test")
+            .timestamp(Instant.now())
+            .build();
+    }
+
+    private static BaseEvent balanceChanged(String accountId, String transactionId) {
+        return BalanceChangedEvent.builder()
+            .eventId(UUID.randomUUID().toString())
+            .accountId(accountId)
+            .amount(BigDecimal.TEN)
+            .transactionId(transactionId)
+            .timestamp(Instant.now())
+            .build();
+    }
+}
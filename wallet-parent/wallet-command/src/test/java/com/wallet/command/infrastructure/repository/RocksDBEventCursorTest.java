@@ -0,0 +1,148 @@
+package com.wallet.command.infrastructure.repository;
+
+import com.wallet.command.config.RocksDBProperties;
+import com.wallet.command.event.BalanceChangedEvent;
+import com.wallet.command.event.BaseEvent;
+import com.wallet.command.infrastructure.serialization.EventProjection;
+import com.wallet.command.infrastructure.serialization.EventType;
+import com.wallet.command.infrastructure.serialization.ProtobufEventSerializer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Cursors over one aggregate's events. The amount of each change is its version,
+ * so an event read back tells which version it is
+ */
+class RocksDBEventCursorTest {
+    @TempDir
+    Path tempDir;
+
+    private RocksDBEventStore store;
+
+    @BeforeEach
+    void open() {
+        RocksDBProperties properties = new RocksDBProperties();
+        properties.setDataDir(tempDir.resolve("db").toString());
+        properties.getBackup().setDir(tempDir.resolve("backup").toString());
+        store = new RocksDBEventStore(new ProtobufEventSerializer(), new SimpleMeterRegistry(), properties);
+        store.init();
+    }
+
+    @AfterEach
+    void close() {
+        store.cleanup();
+    }
+
+    @Test
+    void readsFromVersionToEnd() {
+        appendChanges("acc1", 0, 300);
+
+        try (EventCursor cursor = store.openCursor("acc1", 120)) {
+            assertEquals(119L, cursor.getLastVersion());
+            long expected = 120;
+            while (cursor.hasNext()) {
+                BaseEvent event = cursor.next();
+                assertEquals(BigDecimal.valueOf(expected), ((BalanceChangedEvent) event).getAmount());
+                assertEquals(expected, cursor.getLastVersion());
+                expected++;
+            }
+            assertEquals(300L, expected);
+            assertThrows(NoSuchElementException.class, cursor::next);
+        }
+    }
+
+    @Test
+    void stopsAtAggregateBoundary() {
+        appendChanges("acc1", 0, 3);
+        appendChanges("acc10", 0, 5);
+        appendChanges("acc", 0, 4);
+
+        assertEquals(3, drain("acc1", 0));
+        assertEquals(5, drain("acc10", -1));
+        assertEquals(4, drain("acc", 0));
+        assertEquals(0, drain("acc1", 3));
+        assertEquals(0, drain("acc2", 0));
+    }
+
+    @Test
+    void projectionsMatchDecodedEvents() {
+        appendChanges("acc1", 0, 10);
+
+        try (EventCursor cursor = store.openCursor("acc1", 4)) {
+            Iterator<EventProjection> projections = cursor.projections();
+            long expected = 4;
+            while (projections.hasNext()) {
+                EventProjection projection = projections.next();
+                assertEquals(EventType.BALANCE_CHANGED, projection.getType());
+                assertNotNull(projection.getTransactionId());
+                assertEquals(BigDecimal.valueOf(expected), projection.getAmount());
+                assertEquals(expected, cursor.getLastVersion());
+                expected++;
+            }
+            assertEquals(10L, expected);
+        }
+    }
+
+    @Test
+    void cursorKeepsThePointInTimeItWasOpenedAt() {
+        appendChanges("acc1", 0, 5);
+
+        try (EventCursor cursor = store.openCursor("acc1", 0)) {
+            cursor.next();
+            appendChanges("acc1", 5, 5);
+
+            int remaining = 0;
+            while (cursor.hasNext()) {
+                cursor.next();
+                remaining++;
+            }
+            assertEquals(4, remaining);
+            assertEquals(4L, cursor.getLastVersion());
+        }
+        assertEquals(10, drain("acc1", 0));
+    }
+
+    @Test
+    void closedCursorHasNoNext() {
+        appendChanges("acc1", 0, 3);
+
+        EventCursor cursor = store.openCursor("acc1", 0);
+        cursor.next();
+        cursor.close();
+        cursor.close();
+        assertFalse(cursor.hasNext());
+        assertThrows(NoSuchElementException.class, cursor::next);
+    }
+
+    private int drain(String aggregateId, long fromVersion) {
+        int count = 0;
+        try (EventCursor cursor = store.openCursor(aggregateId, fromVersion)) {
+            while (cursor.hasNext()) {
+                assertEquals(aggregateId, cursor.next().getAccountId());
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void appendChanges(String accountId, long fromVersion, int count) {
+        for (long version = fromVersion; version < fromVersion + count; version++) {
+            BaseEvent event = BalanceChangedEvent.builder().accountId(accountId).amount(BigDecimal.valueOf(version))
+                .transactionId(UUID.randomUUID().toString()).timestamp(Instant.now()).build();
+            store.appendEvents(accountId, version - 1, Collections.singletonList(event)).join();
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.wallet.command.infrastructure.repository;
+
+import com.wallet.command.config.SegmentedLogProperties;
+import com.wallet.command.event.AccountFrozenEvent;
+import com.wallet.command.event.BaseEvent;
+import com.wallet.command.infrastructure.serialization.ProtobufEventSerializer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Segment rolls, recovery of what a crash or a failed flush leaves on disk, and rejection
+ * of records that can never fit a segment
+ */
+class SegmentedLogEventStoreTest {
+    private static final int SEGMENT_SIZE = 4096;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void eventsSurviveSegmentRolls() {
+        SegmentedLogEventStore store = open();
+        try {
+            appendFrozen(store, "acc1", 40);
+            appendFrozen(store, "acc2", 40);
+        } finally {
+            store.cleanup();
+        }
+        assertTrue(segmentFiles().size() > 2, String.valueOf(segmentFiles()));
+
+        store = open();
+        try {
+            assertEquals(39L, store.getCurrentVersion("acc1").join());
+            assertEquals(40, store.readAllEvents("acc2").join().size());
+            List<RecordedEvent> log = store.readLog(0, 100).join();
+            assertEquals(80, log.size());
+            for (int i = 0; i < log.size(); i++) {
+                assertEquals(i, log.get(i).getPosition());
+            }
+        } finally {
+            store.cleanup();
+        }
+    }
+
+    @Test
+    void tornTailIsTruncatedOnOpen() throws Exception {
+        SegmentedLogEventStore store = open();
+        try {
+            appendFrozen(store, "acc1", 3);
+        } finally {
+            store.cleanup();
+        }
+        tearLastRecord(tempDir.resolve(LogSegment.fileName(0)));
+
+        store = open();
+        try {
+            assertEquals(1L, store.getCurrentVersion("acc1").join());
+            assertEquals(1L, store.getLogPosition().join());
+            // The torn position is taken again
+            store.appendEvents("acc1", 1, Collections.singletonList(frozen("acc1"))).join();
+            assertEquals(Arrays.asList(0L, 1L, 2L), positions(store.readLog(0, 100).join()));
+        } finally {
+            store.cleanup();
+        }
+    }
+
+    @Test
+    void tornTailBeforeSegmentLeftByRollbackIsTruncated() throws Exception {
+        SegmentedLogEventStore store = open();
+        try {
+            appendFrozen(store, "acc1", 3);
+        } finally {
+            store.cleanup();
+        }
+        // A flush that rolled into the next segment and failed leaves it zeroed behind
+        try (SegmentedLog segmentedLog = new SegmentedLog(tempDir, SEGMENT_SIZE)) {
+            segmentedLog.recover(record -> { });
+            long mark = segmentedLog.mark();
+            while (segmentedLog.segmentCount() < 2) {
+                segmentedLog.append(LogRecord.EVENT, 3, 3, CheckpointIndex.NONE, new byte[]{'x'}, new byte[256]);
+            }
+            segmentedLog.rollback(mark);
+        }
+        assertEquals(2, segmentFiles().size());
+        tearLastRecord(tempDir.resolve(LogSegment.fileName(0)));
+
+        store = open();
+        try {
+            assertEquals(1L, store.getCurrentVersion("acc1").join());
+            appendFrozen(store, "acc1", 2, 2);
+            assertEquals(3L, store.getCurrentVersion("acc1").join());
+            assertEquals(4, store.readLog(0, 100).join().size());
+        } finally {
+            store.cleanup();
+        }
+        store = open();
+        try {
+            assertEquals(4, store.readAllEvents("acc1").join().size());
+        } finally {
+            store.cleanup();
+        }
+    }
+
+    @Test
+    void missingMiddleSegmentFailsOpen() throws Exception {
+        SegmentedLogEventStore store = open();
+        try {
+            appendFrozen(store, "acc1", 80);
+        } finally {
+            store.cleanup();
+        }
+        assertTrue(segmentFiles().size() > 2);
+        Files.delete(tempDir.resolve(LogSegment.fileName(1)));
+
+        SegmentedLogEventStore broken = store(properties());
+        IllegalStateException e = assertThrows(IllegalStateException.class, broken::init);
+        assertTrue(e.getMessage().contains(LogSegment.fileName(1)), e.getMessage());
+        broken.cleanup();
+    }
+
+    @Test
+    void oversizedAppendFailsAlone() {
+        SegmentedLogProperties properties = properties();
+        // Long enough to put both appends in one flush
+        properties.setMaxWaitMicros(200_000);
+        SegmentedLogEventStore store = store(properties);
+        store.init();
+        try {
+            char[] reason = new char[SEGMENT_SIZE];
+            Arrays.fill(reason, 'x');
+            BaseEvent oversized = AccountFrozenEvent.builder().accountId("acc1").reason(new String(reason))
+                .timestamp(Instant.now()).build();
+            CompletableFuture<Void> rejected = store.appendEvents("acc1", -1, Collections.singletonList(oversized));
+            CompletableFuture<Void> accepted = store.appendEvents("acc2", -1, Collections.singletonList(frozen("acc2")));
+
+            CompletionException e = assertThrows(CompletionException.class, rejected::join);
+            assertTrue(e.getCause() instanceof IllegalArgumentException, String.valueOf(e.getCause()));
+            accepted.join();
+            assertEquals(-1L, store.getCurrentVersion("acc1").join());
+            assertEquals(0L, store.getCurrentVersion("acc2").join());
+            assertEquals(1, store.readLog(0, 100).join().size());
+        } finally {
+            store.cleanup();
+        }
+    }
+
+    private SegmentedLogProperties properties() {
+        SegmentedLogProperties properties = new SegmentedLogProperties();
+        properties.setDir(tempDir.toString());
+        properties.setSegmentSize(DataSize.ofBytes(SEGMENT_SIZE));
+        properties.setIndexInterval(4);
+        return properties;
+    }
+
+    private static SegmentedLogEventStore store(SegmentedLogProperties properties) {
+        return new SegmentedLogEventStore(new ProtobufEventSerializer(), new SimpleMeterRegistry(), properties);
+    }
+
+    private SegmentedLogEventStore open() {
+        SegmentedLogEventStore store = store(properties());
+        store.init();
+        return store;
+    }
+
+    private List<Path> segmentFiles() {
+        List<Path> files = new ArrayList<>();
+        for (int index = 0; Files.exists(tempDir.resolve(LogSegment.fileName(index))); index++) {
+            files.add(tempDir.resolve(LogSegment.fileName(index)));
+        }
+        return files;
+    }
+
+    /**
+     * Flip the last byte of the segment's last record, as a write cut short by a crash would
+     */
+    private static void tearLastRecord(Path segment) throws Exception {
+        byte[] bytes = Files.readAllBytes(segment);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int offset = 0;
+        int end = -1;
+        while (offset + LogRecord.LENGTH_FIELD <= bytes.length && buffer.getInt(offset) != 0) {
+            end = offset + LogRecord.LENGTH_FIELD + buffer.getInt(offset);
+            offset = end;
+        }
+        bytes[end - 1] ^= 0x5A;
+        Files.write(segment, bytes);
+    }
+
+    private static void appendFrozen(SegmentedLogEventStore store, String accountId, int count) {
+        appendFrozen(store, accountId, 0, count);
+    }
+
+    private static void appendFrozen(SegmentedLogEventStore store, String accountId, long fromVersion, int count) {
+        for (int i = 0; i < count; i++) {
+            store.appendEvents(accountId, fromVersion + i - 1, Collections.singletonList(frozen(accountId))).join();
+        }
+    }
+
+    private static List<Long> positions(List<RecordedEvent> events) {
+        List<Long> positions = new ArrayList<>(events.size());
+        events.forEach(event -> positions.add(event.getPosition()));
+        return positions;
+    }
+
+    private static BaseEvent frozen(String accountId) {
+        return AccountFrozenEvent.builder().accountId(accountId).reason("test").timestamp(Instant.now()).build();
+    }
+}
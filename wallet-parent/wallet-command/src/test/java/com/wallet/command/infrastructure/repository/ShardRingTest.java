@@ -0,0 +1,167 @@
+package com.wallet.command.infrastructure.repository;
+
+import com.wallet.command.config.RocksDBProperties;
+import com.wallet.command.event.AccountFrozenEvent;
+import com.wallet.command.infrastructure.serialization.ProtobufEventSerializer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Placement of aggregates on the ring, and a store that refuses to open when its shards or
+ * virtual nodes no longer match the ring its shards were written with
+ */
+class ShardRingTest {
+    private static final int AGGREGATES = 200;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void placementDependsOnNamesOnly() {
+        ShardRing<String> ring = ring(256, "a", "b", "c");
+        ShardRing<String> reordered = ring(256, "c", "a", "b");
+        ShardRing<String> grown = ring(256, "a", "b", "c", "d");
+
+        int moved = 0;
+        Set<String> used = new HashSet<>();
+        for (int i = 0; i < 10_000; i++) {
+            String shard = ring.shardFor("acc" + i);
+            used.add(shard);
+            assertEquals(shard, reordered.shardFor("acc" + i));
+            String after = grown.shardFor("acc" + i);
+            if (!after.equals(shard)) {
+                // A new shard only takes IDs over, the others keep theirs
+                assertEquals("d", after);
+                moved++;
+            }
+        }
+        assertEquals(3, used.size());
+        assertTrue(moved > 1_500 && moved < 3_500, "Moved " + moved + " of 10000");
+        assertEquals("a", ring(256, "a").shardFor("acc1"));
+    }
+
+    @Test
+    void membershipIgnoresOrderAndSingleShardVirtualNodes() {
+        assertEquals("a,b#256", ShardRing.membership(Arrays.asList("b", "a"), 256));
+        assertNotEquals(ShardRing.membership(Arrays.asList("a", "b"), 128),
+            ShardRing.membership(Arrays.asList("a", "b"), 256));
+        assertEquals("a", ShardRing.membership(Collections.singletonList("a"), 128));
+        assertEquals("a", ShardRing.membership(Collections.singletonList("a"), 256));
+    }
+
+    @Test
+    void storeReopensWithShardsReordered() {
+        RocksDBEventStore store = open(256, "a", "b");
+        try {
+            appendAll(store);
+            Set<String> shards = new HashSet<>();
+            for (int i = 0; i < AGGREGATES; i++) {
+                shards.add(store.shardFor("acc" + i).name());
+            }
+            assertEquals(2, shards.size());
+        } finally {
+            store.cleanup();
+        }
+
+        store = open(256, "b", "a");
+        try {
+            for (int i = 0; i < AGGREGATES; i++) {
+                assertEquals(0L, store.getCurrentVersion("acc" + i).join());
+            }
+            assertEquals(AGGREGATES, store.readLog(0, AGGREGATES * 2).join().size());
+        } finally {
+            store.cleanup();
+        }
+    }
+
+    @Test
+    void storeRefusesChangedRing() {
+        RocksDBEventStore store = open(256, "a", "b");
+        try {
+            appendAll(store);
+        } finally {
+            store.cleanup();
+        }
+
+        assertRefused(256, "a", "b", "c");
+        assertRefused(256, "a");
+        assertRefused(128, "a", "b");
+
+        // The refusals recorded nothing, so the original ring still opens
+        store = open(256, "a", "b");
+        try {
+            assertEquals(0L, store.getCurrentVersion("acc" + (AGGREGATES - 1)).join());
+        } finally {
+            store.cleanup();
+        }
+    }
+
+    @Test
+    void emptyShardsAreBoundToTheirFirstRing() {
+        open(256, "a", "b").cleanup();
+
+        assertRefused(256, "a", "b", "c");
+    }
+
+    private void assertRefused(int virtualNodes, String... names) {
+        RocksDBEventStore store = store(virtualNodes, names);
+        try {
+            IllegalStateException e = assertThrows(IllegalStateException.class, store::init);
+            assertTrue(e.getMessage().contains("shard ring"), e.getMessage());
+        } finally {
+            store.cleanup();
+        }
+    }
+
+    private RocksDBEventStore open(int virtualNodes, String... names) {
+        RocksDBEventStore store = store(virtualNodes, names);
+        store.init();
+        return store;
+    }
+
+    private RocksDBEventStore store(int virtualNodes, String... names) {
+        RocksDBProperties properties = new RocksDBProperties();
+        properties.setDataDir(tempDir.resolve("db").toString());
+        properties.getBackup().setDir(tempDir.resolve("backup").toString());
+        properties.setShardVirtualNodes(virtualNodes);
+        List<RocksDBProperties.Shard> shards = new ArrayList<>();
+        for (String name : names) {
+            RocksDBProperties.Shard shard = new RocksDBProperties.Shard();
+            shard.setName(name);
+            shard.setDataDir(tempDir.resolve(name).toString());
+            shards.add(shard);
+        }
+        properties.setShards(shards);
+        return new RocksDBEventStore(new ProtobufEventSerializer(), new SimpleMeterRegistry(), properties);
+    }
+
+    private static void appendAll(RocksDBEventStore store) {
+        for (int i = 0; i < AGGREGATES; i++) {
+            String accountId = "acc" + i;
+            store.appendEvents(accountId, -1, Collections.singletonList(
+                AccountFrozenEvent.builder().accountId(accountId).reason("test").timestamp(Instant.now()).build())).join();
+        }
+    }
+
+    private static ShardRing<String> ring(int virtualNodes, String... names) {
+        Map<String, String> shards = new LinkedHashMap<>();
+        for (String name : names) {
+            shards.put(name, name);
+        }
+        return new ShardRing<>(shards, virtualNodes);
+    }
+}
@@ -0,0 +1,151 @@
+package com.wallet.command.infrastructure.repository;
+
+import com.wallet.command.config.RocksDBProperties;
+import com.wallet.command.event.AccountFrozenEvent;
+import com.wallet.command.event.BalanceChangedEvent;
+import com.wallet.command.event.BaseEvent;
+import com.wallet.command.infrastructure.serialization.ProtobufEventSerializer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.rocksdb.LRUCache;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Bulk imports are indistinguishable from appends, and an import interrupted before its
+ * versions were ingested is rolled back when the shard is opened again
+ */
+class SstIngestionTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void importedAggregatesBehaveLikeAppendedOnes() {
+        RocksDBEventStore store = open();
+        try {
+            // The lane caches acc1 as missing before the import
+            assertThrows(CompletionException.class,
+                () -> store.appendEvents("acc1", 5, Collections.singletonList(frozen("acc1", 500))).join());
+
+            assertTrue(store.ingestNewAggregates(Collections.singletonMap("acc1", history("acc1", "tx-1"))).isEmpty());
+
+            assertThrows(CompletionException.class,
+                () -> store.appendEvents("acc1", -1, Collections.singletonList(frozen("acc1", 500))).join());
+            store.appendEvents("acc1", 1, Collections.singletonList(frozen("acc1", 3000))).join();
+            assertEquals(3, store.readAllEvents("acc1").join().size());
+            assertEquals(3, store.readLog(0, 100).join().size());
+            assertEquals(1, store.readTransaction("tx-1").join().size());
+            assertEquals(Collections.singleton("acc1"),
+                store.ingestNewAggregates(Collections.singletonMap("acc1", history("acc1", "tx-2"))));
+        } finally {
+            store.cleanup();
+        }
+    }
+
+    @Test
+    void interruptedImportIsRolledBackOnOpen() throws Exception {
+        RocksDBEventStore store = open();
+        store.ingestNewAggregates(Collections.singletonMap("acc1", history("acc1", "tx-1")));
+        store.ingestNewAggregates(Collections.singletonMap("acc2", history("acc2", "tx-2")));
+        store.cleanup();
+
+        // acc2 as a crash leaves it: everything but the version ingested, marker still there
+        try (LRUCache cache = new LRUCache(8 << 20); RocksDBShard shard = openShard(cache)) {
+            shard.db().delete(shard.versionsCF(), "acc2".getBytes(StandardCharsets.UTF_8));
+            SstIngestion.markPending(shard, 2, Collections.singletonList(newAggregate("acc2", "tx-2")));
+        }
+
+        store = open();
+        try {
+            assertEquals(-1L, store.getCurrentVersion("acc2").join());
+            assertTrue(store.readAllEvents("acc2").join().isEmpty());
+            assertTrue(store.readTransaction("tx-2").join().isEmpty());
+            assertEquals(-1L, store.getVersionAt("acc2", Instant.ofEpochMilli(Long.MAX_VALUE)).join());
+            assertEquals(2, store.readLog(0, 100).join().size());
+            assertEquals(1L, store.getCurrentVersion("acc1").join());
+
+            // Importing again writes no duplicate log entries
+            assertTrue(store.ingestNewAggregates(Collections.singletonMap("acc2", history("acc2", "tx-2"))).isEmpty());
+            List<RecordedEvent> log = store.readLog(0, 100).join();
+            assertEquals(4, log.size());
+            assertEquals(Arrays.asList("acc1", "acc1", "acc2", "acc2"), Arrays.asList(log.get(0).getAggregateId(),
+                log.get(1).getAggregateId(), log.get(2).getAggregateId(), log.get(3).getAggregateId()));
+            assertEquals(1, store.readTransaction("tx-2").join().size());
+        } finally {
+            store.cleanup();
+        }
+    }
+
+    @Test
+    void markerOfFinishedImportIsDropped() throws Exception {
+        RocksDBEventStore store = open();
+        store.ingestNewAggregates(Collections.singletonMap("acc1", history("acc1", "tx-1")));
+        store.cleanup();
+
+        // A crash after the versions were ingested but before the marker was deleted
+        try (LRUCache cache = new LRUCache(8 << 20); RocksDBShard shard = openShard(cache)) {
+            SstIngestion.markPending(shard, 0, Collections.singletonList(newAggregate("acc1", "tx-1")));
+        }
+
+        store = open();
+        try {
+            assertEquals(1L, store.getCurrentVersion("acc1").join());
+            assertEquals(2, store.readAllEvents("acc1").join().size());
+            assertEquals(1, store.readTransaction("tx-1").join().size());
+        } finally {
+            store.cleanup();
+        }
+        try (LRUCache cache = new LRUCache(8 << 20); RocksDBShard shard = openShard(cache)) {
+            assertNull(shard.db().get(shard.defaultCF(), "pending-ingestion".getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+
+    private RocksDBProperties properties() {
+        RocksDBProperties properties = new RocksDBProperties();
+        properties.setDataDir(tempDir.resolve("db").toString());
+        properties.getBackup().setDir(tempDir.resolve("backup").toString());
+        return properties;
+    }
+
+    private RocksDBEventStore open() {
+        RocksDBEventStore store = new RocksDBEventStore(new ProtobufEventSerializer(), new SimpleMeterRegistry(), properties());
+        store.init();
+        return store;
+    }
+
+    private RocksDBShard openShard(LRUCache cache) throws Exception {
+        RocksDBProperties properties = properties();
+        RocksDBShard shard = new RocksDBShard(properties, properties.resolvedShards().get(0), false);
+        shard.open(cache, new ProtobufEventSerializer(), new SimpleMeterRegistry());
+        return shard;
+    }
+
+    /**
+     * The part of an import its marker records: the aggregate and the transaction ID per event
+     */
+    private static SstIngestion.NewAggregate newAggregate(String accountId, String transactionId) {
+        return new SstIngestion.NewAggregate(accountId, Arrays.asList(new byte[0], new byte[0]),
+            Arrays.asList(null, transactionId), new long[]{1000, 2000});
+    }
+
+    private static List<BaseEvent> history(String accountId, String transactionId) {
+        return Arrays.asList(frozen(accountId, 1000),
+            BalanceChangedEvent.builder().accountId(accountId).amount(BigDecimal.ONE)
+                .transactionId(transactionId).timestamp(Instant.ofEpochMilli(2000)).build());
+    }
+
+    private static BaseEvent frozen(String accountId, long timestamp) {
+        return AccountFrozenEvent.builder().accountId(accountId).reason("test")
+            .timestamp(Instant.ofEpochMilli(timestamp)).build();
+    }
+}
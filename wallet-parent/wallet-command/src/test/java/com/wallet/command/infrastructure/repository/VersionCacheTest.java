@@ -0,0 +1,92 @@
+package com.wallet.command.infrastructure.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VersionCacheTest {
+    @Test
+    void cachesVersionAndRecordedTime() {
+        VersionCache cache = new VersionCache(16);
+        cache.put("acc1", 3, 1000);
+        cache.put("acc1", 4, 2000);
+
+        assertEquals(4, cache.get("acc1"));
+        assertEquals(2000, cache.recordedAt("acc1"));
+        assertEquals(VersionCache.MISSING, cache.get("acc2"));
+        assertEquals(VersionCache.MISSING, cache.recordedAt("acc2"));
+        assertEquals(1, cache.size());
+        // recordedAt is not a lookup
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+    }
+
+    @Test
+    void clockEvictsOnlyUnreferencedEntries() {
+        VersionCache cache = new VersionCache(4);
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            ids.add("acc" + i);
+            cache.put("acc" + i, i, i);
+        }
+        // Every entry was referenced by its put, so the hand clears them all before evicting one
+        cache.put("acc4", 4, 4);
+        assertEquals(4, cache.size());
+        List<String> survivors = new ArrayList<>();
+        for (String id : ids) {
+            if (cache.recordedAt(id) != VersionCache.MISSING) {
+                survivors.add(id);
+            }
+        }
+        assertEquals(3, survivors.size());
+
+        // Referencing two survivors leaves the third as the only cold entry
+        cache.get(survivors.get(0));
+        cache.get(survivors.get(1));
+        cache.put("acc5", 5, 5);
+
+        assertEquals(4, cache.size());
+        assertEquals(VersionCache.MISSING, cache.recordedAt(survivors.get(2)));
+        assertNotEquals(VersionCache.MISSING, cache.recordedAt(survivors.get(0)));
+        assertNotEquals(VersionCache.MISSING, cache.recordedAt(survivors.get(1)));
+        assertEquals(4, cache.recordedAt("acc4"));
+        assertEquals(5, cache.recordedAt("acc5"));
+    }
+
+    @Test
+    void entriesStayReachableAfterEvictionsAndInvalidation() {
+        VersionCache cache = new VersionCache(64);
+        for (int i = 0; i < 1000; i++) {
+            cache.put("acc" + i, i, i * 10L);
+            assertEquals(i, cache.get("acc" + i));
+            if (i % 3 == 0) {
+                cache.invalidate("acc" + i);
+                assertEquals(VersionCache.MISSING, cache.recordedAt("acc" + i));
+            }
+        }
+
+        assertTrue(cache.size() <= 64);
+        int cached = 0;
+        for (int i = 0; i < 1000; i++) {
+            long recordedAt = cache.recordedAt("acc" + i);
+            if (recordedAt != VersionCache.MISSING) {
+                assertNotEquals(0, i % 3);
+                assertEquals(i * 10L, recordedAt);
+                cached++;
+            }
+        }
+        assertEquals(cache.size(), cached);
+    }
+
+    @Test
+    void zeroCapacityCachesNothing() {
+        VersionCache cache = new VersionCache(0);
+        cache.put("acc1", 1, 1);
+
+        assertEquals(VersionCache.MISSING, cache.get("acc1"));
+        assertEquals(0, cache.size());
+    }
+}
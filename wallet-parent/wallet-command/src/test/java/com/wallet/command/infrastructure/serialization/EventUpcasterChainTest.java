@@ -0,0 +1,135 @@
+package com.wallet.command.infrastructure.serialization;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.wallet.command.event.BalanceChangedEvent;
+import com.wallet.command.event.proto.BalanceChangedEventData;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.function.ToIntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The chain against a test schema version 2 of BALANCE_CHANGED, whose amounts are units
+ * where version 1 stored cents
+ */
+class EventUpcasterChainTest {
+    private static final ToIntFunction<EventType> BALANCE_CHANGED_AT_2 =
+        type -> type == EventType.BALANCE_CHANGED ? 2 : type.getSchemaVersion();
+
+    @Test
+    void olderPayloadIsRewrittenAndCounted() throws Exception {
+        EventUpcasterChain chain = new EventUpcasterChain(Collections.singletonList(new CentsToUnits()), BALANCE_CHANGED_AT_2);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        chain.bindTo(registry);
+        EventEnvelope stored = versionOne("1250");
+
+        EventEnvelope upcast = chain.upcast(stored);
+
+        assertEquals(2, upcast.getSchemaVersion());
+        assertEquals(PayloadFormat.PROTOBUF, upcast.getFormat());
+        assertEquals("12.50", BalanceChangedEventData.parseFrom(upcast.payload()).getAmount());
+        // The stored envelope is left as it was
+        assertEquals(1, stored.getSchemaVersion());
+        assertEquals("1250", BalanceChangedEventData.parseFrom(stored.payload()).getAmount());
+
+        ProtobufEventSerializer serializer = new ProtobufEventSerializer(ProtobufEventCodecs.registry(), chain);
+        BalanceChangedEvent event = (BalanceChangedEvent) serializer.deserialize(versionOne("99"));
+        assertEquals(new BigDecimal("0.99"), event.getAmount());
+        assertEquals("tx-1", event.getTransactionId());
+
+        assertEquals(2.0, registry.get("wallet.event.upcasts")
+            .tag("type", "BALANCE_CHANGED").tag("from.version", "1").functionCounter().count());
+    }
+
+    @Test
+    void currentPayloadIsReturnedAsIs() {
+        EventUpcasterChain chain = new EventUpcasterChain(Collections.singletonList(new CentsToUnits()), BALANCE_CHANGED_AT_2);
+        EventEnvelope current = versionOne("1250").withPayload(2, ByteBuffer.wrap(new byte[0]));
+        EventEnvelope created = EventEnvelope.decode(EventEnvelope.encode(EventType.ACCOUNT_FROZEN,
+            PayloadFormat.PROTOBUF, new byte[0]));
+
+        assertSame(current, chain.upcast(current));
+        assertSame(created, chain.upcast(created));
+    }
+
+    @Test
+    void versionWithoutUpcasterKeepsPayload() {
+        EventUpcasterChain chain = new EventUpcasterChain(Collections.emptyList(), BALANCE_CHANGED_AT_2);
+        EventEnvelope stored = versionOne("1250");
+
+        assertSame(stored, chain.upcast(stored));
+    }
+
+    @Test
+    void failingUpcasterIsReportedAsDeserializationFailure() {
+        EventUpcasterChain chain = new EventUpcasterChain(Collections.singletonList(new CentsToUnits()), BALANCE_CHANGED_AT_2);
+
+        EventDeserializationException e = assertThrows(EventDeserializationException.class,
+            () -> chain.upcast(versionOne("not a number")));
+        assertTrue(e.getMessage().contains("BALANCE_CHANGED from schema version 1"), e.getMessage());
+    }
+
+    @Test
+    void duplicateOrOutOfRangeUpcastersAreRejected() {
+        assertThrows(IllegalArgumentException.class,
+            () -> new EventUpcasterChain(Arrays.asList(new CentsToUnits(), new CentsToUnits()), BALANCE_CHANGED_AT_2));
+        // Version 2 is current, so nothing upcasts from it
+        assertThrows(IllegalArgumentException.class,
+            () -> new EventUpcasterChain(Collections.singletonList(new CentsToUnits() {
+                @Override
+                public int fromVersion() {
+                    return 2;
+                }
+            }), BALANCE_CHANGED_AT_2));
+        assertThrows(IllegalArgumentException.class,
+            () -> new EventUpcasterChain(Collections.singletonList(new CentsToUnits() {
+                @Override
+                public int fromVersion() {
+                    return 0;
+                }
+            }), BALANCE_CHANGED_AT_2));
+        // At the released schema versions no type has a version to upcast from
+        assertThrows(IllegalArgumentException.class,
+            () -> new EventUpcasterChain(Collections.singletonList(new CentsToUnits())));
+    }
+
+    private static EventEnvelope versionOne(String cents) {
+        return EventEnvelope.decode(EventEnvelope.encode(EventType.BALANCE_CHANGED, PayloadFormat.PROTOBUF,
+            BalanceChangedEventData.newBuilder()
+                .setEventId("event-1")
+                .setAccountId("acc1")
+                .setAmount(cents)
+                .setTransactionId("tx-1")
+                .build().toByteArray()));
+    }
+
+    private static class CentsToUnits implements EventUpcaster {
+        @Override
+        public EventType type() {
+            return EventType.BALANCE_CHANGED;
+        }
+
+        @Override
+        public int fromVersion() {
+            return 1;
+        }
+
+        @Override
+        public ByteBuffer upcast(PayloadFormat format, ByteBuffer payload) {
+            try {
+                BalanceChangedEventData data = BalanceChangedEventData.parseFrom(payload);
+                return ByteBuffer.wrap(data.toBuilder()
+                    .setAmount(new BigDecimal(data.getAmount()).movePointLeft(2).toPlainString())
+                    .build().toByteArray());
+            } catch (InvalidProtocolBufferException e) {
+                throw new IllegalArgumentException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.wallet.command.infrastructure.serialization;
+
+import com.wallet.command.event.AccountCreatedEvent;
+import com.wallet.command.event.BalanceChangedEvent;
+import com.wallet.command.event.proto.AccountCreatedEventData;
+import com.wallet.command.event.proto.BalanceChangedEventData;
+import com.wallet.service.Decimal;
+import com.wallet.service.Decimals;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Amounts are written as Decimal messages, and events written before keep being read
+ * from the decimal string fields, both when deserialized and when projected
+ */
+class ProtobufEventCodecsTest {
+    private final ProtobufEventSerializer serializer = new ProtobufEventSerializer();
+
+    @Test
+    void amountIsWrittenAsDecimal() throws Exception {
+        BalanceChangedEvent event = BalanceChangedEvent.builder()
+            .eventId("event-1")
+            .accountId("acc1")
+            .amount(new BigDecimal("-12.50"))
+            .transactionId("tx-1")
+            .timestamp(Instant.ofEpochMilli(1000))
+            .build();
+
+        EventEnvelope envelope = EventEnvelope.decode(EventEnvelope.encode(event, serializer));
+        BalanceChangedEventData data = BalanceChangedEventData.parseFrom(envelope.payloadBuffer());
+
+        assertTrue(data.hasAmountValue());
+        assertFalse(data.hasAmount());
+        assertEquals(new BigDecimal("-12.50"), Decimals.fromMessage(data.getAmountValue()));
+        assertEquals(new BigDecimal("-12.50"), ((BalanceChangedEvent) serializer.deserialize(envelope)).getAmount());
+    }
+
+    @Test
+    void legacyStringAmountIsRead() {
+        EventEnvelope envelope = envelope(EventType.BALANCE_CHANGED, BalanceChangedEventData.newBuilder()
+            .setEventId("event-1")
+            .setAccountId("acc1")
+            .setAmount("12.50")
+            .setTransactionId("tx-1")
+            .build().toByteArray());
+
+        BalanceChangedEvent event = (BalanceChangedEvent) serializer.deserialize(envelope);
+        EventProjection projection = new EventProjection();
+        serializer.project(envelope, projection);
+
+        assertEquals(new BigDecimal("12.50"), event.getAmount());
+        assertEquals("tx-1", event.getTransactionId());
+        assertEquals(new BigDecimal("12.50"), projection.getAmount());
+        assertEquals("tx-1", projection.getTransactionId());
+    }
+
+    @Test
+    void legacyStringBalancesAreRead() {
+        EventEnvelope envelope = envelope(EventType.ACCOUNT_CREATED, AccountCreatedEventData.newBuilder()
+            .setEventId("event-1")
+            .setAccountId("acc1")
+            .setInitialBalance("100")
+            .setMinBalance("-5.5")
+            .setMaxBalanceValue(Decimals.toMessage(new BigDecimal("1000.00")))
+            .build().toByteArray());
+
+        AccountCreatedEvent event = (AccountCreatedEvent) serializer.deserialize(envelope);
+        EventProjection projection = new EventProjection();
+        serializer.project(envelope, projection);
+
+        assertEquals(new BigDecimal("100"), event.getInitialBalance());
+        assertEquals(new BigDecimal("-5.5"), event.getMinBalance());
+        assertEquals(new BigDecimal("1000.00"), event.getMaxBalance());
+        assertEquals(new BigDecimal("100"), projection.getInitialBalance());
+        assertEquals(new BigDecimal("-5.5"), projection.getMinBalance());
+        assertEquals(new BigDecimal("1000.00"), projection.getMaxBalance());
+    }
+
+    @Test
+    void decimalTakesPrecedenceOverLegacyString() {
+        EventEnvelope envelope = envelope(EventType.BALANCE_CHANGED, BalanceChangedEventData.newBuilder()
+            .setEventId("event-1")
+            .setAccountId("acc1")
+            .setAmountValue(Decimals.toMessage(new BigDecimal("7.25")))
+            .setAmount("1")
+            .build().toByteArray());
+
+        EventProjection projection = new EventProjection();
+        serializer.project(envelope, projection);
+
+        assertEquals(new BigDecimal("7.25"), ((BalanceChangedEvent) serializer.deserialize(envelope)).getAmount());
+        assertEquals(new BigDecimal("7.25"), projection.getAmount());
+    }
+
+    @Test
+    void decimalWithoutUnscaledValueIsRejected() {
+        EventEnvelope envelope = envelope(EventType.BALANCE_CHANGED, BalanceChangedEventData.newBuilder()
+            .setEventId("event-1")
+            .setAccountId("acc1")
+            .setAmountValue(Decimal.newBuilder().setScale(2))
+            .build().toByteArray());
+
+        assertThrows(EventDeserializationException.class, () -> serializer.deserialize(envelope));
+        assertThrows(EventDeserializationException.class, () -> serializer.project(envelope, new EventProjection()));
+    }
+
+    private static EventEnvelope envelope(EventType type, byte[] payload) {
+        return EventEnvelope.decode(EventEnvelope.encode(type, PayloadFormat.PROTOBUF, payload));
+    }
+}
@@ -0,0 +1,145 @@
+package com.wallet.command.infrastructure.serialization;
+
+import com.wallet.command.event.*;
+import com.wallet.command.model.AccountState;
+import com.wallet.enums.AssetType;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Projecting a protobuf payload in place gives the same fields as projecting the event
+ * decoded in full, for every event type and with the projection reused between events
+ */
+class ProtobufEventProjectorTest {
+    private static final Instant TIMESTAMP = Instant.ofEpochMilli(1_700_000_000_123L);
+
+    private final ProtobufEventSerializer serializer = new ProtobufEventSerializer();
+
+    @Test
+    void everyTypeProjectsLikeFullDecode() {
+        Set<EventType> types = EnumSet.noneOf(EventType.class);
+        EventProjection reused = new EventProjection();
+        for (BaseEvent event : history()) {
+            EventEnvelope envelope = EventEnvelope.decode(EventEnvelope.encode(event, serializer));
+            EventProjection decoded = new EventProjection();
+            decoded.project(serializer.deserialize(envelope));
+
+            serializer.project(envelope, reused);
+
+            assertProjectionEquals(decoded, reused);
+            types.add(reused.getType());
+        }
+        assertEquals(EnumSet.allOf(EventType.class), types);
+    }
+
+    @Test
+    void unsetFieldsProjectLikeFullDecode() {
+        List<BaseEvent> sparse = Arrays.asList(
+            BalanceChangedEvent.builder().accountId("acc1").amount(BigDecimal.ONE).build(),
+            AccountFrozenEvent.builder().accountId("acc1").build(),
+            TransferInitiatedEvent.builder().accountId("acc1").amount(BigDecimal.ONE).timestamp(TIMESTAMP).build());
+        for (BaseEvent event : sparse) {
+            EventEnvelope envelope = EventEnvelope.decode(EventEnvelope.encode(event, serializer));
+            EventProjection decoded = new EventProjection();
+            decoded.project(serializer.deserialize(envelope));
+            EventProjection projected = new EventProjection();
+
+            serializer.project(envelope, projected);
+
+            assertProjectionEquals(decoded, projected);
+        }
+    }
+
+    @Test
+    void foldOfProjectionsMatchesFoldOfEvents() {
+        List<EventEnvelope> envelopes = new ArrayList<>();
+        List<BaseEvent> decoded = new ArrayList<>();
+        for (BaseEvent event : history()) {
+            EventEnvelope envelope = EventEnvelope.decode(EventEnvelope.encode(event, serializer));
+            envelopes.add(envelope);
+            decoded.add(serializer.deserialize(envelope));
+        }
+        Iterator<EventEnvelope> source = envelopes.iterator();
+        EventProjection projection = new EventProjection();
+        Iterator<EventProjection> projections = new Iterator<EventProjection>() {
+            @Override
+            public boolean hasNext() {
+                return source.hasNext();
+            }
+
+            @Override
+            public EventProjection next() {
+                serializer.project(source.next(), projection);
+                return projection;
+            }
+        };
+
+        AccountState expected = AccountState.fromEvents(decoded);
+        AccountState actual = AccountState.fromProjections(null, projections);
+
+        assertEquals(expected.getAccountId(), actual.getAccountId());
+        assertEquals(expected.getAssetType(), actual.getAssetType());
+        assertEquals(expected.getBalance(), actual.getBalance());
+        assertEquals(expected.getMinBalance(), actual.getMinBalance());
+        assertEquals(expected.getMaxBalance(), actual.getMaxBalance());
+        assertEquals(expected.getStatus(), actual.getStatus());
+        assertEquals(expected.getVersion(), actual.getVersion());
+        assertEquals(expected.getLastUpdated(), actual.getLastUpdated());
+        assertEquals(expected.getLastOperatorId(), actual.getLastOperatorId());
+        assertEquals(expected.getLastTransactionId(), actual.getLastTransactionId());
+    }
+
+    private static void assertProjectionEquals(EventProjection expected, EventProjection actual) {
+        String type = String.valueOf(expected.getType());
+        assertEquals(expected.getType(), actual.getType(), type);
+        assertEquals(expected.getAccountId(), actual.getAccountId(), type);
+        assertEquals(expected.getTargetAccountId(), actual.getTargetAccountId(), type);
+        assertEquals(expected.getTransactionId(), actual.getTransactionId(), type);
+        assertEquals(expected.getAssetType(), actual.getAssetType(), type);
+        assertEquals(expected.getAmount(), actual.getAmount(), type);
+        assertEquals(expected.getInitialBalance(), actual.getInitialBalance(), type);
+        assertEquals(expected.getMinBalance(), actual.getMinBalance(), type);
+        assertEquals(expected.getMaxBalance(), actual.getMaxBalance(), type);
+        assertEquals(expected.getOperatorId(), actual.getOperatorId(), type);
+        assertEquals(expected.getTimestamp(), actual.getTimestamp(), type);
+    }
+
+    /**
+     * One account's history with an event of every type, each event from a different
+     * operator and a second later than the one before
+     */
+    private static List<BaseEvent> history() {
+        return Arrays.asList(
+            AccountCreatedEvent.builder().eventId("e1").accountId("acc1").operatorId("op1").timestamp(at(1))
+                .ownerId("owner1").currency("USD").assetType(AssetType.FIAT).initialBalance(new BigDecimal("100.00"))
+                .minBalance(new BigDecimal("-5.5")).maxBalance(new BigDecimal("1000000")).build(),
+            BalanceChangedEvent.builder().eventId("e2").accountId("acc1").operatorId("op2").timestamp(at(2))
+                .amount(new BigDecimal("-12.50")).transactionId("tx-1").targetAccountId("acc2").build(),
+            TransferInitiatedEvent.builder().eventId("e3").accountId("acc1").operatorId("op3").timestamp(at(3))
+                .targetAccountId("acc2").amount(new BigDecimal("3.25")).transactionId("tx-2").description("rent").build(),
+            TransferCompletedEvent.builder().eventId("e4").accountId("acc1").operatorId("op4").timestamp(at(4))
+                .targetAccountId("acc2").amount(new BigDecimal("3.25")).transactionId("tx-2").build(),
+            TransferFailedEvent.builder().eventId("e5").accountId("acc1").operatorId("op5").timestamp(at(5))
+                .targetAccountId("acc2").amount(new BigDecimal("1.00")).transactionId("tx-3").reason("limit").build(),
+            AccountFrozenEvent.builder().eventId("e6").accountId("acc1").operatorId("op6").timestamp(at(6))
+                .reason("review").build(),
+            AccountUnfrozenEvent.builder().eventId("e7").accountId("acc1").operatorId("op7").timestamp(at(7))
+                .reason("cleared").build(),
+            AccountClosedEvent.builder().eventId("e8").accountId("acc1").operatorId("op8").timestamp(at(8))
+                .finalBalance(new BigDecimal("84.25")).reason("closed").build());
+    }
+
+    private static Instant at(long seconds) {
+        return TIMESTAMP.plusSeconds(seconds);
+    }
+}
@@ -0,0 +1,71 @@
+package com.wallet.command.interceptor;
+
+import com.wallet.command.model.Durability;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.Status;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * The level of the x-durability header as the service sees it while the call starts
+ */
+class DurabilityInterceptorTest {
+    private final DurabilityInterceptor interceptor = new DurabilityInterceptor();
+    private final AtomicReference<Durability> seen = new AtomicReference<>();
+    private final ServerCallHandler<String, String> handler = (call, headers) -> {
+        seen.set(DurabilityInterceptor.requested());
+        return new ServerCall.Listener<String>() {};
+    };
+
+    @Test
+    void headerIsExposedToTheCall() {
+        ServerCall<String, String> call = call();
+
+        interceptor.interceptCall(call, headers(" sync "), handler);
+
+        assertEquals(Durability.SYNC, seen.get());
+        verify(call, never()).close(any(), any());
+        // The level only belongs to the context of the call
+        assertNull(DurabilityInterceptor.requested());
+    }
+
+    @Test
+    void missingHeaderRequestsNothing() {
+        seen.set(Durability.ASYNC);
+
+        interceptor.interceptCall(call(), new Metadata(), handler);
+
+        assertNull(seen.get());
+    }
+
+    @Test
+    void unknownLevelIsRejected() {
+        ServerCall<String, String> call = call();
+
+        interceptor.interceptCall(call, headers("fsync"), handler);
+
+        ArgumentCaptor<Status> status = ArgumentCaptor.forClass(Status.class);
+        verify(call).close(status.capture(), any());
+        assertEquals(Status.Code.INVALID_ARGUMENT, status.getValue().getCode());
+        assertNull(seen.get());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ServerCall<String, String> call() {
+        return mock(ServerCall.class);
+    }
+
+    private static Metadata headers(String durability) {
+        Metadata headers = new Metadata();
+        headers.put(DurabilityInterceptor.DURABILITY_HEADER, durability);
+        return headers;
+    }
+}
@@ -0,0 +1,108 @@
+package com.wallet.command.service;
+
+import com.wallet.command.config.DurabilityProperties;
+import com.wallet.command.config.RocksDBProperties;
+import com.wallet.command.infrastructure.repository.RocksDBEventStore;
+import com.wallet.command.infrastructure.serialization.ProtobufEventSerializer;
+import com.wallet.command.model.Durability;
+import com.wallet.command.model.command.ChangeBalanceCommand;
+import com.wallet.command.model.command.CreateAccountCommand;
+import com.wallet.command.model.command.FreezeAccountCommand;
+import com.wallet.command.model.command.UnfreezeAccountCommand;
+import com.wallet.enums.AssetType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The durability each command is appended with, read from the write latency the RocksDB
+ * lanes record per durability. Every command here is appended in a flush of its own.
+ */
+class CommandProcessorTest {
+    private static final String METRIC_WRITE = "wallet.eventstore.commit.write";
+
+    @TempDir
+    Path tempDir;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final DurabilityProperties durabilityProperties = new DurabilityProperties();
+    private RocksDBEventStore store;
+    private CommandProcessor processor;
+
+    @BeforeEach
+    void open() {
+        RocksDBProperties properties = new RocksDBProperties();
+        properties.setDataDir(tempDir.resolve("db").toString());
+        properties.getBackup().setDir(tempDir.resolve("backup").toString());
+        properties.setWriteLanes(1);
+        store = new RocksDBEventStore(new ProtobufEventSerializer(), registry, properties);
+        store.init();
+        processor = new CommandProcessor(store, new EventReplayService(store, registry, 100, 50), durabilityProperties);
+    }
+
+    @AfterEach
+    void close() {
+        store.cleanup();
+    }
+
+    @Test
+    void commandTypeLevelIsRaisedByRequest() {
+        durabilityProperties.getCommands().put("FreezeAccountCommand", Durability.ASYNC);
+        durabilityProperties.getCommands().put("ChangeBalanceCommand", Durability.SYNC);
+
+        processor.process(createAccount()).join();
+        assertWrites(0, 1, 0);
+
+        processor.process(FreezeAccountCommand.builder().accountId("acc1").operatorId("op").reason("test")
+            .timestamp(Instant.now()).build()).join();
+        assertWrites(1, 1, 0);
+
+        processor.process(UnfreezeAccountCommand.builder().accountId("acc1").operatorId("op").reason("test")
+            .timestamp(Instant.now()).durability(Durability.SYNC).build()).join();
+        assertWrites(1, 1, 1);
+
+        // A request can raise the configured level, never lower it
+        processor.process(ChangeBalanceCommand.builder().accountId("acc1").operatorId("op")
+            .amount(BigDecimal.TEN).transactionId(UUID.randomUUID().toString())
+            .timestamp(Instant.now()).durability(Durability.ASYNC).build()).join();
+        assertWrites(1, 1, 2);
+        assertEquals(3L, store.getCurrentVersion("acc1").join());
+    }
+
+    @Test
+    void defaultLevelAppliesToUnlistedCommands() {
+        durabilityProperties.setDefaultLevel(Durability.ASYNC);
+
+        processor.process(createAccount()).join();
+        assertWrites(1, 0, 0);
+
+        processor.process(FreezeAccountCommand.builder().accountId("acc1").operatorId("op").reason("test")
+            .timestamp(Instant.now()).durability(Durability.GROUP_SYNC).build()).join();
+        assertWrites(1, 1, 0);
+    }
+
+    private static CreateAccountCommand createAccount() {
+        return CreateAccountCommand.builder().accountId("acc1").operatorId("op").ownerId("owner1").currency("USD")
+            .assetType(AssetType.FIAT).initialBalance(new BigDecimal("100")).minBalance(BigDecimal.ZERO)
+            .maxBalance(new BigDecimal("1000000")).timestamp(Instant.now()).build();
+    }
+
+    private void assertWrites(long async, long groupSync, long sync) {
+        assertEquals(async, writes(Durability.ASYNC), "ASYNC writes");
+        assertEquals(groupSync, writes(Durability.GROUP_SYNC), "GROUP_SYNC writes");
+        assertEquals(sync, writes(Durability.SYNC), "SYNC writes");
+    }
+
+    private long writes(Durability durability) {
+        return registry.get(METRIC_WRITE).tag("durability", durability.name()).timer().count();
+    }
+}
@@ -0,0 +1,143 @@
+package com.wallet.command.service;
+
+import com.wallet.command.config.JdbcEventStoreProperties;
+import com.wallet.command.config.RocksDBProperties;
+import com.wallet.command.config.SegmentedLogProperties;
+import com.wallet.command.event.AccountCreatedEvent;
+import com.wallet.command.event.BalanceChangedEvent;
+import com.wallet.command.event.BaseEvent;
+import com.wallet.command.infrastructure.repository.EventStore;
+import com.wallet.command.infrastructure.repository.JdbcEventStore;
+import com.wallet.command.infrastructure.repository.RocksDBEventStore;
+import com.wallet.command.infrastructure.repository.SegmentedLogEventStore;
+import com.wallet.command.infrastructure.serialization.ProtobufEventSerializer;
+import com.wallet.command.replay.ReplayRequest;
+import com.wallet.command.replay.ReplayResult;
+import com.wallet.enums.AssetType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Point-in-time replays give the same answers on every engine: each records an event at
+ * its timestamp, raised to the recorded time of the aggregate's previous event
+ */
+class PointInTimeReplayServiceTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void replaysOnJdbc() throws Exception {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        try (Connection connection = dataSource.getConnection()) {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("schema.sql"));
+        }
+        JdbcEventStore store = new JdbcEventStore(dataSource, new ProtobufEventSerializer(),
+            new SimpleMeterRegistry(), new JdbcEventStoreProperties());
+        store.init();
+        try {
+            checkReplays(store);
+        } finally {
+            store.cleanup();
+        }
+    }
+
+    @Test
+    void replaysOnRocksDB() throws Exception {
+        RocksDBProperties properties = new RocksDBProperties();
+        properties.setDataDir(tempDir.resolve("db").toString());
+        properties.getBackup().setDir(tempDir.resolve("backup").toString());
+        RocksDBEventStore store = new RocksDBEventStore(new ProtobufEventSerializer(), new SimpleMeterRegistry(), properties);
+        store.init();
+        try {
+            checkReplays(store);
+        } finally {
+            store.cleanup();
+        }
+    }
+
+    @Test
+    void replaysOnSegmentedLog() throws Exception {
+        SegmentedLogProperties properties = new SegmentedLogProperties();
+        properties.setDir(tempDir.resolve("log").toString());
+        SegmentedLogEventStore store = new SegmentedLogEventStore(new ProtobufEventSerializer(),
+            new SimpleMeterRegistry(), properties);
+        store.init();
+        try {
+            checkReplays(store);
+        } finally {
+            store.cleanup();
+        }
+    }
+
+    private static void checkReplays(EventStore store) {
+        // Version 2 was written by a clock that stepped back, so it is recorded at 3000
+        store.appendEvents("acc1", -1, Arrays.asList(created("acc1", 1000), changed("acc1", "10", 3000))).join();
+        store.appendEvents("acc1", 1, Arrays.asList(changed("acc1", "20", 2000), changed("acc1", "40", 5000))).join();
+        PointInTimeReplayService service = new PointInTimeReplayService(store, new SimpleMeterRegistry());
+
+        assertEquals(-1L, store.getVersionAt("acc1", at(999)).join());
+        assertEquals(0L, store.getVersionAt("acc1", at(2999)).join());
+        assertEquals(2L, store.getVersionAt("acc1", at(3000)).join());
+        assertEquals(3L, store.getVersionAt("acc1", at(5000)).join());
+
+        ReplayResult atTwo = replay(service, ReplayRequest.builder().aggregateId("acc1")
+            .endTime(at(2000)).includeEndTime(true));
+        assertEquals(0L, atTwo.getFinalVersion());
+        assertEquals(new BigDecimal("100"), atTwo.getState().getBalance());
+
+        ReplayResult atThree = replay(service, ReplayRequest.builder().aggregateId("acc1")
+            .endTime(at(3000)).includeEndTime(true));
+        assertEquals(2L, atThree.getFinalVersion());
+        assertEquals(new BigDecimal("130"), atThree.getState().getBalance());
+
+        ReplayResult beforeFive = replay(service, ReplayRequest.builder().aggregateId("acc1")
+            .endTime(at(5000)).includeEndTime(false));
+        assertEquals(2L, beforeFive.getFinalVersion());
+
+        ReplayResult range = replay(service, ReplayRequest.builder().aggregateId("acc1")
+            .startTime(at(3000)).includeStartTime(true).endTime(at(5000)).includeEndTime(true));
+        assertEquals(3L, range.getFinalVersion());
+        assertEquals(new BigDecimal("170"), range.getState().getBalance());
+        assertEquals(3, range.getAppliedEventCount());
+
+        ReplayResult byVersion = replay(service, ReplayRequest.builder().aggregateId("acc1")
+            .targetVersion(1L).includeTargetVersion(true).endTime(at(5000)).includeEndTime(true));
+        assertEquals(1L, byVersion.getFinalVersion());
+        assertEquals(new BigDecimal("110"), byVersion.getState().getBalance());
+    }
+
+    private static ReplayResult replay(PointInTimeReplayService service, ReplayRequest.ReplayRequestBuilder request) {
+        ReplayResult result = service.replay(request.build()).join();
+        assertTrue(result.isSuccessful(), result.getErrorMessage());
+        return result;
+    }
+
+    private static BaseEvent created(String accountId, long timestamp) {
+        return AccountCreatedEvent.builder().accountId(accountId).assetType(AssetType.FIAT)
+            .initialBalance(new BigDecimal("100")).minBalance(BigDecimal.ZERO).maxBalance(new BigDecimal("1000000"))
+            .timestamp(at(timestamp)).build();
+    }
+
+    private static BaseEvent changed(String accountId, String amount, long timestamp) {
+        return BalanceChangedEvent.builder().accountId(accountId).amount(new BigDecimal(amount))
+            .transactionId(UUID.randomUUID().toString()).timestamp(at(timestamp)).build();
+    }
+
+    private static Instant at(long millis) {
+        return Instant.ofEpochMilli(millis);
+    }
+}
@@ -2,7 +2,12 @@ package com.wallet.query.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-import com.wallet.event.BaseEvent;
+import com.wallet.command.event.BaseEvent;
+import com.wallet.command.infrastructure.serialization.EventUpcasterChain;
+import com.wallet.command.infrastructure.serialization.EventUpcasters;
+import com.wallet.command.infrastructure.serialization.ProtobufEventCodecs;
+import com.wallet.command.infrastructure.serialization.ProtobufEventSerializer;
+import com.wallet.query.event.EventEnvelopeDeserializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -10,7 +15,6 @@ import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
-import org.springframework.kafka.support.serializer.JsonDeserializer;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -28,20 +32,26 @@ public class KafkaConfig {
         return mapper;
     }
 
+    /**
+     * Upcasters of published events from older schema versions, with their counters
+     */
+    @Bean
+    public EventUpcasterChain eventUpcasterChain() {
+        return EventUpcasters.chain();
+    }
+
     @Bean
     public ConsumerFactory<String, BaseEvent> consumerFactory() {
         Map<String, Object> props = new HashMap<>();
         props.put(BOOTSTRAP_SERVERS_CONFIG, "localhost:9092");
         props.put(GROUP_ID_CONFIG, "wallet-query-service");
         props.put(AUTO_OFFSET_RESET_CONFIG, "earliest");
-        
-        JsonDeserializer<BaseEvent> jsonDeserializer = new JsonDeserializer<>(BaseEvent.class, objectMapper());
-        jsonDeserializer.addTrustedPackages("com.wallet.event");
-        
+
         return new DefaultKafkaConsumerFactory<>(
             props,
             new StringDeserializer(),
-            jsonDeserializer
+            // Also reads events published as JSON
+            new EventEnvelopeDeserializer(new ProtobufEventSerializer(ProtobufEventCodecs.registry(), eventUpcasterChain()))
         );
     }
 
@@ -1,6 +1,6 @@
 package com.wallet.query.event;
 
-import com.wallet.event.*;
+import com.wallet.command.event.*;
 import com.wallet.query.entity.AccountEntity;
 import com.wallet.query.mapper.AccountMapper;
 import com.wallet.query.service.AccountQueryService;
@@ -42,7 +42,7 @@ public class AccountEventConsumer {
     private void handleAccountCreated(AccountCreatedEvent event) {
         AccountEntity account = new AccountEntity();
         account.setAccountId(event.getAccountId());
-        account.setOwnerId(event.getOperatorId());
+        account.setOwnerId(event.getOwnerId());
         account.setBalance(event.getInitialBalance());
         account.setMinBalance(event.getMinBalance());
         account.setMaxBalance(event.getMaxBalance());
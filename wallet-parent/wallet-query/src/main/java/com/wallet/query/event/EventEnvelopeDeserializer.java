@@ -0,0 +1,38 @@
+package com.wallet.query.event;
+
+import com.wallet.command.event.BaseEvent;
+import com.wallet.command.infrastructure.serialization.EventDeserializationException;
+import com.wallet.command.infrastructure.serialization.EventEnvelope;
+import com.wallet.command.infrastructure.serialization.EventSerializer;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Kafka value deserializer for the event envelopes published by wallet-command. The header
+ * names the payload format, so the matching serializer decodes the payload in place,
+ * whichever format the command side is configured with.
+ */
+public class EventEnvelopeDeserializer implements Deserializer<BaseEvent> {
+    private final List<EventSerializer> serializers;
+
+    public EventEnvelopeDeserializer(EventSerializer... serializers) {
+        this.serializers = Arrays.asList(serializers);
+    }
+
+    @Override
+    public BaseEvent deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        EventEnvelope envelope = EventEnvelope.decode(data);
+        for (EventSerializer serializer : serializers) {
+            if (serializer.supports(envelope.getFormat())) {
+                return serializer.deserialize(envelope);
+            }
+        }
+        throw new EventDeserializationException("No serializer for " + envelope.getFormat()
+            + " payload of " + envelope.getType());
+    }
+}
@@ -0,0 +1,98 @@
+package com.wallet.query.event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.wallet.command.event.*;
+import com.wallet.command.infrastructure.serialization.EventDeserializationException;
+import com.wallet.command.infrastructure.serialization.EventEnvelope;
+import com.wallet.command.infrastructure.serialization.EventSerializer;
+import com.wallet.command.infrastructure.serialization.EventType;
+import com.wallet.command.infrastructure.serialization.EventUpcasters;
+import com.wallet.command.infrastructure.serialization.JacksonEventSerializer;
+import com.wallet.command.infrastructure.serialization.PayloadFormat;
+import com.wallet.command.infrastructure.serialization.ProtobufEventCodecs;
+import com.wallet.command.infrastructure.serialization.ProtobufEventSerializer;
+import com.wallet.enums.AssetType;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Envelopes encoded the way EventPublisher sends them, read back with the deserializer the
+ * query service's consumer is configured with
+ */
+class EventEnvelopeDeserializerTest {
+    private static final String TOPIC = "wallet-events";
+
+    private final EventEnvelopeDeserializer deserializer = new EventEnvelopeDeserializer(
+        new ProtobufEventSerializer(ProtobufEventCodecs.registry(), EventUpcasters.chain()));
+    private final ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @Test
+    void protobufEnvelopesAreRead() {
+        checkEveryType(new ProtobufEventSerializer(), PayloadFormat.PROTOBUF);
+    }
+
+    @Test
+    void jsonEnvelopesAreRead() {
+        checkEveryType(new JacksonEventSerializer(), PayloadFormat.JSON);
+    }
+
+    @Test
+    void nullValueIsNull() {
+        assertNull(deserializer.deserialize(TOPIC, null));
+    }
+
+    @Test
+    void formatWithoutSerializerIsRejected() {
+        byte[] value = EventEnvelope.encode(events().get(0), new ProtobufEventSerializer());
+
+        EventDeserializationException e = assertThrows(EventDeserializationException.class,
+            () -> new EventEnvelopeDeserializer().deserialize(TOPIC, value));
+        assertTrue(e.getMessage().contains("PROTOBUF"), e.getMessage());
+    }
+
+    private void checkEveryType(EventSerializer publisherSerializer, PayloadFormat format) {
+        Set<EventType> types = EnumSet.noneOf(EventType.class);
+        for (BaseEvent event : events()) {
+            byte[] value = EventEnvelope.encode(event, publisherSerializer);
+            assertEquals(format, EventEnvelope.decode(value).getFormat());
+
+            BaseEvent read = deserializer.deserialize(TOPIC, value);
+
+            assertSame(event.getClass(), read.getClass());
+            assertEquals(mapper.valueToTree(event), mapper.valueToTree(read), event.getClass().getSimpleName());
+            types.add(EventType.of(read));
+        }
+        assertEquals(EnumSet.allOf(EventType.class), types);
+    }
+
+    private static List<BaseEvent> events() {
+        Instant timestamp = Instant.ofEpochMilli(1_700_000_000_123L);
+        return Arrays.asList(
+            AccountCreatedEvent.builder().eventId("e1").accountId("acc1").operatorId("op").timestamp(timestamp)
+                .ownerId("owner1").currency("USD").assetType(AssetType.CRYPTO).initialBalance(new BigDecimal("100.00"))
+                .minBalance(new BigDecimal("-5.5")).maxBalance(new BigDecimal("1000000")).build(),
+            BalanceChangedEvent.builder().eventId("e2").accountId("acc1").operatorId("op").timestamp(timestamp)
+                .amount(new BigDecimal("-12.50")).transactionId("tx-1").targetAccountId("acc2").build(),
+            AccountFrozenEvent.builder().eventId("e3").accountId("acc1").operatorId("op").timestamp(timestamp)
+                .reason("review").build(),
+            AccountUnfrozenEvent.builder().eventId("e4").accountId("acc1").operatorId("op").timestamp(timestamp)
+                .reason("cleared").build(),
+            TransferInitiatedEvent.builder().eventId("e5").accountId("acc1").operatorId("op").timestamp(timestamp)
+                .targetAccountId("acc2").amount(new BigDecimal("3.25")).transactionId("tx-2").description("rent").build(),
+            TransferCompletedEvent.builder().eventId("e6").accountId("acc1").operatorId("op").timestamp(timestamp)
+                .targetAccountId("acc2").amount(new BigDecimal("3.25")).transactionId("tx-2").build(),
+            TransferFailedEvent.builder().eventId("e7").accountId("acc1").operatorId("op").timestamp(timestamp)
+                .targetAccountId("acc2").amount(new BigDecimal("3.25")).transactionId("tx-3").reason("frozen").build(),
+            AccountClosedEvent.builder().eventId("e8").accountId("acc1").operatorId("op").timestamp(timestamp)
+                .finalBalance(new BigDecimal("0.00")).reason("closed").build());
+    }
+}